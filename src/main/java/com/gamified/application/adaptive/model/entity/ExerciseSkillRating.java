@@ -0,0 +1,27 @@
+package com.gamified.application.adaptive.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dificultad estimada (rating Elo) de un ejercicio, con los datos necesarios para recomendarlo
+ * Mapea a la tabla 'exercise_skill_rating' (db/migration/V003) unida a 'exercise'
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExerciseSkillRating {
+    private Integer exerciseId;
+    private Integer learningPointId;
+    private Integer competencyId;
+    private Integer difficultyLevelId;
+    private String title;
+    private String description;
+    private Integer estimatedTime;
+    private Integer pointsValue;
+    private Float rating; // null si el ejercicio aún no tiene rating guardado
+    private Integer attempts;
+}
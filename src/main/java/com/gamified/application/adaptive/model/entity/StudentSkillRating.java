@@ -0,0 +1,21 @@
+package com.gamified.application.adaptive.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Habilidad estimada (rating Elo) de un estudiante en una competencia
+ * Mapea a la tabla 'student_skill_rating' (db/migration/V003)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentSkillRating {
+    private Integer studentProfileId;
+    private Integer competencyId;
+    private Float rating;
+    private Integer attempts;
+}
@@ -0,0 +1,74 @@
+package com.gamified.application.adaptive.repository;
+
+import com.gamified.application.adaptive.model.entity.ExerciseSkillRating;
+import com.gamified.application.adaptive.model.entity.StudentSkillRating;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repositorio para la persistencia de los ratings del motor adaptativo
+ */
+public interface SkillRatingRepository {
+
+    /**
+     * Obtiene las habilidades guardadas de un estudiante en todas sus competencias
+     * @param studentProfileId ID del perfil del estudiante
+     * @return Lista de ratings por competencia, o null si la consulta falla
+     */
+    List<StudentSkillRating> findStudentRatings(Integer studentProfileId);
+
+    /**
+     * Obtiene en una sola consulta las habilidades guardadas de los estudiantes inscritos en una clase
+     * @param classroomId ID de la clase
+     * @return Ratings agrupados por estudiante (sin entrada para quien no tiene ratings), o null si la consulta falla
+     */
+    Map<Integer, List<StudentSkillRating>> findStudentRatingsByClassroom(Integer classroomId);
+
+    /**
+     * Obtiene los ejercicios activos de un learning point con su rating guardado (si lo tienen)
+     * @param learningPointId ID del learning point
+     * @return Lista de ejercicios con su rating, o null si la consulta falla
+     */
+    List<ExerciseSkillRating> findExerciseRatingsByLearningPoint(Integer learningPointId);
+
+    /**
+     * Obtiene los ejercicios de un learning point que el estudiante intentó en los últimos días
+     * @param studentProfileId ID del perfil del estudiante
+     * @param learningPointId ID del learning point
+     * @param days Número de días hacia atrás
+     * @return IDs de los ejercicios (plantillas) intentados
+     */
+    List<Integer> findRecentlyAttemptedExerciseIds(Integer studentProfileId, Integer learningPointId, int days);
+
+    /**
+     * Obtiene en una sola consulta los ejercicios que los estudiantes inscritos en una clase intentaron
+     * en los últimos días
+     * @param classroomId ID de la clase
+     * @param days Número de días hacia atrás
+     * @return IDs de los ejercicios agrupados por estudiante y learning point, o null si la consulta falla
+     */
+    Map<Integer, Map<Integer, Set<Integer>>> findRecentlyAttemptedExerciseIdsByClassroom(Integer classroomId, int days);
+
+    /**
+     * Guarda (inserta o actualiza) habilidades de estudiantes
+     * @return Número de filas afectadas
+     */
+    int saveStudentRatings(List<StudentSkillRating> ratings);
+
+    /**
+     * Guarda (inserta o actualiza) ratings de ejercicios
+     * @return Número de filas afectadas
+     */
+    int saveExerciseRatings(List<ExerciseSkillRating> ratings);
+
+    /**
+     * Recorre los intentos históricos en orden cronológico (para reconstruir o evaluar los ratings)
+     * @param afterAttemptId Último ID procesado (0 para empezar desde el principio)
+     * @param limit Tamaño del bloque
+     * @return Filas con attempt_id, student_profile_id, exercise_id, competency_id,
+     *         difficulty_level_id e is_correct
+     */
+    List<Map<String, Object>> findAttemptsForReplay(long afterAttemptId, int limit);
+}
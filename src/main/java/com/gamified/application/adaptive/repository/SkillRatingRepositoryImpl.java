@@ -0,0 +1,290 @@
+package com.gamified.application.adaptive.repository;
+
+import com.gamified.application.adaptive.model.entity.ExerciseSkillRating;
+import com.gamified.application.adaptive.model.entity.StudentSkillRating;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementación del repositorio de ratings del motor adaptativo usando NamedParameterJdbcTemplate
+ */
+@Repository
+@RequiredArgsConstructor
+public class SkillRatingRepositoryImpl implements SkillRatingRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public List<StudentSkillRating> findStudentRatings(Integer studentProfileId) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("student_profile_id", studentProfileId, Types.INTEGER);
+
+            String sql = """
+                SELECT student_profile_id, competency_id, rating, attempts
+                FROM student_skill_rating
+                WHERE student_profile_id = :student_profile_id
+                """;
+
+            List<Map<String, Object>> results = namedParameterJdbcTemplate.queryForList(sql, parameters);
+
+            List<StudentSkillRating> ratings = new ArrayList<>();
+            for (Map<String, Object> row : results) {
+                ratings.add(StudentSkillRating.builder()
+                        .studentProfileId(((Number) row.get("student_profile_id")).intValue())
+                        .competencyId(((Number) row.get("competency_id")).intValue())
+                        .rating(((Number) row.get("rating")).floatValue())
+                        .attempts(((Number) row.get("attempts")).intValue())
+                        .build());
+            }
+
+            return ratings;
+        } catch (Exception e) {
+            System.err.println("Error al obtener ratings del estudiante: " + e.getMessage());
+            // null y no lista vacía: el servicio no debe tomar el fallo por un estudiante sin ratings
+            return null;
+        }
+    }
+
+    @Override
+    public Map<Integer, List<StudentSkillRating>> findStudentRatingsByClassroom(Integer classroomId) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("classroom_id", classroomId, Types.INTEGER);
+
+            String sql = """
+                SELECT r.student_profile_id, r.competency_id, r.rating, r.attempts
+                FROM enrollment e
+                INNER JOIN student_skill_rating r ON r.student_profile_id = e.student_profile_id
+                WHERE e.classroom_id = :classroom_id AND e.status = 1
+                """;
+
+            Map<Integer, List<StudentSkillRating>> ratings = new HashMap<>();
+            namedParameterJdbcTemplate.query(sql, parameters, rs -> {
+                int studentProfileId = rs.getInt("student_profile_id");
+                ratings.computeIfAbsent(studentProfileId, id -> new ArrayList<>()).add(StudentSkillRating.builder()
+                        .studentProfileId(studentProfileId)
+                        .competencyId(rs.getInt("competency_id"))
+                        .rating(rs.getFloat("rating"))
+                        .attempts(rs.getInt("attempts"))
+                        .build());
+            });
+
+            return ratings;
+        } catch (Exception e) {
+            System.err.println("Error al obtener ratings de los estudiantes de la clase: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<ExerciseSkillRating> findExerciseRatingsByLearningPoint(Integer learningPointId) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("learning_point_id", learningPointId, Types.INTEGER);
+
+            String sql = """
+                SELECT e.id, e.learning_point_id, e.competency_id, e.difficulty_level_id, e.title,
+                       e.description, e.estimated_time, e.points_value, r.rating, r.attempts
+                FROM exercise e
+                LEFT JOIN exercise_skill_rating r ON r.exercise_id = e.id
+                WHERE e.learning_point_id = :learning_point_id
+                  AND e.is_active = 1
+                """;
+
+            List<Map<String, Object>> results = namedParameterJdbcTemplate.queryForList(sql, parameters);
+
+            List<ExerciseSkillRating> ratings = new ArrayList<>();
+            for (Map<String, Object> row : results) {
+                ratings.add(ExerciseSkillRating.builder()
+                        .exerciseId(((Number) row.get("id")).intValue())
+                        .learningPointId(((Number) row.get("learning_point_id")).intValue())
+                        .competencyId(row.get("competency_id") != null ? ((Number) row.get("competency_id")).intValue() : null)
+                        .difficultyLevelId(row.get("difficulty_level_id") != null ? ((Number) row.get("difficulty_level_id")).intValue() : null)
+                        .title((String) row.get("title"))
+                        .description((String) row.get("description"))
+                        .estimatedTime(row.get("estimated_time") != null ? ((Number) row.get("estimated_time")).intValue() : null)
+                        .pointsValue(row.get("points_value") != null ? ((Number) row.get("points_value")).intValue() : null)
+                        .rating(row.get("rating") != null ? ((Number) row.get("rating")).floatValue() : null)
+                        .attempts(row.get("attempts") != null ? ((Number) row.get("attempts")).intValue() : 0)
+                        .build());
+            }
+
+            return ratings;
+        } catch (Exception e) {
+            System.err.println("Error al obtener ratings de ejercicios: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<Integer> findRecentlyAttemptedExerciseIds(Integer studentProfileId, Integer learningPointId, int days) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("student_profile_id", studentProfileId, Types.INTEGER);
+            parameters.addValue("learning_point_id", learningPointId, Types.INTEGER);
+            parameters.addValue("days", days, Types.INTEGER);
+
+            String sql = """
+                SELECT DISTINCT ea.exercise_template_id
+                FROM exercise_attempt ea
+                INNER JOIN exercise e ON e.id = ea.exercise_template_id
+                WHERE ea.student_profile_id = :student_profile_id
+                  AND e.learning_point_id = :learning_point_id
+                  AND ea.completed_at >= DATEADD(DAY, -:days, GETDATE())
+                """;
+
+            return namedParameterJdbcTemplate.queryForList(sql, parameters, Integer.class);
+        } catch (Exception e) {
+            System.err.println("Error al obtener ejercicios intentados recientemente: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public Map<Integer, Map<Integer, Set<Integer>>> findRecentlyAttemptedExerciseIdsByClassroom(Integer classroomId, int days) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("classroom_id", classroomId, Types.INTEGER);
+            parameters.addValue("days", days, Types.INTEGER);
+
+            String sql = """
+                SELECT DISTINCT ea.student_profile_id, ex.learning_point_id, ea.exercise_template_id
+                FROM enrollment e
+                INNER JOIN exercise_attempt ea ON ea.student_profile_id = e.student_profile_id
+                INNER JOIN exercise ex ON ex.id = ea.exercise_template_id
+                WHERE e.classroom_id = :classroom_id AND e.status = 1
+                  AND ea.completed_at >= DATEADD(DAY, -:days, GETDATE())
+                """;
+
+            Map<Integer, Map<Integer, Set<Integer>>> attempted = new HashMap<>();
+            namedParameterJdbcTemplate.query(sql, parameters, rs -> {
+                attempted.computeIfAbsent(rs.getInt("student_profile_id"), id -> new HashMap<>())
+                        .computeIfAbsent(rs.getInt("learning_point_id"), id -> new HashSet<>())
+                        .add(rs.getInt("exercise_template_id"));
+            });
+
+            return attempted;
+        } catch (Exception e) {
+            System.err.println("Error al obtener ejercicios intentados recientemente en la clase: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int saveStudentRatings(List<StudentSkillRating> ratings) {
+        if (ratings == null || ratings.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            String sql = """
+                MERGE student_skill_rating AS target
+                USING (SELECT :student_profile_id AS student_profile_id, :competency_id AS competency_id) AS source
+                ON target.student_profile_id = source.student_profile_id AND target.competency_id = source.competency_id
+                WHEN MATCHED THEN
+                    UPDATE SET rating = :rating, attempts = :attempts, updated_at = GETDATE()
+                WHEN NOT MATCHED THEN
+                    INSERT (student_profile_id, competency_id, rating, attempts, updated_at)
+                    VALUES (:student_profile_id, :competency_id, :rating, :attempts, GETDATE());
+                """;
+
+            MapSqlParameterSource[] batch = new MapSqlParameterSource[ratings.size()];
+            for (int i = 0; i < ratings.size(); i++) {
+                StudentSkillRating rating = ratings.get(i);
+                MapSqlParameterSource parameters = new MapSqlParameterSource();
+                parameters.addValue("student_profile_id", rating.getStudentProfileId(), Types.INTEGER);
+                parameters.addValue("competency_id", rating.getCompetencyId(), Types.INTEGER);
+                parameters.addValue("rating", rating.getRating(), Types.REAL);
+                parameters.addValue("attempts", rating.getAttempts(), Types.INTEGER);
+                batch[i] = parameters;
+            }
+
+            return sum(namedParameterJdbcTemplate.batchUpdate(sql, batch));
+        } catch (Exception e) {
+            System.err.println("Error al guardar ratings de estudiantes: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public int saveExerciseRatings(List<ExerciseSkillRating> ratings) {
+        if (ratings == null || ratings.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            String sql = """
+                MERGE exercise_skill_rating AS target
+                USING (SELECT :exercise_id AS exercise_id) AS source
+                ON target.exercise_id = source.exercise_id
+                WHEN MATCHED THEN
+                    UPDATE SET rating = :rating, attempts = :attempts, updated_at = GETDATE()
+                WHEN NOT MATCHED THEN
+                    INSERT (exercise_id, rating, attempts, updated_at)
+                    VALUES (:exercise_id, :rating, :attempts, GETDATE());
+                """;
+
+            MapSqlParameterSource[] batch = new MapSqlParameterSource[ratings.size()];
+            for (int i = 0; i < ratings.size(); i++) {
+                ExerciseSkillRating rating = ratings.get(i);
+                MapSqlParameterSource parameters = new MapSqlParameterSource();
+                parameters.addValue("exercise_id", rating.getExerciseId(), Types.INTEGER);
+                parameters.addValue("rating", rating.getRating(), Types.REAL);
+                parameters.addValue("attempts", rating.getAttempts(), Types.INTEGER);
+                batch[i] = parameters;
+            }
+
+            return sum(namedParameterJdbcTemplate.batchUpdate(sql, batch));
+        } catch (Exception e) {
+            System.err.println("Error al guardar ratings de ejercicios: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> findAttemptsForReplay(long afterAttemptId, int limit) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("after_id", afterAttemptId, Types.BIGINT);
+            parameters.addValue("limit", limit, Types.INTEGER);
+
+            // Paginación por clave (id creciente) para recorrer todo el historial sin OFFSET
+            String sql = """
+                SELECT TOP (:limit) ea.id AS attempt_id, ea.student_profile_id, ea.exercise_template_id AS exercise_id,
+                       e.competency_id, e.difficulty_level_id, ea.is_correct
+                FROM exercise_attempt ea
+                INNER JOIN exercise e ON e.id = ea.exercise_template_id
+                WHERE ea.id > :after_id AND ea.is_correct IS NOT NULL
+                ORDER BY ea.id
+                """;
+
+            return namedParameterJdbcTemplate.queryForList(sql, parameters);
+        } catch (Exception e) {
+            System.err.println("Error al obtener intentos para reproducir: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private int sum(int[] results) {
+        int affected = 0;
+        for (int result : results) {
+            affected += Math.max(result, 0);
+        }
+        return affected;
+    }
+}
@@ -1,12 +1,12 @@
 package com.gamified.application.adaptive.service;
 
+import com.gamified.application.adaptive.model.entity.StudentSkillRating;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDateTime;
 import java.util.*;
 
 /**
@@ -22,6 +22,18 @@ public class AdaptiveLearningService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private AttemptWindowStore attemptWindowStore;
+
+    @Autowired
+    private SkillRatingService skillRatingService;
+
+    @Autowired
+    private StudyPlanService studyPlanService;
+
+    @Autowired
+    private RecommendationCache recommendationCache;
+
     /**
      * Recomienda el siguiente ejercicio basado en el rendimiento del estudiante
      */
@@ -29,24 +41,17 @@ public class AdaptiveLearningService {
         logger.info("Obteniendo ejercicio recomendado para estudiante {} en learning point {}", 
                    studentProfileId, learningPointId);
         
+        // Recomendación precalculada por el proceso nocturno de la clase (se descarta con cada intento)
+        Map<String, Object> precomputed = recommendationCache.get(studentProfileId, learningPointId);
+        if (precomputed != null) {
+            return precomputed;
+        }
+        
         try {
-            // Analizar rendimiento del estudiante
-            StudentPerformanceAnalysis analysis = analyzeStudentPerformance(studentProfileId, learningPointId);
-            
-            // Determinar dificultad recomendada
-            DifficultyLevel recommendedDifficulty = determineRecommendedDifficulty(analysis);
-            
-            // Buscar ejercicio apropiado
-            Map<String, Object> recommendedExercise = findExerciseByDifficulty(
-                learningPointId, recommendedDifficulty, studentProfileId);
-            
-            // Agregar información de recomendación
-            recommendedExercise.put("recommendation_reason", analysis.getRecommendationReason());
-            recommendedExercise.put("difficulty_adjustment", analysis.getDifficultyAdjustment());
-            recommendedExercise.put("confidence_level", analysis.getConfidenceLevel());
+            Map<String, Object> recommendedExercise = computeRecommendation(studentProfileId, learningPointId);
             
             logger.info("Ejercicio recomendado para estudiante {}: {} (dificultad: {})", 
-                       studentProfileId, recommendedExercise.get("title"), recommendedDifficulty);
+                       studentProfileId, recommendedExercise.get("title"), recommendedExercise.get("difficulty_level"));
             
             return recommendedExercise;
             
@@ -56,6 +61,46 @@ public class AdaptiveLearningService {
         }
     }
 
+    /**
+     * Calcula la recomendación sin pasar por la caché (también la usa el precálculo por clase)
+     */
+    Map<String, Object> computeRecommendation(Integer studentProfileId, Integer learningPointId) {
+        return computeRecommendation(studentProfileId, learningPointId, null, null);
+    }
+
+    /**
+     * Igual que {@link #computeRecommendation(Integer, Integer)} con los ratings y los intentos recientes
+     * que el precálculo ya cargó para toda la clase (null: se consultan)
+     */
+    Map<String, Object> computeRecommendation(Integer studentProfileId, Integer learningPointId,
+                                              List<StudentSkillRating> savedRatings, Set<Integer> recentlyAttempted) {
+        // Analizar rendimiento del estudiante
+        StudentPerformanceAnalysis analysis = analyzeStudentPerformance(studentProfileId, learningPointId);
+        
+        // Determinar dificultad recomendada
+        DifficultyLevel recommendedDifficulty = determineRecommendedDifficulty(analysis);
+        
+        // Buscar ejercicio apropiado: primero en el índice por rating (sin consultas), y si el
+        // learning point no tiene ejercicios indexados, por el nivel de dificultad recomendado
+        Map<String, Object> recommendedExercise = skillRatingService.recommendExercise(studentProfileId, learningPointId, savedRatings, recentlyAttempted)
+            .orElseGet(() -> findExerciseByDifficulty(learningPointId, recommendedDifficulty, studentProfileId));
+        
+        // Agregar información de recomendación
+        recommendedExercise.put("recommendation_reason", analysis.getRecommendationReason());
+        recommendedExercise.put("difficulty_adjustment", analysis.getDifficultyAdjustment());
+        recommendedExercise.put("confidence_level", analysis.getConfidenceLevel());
+        
+        return recommendedExercise;
+    }
+
+    /**
+     * Dificultad que la adaptación pide para el siguiente ejercicio del estudiante en el learning point
+     * (la pre-carga del siguiente ejercicio la usa para resolverlo al nivel que se va a solicitar)
+     */
+    public String getRecommendedDifficulty(Integer studentProfileId, Integer learningPointId) {
+        return determineRecommendedDifficulty(analyzeStudentPerformance(studentProfileId, learningPointId)).name();
+    }
+
     /**
      * Analiza el rendimiento del estudiante
      */
@@ -63,63 +108,19 @@ public class AdaptiveLearningService {
         StudentPerformanceAnalysis analysis = new StudentPerformanceAnalysis();
         
         try {
-            // Obtener métricas de los últimos 10 ejercicios
-            String sql = """
-                SELECT TOP 10
-                    ea.is_correct,
-                    ea.time_spent,
-                    ea.difficulty_level,
-                    ea.points_earned,
-                    ea.completed_at,
-                    e.estimated_duration
-                FROM exercise_attempt ea
-                INNER JOIN exercise e ON ea.exercise_id = e.id
-                WHERE ea.student_profile_id = ? 
-                  AND e.learning_point_id = ?
-                  AND ea.completed_at IS NOT NULL
-                ORDER BY ea.completed_at DESC
-                """;
-            
-            List<Map<String, Object>> recentAttempts = jdbcTemplate.queryForList(sql, studentProfileId, learningPointId);
+            // Ventana en memoria de los últimos intentos (solo consulta la BD la primera vez)
+            AttemptWindowStore.AttemptWindow window = attemptWindowStore.getWindow(studentProfileId, learningPointId);
             
-            if (recentAttempts.isEmpty()) {
+            if (window.getCount() == 0) {
                 analysis.setNewStudent(true);
                 analysis.setRecommendationReason("Estudiante nuevo - comenzando con dificultad básica");
                 return analysis;
             }
             
-            // Calcular métricas
-            int totalAttempts = recentAttempts.size();
-            int correctAttempts = 0;
-            double totalTimeRatio = 0.0;
-            String currentDifficulty = "EASY";
-            
-            for (Map<String, Object> attempt : recentAttempts) {
-                Boolean isCorrect = (Boolean) attempt.get("is_correct");
-                Integer timeSpent = (Integer) attempt.get("time_spent");
-                Integer estimatedDuration = (Integer) attempt.get("estimated_duration");
-                
-                if (Boolean.TRUE.equals(isCorrect)) {
-                    correctAttempts++;
-                }
-                
-                if (timeSpent != null && estimatedDuration != null && estimatedDuration > 0) {
-                    totalTimeRatio += (double) timeSpent / estimatedDuration;
-                }
-                
-                String difficulty = (String) attempt.get("difficulty_level");
-                if (difficulty != null) {
-                    currentDifficulty = difficulty;
-                }
-            }
-            
-            double successRate = (double) correctAttempts / totalAttempts;
-            double averageTimeRatio = totalTimeRatio / totalAttempts;
-            
-            analysis.setSuccessRate(successRate);
-            analysis.setAverageTimeRatio(averageTimeRatio);
-            analysis.setCurrentDifficulty(DifficultyLevel.valueOf(currentDifficulty));
-            analysis.setTotalAttempts(totalAttempts);
+            analysis.setSuccessRate(window.getSuccessRate());
+            analysis.setAverageTimeRatio(window.getAverageTimeRatio());
+            analysis.setCurrentDifficulty(window.getCurrentDifficulty());
+            analysis.setTotalAttempts(window.getCount());
             
             // Calcular nivel de confianza
             calculateConfidenceLevel(analysis);
@@ -275,110 +276,7 @@ public class AdaptiveLearningService {
      * Obtiene un plan de estudio personalizado
      */
     public Map<String, Object> getPersonalizedStudyPlan(Integer studentProfileId) {
-        logger.info("Generando plan de estudio personalizado para estudiante {}", studentProfileId);
-        
-        try {
-            Map<String, Object> studyPlan = new HashMap<>();
-            
-            List<Map<String, Object>> weakAreas = identifyWeakAreas(studentProfileId);
-            List<Map<String, Object>> strongAreas = identifyStrongAreas(studentProfileId);
-            List<String> recommendations = generateStudyRecommendations(weakAreas, strongAreas);
-            
-            studyPlan.put("student_profile_id", studentProfileId);
-            studyPlan.put("weak_areas", weakAreas);
-            studyPlan.put("strong_areas", strongAreas);
-            studyPlan.put("recommendations", recommendations);
-            studyPlan.put("generated_at", LocalDateTime.now());
-            
-            return studyPlan;
-            
-        } catch (Exception e) {
-            logger.error("Error generando plan de estudio personalizado: {}", e.getMessage());
-            return Map.of("error", e.getMessage());
-        }
-    }
-
-    private List<Map<String, Object>> identifyWeakAreas(Integer studentProfileId) {
-        try {
-            String sql = """
-                SELECT 
-                    lp.id as learning_point_id,
-                    lp.title as learning_point_name,
-                    COUNT(ea.id) as total_attempts,
-                    SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) as correct_attempts,
-                    (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(ea.id) as success_rate
-                FROM learning_point lp
-                INNER JOIN exercise e ON lp.id = e.learning_point_id
-                INNER JOIN exercise_attempt ea ON e.id = ea.exercise_id
-                WHERE ea.student_profile_id = ?
-                  AND ea.completed_at >= DATEADD(DAY, -30, GETDATE())
-                GROUP BY lp.id, lp.title
-                HAVING COUNT(ea.id) >= 3 AND (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(ea.id) < 60
-                ORDER BY success_rate ASC
-                """;
-            
-            return jdbcTemplate.queryForList(sql, studentProfileId);
-            
-        } catch (Exception e) {
-            logger.error("Error identificando áreas débiles: {}", e.getMessage());
-            return new ArrayList<>();
-        }
-    }
-
-    private List<Map<String, Object>> identifyStrongAreas(Integer studentProfileId) {
-        try {
-            String sql = """
-                SELECT 
-                    lp.id as learning_point_id,
-                    lp.title as learning_point_name,
-                    COUNT(ea.id) as total_attempts,
-                    SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) as correct_attempts,
-                    (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(ea.id) as success_rate
-                FROM learning_point lp
-                INNER JOIN exercise e ON lp.id = e.learning_point_id
-                INNER JOIN exercise_attempt ea ON e.id = ea.exercise_id
-                WHERE ea.student_profile_id = ?
-                  AND ea.completed_at >= DATEADD(DAY, -30, GETDATE())
-                GROUP BY lp.id, lp.title
-                HAVING COUNT(ea.id) >= 3 AND (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(ea.id) >= 80
-                ORDER BY success_rate DESC
-                """;
-            
-            return jdbcTemplate.queryForList(sql, studentProfileId);
-            
-        } catch (Exception e) {
-            logger.error("Error identificando áreas fuertes: {}", e.getMessage());
-            return new ArrayList<>();
-        }
-    }
-
-    private List<String> generateStudyRecommendations(List<Map<String, Object>> weakAreas, 
-                                                     List<Map<String, Object>> strongAreas) {
-        List<String> recommendations = new ArrayList<>();
-        
-        if (!weakAreas.isEmpty()) {
-            recommendations.add("Enfócate en reforzar: " + 
-                weakAreas.stream()
-                    .map(area -> area.get("learning_point_name").toString())
-                    .reduce((a, b) -> a + ", " + b)
-                    .orElse(""));
-        }
-        
-        if (!strongAreas.isEmpty()) {
-            recommendations.add("Continúa destacando en: " + 
-                strongAreas.stream()
-                    .map(area -> area.get("learning_point_name").toString())
-                    .reduce((a, b) -> a + ", " + b)
-                    .orElse(""));
-        }
-        
-        if (weakAreas.isEmpty() && strongAreas.isEmpty()) {
-            recommendations.add("Continúa practicando regularmente para mantener tu progreso");
-        }
-        
-        recommendations.add("Dedica al menos 15 minutos diarios a la práctica");
-        
-        return recommendations;
+        return studyPlanService.getStudyPlan(studentProfileId);
     }
 
     // Enums y clases auxiliares
@@ -0,0 +1,293 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.shared.model.event.DomainEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ventana de los últimos N intentos por estudiante y learning point, en memoria.
+ * Se actualiza con cada ExerciseCompletedEvent, se carga desde la BD la primera vez que se consulta
+ * un par estudiante/learning point y se expulsa por LRU al superar el máximo de entradas, de modo que
+ * el análisis de rendimiento del servicio adaptativo no consulta la BD en cada recomendación.
+ */
+@Component
+public class AttemptWindowStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttemptWindowStore.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${adaptive.attempt-window.size:10}")
+    private int windowSize;
+
+    @Value("${adaptive.attempt-window.max-entries:50000}")
+    private int maxEntries;
+
+    private final Map<Long, AttemptWindow> windows = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AttemptWindow> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Obtiene la ventana de intentos, cargándola desde la BD si no está en memoria
+     */
+    public AttemptWindow getWindow(Integer studentProfileId, Integer learningPointId) {
+        long key = key(studentProfileId, learningPointId);
+        synchronized (windows) {
+            AttemptWindow window = windows.get(key);
+            if (window != null) {
+                return window;
+            }
+        }
+
+        // La carga se hace fuera del candado; si otro hilo la completó antes se usa la suya
+        AttemptWindow loaded = hydrate(studentProfileId, learningPointId);
+        if (loaded == null) {
+            // Si la carga falla no se guarda la ventana vacía: se reintenta en la siguiente consulta
+            return new AttemptWindow(windowSize);
+        }
+        synchronized (windows) {
+            AttemptWindow existing = windows.putIfAbsent(key, loaded);
+            return existing != null ? existing : loaded;
+        }
+    }
+
+    /**
+     * Añade el intento a la ventana si está en memoria. Si no lo está no se carga aquí:
+     * la siguiente consulta la hidrata desde la BD, que ya incluye este intento.
+     */
+    @EventListener
+    public void onExerciseCompleted(DomainEvent.ExerciseCompletedEvent event) {
+        if (event.getStudentProfileId() == null || event.getLearningPointId() == null) {
+            return;
+        }
+
+        AttemptWindow window;
+        synchronized (windows) {
+            window = windows.get(key(event.getStudentProfileId(), event.getLearningPointId()));
+        }
+        if (window == null) {
+            return;
+        }
+
+        window.add(Boolean.TRUE.equals(event.getIsCorrect()),
+                timeRatio(event.getTimeSpentSeconds(), event.getEstimatedTimeSeconds()),
+                difficultyOrdinal(event.getDifficulty()));
+    }
+
+    /**
+     * Guarda una ventana ya cargada (p. ej. por el precálculo por clase) si no hay otra en memoria
+     */
+    public void prime(Integer studentProfileId, Integer learningPointId, AttemptWindow window) {
+        synchronized (windows) {
+            windows.putIfAbsent(key(studentProfileId, learningPointId), window);
+        }
+    }
+
+    /**
+     * Ventana vacía con la capacidad configurada
+     */
+    AttemptWindow newWindow() {
+        return new AttemptWindow(windowSize);
+    }
+
+    /**
+     * Descarta la ventana de un estudiante en un learning point (p. ej. tras corregir intentos en la BD)
+     */
+    public void invalidate(Integer studentProfileId, Integer learningPointId) {
+        synchronized (windows) {
+            windows.remove(key(studentProfileId, learningPointId));
+        }
+    }
+
+    public int size() {
+        synchronized (windows) {
+            return windows.size();
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    /**
+     * Carga los últimos intentos desde la BD (null si la consulta falla).
+     * El intento apunta a su plantilla (exercise) por exercise_template_id; la dificultad y el tiempo
+     * estimado (en minutos) son los de la plantilla, igual que en el ExerciseCompletedEvent.
+     */
+    private AttemptWindow hydrate(Integer studentProfileId, Integer learningPointId) {
+        AttemptWindow window = new AttemptWindow(windowSize);
+        try {
+            String sql = """
+                SELECT TOP (?)
+                    ea.is_correct,
+                    ea.time_spent,
+                    e.difficulty_level_id,
+                    e.estimated_time
+                FROM exercise_attempt ea
+                INNER JOIN exercise e ON ea.exercise_template_id = e.id
+                WHERE ea.student_profile_id = ?
+                  AND e.learning_point_id = ?
+                  AND ea.completed_at IS NOT NULL
+                ORDER BY ea.completed_at DESC, ea.id DESC
+                """;
+
+            List<Map<String, Object>> recentAttempts = jdbcTemplate.queryForList(sql, windowSize, studentProfileId, learningPointId);
+
+            // Se insertan del más antiguo al más reciente para que la ventana quede en orden
+            for (int i = recentAttempts.size() - 1; i >= 0; i--) {
+                addAttempt(window, recentAttempts.get(i));
+            }
+        } catch (Exception e) {
+            logger.error("Error cargando intentos recientes del estudiante {}: {}", studentProfileId, e.getMessage());
+            return null;
+        }
+        return window;
+    }
+
+    /**
+     * Añade a la ventana un intento leído de la BD con las columnas is_correct, time_spent (segundos),
+     * difficulty_level_id y estimated_time (minutos) de la plantilla
+     */
+    static void addAttempt(AttemptWindow window, Map<String, Object> attempt) {
+        Number timeSpent = (Number) attempt.get("time_spent");
+        Number estimatedMinutes = (Number) attempt.get("estimated_time");
+        Number levelId = (Number) attempt.get("difficulty_level_id");
+
+        addAttempt(window, Boolean.TRUE.equals(attempt.get("is_correct")),
+                timeSpent != null ? timeSpent.intValue() : null,
+                estimatedMinutes != null ? estimatedMinutes.intValue() : null,
+                levelId != null ? levelId.intValue() : null);
+    }
+
+    /**
+     * Añade a la ventana un intento con el tiempo empleado en segundos y el estimado de la plantilla en minutos
+     */
+    static void addAttempt(AttemptWindow window, boolean isCorrect, Integer spentSeconds, Integer estimatedMinutes,
+                           Integer difficultyLevelId) {
+        window.add(isCorrect,
+                timeRatio(spentSeconds, estimatedMinutes != null ? estimatedMinutes * 60 : null),
+                difficultyOrdinal(templateDifficulty(difficultyLevelId)));
+    }
+
+    /**
+     * Tiempo empleado respecto al estimado, ambos en segundos (0 si falta alguno)
+     */
+    static double timeRatio(Integer spentSeconds, Integer estimatedSeconds) {
+        return spentSeconds != null && estimatedSeconds != null && estimatedSeconds > 0
+                ? (double) spentSeconds / estimatedSeconds : 0.0;
+    }
+
+    /**
+     * Dificultad de una plantilla a partir de su difficulty_level_id, como Exercise.getDifficulty()
+     */
+    static String templateDifficulty(Integer difficultyLevelId) {
+        return difficultyLevelId != null ? "level_" + difficultyLevelId : "medium";
+    }
+
+    private long key(Integer studentProfileId, Integer learningPointId) {
+        return ((long) studentProfileId << 32) | (learningPointId & 0xffffffffL);
+    }
+
+    /**
+     * Convierte la dificultad ("EASY", "medium", "level_3"...) al ordinal de DifficultyLevel (-1 si no se reconoce)
+     */
+    static byte difficultyOrdinal(String difficulty) {
+        if (difficulty == null) {
+            return -1;
+        }
+        String normalized = difficulty.trim().toUpperCase();
+        if (normalized.startsWith("LEVEL_")) {
+            try {
+                int level = Integer.parseInt(normalized.substring(6));
+                return (byte) Math.max(0, Math.min(level - 1, AdaptiveLearningService.DifficultyLevel.values().length - 1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        for (AdaptiveLearningService.DifficultyLevel level : AdaptiveLearningService.DifficultyLevel.values()) {
+            if (level.name().equals(normalized)) {
+                return (byte) level.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Buffer circular de los últimos intentos en arreglos primitivos
+     */
+    public static class AttemptWindow {
+        private final boolean[] correct;
+        private final float[] timeRatio;
+        private final byte[] difficulty;
+        private int next;
+        private int count;
+
+        AttemptWindow(int capacity) {
+            this.correct = new boolean[capacity];
+            this.timeRatio = new float[capacity];
+            this.difficulty = new byte[capacity];
+        }
+
+        synchronized void add(boolean isCorrect, double ratio, byte difficultyOrdinal) {
+            correct[next] = isCorrect;
+            timeRatio[next] = (float) ratio;
+            difficulty[next] = difficultyOrdinal;
+            next = (next + 1) % correct.length;
+            count = Math.min(count + 1, correct.length);
+        }
+
+        public synchronized int getCount() {
+            return count;
+        }
+
+        public synchronized double getSuccessRate() {
+            if (count == 0) {
+                return 0.0;
+            }
+            int hits = 0;
+            for (int i = 0; i < count; i++) {
+                if (correct[i]) {
+                    hits++;
+                }
+            }
+            return (double) hits / count;
+        }
+
+        public synchronized double getAverageTimeRatio() {
+            if (count == 0) {
+                return 0.0;
+            }
+            double total = 0.0;
+            for (int i = 0; i < count; i++) {
+                total += timeRatio[i];
+            }
+            return total / count;
+        }
+
+        /**
+         * Dificultad del intento más reciente con dificultad conocida (EASY si no hay ninguna)
+         */
+        public synchronized AdaptiveLearningService.DifficultyLevel getCurrentDifficulty() {
+            for (int i = 1; i <= count; i++) {
+                byte ordinal = difficulty[(next - i + correct.length) % correct.length];
+                if (ordinal >= 0) {
+                    return AdaptiveLearningService.DifficultyLevel.values()[ordinal];
+                }
+            }
+            return AdaptiveLearningService.DifficultyLevel.EASY;
+        }
+    }
+}
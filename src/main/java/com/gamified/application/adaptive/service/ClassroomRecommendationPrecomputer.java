@@ -0,0 +1,285 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.adaptive.model.entity.StudentSkillRating;
+import com.gamified.application.adaptive.repository.SkillRatingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Precálculo nocturno de recomendaciones por clase.
+ * Para cada clase activa carga en una sola consulta los últimos intentos de todos los estudiantes
+ * inscritos (enrollment × exercise_attempt), llena la ventana de intentos de cada estudiante y
+ * calcula en paralelo (fork-join) la recomendación de cada par estudiante/learning point. Los ratings
+ * y los intentos recientes de la clase también se leen en una consulta cada uno y se pasan a las
+ * tareas, que así no consultan la BD por estudiante. Los resultados quedan en RecommendationCache,
+ * que consulta getRecommendedExercise.
+ */
+@Service
+public class ClassroomRecommendationPrecomputer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassroomRecommendationPrecomputer.class);
+
+    // Pares estudiante/learning point por tarea antes de dividirla
+    private static final int TASK_THRESHOLD = 32;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AdaptiveLearningService adaptiveLearningService;
+
+    @Autowired
+    private AttemptWindowStore attemptWindowStore;
+
+    @Autowired
+    private SkillRatingService skillRatingService;
+
+    @Autowired
+    private SkillRatingRepository skillRatingRepository;
+
+    @Autowired
+    private RecommendationCache recommendationCache;
+
+    @Value("${adaptive.precompute.enabled:true}")
+    private boolean precomputeEnabled;
+
+    @Value("${adaptive.precompute.parallelism:4}")
+    private int parallelism;
+
+    @Value("${adaptive.attempt-window.size:10}")
+    private int windowSize;
+
+    @Value("${adaptive.rating.recent-exclusion-days:3}")
+    private int recentExclusionDays;
+
+    private ForkJoinPool forkJoinPool;
+    private volatile Map<String, Object> lastRunReport = Map.of("status", "NOT_RUN");
+
+    @PostConstruct
+    void init() {
+        // Pool propio: el cálculo no ocupa el common pool que usan los parallel streams de la aplicación
+        forkJoinPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("classroom-precompute-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        forkJoinPool.shutdownNow();
+    }
+
+    /**
+     * Precalcula las recomendaciones de todas las clases activas
+     */
+    @Scheduled(cron = "${adaptive.precompute.cron:0 0 2 * * *}")
+    public void precomputeAllClassrooms() {
+        if (!precomputeEnabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Integer> classroomIds = jdbcTemplate.queryForList("SELECT id FROM classroom WHERE status = 1", Integer.class);
+
+        List<Map<String, Object>> classrooms = new ArrayList<>();
+        long totalRows = 0;
+        long totalRecommendations = 0;
+        for (Integer classroomId : classroomIds) {
+            Map<String, Object> report = precomputeClassroom(classroomId);
+            classrooms.add(report);
+            totalRows += ((Number) report.get("rows")).longValue();
+            totalRecommendations += ((Number) report.get("recommendations")).longValue();
+        }
+
+        Map<String, Object> runReport = new LinkedHashMap<>();
+        runReport.put("status", "COMPLETED");
+        runReport.put("finished_at", LocalDateTime.now());
+        runReport.put("classrooms", classroomIds.size());
+        runReport.put("rows", totalRows);
+        runReport.put("recommendations", totalRecommendations);
+        runReport.put("duration_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        runReport.put("per_classroom", classrooms);
+        lastRunReport = runReport;
+
+        logger.info("Precálculo de recomendaciones: {} clases, {} filas, {} recomendaciones en {} ms",
+                classroomIds.size(), totalRows, totalRecommendations, runReport.get("duration_ms"));
+    }
+
+    /**
+     * Precalcula las recomendaciones de los estudiantes inscritos en una clase
+     * @return Reporte con duración, filas leídas, estudiantes y recomendaciones calculadas
+     */
+    public Map<String, Object> precomputeClassroom(Integer classroomId) {
+        long start = System.nanoTime();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("classroom_id", classroomId);
+
+        try {
+            // Últimos intentos por estudiante y learning point de toda la clase en una sola consulta,
+            // con las mismas columnas que la carga de AttemptWindowStore (time_spent en segundos,
+            // estimated_time en minutos y la dificultad de la plantilla)
+            String sql = """
+                SELECT student_profile_id, learning_point_id, is_correct, time_spent,
+                       estimated_time, difficulty_level_id
+                FROM (
+                    SELECT ea.student_profile_id, ex.learning_point_id, ea.is_correct, ea.time_spent,
+                           ex.estimated_time, ex.difficulty_level_id,
+                           ROW_NUMBER() OVER (PARTITION BY ea.student_profile_id, ex.learning_point_id
+                                              ORDER BY ea.completed_at DESC, ea.id DESC) AS rn
+                    FROM enrollment e
+                    INNER JOIN exercise_attempt ea ON ea.student_profile_id = e.student_profile_id
+                    INNER JOIN exercise ex ON ex.id = ea.exercise_template_id
+                    WHERE e.classroom_id = ? AND e.status = 1
+                      AND ea.completed_at IS NOT NULL
+                ) recent
+                WHERE rn <= ?
+                ORDER BY student_profile_id, learning_point_id, rn DESC
+                """;
+
+            Map<Long, AttemptWindowStore.AttemptWindow> windows = new LinkedHashMap<>();
+            Set<Integer> learningPointIds = new LinkedHashSet<>();
+            Set<Integer> studentIds = new LinkedHashSet<>();
+            long[] rows = new long[1];
+
+            // Filas en orden cronológico dentro de cada par: se añaden tal cual a la ventana
+            jdbcTemplate.query(sql, rs -> {
+                int studentId = rs.getInt("student_profile_id");
+                int learningPointId = rs.getInt("learning_point_id");
+                boolean isCorrect = rs.getBoolean("is_correct");
+                Integer spentSeconds = nullableInt(rs, "time_spent");
+                Integer estimatedMinutes = nullableInt(rs, "estimated_time");
+                Integer levelId = nullableInt(rs, "difficulty_level_id");
+
+                AttemptWindowStore.addAttempt(
+                        windows.computeIfAbsent(pairKey(studentId, learningPointId), key -> attemptWindowStore.newWindow()),
+                        isCorrect, spentSeconds, estimatedMinutes, levelId);
+
+                learningPointIds.add(learningPointId);
+                studentIds.add(studentId);
+                rows[0]++;
+            }, classroomId, windowSize);
+
+            // Ventanas e índices listos antes del cálculo paralelo: las tareas no tocan la BD salvo fallback
+            windows.forEach((key, window) -> attemptWindowStore.prime((int) (key >>> 32), (int) (long) key, window));
+            learningPointIds.forEach(skillRatingService::warmUp);
+
+            // Ratings e intentos recientes de toda la clase; si una consulta falla (null) cada tarea
+            // consulta lo suyo como en una recomendación individual
+            Map<Integer, List<StudentSkillRating>> ratings = skillRatingRepository.findStudentRatingsByClassroom(classroomId);
+            Map<Integer, Map<Integer, Set<Integer>>> recentlyAttempted =
+                    skillRatingRepository.findRecentlyAttemptedExerciseIdsByClassroom(classroomId, recentExclusionDays);
+
+            long[] keys = windows.keySet().stream().mapToLong(Long::longValue).toArray();
+            int[] result = forkJoinPool.invoke(new RecommendTask(keys, 0, keys.length, ratings, recentlyAttempted));
+
+            report.put("rows", rows[0]);
+            report.put("students", studentIds.size());
+            report.put("recommendations", result[0]);
+            report.put("failures", result[1]);
+        } catch (Exception e) {
+            logger.error("Error precalculando recomendaciones de la clase {}: {}", classroomId, e.getMessage());
+            report.putIfAbsent("rows", 0L);
+            report.putIfAbsent("recommendations", 0);
+            report.put("error", e.getMessage());
+        }
+
+        report.put("duration_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.debug("Precálculo de la clase {}: {}", classroomId, report);
+        return report;
+    }
+
+    /**
+     * Reporte de la última ejecución completa (duración y filas por clase)
+     */
+    public Map<String, Object> getLastRunReport() {
+        return lastRunReport;
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private long pairKey(int studentProfileId, int learningPointId) {
+        return ((long) studentProfileId << 32) | (learningPointId & 0xffffffffL);
+    }
+
+    /**
+     * Calcula las recomendaciones de un rango de pares estudiante/learning point dividiéndolo
+     * en mitades hasta el umbral. Devuelve {recomendaciones calculadas, fallos}.
+     */
+    private class RecommendTask extends RecursiveTask<int[]> {
+        private final long[] keys;
+        private final int from;
+        private final int to;
+        private final Map<Integer, List<StudentSkillRating>> ratings;
+        private final Map<Integer, Map<Integer, Set<Integer>>> recentlyAttempted;
+
+        RecommendTask(long[] keys, int from, int to, Map<Integer, List<StudentSkillRating>> ratings,
+                      Map<Integer, Map<Integer, Set<Integer>>> recentlyAttempted) {
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.ratings = ratings;
+            this.recentlyAttempted = recentlyAttempted;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= TASK_THRESHOLD) {
+                int[] counts = new int[2];
+                for (int i = from; i < to; i++) {
+                    int studentId = (int) (keys[i] >>> 32);
+                    int learningPointId = (int) keys[i];
+                    // Sin entrada en las consultas de la clase: el estudiante no tiene ratings ni intentos recientes
+                    List<StudentSkillRating> saved = ratings != null ? ratings.getOrDefault(studentId, List.of()) : null;
+                    Set<Integer> recent = recentlyAttempted != null
+                            ? recentlyAttempted.getOrDefault(studentId, Map.of()).getOrDefault(learningPointId, Set.of())
+                            : null;
+                    try {
+                        recommendationCache.put(studentId, learningPointId,
+                                adaptiveLearningService.computeRecommendation(studentId, learningPointId, saved, recent));
+                        counts[0]++;
+                    } catch (Exception e) {
+                        counts[1]++;
+                    }
+                }
+                return counts;
+            }
+
+            int middle = (from + to) >>> 1;
+            RecommendTask left = new RecommendTask(keys, from, middle, ratings, recentlyAttempted);
+            left.fork();
+            int[] right = new RecommendTask(keys, middle, to, ratings, recentlyAttempted).compute();
+            int[] leftResult = left.join();
+            return new int[]{leftResult[0] + right[0], leftResult[1] + right[1]};
+        }
+    }
+}
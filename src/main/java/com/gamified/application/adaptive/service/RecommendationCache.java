@@ -0,0 +1,116 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.shared.model.event.DomainEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recomendaciones precalculadas por estudiante y learning point.
+ * Las llena el precálculo nocturno por clase; una entrada se descarta cuando el estudiante completa
+ * un ejercicio de ese learning point (su rendimiento cambió) o cuando caduca. Las caducadas se
+ * purgan periódicamente y el tamaño está acotado: al superarlo se descarta la menos usada.
+ */
+@Component
+public class RecommendationCache {
+
+    @Value("${adaptive.precompute.ttl-hours:26}")
+    private long ttlHours;
+
+    @Value("${adaptive.precompute.max-entries:200000}")
+    private int maxEntries;
+
+    // LRU por acceso; todos los accesos se sincronizan sobre el mapa
+    private final Map<Long, CachedRecommendation> recommendations =
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedRecommendation> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+
+    /**
+     * Obtiene una copia de la recomendación precalculada (null si no hay o caducó)
+     */
+    public Map<String, Object> get(Integer studentProfileId, Integer learningPointId) {
+        long key = key(studentProfileId, learningPointId);
+        CachedRecommendation cached;
+        synchronized (recommendations) {
+            cached = recommendations.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() > cached.expiresAtMillis) {
+                recommendations.remove(key);
+                return null;
+            }
+        }
+        // Copia: quien la recibe puede modificarla sin afectar a la caché
+        return new HashMap<>(cached.recommendation);
+    }
+
+    public void put(Integer studentProfileId, Integer learningPointId, Map<String, Object> recommendation) {
+        CachedRecommendation cached = new CachedRecommendation(
+                new HashMap<>(recommendation), System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttlHours));
+        synchronized (recommendations) {
+            recommendations.put(key(studentProfileId, learningPointId), cached);
+        }
+    }
+
+    /**
+     * Descarta la recomendación del learning point en el que el estudiante acaba de hacer un intento
+     */
+    @EventListener
+    public void onExerciseCompleted(DomainEvent.ExerciseCompletedEvent event) {
+        if (event.getStudentProfileId() != null && event.getLearningPointId() != null) {
+            synchronized (recommendations) {
+                recommendations.remove(key(event.getStudentProfileId(), event.getLearningPointId()));
+            }
+        }
+    }
+
+    /**
+     * Descarta las recomendaciones caducadas (las de estudiantes que no volvieron a consultarlas)
+     * @return Número de entradas descartadas
+     */
+    @Scheduled(fixedDelayString = "${adaptive.precompute.purge-interval-ms:3600000}",
+               initialDelayString = "${adaptive.precompute.purge-interval-ms:3600000}")
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (recommendations) {
+            int before = recommendations.size();
+            recommendations.values().removeIf(cached -> now > cached.expiresAtMillis);
+            return before - recommendations.size();
+        }
+    }
+
+    public int size() {
+        synchronized (recommendations) {
+            return recommendations.size();
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private long key(Integer studentProfileId, Integer learningPointId) {
+        return ((long) studentProfileId << 32) | (learningPointId & 0xffffffffL);
+    }
+
+    private static class CachedRecommendation {
+        private final Map<String, Object> recommendation;
+        private final long expiresAtMillis;
+
+        CachedRecommendation(Map<String, Object> recommendation, long expiresAtMillis) {
+            this.recommendation = recommendation;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
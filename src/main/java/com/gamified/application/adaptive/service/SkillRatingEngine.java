@@ -0,0 +1,99 @@
+package com.gamified.application.adaptive.service;
+
+/**
+ * Estimación incremental de habilidad y dificultad con el modelo Elo.
+ * La probabilidad de acierto de un estudiante con habilidad a en un ejercicio de dificultad d es
+ * 1 / (1 + 10^((d - a) / 400)); tras cada intento ambos ratings se mueven en sentidos opuestos
+ * proporcionalmente a la sorpresa (resultado - esperado), en O(1).
+ *
+ * El factor K decrece con el número de intentos de cada lado: los estudiantes y ejercicios nuevos
+ * convergen rápido y los ratings ya estables apenas oscilan.
+ */
+public class SkillRatingEngine {
+
+    public static final float INITIAL_RATING = 1500f;
+
+    private static final double SCALE = 400.0;
+    private static final float LEVEL_STEP = 200f;
+
+    private final double baseK;
+    private final double minK;
+    private final double kDecay;
+
+    public SkillRatingEngine(double baseK, double minK, double kDecay) {
+        this.baseK = baseK;
+        this.minK = minK;
+        this.kDecay = kDecay;
+    }
+
+    /**
+     * Probabilidad esperada de acierto
+     */
+    public double expectedSuccess(double ability, double difficulty) {
+        return 1.0 / (1.0 + Math.pow(10.0, (difficulty - ability) / SCALE));
+    }
+
+    /**
+     * Actualiza la habilidad del estudiante y la dificultad del ejercicio con un intento
+     * @param outcome 1.0 si acertó, 0.0 si falló (admite valores intermedios para créditos parciales)
+     * @return Probabilidad de acierto que predecía el modelo antes del intento
+     */
+    public double update(RatingState student, RatingState exercise, double outcome) {
+        // Siempre se bloquea primero el estudiante y luego el ejercicio: no hay interbloqueos
+        synchronized (student) {
+            synchronized (exercise) {
+                double expected = expectedSuccess(student.rating, exercise.rating);
+                double surprise = outcome - expected;
+
+                student.rating += (float) (kFactor(student.attempts) * surprise);
+                exercise.rating -= (float) (kFactor(exercise.attempts) * surprise);
+                student.attempts++;
+                exercise.attempts++;
+                return expected;
+            }
+        }
+    }
+
+    /**
+     * Dificultad de ejercicio con la que el estudiante acertaría con la probabilidad indicada
+     */
+    public double targetDifficulty(double ability, double targetSuccess) {
+        double p = Math.max(0.01, Math.min(0.99, targetSuccess));
+        return ability + SCALE * Math.log10((1.0 - p) / p);
+    }
+
+    /**
+     * Rating inicial de un ejercicio según su nivel de dificultad (1 = fácil, 2 = medio...)
+     */
+    public static float initialExerciseRating(Integer difficultyLevelId) {
+        if (difficultyLevelId == null) {
+            return INITIAL_RATING;
+        }
+        return INITIAL_RATING + (difficultyLevelId - 2) * LEVEL_STEP;
+    }
+
+    double kFactor(int attempts) {
+        return Math.max(minK, baseK / (1.0 + attempts * kDecay));
+    }
+
+    /**
+     * Rating y número de intentos de un estudiante (en una competencia) o de un ejercicio
+     */
+    public static class RatingState {
+        private float rating;
+        private int attempts;
+
+        public RatingState(float rating, int attempts) {
+            this.rating = rating;
+            this.attempts = attempts;
+        }
+
+        public synchronized float getRating() {
+            return rating;
+        }
+
+        public synchronized int getAttempts() {
+            return attempts;
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.adaptive.model.entity.ExerciseSkillRating;
+import com.gamified.application.adaptive.model.entity.StudentSkillRating;
+import com.gamified.application.adaptive.repository.SkillRatingRepository;
+import com.gamified.application.shared.model.event.DomainEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motor de recomendación basado en ratings Elo.
+ * Mantiene en memoria la habilidad de cada estudiante por competencia y la dificultad de cada
+ * ejercicio; ambas se actualizan en O(1) con cada ExerciseCompletedEvent y se guardan por lotes.
+ * Cada learning point tiene un índice de sus ejercicios ordenado por rating: la recomendación
+ * busca el ejercicio cuya probabilidad de acierto esperada se acerca al objetivo, sin consultar la BD.
+ */
+@Service
+public class SkillRatingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SkillRatingService.class);
+
+    @Autowired
+    private SkillRatingRepository skillRatingRepository;
+
+    @Value("${adaptive.rating.enabled:true}")
+    private boolean ratingEnabled;
+
+    @Value("${adaptive.rating.k-base:40}")
+    private double baseK;
+
+    @Value("${adaptive.rating.k-min:8}")
+    private double minK;
+
+    @Value("${adaptive.rating.k-decay:0.1}")
+    private double kDecay;
+
+    @Value("${adaptive.rating.target-success:0.7}")
+    private double targetSuccess;
+
+    @Value("${adaptive.rating.candidates:3}")
+    private int candidates;
+
+    @Value("${adaptive.rating.max-students:50000}")
+    private int maxStudents;
+
+    @Value("${adaptive.rating.index-ttl-minutes:30}")
+    private long indexTtlMinutes;
+
+    @Value("${adaptive.rating.recent-exclusion-days:3}")
+    private int recentExclusionDays;
+
+    private SkillRatingEngine engine;
+
+    private final Map<Integer, Map<Integer, SkillRatingEngine.RatingState>> studentRatings =
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Map<Integer, SkillRatingEngine.RatingState>> eldest) {
+                    return size() > maxStudents;
+                }
+            };
+    private final Map<Integer, SkillRatingEngine.RatingState> exerciseRatings = new ConcurrentHashMap<>();
+    private final Map<Integer, LearningPointIndex> indexes = new ConcurrentHashMap<>();
+
+    // Pendientes de guardar: se guarda el propio estado para no perder cambios si el estudiante sale del LRU
+    private final Map<Long, SkillRatingEngine.RatingState> dirtyStudents = new ConcurrentHashMap<>();
+    private final Map<Integer, SkillRatingEngine.RatingState> dirtyExercises = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        engine = new SkillRatingEngine(baseK, minK, kDecay);
+    }
+
+    /**
+     * Actualiza la habilidad del estudiante y la dificultad del ejercicio con el resultado del intento
+     */
+    @EventListener
+    public void onExerciseCompleted(DomainEvent.ExerciseCompletedEvent event) {
+        if (!ratingEnabled || event.getStudentProfileId() == null || event.getExerciseId() == null) {
+            return;
+        }
+
+        try {
+            SkillRatingEngine.RatingState exercise = exerciseState(event.getExerciseId(), event.getLearningPointId());
+            Integer competencyId = event.getCompetencyId() != null ? event.getCompetencyId() : 0;
+            SkillRatingEngine.RatingState student = studentState(event.getStudentProfileId(), competencyId);
+            if (exercise == null || student == null) {
+                // Sin los ratings guardados se partiría del inicial y el guardado pisaría los de la BD
+                logger.warn("Ratings no disponibles: se omite la actualización del intento del estudiante {} en el ejercicio {}",
+                        event.getStudentProfileId(), event.getExerciseId());
+                return;
+            }
+
+            engine.update(student, exercise, Boolean.TRUE.equals(event.getIsCorrect()) ? 1.0 : 0.0);
+
+            dirtyStudents.put(studentKey(event.getStudentProfileId(), competencyId), student);
+            dirtyExercises.put(event.getExerciseId(), exercise);
+            if (event.getLearningPointId() != null) {
+                LearningPointIndex index = indexes.get(event.getLearningPointId());
+                if (index != null) {
+                    index.markUnsorted();
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error actualizando ratings del estudiante {}: {}", event.getStudentProfileId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Recomienda el ejercicio del learning point cuya probabilidad de acierto esperada está más cerca del objetivo,
+     * sin repetir los que el estudiante intentó en los últimos días
+     * @return Datos del ejercicio recomendado, o vacío si el learning point no tiene ejercicios disponibles
+     */
+    public Optional<Map<String, Object>> recommendExercise(Integer studentProfileId, Integer learningPointId) {
+        return recommendExercise(studentProfileId, learningPointId, null, null);
+    }
+
+    /**
+     * Igual que {@link #recommendExercise(Integer, Integer)} con los datos que el precálculo por clase
+     * ya cargó para todos sus estudiantes
+     * @param savedRatings Ratings guardados del estudiante (solo se usan si no está en memoria; null: se consultan)
+     * @param recentlyAttempted Ejercicios del learning point intentados en los últimos días (null: se consultan)
+     */
+    public Optional<Map<String, Object>> recommendExercise(Integer studentProfileId, Integer learningPointId,
+                                                           List<StudentSkillRating> savedRatings,
+                                                           Set<Integer> recentlyAttempted) {
+        if (!ratingEnabled) {
+            return Optional.empty();
+        }
+
+        LearningPointIndex index = index(learningPointId);
+        if (index == null || index.isEmpty()) {
+            return Optional.empty();
+        }
+
+        SkillRatingEngine.RatingState student = studentState(studentProfileId, index.getPrimaryCompetencyId(), savedRatings);
+        // Si no se pudieron cargar sus ratings se recomienda con el inicial, sin guardarlo
+        float ability = student != null ? student.getRating() : SkillRatingEngine.INITIAL_RATING;
+        double target = engine.targetDifficulty(ability, targetSuccess);
+        if (recentlyAttempted == null) {
+            recentlyAttempted = new HashSet<>(
+                    skillRatingRepository.findRecentlyAttemptedExerciseIds(studentProfileId, learningPointId, recentExclusionDays));
+        }
+        int position = index.nearest(target, candidates, recentlyAttempted);
+        if (position < 0) {
+            return Optional.empty();
+        }
+
+        ExerciseSkillRating exercise = index.getExercise(position);
+        float rating = index.getState(position).getRating();
+
+        Map<String, Object> recommendation = new HashMap<>();
+        recommendation.put("id", exercise.getExerciseId());
+        recommendation.put("title", exercise.getTitle());
+        recommendation.put("description", exercise.getDescription());
+        recommendation.put("difficulty_level", difficultyName(exercise.getDifficultyLevelId()));
+        recommendation.put("estimated_duration", exercise.getEstimatedTime());
+        recommendation.put("points_value", exercise.getPointsValue());
+        recommendation.put("exercise_rating", Math.round(rating));
+        recommendation.put("student_ability", Math.round(ability));
+        recommendation.put("expected_success", Math.round(engine.expectedSuccess(ability, rating) * 100) / 100.0);
+        return Optional.of(recommendation);
+    }
+
+    /**
+     * Carga el índice de un learning point si no está en memoria (antes de procesar en paralelo)
+     */
+    public void warmUp(Integer learningPointId) {
+        if (ratingEnabled) {
+            index(learningPointId);
+        }
+    }
+
+    /**
+     * Habilidad actual del estudiante en una competencia
+     */
+    public float getAbility(Integer studentProfileId, Integer competencyId) {
+        SkillRatingEngine.RatingState state = studentState(studentProfileId, competencyId);
+        return state != null ? state.getRating() : SkillRatingEngine.INITIAL_RATING;
+    }
+
+    /**
+     * Nombre de la dificultad (EASY, MEDIUM...) que corresponde a un difficulty_level_id, como en el resto del servicio adaptativo
+     */
+    static String difficultyName(Integer difficultyLevelId) {
+        byte ordinal = AttemptWindowStore.difficultyOrdinal(AttemptWindowStore.templateDifficulty(difficultyLevelId));
+        return AdaptiveLearningService.DifficultyLevel.values()[ordinal].name();
+    }
+
+    /**
+     * Guarda periódicamente los ratings modificados
+     */
+    @Scheduled(fixedDelayString = "${adaptive.rating.flush-interval-ms:60000}",
+               initialDelayString = "${adaptive.rating.flush-interval-ms:60000}")
+    @PreDestroy
+    public void flush() {
+        if (!dirtyStudents.isEmpty()) {
+            Map<Long, SkillRatingEngine.RatingState> drained = drain(dirtyStudents);
+            List<StudentSkillRating> ratings = new ArrayList<>(drained.size());
+            drained.forEach((key, state) -> ratings.add(StudentSkillRating.builder()
+                    .studentProfileId((int) (key >>> 32))
+                    .competencyId((int) (long) key)
+                    .rating(state.getRating())
+                    .attempts(state.getAttempts())
+                    .build()));
+            if (skillRatingRepository.saveStudentRatings(ratings) == 0) {
+                // Si no se pudo guardar se reintenta en el siguiente ciclo (sin pisar cambios más recientes)
+                drained.forEach(dirtyStudents::putIfAbsent);
+            }
+        }
+
+        if (!dirtyExercises.isEmpty()) {
+            Map<Integer, SkillRatingEngine.RatingState> drained = drain(dirtyExercises);
+            List<ExerciseSkillRating> ratings = new ArrayList<>(drained.size());
+            drained.forEach((exerciseId, state) -> ratings.add(ExerciseSkillRating.builder()
+                    .exerciseId(exerciseId)
+                    .rating(state.getRating())
+                    .attempts(state.getAttempts())
+                    .build()));
+            if (skillRatingRepository.saveExerciseRatings(ratings) == 0) {
+                drained.forEach(dirtyExercises::putIfAbsent);
+            }
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    /**
+     * Estado del estudiante en una competencia (null si sus ratings no se pudieron cargar)
+     */
+    private SkillRatingEngine.RatingState studentState(Integer studentProfileId, Integer competencyId) {
+        return studentState(studentProfileId, competencyId, null);
+    }
+
+    /**
+     * Igual que {@link #studentState(Integer, Integer)}; si el estudiante no está en memoria parte de
+     * los ratings ya leídos en lugar de consultarlos (null: se consultan)
+     */
+    private SkillRatingEngine.RatingState studentState(Integer studentProfileId, Integer competencyId,
+                                                       List<StudentSkillRating> preloaded) {
+        Map<Integer, SkillRatingEngine.RatingState> competencies;
+        synchronized (studentRatings) {
+            competencies = studentRatings.get(studentProfileId);
+        }
+
+        if (competencies == null) {
+            // La carga se hace fuera del candado; si otro hilo la completó antes se usa la suya
+            List<StudentSkillRating> saved = preloaded != null
+                    ? preloaded : skillRatingRepository.findStudentRatings(studentProfileId);
+            if (saved == null) {
+                // No se guarda nada en memoria: se reintenta la carga en la siguiente consulta
+                return null;
+            }
+            Map<Integer, SkillRatingEngine.RatingState> loaded = new ConcurrentHashMap<>();
+            for (StudentSkillRating rating : saved) {
+                loaded.put(rating.getCompetencyId(), new SkillRatingEngine.RatingState(rating.getRating(), rating.getAttempts()));
+            }
+            // Los cambios aún sin guardar tienen prioridad sobre lo leído de la BD
+            dirtyStudents.forEach((key, state) -> {
+                if ((int) (key >>> 32) == studentProfileId) {
+                    loaded.put((int) (long) key, state);
+                }
+            });
+            synchronized (studentRatings) {
+                Map<Integer, SkillRatingEngine.RatingState> existing = studentRatings.putIfAbsent(studentProfileId, loaded);
+                competencies = existing != null ? existing : loaded;
+            }
+        }
+
+        return competencies.computeIfAbsent(competencyId,
+                id -> new SkillRatingEngine.RatingState(SkillRatingEngine.INITIAL_RATING, 0));
+    }
+
+    /**
+     * Estado del ejercicio (null si el índice de su learning point no se pudo cargar)
+     */
+    private SkillRatingEngine.RatingState exerciseState(Integer exerciseId, Integer learningPointId) {
+        SkillRatingEngine.RatingState state = exerciseRatings.get(exerciseId);
+        if (state == null && learningPointId != null) {
+            // Al construir el índice del learning point se cargan los ratings de todos sus ejercicios
+            if (index(learningPointId) == null) {
+                return null;
+            }
+            state = exerciseRatings.get(exerciseId);
+        }
+        if (state == null) {
+            state = exerciseRatings.computeIfAbsent(exerciseId,
+                    id -> new SkillRatingEngine.RatingState(SkillRatingEngine.INITIAL_RATING, 0));
+        }
+        return state;
+    }
+
+    /**
+     * Índice del learning point, construyéndolo si no está en memoria o caducó (null si la carga falla)
+     */
+    private LearningPointIndex index(Integer learningPointId) {
+        LearningPointIndex index = indexes.get(learningPointId);
+        if (index != null && !index.isExpired(TimeUnit.MINUTES.toNanos(indexTtlMinutes))) {
+            return index;
+        }
+
+        List<ExerciseSkillRating> exercises = skillRatingRepository.findExerciseRatingsByLearningPoint(learningPointId);
+        if (exercises == null) {
+            // Si la carga falla no se guarda el índice vacío: se reintenta en la siguiente consulta
+            return null;
+        }
+        SkillRatingEngine.RatingState[] states = new SkillRatingEngine.RatingState[exercises.size()];
+        for (int i = 0; i < exercises.size(); i++) {
+            ExerciseSkillRating exercise = exercises.get(i);
+            float initial = exercise.getRating() != null
+                    ? exercise.getRating() : SkillRatingEngine.initialExerciseRating(exercise.getDifficultyLevelId());
+            int attempts = exercise.getAttempts() != null ? exercise.getAttempts() : 0;
+            // Si ya está en memoria se comparte el mismo estado: el índice ve las actualizaciones sin recargar
+            states[i] = exerciseRatings.computeIfAbsent(exercise.getExerciseId(),
+                    id -> new SkillRatingEngine.RatingState(initial, attempts));
+        }
+
+        LearningPointIndex rebuilt = new LearningPointIndex(exercises.toArray(new ExerciseSkillRating[0]), states);
+        indexes.put(learningPointId, rebuilt);
+        return rebuilt;
+    }
+
+    private <K> Map<K, SkillRatingEngine.RatingState> drain(Map<K, SkillRatingEngine.RatingState> dirty) {
+        Map<K, SkillRatingEngine.RatingState> drained = new HashMap<>();
+        for (K key : new ArrayList<>(dirty.keySet())) {
+            SkillRatingEngine.RatingState state = dirty.remove(key);
+            if (state != null) {
+                drained.put(key, state);
+            }
+        }
+        return drained;
+    }
+
+    private long studentKey(Integer studentProfileId, Integer competencyId) {
+        return ((long) studentProfileId << 32) | (competencyId & 0xffffffffL);
+    }
+
+    /**
+     * Ejercicios de un learning point ordenados por rating. Los ratings cambian con cada intento;
+     * el orden se recalcula de forma perezosa en la siguiente consulta.
+     */
+    static class LearningPointIndex {
+        private final ExerciseSkillRating[] exercises;
+        private final SkillRatingEngine.RatingState[] states;
+        private final Integer primaryCompetencyId;
+        private final long builtAtNanos = System.nanoTime();
+
+        private int[] order;
+        private float[] sortedRatings;
+        private volatile boolean unsorted = true;
+
+        LearningPointIndex(ExerciseSkillRating[] exercises, SkillRatingEngine.RatingState[] states) {
+            this.exercises = exercises;
+            this.states = states;
+            this.primaryCompetencyId = mostCommonCompetency(exercises);
+        }
+
+        boolean isEmpty() {
+            return exercises.length == 0;
+        }
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - builtAtNanos > ttlNanos;
+        }
+
+        void markUnsorted() {
+            unsorted = true;
+        }
+
+        Integer getPrimaryCompetencyId() {
+            return primaryCompetencyId;
+        }
+
+        ExerciseSkillRating getExercise(int position) {
+            return exercises[position];
+        }
+
+        SkillRatingEngine.RatingState getState(int position) {
+            return states[position];
+        }
+
+        /**
+         * Posición de uno de los ejercicios con rating más cercano al objetivo, elegido al azar entre
+         * los candidatos más próximos para no repetir siempre el mismo
+         */
+        int nearest(double target, int candidates) {
+            return nearest(target, candidates, Set.of());
+        }
+
+        /**
+         * Igual que {@link #nearest(double, int)} saltando los ejercicios excluidos
+         * @return Posición elegida, o -1 si todos los ejercicios están excluidos
+         */
+        synchronized int nearest(double target, int candidates, Set<Integer> excludedExerciseIds) {
+            if (unsorted) {
+                sort();
+            }
+
+            int n = order.length;
+            int insertion = Arrays.binarySearch(sortedRatings, (float) target);
+            int center = insertion >= 0 ? insertion : -insertion - 1;
+
+            // Se expande desde el punto de inserción tomando siempre el vecino más cercano
+            int low = center - 1;
+            int high = center;
+            int[] picked = new int[Math.max(1, Math.min(candidates, n))];
+            int count = 0;
+            while (count < picked.length && (low >= 0 || high < n)) {
+                boolean takeLow = high >= n
+                        || (low >= 0 && target - sortedRatings[low] <= sortedRatings[high] - target);
+                int position = takeLow ? order[low--] : order[high++];
+                if (!excludedExerciseIds.contains(exercises[position].getExerciseId())) {
+                    picked[count++] = position;
+                }
+            }
+            return count > 0 ? picked[ThreadLocalRandom.current().nextInt(count)] : -1;
+        }
+
+        private void sort() {
+            int n = exercises.length;
+            float[] ratings = new float[n];
+            Integer[] positions = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                ratings[i] = states[i].getRating();
+                positions[i] = i;
+            }
+            Arrays.sort(positions, (a, b) -> Float.compare(ratings[a], ratings[b]));
+
+            order = new int[n];
+            sortedRatings = new float[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = positions[i];
+                sortedRatings[i] = ratings[positions[i]];
+            }
+            unsorted = false;
+        }
+
+        private static Integer mostCommonCompetency(ExerciseSkillRating[] exercises) {
+            Map<Integer, Integer> counts = new HashMap<>();
+            Integer best = 0;
+            int bestCount = 0;
+            for (ExerciseSkillRating exercise : exercises) {
+                Integer competencyId = exercise.getCompetencyId() != null ? exercise.getCompetencyId() : 0;
+                int count = counts.merge(competencyId, 1, Integer::sum);
+                if (count > bestCount) {
+                    best = competencyId;
+                    bestCount = count;
+                }
+            }
+            return best;
+        }
+    }
+}
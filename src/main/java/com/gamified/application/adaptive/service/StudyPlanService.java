@@ -0,0 +1,262 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.shared.model.event.DomainEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Planes de estudio personalizados en caché por estudiante.
+ * El plan solo cambia cuando el estudiante envía intentos: cada ExerciseCompletedEvent lo marca como
+ * desactualizado y programa un recálculo en segundo plano tras una breve espera, de modo que una
+ * ráfaga de intentos produce un único recálculo. Mientras tanto se sigue sirviendo el último plan.
+ */
+@Service
+public class StudyPlanService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudyPlanService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${adaptive.study-plan.recompute-delay-ms:5000}")
+    private long recomputeDelayMs;
+
+    @Value("${adaptive.study-plan.max-entries:20000}")
+    private int maxEntries;
+
+    private final Map<Integer, CachedPlan> plans = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedPlan> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private ScheduledExecutorService recomputeExecutor;
+
+    @PostConstruct
+    void init() {
+        // Hilo propio: los recálculos no compiten con el pool de tareas de la aplicación
+        recomputeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "study-plan-recompute");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        recomputeExecutor.shutdownNow();
+    }
+
+    /**
+     * Obtiene el plan de estudio del estudiante: de la caché si existe, calculándolo si no
+     */
+    public Map<String, Object> getStudyPlan(Integer studentProfileId) {
+        CachedPlan cached;
+        synchronized (plans) {
+            cached = plans.get(studentProfileId);
+        }
+        if (cached != null && cached.plan != null) {
+            return cached.plan;
+        }
+
+        Map<String, Object> plan = buildStudyPlan(studentProfileId);
+        if (plan == null) {
+            return Map.of("error", "No se pudo generar el plan de estudio");
+        }
+
+        synchronized (plans) {
+            CachedPlan entry = plans.computeIfAbsent(studentProfileId, id -> new CachedPlan());
+            if (entry.plan == null) {
+                entry.plan = plan;
+            }
+            return entry.plan;
+        }
+    }
+
+    /**
+     * Marca el plan como desactualizado y programa su recálculo (si el estudiante tiene plan en caché)
+     */
+    @EventListener
+    public void onExerciseCompleted(DomainEvent.ExerciseCompletedEvent event) {
+        if (event.getStudentProfileId() == null) {
+            return;
+        }
+
+        CachedPlan cached;
+        synchronized (plans) {
+            cached = plans.get(event.getStudentProfileId());
+        }
+        if (cached == null) {
+            return;
+        }
+
+        cached.dirty.set(true);
+        // Solo un recálculo pendiente por estudiante: los eventos siguientes se agrupan en él
+        if (cached.scheduled.compareAndSet(false, true)) {
+            recomputeExecutor.schedule(() -> recompute(event.getStudentProfileId(), cached),
+                    recomputeDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Descarta el plan en caché de un estudiante
+     */
+    public void invalidate(Integer studentProfileId) {
+        synchronized (plans) {
+            plans.remove(studentProfileId);
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void recompute(Integer studentProfileId, CachedPlan cached) {
+        try {
+            cached.dirty.set(false);
+            Map<String, Object> plan = buildStudyPlan(studentProfileId);
+            // Si falla se conserva el último plan; el siguiente intento volverá a programar el recálculo
+            if (plan != null) {
+                cached.plan = plan;
+            }
+        } catch (Exception e) {
+            logger.error("Error recalculando plan de estudio del estudiante {}: {}", studentProfileId, e.getMessage());
+        } finally {
+            cached.scheduled.set(false);
+            // Si llegaron intentos durante el cálculo, se programa otro recálculo
+            if (cached.dirty.get() && cached.scheduled.compareAndSet(false, true)) {
+                recomputeExecutor.schedule(() -> recompute(studentProfileId, cached),
+                        recomputeDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Calcula el plan de estudio con las consultas de áreas débiles y fuertes
+     * @return Plan calculado, o null si falla (no se guarda en caché)
+     */
+    private Map<String, Object> buildStudyPlan(Integer studentProfileId) {
+        logger.info("Generando plan de estudio personalizado para estudiante {}", studentProfileId);
+        
+        try {
+            Map<String, Object> studyPlan = new HashMap<>();
+            
+            List<Map<String, Object>> weakAreas = identifyWeakAreas(studentProfileId);
+            List<Map<String, Object>> strongAreas = identifyStrongAreas(studentProfileId);
+            List<String> recommendations = generateStudyRecommendations(weakAreas, strongAreas);
+            
+            studyPlan.put("student_profile_id", studentProfileId);
+            studyPlan.put("weak_areas", weakAreas);
+            studyPlan.put("strong_areas", strongAreas);
+            studyPlan.put("recommendations", recommendations);
+            studyPlan.put("generated_at", LocalDateTime.now());
+            
+            return studyPlan;
+            
+        } catch (Exception e) {
+            logger.error("Error generando plan de estudio personalizado: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private List<Map<String, Object>> identifyWeakAreas(Integer studentProfileId) {
+        // Sin try/catch: si falla, buildStudyPlan devuelve null y el plan vacío no se guarda en caché
+        String sql = """
+            SELECT 
+                lp.id as learning_point_id,
+                lp.title as learning_point_name,
+                COUNT(ea.id) as total_attempts,
+                SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) as correct_attempts,
+                (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(ea.id) as success_rate
+            FROM learning_point lp
+            INNER JOIN exercise e ON lp.id = e.learning_point_id
+            INNER JOIN exercise_attempt ea ON e.id = ea.exercise_template_id
+            WHERE ea.student_profile_id = ?
+              AND ea.completed_at >= DATEADD(DAY, -30, GETDATE())
+            GROUP BY lp.id, lp.title
+            HAVING COUNT(ea.id) >= 3 AND (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(ea.id) < 60
+            ORDER BY success_rate ASC
+            """;
+
+        return jdbcTemplate.queryForList(sql, studentProfileId);
+    }
+
+    private List<Map<String, Object>> identifyStrongAreas(Integer studentProfileId) {
+        // Sin try/catch: si falla, buildStudyPlan devuelve null y el plan vacío no se guarda en caché
+        String sql = """
+            SELECT 
+                lp.id as learning_point_id,
+                lp.title as learning_point_name,
+                COUNT(ea.id) as total_attempts,
+                SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) as correct_attempts,
+                (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(ea.id) as success_rate
+            FROM learning_point lp
+            INNER JOIN exercise e ON lp.id = e.learning_point_id
+            INNER JOIN exercise_attempt ea ON e.id = ea.exercise_template_id
+            WHERE ea.student_profile_id = ?
+              AND ea.completed_at >= DATEADD(DAY, -30, GETDATE())
+            GROUP BY lp.id, lp.title
+            HAVING COUNT(ea.id) >= 3 AND (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(ea.id) >= 80
+            ORDER BY success_rate DESC
+            """;
+
+        return jdbcTemplate.queryForList(sql, studentProfileId);
+    }
+
+    private List<String> generateStudyRecommendations(List<Map<String, Object>> weakAreas, 
+                                                     List<Map<String, Object>> strongAreas) {
+        List<String> recommendations = new ArrayList<>();
+        
+        if (!weakAreas.isEmpty()) {
+            recommendations.add("Enfócate en reforzar: " + 
+                weakAreas.stream()
+                    .map(area -> area.get("learning_point_name").toString())
+                    .reduce((a, b) -> a + ", " + b)
+                    .orElse(""));
+        }
+        
+        if (!strongAreas.isEmpty()) {
+            recommendations.add("Continúa destacando en: " + 
+                strongAreas.stream()
+                    .map(area -> area.get("learning_point_name").toString())
+                    .reduce((a, b) -> a + ", " + b)
+                    .orElse(""));
+        }
+        
+        if (weakAreas.isEmpty() && strongAreas.isEmpty()) {
+            recommendations.add("Continúa practicando regularmente para mantener tu progreso");
+        }
+        
+        recommendations.add("Dedica al menos 15 minutos diarios a la práctica");
+        
+        return recommendations;
+    }
+
+    /**
+     * Plan en caché con sus marcas de desactualizado y de recálculo pendiente
+     */
+    private static class CachedPlan {
+        private volatile Map<String, Object> plan;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+}
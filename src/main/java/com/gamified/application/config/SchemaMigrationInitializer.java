@@ -0,0 +1,77 @@
+package com.gamified.application.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.regex.Pattern;
+
+/**
+ * Aplica al iniciar los scripts de esquema de classpath:db/migration (tablas auxiliares
+ * que no forman parte del script base de la base de datos).
+ * Los scripts se ejecutan en orden de nombre y deben ser idempotentes (IF OBJECT_ID(...) IS NULL),
+ * ya que se ejecutan en cada arranque. Los lotes se separan con líneas "GO" como en SSMS.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SchemaMigrationInitializer implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrationInitializer.class);
+    private static final Pattern BATCH_SEPARATOR = Pattern.compile("(?im)^\\s*GO\\s*$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ResourcePatternResolver resourcePatternResolver;
+
+    @Value("${app.schema.migrations.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    public SchemaMigrationInitializer(JdbcTemplate jdbcTemplate, ResourcePatternResolver resourcePatternResolver) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.resourcePatternResolver = resourcePatternResolver;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!enabled) {
+            log.info("Migraciones de esquema deshabilitadas");
+            return;
+        }
+
+        try {
+            Resource[] scripts = resourcePatternResolver.getResources("classpath:db/migration/*.sql");
+            Arrays.sort(scripts, Comparator.comparing(Resource::getFilename, Comparator.nullsLast(String::compareTo)));
+
+            for (Resource script : scripts) {
+                applyScript(script);
+            }
+            log.info("Migraciones de esquema aplicadas: {}", scripts.length);
+        } catch (Exception e) {
+            // La aplicación puede arrancar sin base de datos; las funcionalidades afectadas degradan solas
+            log.error("Error al aplicar migraciones de esquema: {}", e.getMessage());
+        }
+    }
+
+    private void applyScript(Resource script) throws IOException {
+        String sql = StreamUtils.copyToString(script.getInputStream(), StandardCharsets.UTF_8);
+        for (String batch : BATCH_SEPARATOR.split(sql)) {
+            if (!batch.isBlank()) {
+                jdbcTemplate.execute(batch);
+            }
+        }
+        log.debug("Script de esquema aplicado: {}", script.getFilename());
+    }
+}
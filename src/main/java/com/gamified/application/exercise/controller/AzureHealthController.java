@@ -1,6 +1,8 @@
 package com.gamified.application.exercise.controller;
 
+import com.gamified.application.exercise.service.AiTokenBudgetTracker;
 import com.gamified.application.exercise.service.AzureAiClient;
+import com.gamified.application.exercise.service.AzureAiHealthProber;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -23,21 +25,22 @@ import java.util.Map;
 public class AzureHealthController {
 
     private final AzureAiClient azureAiClient;
+    private final AiTokenBudgetTracker tokenBudgetTracker;
+    private final AzureAiHealthProber healthProber;
 
     /**
-     * Verifica el estado de salud de Azure AI Foundry
+     * Devuelve el último estado de salud conocido de Azure AI Foundry (sin llamada en vivo)
      */
     @GetMapping("/health")
     @Operation(summary = "Verificar estado de salud de Azure AI Foundry")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> healthCheck() {
-        log.info("Verificando estado de salud de Azure AI Foundry");
+        log.debug("Consultando estado de salud cacheado de Azure AI Foundry");
         
         try {
-            Map<String, Object> health = azureAiClient.healthCheck();
+            Map<String, Object> health = healthProber.getStatus();
             
-            String status = (String) health.get("status");
-            if ("UP".equals(status)) {
+            if (healthProber.isUp()) {
                 return ResponseEntity.ok(health);
             } else {
                 return ResponseEntity.status(503).body(health); // Service Unavailable
@@ -75,6 +78,24 @@ public class AzureHealthController {
         }
     }
 
+    /**
+     * Obtiene el presupuesto de tokens por plantilla y ruta derivado de las respuestas observadas
+     */
+    @GetMapping("/token-budgets")
+    @Operation(summary = "Obtener presupuesto de max_tokens por plantilla y crecimiento de prompts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getTokenBudgets() {
+        try {
+            return ResponseEntity.ok(tokenBudgetTracker.getBudgetSummary());
+        } catch (Exception e) {
+            log.error("Error obteniendo presupuesto de tokens", e);
+            return ResponseEntity.status(500).body(Map.of(
+                "error", e.getMessage(),
+                "timestamp", System.currentTimeMillis()
+            ));
+        }
+    }
+
     /**
      * Prueba la generación de un ejercicio simple
      */
@@ -122,16 +143,17 @@ public class AzureHealthController {
         log.info("Obteniendo configuración de Azure AI Foundry");
         
         try {
+            Map<String, Object> info = azureAiClient.getConfigurationInfo();
             Map<String, Object> config = Map.of(
                 "is_configured", azureAiClient.isConfigured(),
-                "endpoint_configured", azureAiClient.getPerformanceMetrics().get("deployment_name") != null,
-                "deployment_name", azureAiClient.getPerformanceMetrics().get("deployment_name"),
-                "model_version", azureAiClient.getPerformanceMetrics().get("model_version"),
-                "max_tokens", azureAiClient.getPerformanceMetrics().get("max_tokens"),
-                "temperature", azureAiClient.getPerformanceMetrics().get("temperature"),
-                "timeout_seconds", azureAiClient.getPerformanceMetrics().get("timeout_seconds"),
-                "generation_enabled", azureAiClient.getPerformanceMetrics().get("generation_enabled"),
-                "fallback_enabled", azureAiClient.getPerformanceMetrics().get("fallback_enabled")
+                "endpoint_configured", info.get("deployment_name") != null,
+                "deployment_name", info.get("deployment_name"),
+                "model_version", info.get("model_version"),
+                "max_tokens", info.get("max_tokens"),
+                "temperature", info.get("temperature"),
+                "timeout_seconds", info.get("timeout_seconds"),
+                "generation_enabled", info.get("generation_enabled"),
+                "fallback_enabled", info.get("fallback_enabled")
             );
             
             return ResponseEntity.ok(config);
@@ -5,11 +5,15 @@ import com.gamified.application.exercise.model.dto.response.ExerciseResponseDto;
 import com.gamified.application.exercise.service.ExerciseService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -40,7 +44,9 @@ public class ExerciseController {
     @GetMapping("/students/{studentId}/learning-point/{learningPointId}/next-exercise")
     @Operation(summary = "Get next exercise for learning point", 
                description = "Retrieves the next available exercise for a specific student and learning point")
-    public ResponseEntity<ExerciseResponseDto.NextExerciseDto> getNextExercise(
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+               schema = @Schema(implementation = ExerciseResponseDto.NextExerciseDto.class)))
+    public ResponseEntity<byte[]> getNextExercise(
             @Parameter(description = "Student profile ID") @PathVariable Integer studentId,
             @Parameter(description = "Learning point ID") @PathVariable Integer learningPointId,
             @Parameter(description = "Preferred difficulty level") @RequestParam(required = false) String difficulty) {
@@ -48,9 +54,9 @@ public class ExerciseController {
         log.info("GET /api/exercises/students/{}/learning-point/{}/next-exercise - Obteniendo siguiente ejercicio", 
                 studentId, learningPointId);
         
-        ExerciseResponseDto.NextExerciseDto nextExercise = 
-                exerciseService.getNextExercise(studentId, learningPointId, difficulty);
-        return ResponseEntity.ok(nextExercise);
+        // El payload ya viene serializado: se escribe tal cual, sin pasar por Jackson
+        byte[] nextExercise = exerciseService.getNextExercisePayload(studentId, learningPointId, difficulty);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(nextExercise);
     }
 
     /**
@@ -139,7 +145,9 @@ public class ExerciseController {
     @PostMapping("/students/{studentId}/next-exercise")
     @Operation(summary = "Get next exercise with advanced parameters", 
                description = "Retrieves the next exercise with advanced filtering and preference options")
-    public ResponseEntity<ExerciseResponseDto.NextExerciseDto> getNextExerciseAdvanced(
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+               schema = @Schema(implementation = ExerciseResponseDto.NextExerciseDto.class)))
+    public ResponseEntity<byte[]> getNextExerciseAdvanced(
             @Parameter(description = "Student profile ID") @PathVariable Integer studentId,
             @Valid @RequestBody ExerciseRequestDto.NextExerciseRequestDto request) {
         
@@ -148,9 +156,9 @@ public class ExerciseController {
         // Asegurar que el studentId coincida
         request.setStudentProfileId(studentId);
         
-        ExerciseResponseDto.NextExerciseDto nextExercise = 
-                exerciseService.getNextExercise(studentId, request.getLearningPointId(), request.getPreferredDifficulty());
-        return ResponseEntity.ok(nextExercise);
+        byte[] nextExercise = exerciseService.getNextExercisePayload(
+                studentId, request.getLearningPointId(), request.getPreferredDifficulty());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(nextExercise);
     }
 
     /**
@@ -1,9 +1,12 @@
 package com.gamified.application.exercise.controller;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.gamified.application.exercise.model.dto.response.GeneratedExerciseResponseDto;
-import com.gamified.application.exercise.model.dto.response.ExerciseResponseDto;
+import com.gamified.application.exercise.service.AzureAiHealthProber;
 import com.gamified.application.exercise.service.GeneratedExerciseService;
 import com.gamified.application.exercise.service.ExercisePoolService;
+import com.gamified.application.exercise.service.GeneratedExercisePurgeService;
+import com.gamified.application.exercise.service.TemplateDemandTracker;
 import com.gamified.application.shared.model.dto.ApiResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -27,6 +31,9 @@ public class GeneratedExerciseController {
 
     private final GeneratedExerciseService generatedExerciseService;
     private final ExercisePoolService exercisePoolService;
+    private final GeneratedExercisePurgeService purgeService;
+    private final TemplateDemandTracker demandTracker;
+    private final AzureAiHealthProber healthProber;
 
     /**
      * Obtiene el siguiente ejercicio generado por IA para un estudiante
@@ -47,11 +54,11 @@ public class GeneratedExerciseController {
                 studentId, learningPointId);
 
         try {
-            ExerciseResponseDto.NextExerciseDto exercise = 
-                    generatedExerciseService.getNextExercise(studentId, learningPointId, difficulty);
+            byte[] payload = generatedExerciseService.getNextExercisePayload(studentId, learningPointId, difficulty);
 
+            // El payload ya está serializado: se incrusta como JSON crudo dentro de ApiResponse
             return ResponseEntity.ok(new ApiResponse(true, "Ejercicio generado exitosamente", 
-                    java.time.LocalDateTime.now(), exercise));
+                    java.time.LocalDateTime.now(), new RawValue(new String(payload, StandardCharsets.UTF_8))));
 
         } catch (Exception e) {
             log.error("Error obteniendo ejercicio generado para estudiante {}", studentId, e);
@@ -168,20 +175,20 @@ public class GeneratedExerciseController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse> healthCheck() {
         
-        log.info("Verificando salud del servicio de ejercicios generados");
+        log.debug("Verificando salud del servicio de ejercicios generados");
 
         try {
-            // Verificar que Azure AI esté configurado
-            boolean isConfigured = exercisePoolService.getPoolStatistics() != null;
+            // Estado cacheado por el sondeo en segundo plano: responde de inmediato
+            var aiStatus = healthProber.getStatus();
             
-            if (isConfigured) {
+            if (healthProber.isUp()) {
                 return ResponseEntity.ok(new ApiResponse(true, 
                         "Servicio de ejercicios generados funcionando correctamente", 
-                        java.time.LocalDateTime.now(), "Healthy"));
+                        java.time.LocalDateTime.now(), aiStatus));
             } else {
                 return ResponseEntity.ok(new ApiResponse(true, 
-                        "Servicio funcionando pero Azure AI no está configurado", 
-                        java.time.LocalDateTime.now(), "Warning"));
+                        "Servicio funcionando pero Azure AI no está disponible", 
+                        java.time.LocalDateTime.now(), aiStatus));
             }
 
         } catch (Exception e) {
@@ -224,4 +231,48 @@ public class GeneratedExerciseController {
                     java.time.LocalDateTime.now()));
         }
     }
+
+    /**
+     * Obtiene la demanda pronosticada por plantilla y su tasa de aciertos en el pool
+     */
+    @GetMapping("/pool/demand")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> getPoolDemand(@RequestParam(defaultValue = "20") @Positive Integer limit) {
+        
+        log.info("Obteniendo demanda pronosticada del pool");
+
+        GeneratedExerciseResponseDto.PoolDemandDto demand = GeneratedExerciseResponseDto.PoolDemandDto.builder()
+                .poolHitRate(demandTracker.getPoolHitRate())
+                .templates(demandTracker.getDemandSummary(limit).stream()
+                        .map(template -> GeneratedExerciseResponseDto.TemplateDemandDto.builder()
+                                .exerciseTemplateId(template.getExerciseTemplateId())
+                                .forecastRatePerHour(template.getForecastRatePerHour())
+                                .targetStock(template.getTargetStock())
+                                .poolHits(template.getPoolHits())
+                                .poolMisses(template.getPoolMisses())
+                                .hitRate(template.getHitRate())
+                                .build())
+                        .toList())
+                .build();
+
+        return ResponseEntity.ok(new ApiResponse(true, "Demanda del pool obtenida exitosamente", 
+                java.time.LocalDateTime.now(), demand));
+    }
+
+    /**
+     * Obtiene el resultado de la última purga por bloques del pool (solo para administradores)
+     */
+    @GetMapping("/pool/purge/last-run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> getLastPurgeRun() {
+        
+        log.info("Obteniendo resultado de la última purga del pool");
+
+        var lastResult = purgeService.getLastResult();
+        String message = purgeService.isRunning()
+                ? "Hay una purga en curso"
+                : (lastResult != null ? "Resultado de la última purga obtenido" : "Aún no se ha ejecutado ninguna purga");
+
+        return ResponseEntity.ok(new ApiResponse(true, message, java.time.LocalDateTime.now(), lastResult));
+    }
 }
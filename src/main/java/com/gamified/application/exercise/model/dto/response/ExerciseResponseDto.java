@@ -1,5 +1,6 @@
 package com.gamified.application.exercise.model.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,6 +23,8 @@ public class ExerciseResponseDto {
     @NoArgsConstructor
     @AllArgsConstructor
     public static class NextExerciseDto {
+        // Los campos que dependen de la solicitud se omiten en el payload pre-renderizado (ExercisePayloadRenderer)
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         private Long generatedExerciseId; // ID del ejercicio generado (para tracking)
         private Integer exerciseTemplateId; // ID de la plantilla base
         private String exerciseType; // Tipo de ejercicio (ej. "drag_and_drop")
@@ -37,7 +40,9 @@ public class ExerciseResponseDto {
         // Metadatos adicionales
         private Integer learningPointId;
         private String learningPointTitle;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         private Boolean hasAttempts; // Si el estudiante ya intentó ejercicios de esta plantilla
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         private Integer previousAttempts;
     }
     
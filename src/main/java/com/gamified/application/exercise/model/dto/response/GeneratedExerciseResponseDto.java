@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * DTOs de respuesta para ejercicios generados por IA
@@ -68,4 +69,32 @@ public class GeneratedExerciseResponseDto {
         private Integer successfulGenerations;
         private Integer failedGenerations;
     }
+
+    /**
+     * DTO para la demanda pronosticada del pool
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PoolDemandDto {
+        private Double poolHitRate; // Fracción de solicitudes servidas desde el pool (0-1)
+        private List<TemplateDemandDto> templates;
+    }
+
+    /**
+     * DTO para la demanda pronosticada de una plantilla
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TemplateDemandDto {
+        private Integer exerciseTemplateId;
+        private Double forecastRatePerHour;
+        private Integer targetStock;
+        private Long poolHits;
+        private Long poolMisses;
+        private Double hitRate;
+    }
 }
@@ -19,12 +19,16 @@ import java.time.LocalDateTime;
  * - generation_prompt (nvarchar(max))
  * - ai_model_version (varchar(100))
  * - created_at (datetime2)
+ * - rendered_payload (varbinary(max)) - db/migration/V002
  */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class GeneratedExercise {
+    // En el esquema real no hay difficulty_level en generated_exercise
+    public static final String DEFAULT_DIFFICULTY_LEVEL = "medium";
+
     private Long id;
     private Integer exerciseTemplateId; // FK a la tabla 'exercise' (plantilla)
     private String generatedContentJson; // Contenido JSON completo devuelto por la IA - Campo real: generated_content_json
@@ -32,6 +36,7 @@ public class GeneratedExercise {
     private String generationPrompt; // Prompt usado para generar - Campo real: generation_prompt
     private String aiModelVersion; // Versión del modelo AI usado - Campo real: ai_model_version
     private LocalDateTime createdAt; // Campo real: created_at
+    private byte[] renderedPayload; // NextExerciseDto pre-renderizado (sin respuesta correcta) - Campo real: rendered_payload
     
     // Relación virtual con la plantilla del ejercicio
     private Exercise exerciseTemplate;
@@ -66,7 +71,7 @@ public class GeneratedExercise {
     
     public String getDifficultyLevel() {
         // En el esquema real no hay difficulty_level en generated_exercise
-        return "medium"; // valor por defecto
+        return DEFAULT_DIFFICULTY_LEVEL; // valor por defecto
     }
     
     public void setDifficultyLevel(String difficulty) {
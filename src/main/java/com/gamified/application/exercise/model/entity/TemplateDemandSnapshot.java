@@ -0,0 +1,26 @@
+package com.gamified.application.exercise.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot de la demanda estimada de una plantilla de ejercicio
+ * Mapea a la tabla 'template_demand_snapshot' (db/migration/V001)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TemplateDemandSnapshot {
+    private Integer exerciseTemplateId;
+    private Double requestRate; // Solicitudes por hora (EWMA con decaimiento temporal)
+    private Long poolHits;
+    private Long poolMisses;
+    private LocalDateTime lastRequestAt;
+    private LocalDateTime updatedAt;
+    private Long ageMs; // No es columna: milisegundos desde updated_at según el reloj de la base de datos
+}
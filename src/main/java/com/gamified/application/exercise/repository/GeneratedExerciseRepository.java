@@ -2,6 +2,7 @@ package com.gamified.application.exercise.repository;
 
 import com.gamified.application.exercise.model.entity.GeneratedExercise;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +51,13 @@ public interface GeneratedExerciseRepository {
      */
     List<GeneratedExercise> findByTemplateAndDifficulty(Integer exerciseTemplateId, String difficulty, int limit);
 
+    /**
+     * Guarda el payload pre-renderizado de un ejercicio generado
+     * @param generatedExerciseId ID del ejercicio generado
+     * @param renderedPayload Payload JSON serializado
+     */
+    void updateRenderedPayload(Long generatedExerciseId, byte[] renderedPayload);
+
     /**
      * Marca un ejercicio generado como utilizado
      * @param generatedExerciseId ID del ejercicio generado
@@ -93,6 +101,14 @@ public interface GeneratedExerciseRepository {
      */
     Integer countByTemplate(Integer exerciseTemplateId);
 
+    /**
+     * Cuenta ejercicios generados de una plantilla que aún no se han usado en ningún intento
+     * (stock disponible del pool)
+     * @param exerciseTemplateId ID de la plantilla
+     * @return Número de ejercicios sin usar
+     */
+    Integer countUnusedByTemplate(Integer exerciseTemplateId);
+
     /**
      * Obtiene estadísticas de uso del pool de ejercicios
      * @return Estadísticas de cache/pool
@@ -113,6 +129,35 @@ public interface GeneratedExerciseRepository {
      */
     Integer deleteOldExercises(Integer daysOld);
 
+    /**
+     * Busca un bloque de ejercicios candidatos a purga (anteriores al corte y nunca utilizados)
+     * usando paginación keyset por ID para no recorrer la tabla completa en cada bloque
+     * @param cutoff Fecha de corte; solo se consideran ejercicios creados antes de ella
+     * @param afterId Último ID procesado (exclusivo)
+     * @param limit Tamaño máximo del bloque
+     * @return Ejercicios completos ordenados por ID ascendente (para archivado)
+     * @throws org.springframework.dao.DataAccessException si la consulta falla (no se confunde con "no quedan candidatos")
+     */
+    List<GeneratedExercise> findPurgeCandidates(LocalDateTime cutoff, Long afterId, Integer limit);
+
+    /**
+     * Igual que {@link #findPurgeCandidates} pero solo devuelve los IDs, sin leer el contenido JSON
+     * @param cutoff Fecha de corte
+     * @param afterId Último ID procesado (exclusivo)
+     * @param limit Tamaño máximo del bloque
+     * @return IDs ordenados ascendentemente
+     * @throws org.springframework.dao.DataAccessException si la consulta falla (no se confunde con "no quedan candidatos")
+     */
+    List<Long> findPurgeCandidateIds(LocalDateTime cutoff, Long afterId, Integer limit);
+
+    /**
+     * Elimina un bloque de ejercicios generados por ID, omitiendo los que hayan sido
+     * utilizados en un intento desde que se seleccionaron
+     * @param ids IDs a eliminar
+     * @return Número de ejercicios eliminados
+     */
+    Integer deleteUnusedByIds(List<Long> ids);
+
     /**
      * Clase para estadísticas del pool de ejercicios
      */
@@ -133,6 +133,21 @@ public class GeneratedExerciseRepositoryImpl implements GeneratedExerciseReposit
         }
     }
 
+    @Override
+    public void updateRenderedPayload(Long generatedExerciseId, byte[] renderedPayload) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("id", generatedExerciseId, Types.BIGINT);
+            parameters.addValue("rendered_payload", renderedPayload, Types.VARBINARY);
+
+            String sql = "UPDATE generated_exercise SET rendered_payload = :rendered_payload WHERE id = :id";
+            
+            namedParameterJdbcTemplate.update(sql, parameters);
+        } catch (Exception e) {
+            System.err.println("Error al guardar payload renderizado del ejercicio " + generatedExerciseId + ": " + e.getMessage());
+        }
+    }
+
     @Override
     public void markAsUsed(Long id) {
         try {
@@ -167,7 +182,7 @@ public class GeneratedExerciseRepositoryImpl implements GeneratedExerciseReposit
 
             String sql = """
                 SELECT TOP (:limit) id, exercise_template_id, generated_content_json, 
-                       correct_answer_hash, generation_prompt, ai_model_version, created_at
+                       correct_answer_hash, generation_prompt, ai_model_version, created_at, rendered_payload
                 FROM generated_exercise 
                 WHERE exercise_template_id = :exercise_template_id 
                 ORDER BY created_at ASC
@@ -244,6 +259,29 @@ public class GeneratedExerciseRepositoryImpl implements GeneratedExerciseReposit
         }
     }
 
+    @Override
+    public Integer countUnusedByTemplate(Integer exerciseTemplateId) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("exercise_template_id", exerciseTemplateId, Types.INTEGER);
+
+            String sql = """
+                SELECT COUNT(*) 
+                FROM generated_exercise ge
+                WHERE ge.exercise_template_id = :exercise_template_id
+                  AND NOT EXISTS (
+                      SELECT 1 FROM exercise_attempt ea 
+                      WHERE ea.generated_exercise_id = ge.id
+                  )
+                """;
+            
+            return namedParameterJdbcTemplate.queryForObject(sql, parameters, Integer.class);
+        } catch (Exception e) {
+            System.err.println("Error al contar ejercicios sin usar por plantilla: " + e.getMessage());
+            return 0;
+        }
+    }
+
     @Override
     public PoolStats getPoolStats() {
         try {
@@ -322,6 +360,76 @@ public class GeneratedExerciseRepositoryImpl implements GeneratedExerciseReposit
         }
     }
 
+    @Override
+    public List<GeneratedExercise> findPurgeCandidates(LocalDateTime cutoff, Long afterId, Integer limit) {
+        // Sin try/catch: una lista vacía significaría "no queda nada por purgar"
+        MapSqlParameterSource parameters = buildPurgeParameters(cutoff, afterId, limit);
+
+        String sql = """
+            SELECT TOP (:limit) ge.id, ge.exercise_template_id, ge.generated_content_json, 
+                   ge.correct_answer_hash, ge.generation_prompt, ge.ai_model_version, ge.created_at
+            FROM generated_exercise ge
+            WHERE ge.id > :after_id
+              AND ge.created_at < :cutoff
+              AND NOT EXISTS (
+                  SELECT 1 FROM exercise_attempt ea 
+                  WHERE ea.generated_exercise_id = ge.id
+              )
+            ORDER BY ge.id ASC
+            """;
+        
+        List<Map<String, Object>> results = namedParameterJdbcTemplate.queryForList(sql, parameters);
+        
+        List<GeneratedExercise> exercises = new ArrayList<>();
+        for (Map<String, Object> row : results) {
+            exercises.add(mapFromResultMap(row));
+        }
+        
+        return exercises;
+    }
+
+    @Override
+    public List<Long> findPurgeCandidateIds(LocalDateTime cutoff, Long afterId, Integer limit) {
+        // Sin try/catch: una lista vacía significaría "no queda nada por purgar"
+        MapSqlParameterSource parameters = buildPurgeParameters(cutoff, afterId, limit);
+
+        String sql = """
+            SELECT TOP (:limit) ge.id
+            FROM generated_exercise ge
+            WHERE ge.id > :after_id
+              AND ge.created_at < :cutoff
+              AND NOT EXISTS (
+                  SELECT 1 FROM exercise_attempt ea 
+                  WHERE ea.generated_exercise_id = ge.id
+              )
+            ORDER BY ge.id ASC
+            """;
+        
+        return namedParameterJdbcTemplate.queryForList(sql, parameters, Long.class);
+    }
+
+    @Override
+    public Integer deleteUnusedByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("ids", ids);
+
+        // Sin try/catch: el motor de purga necesita saber si el bloque falló para no avanzar a ciegas
+        String sql = """
+            DELETE FROM generated_exercise 
+            WHERE id IN (:ids)
+              AND NOT EXISTS (
+                  SELECT 1 FROM exercise_attempt ea 
+                  WHERE ea.generated_exercise_id = generated_exercise.id
+              )
+            """;
+        
+        return namedParameterJdbcTemplate.update(sql, parameters);
+    }
+
     @Override
     public Integer countAvailableByTemplate(Integer exerciseTemplateId, String difficulty) {
         try {
@@ -353,6 +461,14 @@ public class GeneratedExerciseRepositoryImpl implements GeneratedExerciseReposit
     // MÉTODOS PRIVADOS
     // ===================================================================
 
+    private MapSqlParameterSource buildPurgeParameters(LocalDateTime cutoff, Long afterId, Integer limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("cutoff", java.sql.Timestamp.valueOf(cutoff), Types.TIMESTAMP);
+        parameters.addValue("after_id", afterId != null ? afterId : 0L, Types.BIGINT);
+        parameters.addValue("limit", limit, Types.INTEGER);
+        return parameters;
+    }
+
     private Long create(GeneratedExercise exercise) {
         MapSqlParameterSource parameters = new MapSqlParameterSource();
         parameters.addValue("exercise_template_id", exercise.getExerciseTemplateId(), Types.INTEGER);
@@ -360,12 +476,15 @@ public class GeneratedExerciseRepositoryImpl implements GeneratedExerciseReposit
         parameters.addValue("correct_answer_hash", exercise.getCorrectAnswerHash(), Types.VARCHAR);
         parameters.addValue("generation_prompt", exercise.getGenerationPrompt(), Types.VARCHAR);
         parameters.addValue("ai_model_version", exercise.getAiModelVersion(), Types.VARCHAR);
+        parameters.addValue("rendered_payload", exercise.getRenderedPayload(), Types.VARBINARY);
 
         String sql = """
             INSERT INTO generated_exercise (exercise_template_id, generated_content_json, 
-                                          correct_answer_hash, generation_prompt, ai_model_version, created_at)
+                                          correct_answer_hash, generation_prompt, ai_model_version, created_at,
+                                          rendered_payload)
             VALUES (:exercise_template_id, :generated_content_json, 
-                    :correct_answer_hash, :generation_prompt, :ai_model_version, GETDATE())
+                    :correct_answer_hash, :generation_prompt, :ai_model_version, GETDATE(),
+                    :rendered_payload)
             """;
 
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -406,6 +525,7 @@ public class GeneratedExerciseRepositoryImpl implements GeneratedExerciseReposit
                 .generationPrompt((String) data.get("generation_prompt"))
                 .aiModelVersion((String) data.get("ai_model_version"))
                 .createdAt(data.get("created_at") != null ? ((java.sql.Timestamp) data.get("created_at")).toLocalDateTime() : null)
+                .renderedPayload(data.get("rendered_payload") instanceof byte[] payload ? payload : null)
                 .build();
     }
 } 
\ No newline at end of file
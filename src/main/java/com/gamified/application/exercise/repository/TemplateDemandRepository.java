@@ -0,0 +1,32 @@
+package com.gamified.application.exercise.repository;
+
+import com.gamified.application.exercise.model.entity.TemplateDemandSnapshot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repositorio para la persistencia de la demanda estimada por plantilla de ejercicio
+ */
+public interface TemplateDemandRepository {
+
+    /**
+     * Guarda (inserta o actualiza) los snapshots de demanda
+     * @param snapshots Snapshots a guardar
+     * @return Número de filas afectadas
+     */
+    int saveSnapshots(List<TemplateDemandSnapshot> snapshots);
+
+    /**
+     * Obtiene todos los snapshots de demanda guardados
+     * @return Lista de snapshots
+     */
+    List<TemplateDemandSnapshot> findAllSnapshots();
+
+    /**
+     * Cuenta los estudiantes con learning path activo cuyo learning point actual usa cada plantilla
+     * Se usa para sembrar la demanda de plantillas que aún no tienen historial
+     * @return Mapa ID de plantilla -> número de estudiantes asignados
+     */
+    Map<Integer, Integer> countActiveStudentsByTemplate();
+}
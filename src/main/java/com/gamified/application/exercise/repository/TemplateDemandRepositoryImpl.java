@@ -0,0 +1,137 @@
+package com.gamified.application.exercise.repository;
+
+import com.gamified.application.exercise.model.entity.TemplateDemandSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementación del repositorio de demanda por plantilla usando NamedParameterJdbcTemplate
+ */
+@Repository
+@RequiredArgsConstructor
+public class TemplateDemandRepositoryImpl implements TemplateDemandRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public int saveSnapshots(List<TemplateDemandSnapshot> snapshots) {
+        if (snapshots == null || snapshots.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            String sql = """
+                MERGE template_demand_snapshot AS target
+                USING (SELECT :exercise_template_id AS exercise_template_id) AS source
+                ON target.exercise_template_id = source.exercise_template_id
+                WHEN MATCHED THEN
+                    UPDATE SET request_rate = :request_rate, pool_hits = :pool_hits, pool_misses = :pool_misses,
+                               last_request_at = :last_request_at, updated_at = GETDATE()
+                WHEN NOT MATCHED THEN
+                    INSERT (exercise_template_id, request_rate, pool_hits, pool_misses, last_request_at, updated_at)
+                    VALUES (:exercise_template_id, :request_rate, :pool_hits, :pool_misses, :last_request_at, GETDATE());
+                """;
+
+            MapSqlParameterSource[] batch = new MapSqlParameterSource[snapshots.size()];
+            for (int i = 0; i < snapshots.size(); i++) {
+                TemplateDemandSnapshot snapshot = snapshots.get(i);
+                MapSqlParameterSource parameters = new MapSqlParameterSource();
+                parameters.addValue("exercise_template_id", snapshot.getExerciseTemplateId(), Types.INTEGER);
+                parameters.addValue("request_rate", snapshot.getRequestRate(), Types.DOUBLE);
+                parameters.addValue("pool_hits", snapshot.getPoolHits(), Types.BIGINT);
+                parameters.addValue("pool_misses", snapshot.getPoolMisses(), Types.BIGINT);
+                parameters.addValue("last_request_at", snapshot.getLastRequestAt() != null ?
+                        Timestamp.valueOf(snapshot.getLastRequestAt()) : null, Types.TIMESTAMP);
+                batch[i] = parameters;
+            }
+
+            int[] results = namedParameterJdbcTemplate.batchUpdate(sql, batch);
+            int affected = 0;
+            for (int result : results) {
+                affected += Math.max(result, 0);
+            }
+            return affected;
+        } catch (Exception e) {
+            System.err.println("Error al guardar snapshots de demanda: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public List<TemplateDemandSnapshot> findAllSnapshots() {
+        try {
+            String sql = """
+                SELECT exercise_template_id, request_rate, pool_hits, pool_misses, last_request_at, updated_at,
+                       DATEDIFF_BIG(MILLISECOND, updated_at, GETDATE()) AS age_ms
+                FROM template_demand_snapshot
+                """;
+
+            List<Map<String, Object>> results = namedParameterJdbcTemplate.queryForList(sql, new MapSqlParameterSource());
+
+            List<TemplateDemandSnapshot> snapshots = new ArrayList<>();
+            for (Map<String, Object> row : results) {
+                snapshots.add(TemplateDemandSnapshot.builder()
+                        .exerciseTemplateId(((Number) row.get("exercise_template_id")).intValue())
+                        .requestRate(row.get("request_rate") != null ? ((Number) row.get("request_rate")).doubleValue() : 0.0)
+                        .poolHits(row.get("pool_hits") != null ? ((Number) row.get("pool_hits")).longValue() : 0L)
+                        .poolMisses(row.get("pool_misses") != null ? ((Number) row.get("pool_misses")).longValue() : 0L)
+                        .lastRequestAt(toLocalDateTime(row.get("last_request_at")))
+                        .updatedAt(toLocalDateTime(row.get("updated_at")))
+                        .ageMs(row.get("age_ms") != null ? ((Number) row.get("age_ms")).longValue() : null)
+                        .build());
+            }
+
+            return snapshots;
+        } catch (Exception e) {
+            System.err.println("Error al obtener snapshots de demanda: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> countActiveStudentsByTemplate() {
+        try {
+            // learning_path guarda el learning point actual de cada estudiante
+            String sql = """
+                SELECT e.id AS exercise_template_id, COUNT(DISTINCT lpath.student_profile_id) AS active_students
+                FROM learning_path lpath
+                JOIN exercise e ON e.learning_point_id = lpath.current_learning_point_id
+                WHERE lpath.is_active = 1
+                GROUP BY e.id
+                """;
+
+            List<Map<String, Object>> results = namedParameterJdbcTemplate.queryForList(sql, new MapSqlParameterSource());
+
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Map<String, Object> row : results) {
+                counts.put(((Number) row.get("exercise_template_id")).intValue(),
+                        ((Number) row.get("active_students")).intValue());
+            }
+
+            return counts;
+        } catch (Exception e) {
+            System.err.println("Error al contar estudiantes activos por plantilla: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime;
+        }
+        return null;
+    }
+}
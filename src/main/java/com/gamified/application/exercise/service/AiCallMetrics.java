@@ -0,0 +1,225 @@
+package com.gamified.application.exercise.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentación de cada llamada a Azure AI: tiempo hasta cabeceras, tiempo hasta el primer token
+ * (con streaming), duración total por ruta y camino (REST o SDK), tamaño de respuesta, tiempo de
+ * parseo/reparación del JSON y categoría de fallo.
+ *
+ * Los timers publican histogramas de percentiles (HdrHistogram en Micrometer) y los SLO configurados,
+ * expuestos en /actuator/metrics y resumidos en /azure-ai/metrics.
+ */
+@Component
+@RequiredArgsConstructor
+public class AiCallMetrics {
+
+    public static final String PATH_REST = "rest";
+    public static final String PATH_SDK = "sdk";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${azure.ai.foundry.metrics.slo-ms:2000,5000,10000,30000}")
+    private List<Long> sloMillis;
+
+    /**
+     * Tiempo desde el envío hasta recibir las cabeceras (incluye conexión y espera del servidor)
+     */
+    public void recordTimeToHeaders(String route, long elapsedNanos) {
+        timer("ai.call.time_to_headers", "Tiempo hasta recibir las cabeceras de la respuesta", route)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Tiempo desde el envío hasta el primer token de contenido (solo con streaming)
+     */
+    public void recordTimeToFirstToken(String route, long elapsedNanos) {
+        timer("ai.call.time_to_first_token", "Tiempo hasta el primer token de contenido (streaming)", route)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Duración total de una llamada por ruta y camino
+     * @param failureCategory null si la llamada tuvo éxito
+     */
+    public void recordCall(String route, String path, long elapsedNanos, String failureCategory) {
+        Timer.builder("ai.call.duration")
+                .description("Duración total de la llamada a Azure AI")
+                .tag("route", route)
+                .tag("path", path)
+                .tag("outcome", failureCategory == null ? "success" : "failure")
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(slos())
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        if (failureCategory != null) {
+            Counter.builder("ai.call.failures")
+                    .description("Fallos de llamadas a Azure AI por categoría")
+                    .tag("route", route)
+                    .tag("path", path)
+                    .tag("category", failureCategory)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * Tamaño de la respuesta recibida en bytes
+     */
+    public void recordResponseSize(String route, long bytes) {
+        DistributionSummary.builder("ai.call.response.size")
+                .description("Tamaño de la respuesta de Azure AI")
+                .baseUnit("bytes")
+                .tag("route", route)
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    /**
+     * Tiempo de limpieza, extracción y validación (o reparación) del JSON del ejercicio
+     */
+    public void recordParse(String route, long elapsedNanos) {
+        timer("ai.call.parse", "Tiempo de limpieza y extracción del JSON de la respuesta", route)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Cuenta las respuestas cuyo JSON tuvo que repararse o convertirse desde otro formato
+     */
+    public void recordRepair(String kind) {
+        Counter.builder("ai.call.repaired")
+                .description("Respuestas cuyo JSON se reparó o convirtió")
+                .tag("kind", kind)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Clasifica una excepción de llamada en una categoría de fallo acotada
+     */
+    public static String categorize(Throwable error) {
+        if (error instanceof HttpStatusCodeException httpError) {
+            int status = httpError.getStatusCode().value();
+            if (status == 429) {
+                return "throttled";
+            }
+            return status >= 500 ? "http_5xx" : "http_4xx";
+        }
+        if (error instanceof ResourceAccessException) {
+            Throwable cause = error.getCause();
+            if (cause instanceof SocketTimeoutException) {
+                return "timeout";
+            }
+            if (cause instanceof ConnectException) {
+                return "connect";
+            }
+            return "io";
+        }
+        if (error instanceof SocketTimeoutException) {
+            return "timeout";
+        }
+        String message = error.getMessage() != null ? error.getMessage() : "";
+        if (message.contains("JSON") || message.contains("contenido")) {
+            return "parse";
+        }
+        return "other";
+    }
+
+    /**
+     * Resumen de las mediciones: conteo, media y percentiles por ruta/camino, y fallos por categoría
+     */
+    public Map<String, Object> getSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+
+        Map<String, Object> calls = new LinkedHashMap<>();
+        for (Timer timer : meterRegistry.find("ai.call.duration").timers()) {
+            String key = timer.getId().getTag("route") + "/" + timer.getId().getTag("path") + "/"
+                    + timer.getId().getTag("outcome");
+            calls.put(key, describe(timer));
+        }
+        snapshot.put("calls", calls);
+
+        snapshot.put("time_to_headers", describeAll("ai.call.time_to_headers"));
+        snapshot.put("time_to_first_token", describeAll("ai.call.time_to_first_token"));
+        snapshot.put("parse", describeAll("ai.call.parse"));
+
+        Map<String, Object> failures = new LinkedHashMap<>();
+        for (Counter counter : meterRegistry.find("ai.call.failures").counters()) {
+            String key = counter.getId().getTag("route") + "/" + counter.getId().getTag("path") + "/"
+                    + counter.getId().getTag("category");
+            failures.put(key, (long) counter.count());
+        }
+        snapshot.put("failures", failures);
+
+        Map<String, Object> responseSize = new LinkedHashMap<>();
+        for (DistributionSummary summary : meterRegistry.find("ai.call.response.size").summaries()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("count", summary.count());
+            entry.put("mean_bytes", Math.round(summary.mean()));
+            entry.put("max_bytes", Math.round(summary.max()));
+            responseSize.put(summary.getId().getTag("route"), entry);
+        }
+        snapshot.put("response_size", responseSize);
+        return snapshot;
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private Timer timer(String name, String description, String route) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("route", route)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Duration[] slos() {
+        return sloMillis.stream().map(Duration::ofMillis).toArray(Duration[]::new);
+    }
+
+    private Map<String, Object> describeAll(String name) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Timer timer : meterRegistry.find(name).timers()) {
+            result.put(timer.getId().getTag("route"), describe(timer));
+        }
+        return result;
+    }
+
+    private Map<String, Object> describe(Timer timer) {
+        HistogramSnapshot histogram = timer.takeSnapshot();
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("count", histogram.count());
+        entry.put("mean_ms", Math.round(histogram.mean(TimeUnit.MILLISECONDS)));
+        entry.put("max_ms", Math.round(histogram.max(TimeUnit.MILLISECONDS)));
+        for (ValueAtPercentile value : histogram.percentileValues()) {
+            entry.put("p" + Math.round(value.percentile() * 100), Math.round(value.value(TimeUnit.MILLISECONDS)));
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,222 @@
+package com.gamified.application.exercise.service;
+
+import com.azure.core.exception.HttpResponseException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Circuit breaker de las llamadas a Azure AI, con un circuito por deployment: la caída de un modelo
+ * no bloquea las rutas que usan otro.
+ * Un circuito se abre tras varios fallos consecutivos del servicio (errores HTTP 5xx/429, de red o
+ * timeouts); los errores propios, como una respuesta con JSON inválido o el tiempo agotado en la cola
+ * local, no cuentan. Mientras está abierto las llamadas a ese deployment fallan de inmediato en lugar
+ * de ocupar hilos hasta el timeout. Pasado el tiempo de apertura deja pasar una llamada de prueba
+ * (HALF_OPEN); un éxito, de esa llamada o del sondeo, lo cierra.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AiCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${azure.ai.foundry.circuit-breaker.enabled:true}")
+    private Boolean breakerEnabled;
+
+    @Value("${azure.ai.foundry.circuit-breaker.failure-threshold:5}")
+    private Integer failureThreshold;
+
+    @Value("${azure.ai.foundry.circuit-breaker.open-seconds:30}")
+    private Long openSeconds;
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Indica si se puede realizar una llamada al deployment. En HALF_OPEN solo se admite una llamada
+     * de prueba a la vez; quien la obtiene debe informar su resultado con recordSuccess, recordFailure
+     * o recordIgnored.
+     */
+    public boolean allowRequest(String deployment) {
+        return !breakerEnabled || circuit(deployment).allowRequest();
+    }
+
+    /**
+     * Indica si el circuito está abierto y aún no admite la llamada de prueba, sin reservarla.
+     * Sirve para saltar una ruta antes de esperar turno en la cola.
+     */
+    public boolean isOpen(String deployment) {
+        return breakerEnabled && circuit(deployment).isOpen();
+    }
+
+    /**
+     * Registra una llamada exitosa (o un sondeo exitoso): cierra el circuito del deployment
+     */
+    public void recordSuccess(String deployment) {
+        circuit(deployment).recordSuccess();
+    }
+
+    /**
+     * Registra un fallo del servicio; abre el circuito al alcanzar el umbral o si falla la llamada de prueba
+     */
+    public void recordFailure(String deployment, String reason) {
+        circuit(deployment).recordFailure(reason);
+    }
+
+    /**
+     * Registra una llamada que terminó sin decir nada de la salud del servicio: no cuenta como fallo
+     * y, si era la llamada de prueba, libera el turno para la siguiente
+     */
+    public void recordIgnored(String deployment) {
+        circuit(deployment).recordIgnored();
+    }
+
+    public State getState(String deployment) {
+        Circuit circuit = circuits.get(deployment);
+        return circuit != null ? circuit.getState() : State.CLOSED;
+    }
+
+    public String getLastReason(String deployment) {
+        Circuit circuit = circuits.get(deployment);
+        return circuit != null ? circuit.getLastReason() : null;
+    }
+
+    /**
+     * Estado de cada deployment con llamadas registradas
+     */
+    public Map<String, String> getStates() {
+        Map<String, String> states = new TreeMap<>();
+        circuits.forEach((deployment, circuit) -> states.put(deployment, circuit.getState().name()));
+        return states;
+    }
+
+    /**
+     * Indica si el error es un fallo del servicio (HTTP 5xx o 429, red o timeout) y no de la solicitud
+     * o del procesamiento de la respuesta
+     */
+    static boolean isUpstreamFailure(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof HttpStatusCodeException httpError) {
+                return isUpstreamStatus(httpError.getStatusCode().value());
+            }
+            if (current instanceof HttpResponseException httpError) {
+                return httpError.getResponse() == null || isUpstreamStatus(httpError.getResponse().getStatusCode());
+            }
+            if (current instanceof ResourceAccessException || current instanceof IOException
+                    || current instanceof UncheckedIOException || current instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private static boolean isUpstreamStatus(int status) {
+        return status >= 500 || status == 429;
+    }
+
+    private Circuit circuit(String deployment) {
+        return circuits.computeIfAbsent(deployment, name -> {
+            Circuit circuit = new Circuit(name);
+            Gauge.builder("ai.circuit.state", circuit, c -> c.getState().ordinal())
+                    .description("Estado del circuit breaker de Azure AI (0=CLOSED, 1=OPEN, 2=HALF_OPEN)")
+                    .tag("deployment", name)
+                    .register(meterRegistry);
+            return circuit;
+        });
+    }
+
+    /**
+     * Estado del circuito de un deployment
+     */
+    private final class Circuit {
+        private final String deployment;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAtNanos;
+        private boolean trialInFlight;
+        private String lastReason;
+
+        Circuit(String deployment) {
+            this.deployment = deployment;
+        }
+
+        synchronized boolean allowRequest() {
+            moveToHalfOpenIfElapsed();
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+
+        synchronized boolean isOpen() {
+            moveToHalfOpenIfElapsed();
+            return state == State.OPEN || (state == State.HALF_OPEN && trialInFlight);
+        }
+
+        synchronized void recordSuccess() {
+            if (state != State.CLOSED) {
+                log.info("Circuit breaker de Azure AI ({}) cerrado tras {}", deployment,
+                        state == State.HALF_OPEN ? "llamada de prueba exitosa" : "sondeo exitoso");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void recordFailure(String reason) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                if (state != State.OPEN) {
+                    log.warn("Circuit breaker de Azure AI ({}) abierto: {}", deployment, reason);
+                }
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+            }
+            trialInFlight = false;
+            lastReason = reason;
+        }
+
+        synchronized void recordIgnored() {
+            trialInFlight = false;
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        synchronized String getLastReason() {
+            return lastReason;
+        }
+
+        private void moveToHalfOpenIfElapsed() {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos >= TimeUnit.SECONDS.toNanos(openSeconds)) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.gamified.application.exercise.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enrutador de modelos para la generación de ejercicios.
+ * Cada clase de llamada usa el deployment, el presupuesto de tokens y el prompt de sistema adecuados:
+ *
+ * - FAST: modelo pequeño con prompt de solo JSON, para estudiantes que esperan (carril interactivo).
+ * - REASONING: modelo de razonamiento, para llenar el pool sin un estudiante esperando (carril de fondo).
+ *
+ * Si la ruta principal falla se usa la otra como respaldo. Registra latencia, tokens y costo por ruta.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AiModelRouter {
+
+    private static final String JSON_FORMAT = "{\"question\": \"pregunta completa en español\", \"correct_answer\": \"respuesta correcta\", \"options\": [\"opcion correcta\", \"error común 1\", \"error común 2\", \"error común 3\"], \"explanation\": \"explicación paso a paso en español\"}";
+
+    private static final String FAST_SYSTEM_PROMPT = "Eres un experto profesor de matemáticas. Responde ÚNICAMENTE con un objeto JSON válido, sin texto adicional, sin markdown y sin mostrar tu razonamiento. Verifica internamente que la respuesta correcta sea coherente con la pregunta. Usa español en todo el contenido. Formato: " + JSON_FORMAT;
+
+    private static final String REASONING_SYSTEM_PROMPT = "Eres un experto profesor de matemáticas con capacidades de razonamiento avanzado. PIENSA PASO A PASO: incluye tu proceso completo de razonamiento, luego termina con el JSON exacto solicitado. Asegúrate de que la pregunta tenga sentido, resuélvela correctamente, y verifica que tu respuesta sea coherente. Usa español en todo el contenido. Formato final: " + JSON_FORMAT;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${azure.ai.foundry.routing.enabled:true}")
+    private Boolean routingEnabled;
+
+    @Value("${azure.ai.foundry.routes.fast.deployment-name:Phi-4-mini-instruct}")
+    private String fastDeployment;
+
+    @Value("${azure.ai.foundry.routes.fast.max-tokens:1200}")
+    private Integer fastMaxTokens;
+
+    @Value("${azure.ai.foundry.routes.fast.temperature:0.8}")
+    private Double fastTemperature;
+
+    @Value("${azure.ai.foundry.routes.fast.cost-per-1k-input:0.0}")
+    private Double fastCostPer1kInput;
+
+    @Value("${azure.ai.foundry.routes.fast.cost-per-1k-output:0.0}")
+    private Double fastCostPer1kOutput;
+
+    @Value("${azure.ai.foundry.routes.reasoning.deployment-name:${azure.ai.foundry.deployment-name}}")
+    private String reasoningDeployment;
+
+    @Value("${azure.ai.foundry.routes.reasoning.max-tokens:4000}")
+    private Integer reasoningMaxTokens;
+
+    @Value("${azure.ai.foundry.routes.reasoning.temperature:1.2}")
+    private Double reasoningTemperature;
+
+    @Value("${azure.ai.foundry.routes.reasoning.cost-per-1k-input:0.0}")
+    private Double reasoningCostPer1kInput;
+
+    @Value("${azure.ai.foundry.routes.reasoning.cost-per-1k-output:0.0}")
+    private Double reasoningCostPer1kOutput;
+
+    private ModelRoute fastRoute;
+    private ModelRoute reasoningRoute;
+
+    @PostConstruct
+    void init() {
+        fastRoute = ModelRoute.builder()
+                .name("fast")
+                .deploymentName(fastDeployment)
+                .maxTokens(fastMaxTokens)
+                .temperature(fastTemperature)
+                .systemPrompt(FAST_SYSTEM_PROMPT)
+                .costPer1kInput(fastCostPer1kInput)
+                .costPer1kOutput(fastCostPer1kOutput)
+                .build();
+        reasoningRoute = ModelRoute.builder()
+                .name("reasoning")
+                .deploymentName(reasoningDeployment)
+                .maxTokens(reasoningMaxTokens)
+                .temperature(reasoningTemperature)
+                .systemPrompt(REASONING_SYSTEM_PROMPT)
+                .costPer1kInput(reasoningCostPer1kInput)
+                .costPer1kOutput(reasoningCostPer1kOutput)
+                .build();
+        log.info("Rutas de modelo: fast={} ({} tokens), reasoning={} ({} tokens), enrutamiento {}",
+                fastDeployment, fastMaxTokens, reasoningDeployment, reasoningMaxTokens,
+                routingEnabled ? "habilitado" : "deshabilitado");
+    }
+
+    /**
+     * Rutas a intentar para un carril, en orden: la principal y la de respaldo.
+     * Con el enrutamiento deshabilitado todo va al modelo de razonamiento.
+     */
+    public List<ModelRoute> routesFor(AiRequestScheduler.Lane lane) {
+        if (!routingEnabled) {
+            return List.of(reasoningRoute);
+        }
+        return lane == AiRequestScheduler.Lane.INTERACTIVE
+                ? List.of(fastRoute, reasoningRoute)
+                : List.of(reasoningRoute, fastRoute);
+    }
+
+    /**
+     * Registra la latencia de una llamada a la ruta
+     * @param success false si la ruta falló (se intentará la de respaldo, si existe)
+     */
+    public void recordLatency(ModelRoute route, AiRequestScheduler.Lane lane, long elapsedNanos, boolean success) {
+        Timer.builder("ai.route.latency")
+                .description("Latencia de generación por ruta de modelo")
+                .tag("route", route.getName())
+                .tag("lane", lane.name().toLowerCase())
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra los tokens consumidos por una llamada y su costo estimado
+     */
+    public void recordUsage(ModelRoute route, Integer promptTokens, Integer completionTokens) {
+        int input = promptTokens != null ? promptTokens : 0;
+        int output = completionTokens != null ? completionTokens : 0;
+
+        tokenSummary(route, "prompt").record(input);
+        tokenSummary(route, "completion").record(output);
+        DistributionSummary.builder("ai.route.cost")
+                .description("Costo estimado por llamada según los precios configurados de la ruta")
+                .baseUnit("usd")
+                .tag("route", route.getName())
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(route.costOf(input, output));
+    }
+
+    /**
+     * Registra el paso de una ruta a su respaldo
+     */
+    public void recordFallback(ModelRoute from, ModelRoute to) {
+        Counter.builder("ai.route.fallback")
+                .description("Llamadas que pasaron a la ruta de respaldo")
+                .tag("from", from.getName())
+                .tag("to", to.getName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private DistributionSummary tokenSummary(ModelRoute route, String type) {
+        return DistributionSummary.builder("ai.route.tokens")
+                .description("Tokens consumidos por llamada y ruta")
+                .baseUnit("tokens")
+                .tag("route", route.getName())
+                .tag("type", type)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ruta de modelo: deployment y parámetros de generación para una clase de llamada
+     */
+    @Getter
+    @Builder
+    public static class ModelRoute {
+        private final String name;
+        private final String deploymentName;
+        private final Integer maxTokens;
+        private final Double temperature;
+        private final String systemPrompt;
+        private final Double costPer1kInput;
+        private final Double costPer1kOutput;
+
+        double costOf(int promptTokens, int completionTokens) {
+            return promptTokens / 1000.0 * costPer1kInput + completionTokens / 1000.0 * costPer1kOutput;
+        }
+    }
+}
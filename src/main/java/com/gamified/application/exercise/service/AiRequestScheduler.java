@@ -0,0 +1,254 @@
+package com.gamified.application.exercise.service;
+
+import com.gamified.application.shared.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Planificador de llamadas a Azure AI con dos carriles de prioridad.
+ * Todas las llamadas comparten un presupuesto global de solicitudes/minuto y tokens/minuto que
+ * reproduce los límites del deployment, para que el throttling ocurra aquí y no como 429 en Azure.
+ *
+ * - INTERACTIVE: generación para un estudiante que está esperando. Tiene prioridad absoluta.
+ * - BACKGROUND: mantenimiento y calentamiento del pool. Solo avanza si no hay solicitudes
+ *   interactivas en cola, con concurrencia limitada y sin consumir la reserva del presupuesto
+ *   destinada al carril interactivo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AiRequestScheduler {
+
+    /**
+     * Carril de prioridad de una llamada a la IA
+     */
+    public enum Lane {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    /**
+     * La llamada no se admitió: se agotó su tiempo máximo en cola o se interrumpió la espera.
+     * No es un fallo de Azure AI; la llamada nunca llegó a realizarse.
+     */
+    public static class QueueRejectedException extends RuntimeException {
+        public QueueRejectedException(String message) {
+            super(message);
+        }
+
+        public QueueRejectedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static final long MAX_RECHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${azure.ai.foundry.rate-limit.enabled:true}")
+    private Boolean rateLimitEnabled;
+
+    @Value("${azure.ai.foundry.rate-limit.requests-per-minute:60}")
+    private Long requestsPerMinute;
+
+    @Value("${azure.ai.foundry.rate-limit.tokens-per-minute:60000}")
+    private Long tokensPerMinute;
+
+    @Value("${azure.ai.foundry.rate-limit.interactive-reserve:0.25}")
+    private Double interactiveReserve;
+
+    @Value("${azure.ai.foundry.rate-limit.background-max-concurrency:2}")
+    private Integer backgroundMaxConcurrency;
+
+    @Value("${azure.ai.foundry.rate-limit.interactive-max-wait-ms:20000}")
+    private Long interactiveMaxWaitMs;
+
+    @Value("${azure.ai.foundry.rate-limit.background-max-wait-ms:600000}")
+    private Long backgroundMaxWaitMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final Map<Lane, AtomicInteger> queued = new EnumMap<>(Lane.class);
+    private final Map<Lane, AtomicInteger> inFlight = new EnumMap<>(Lane.class);
+    private final Map<Lane, Timer> queueWaitTimers = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> rejectedCounters = new EnumMap<>(Lane.class);
+
+    private TokenBucket requestBudget;
+    private TokenBucket tokenBudget;
+    private long reservedRequests;
+    private long reservedTokens;
+
+    @PostConstruct
+    void init() {
+        requestBudget = new TokenBucket(requestsPerMinute);
+        tokenBudget = new TokenBucket(tokensPerMinute);
+        reservedRequests = (long) Math.ceil(requestsPerMinute * interactiveReserve);
+        reservedTokens = (long) Math.ceil(tokensPerMinute * interactiveReserve);
+
+        for (Lane lane : Lane.values()) {
+            String tag = lane.name().toLowerCase();
+            queued.put(lane, new AtomicInteger());
+            inFlight.put(lane, new AtomicInteger());
+            queueWaitTimers.put(lane, Timer.builder("ai.scheduler.queue.wait")
+                    .description("Tiempo en cola antes de obtener presupuesto para llamar a la IA")
+                    .tag("lane", tag)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+            rejectedCounters.put(lane, Counter.builder("ai.scheduler.rejected")
+                    .description("Llamadas a la IA descartadas por superar el tiempo máximo en cola")
+                    .tag("lane", tag)
+                    .register(meterRegistry));
+            Gauge.builder("ai.scheduler.queued", queued.get(lane), AtomicInteger::get)
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            Gauge.builder("ai.scheduler.in_flight", inFlight.get(lane), AtomicInteger::get)
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("ai.scheduler.budget.requests", requestBudget, TokenBucket::getAvailable)
+                .description("Solicitudes/minuto disponibles en el presupuesto compartido")
+                .register(meterRegistry);
+        Gauge.builder("ai.scheduler.budget.tokens", tokenBudget, TokenBucket::getAvailable)
+                .description("Tokens/minuto disponibles en el presupuesto compartido")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta una llamada a la IA cuando el carril y el presupuesto lo permiten
+     * @param lane Carril de prioridad
+     * @param estimatedTokens Tokens estimados (prompt + max_tokens), como los contabiliza Azure
+     * @param call Llamada a ejecutar
+     * @return Resultado de la llamada
+     * @throws QueueRejectedException si se supera el tiempo máximo en cola del carril
+     */
+    public <T> T execute(Lane lane, long estimatedTokens, Supplier<T> call) {
+        if (!rateLimitEnabled) {
+            return call.get();
+        }
+
+        // Una llamada mayor que el presupuesto del carril se limita para que pueda llegar a admitirse
+        long laneCapacity = tokenBudget.getCapacity() - (lane == Lane.BACKGROUND ? reservedTokens : 0L);
+        acquire(lane, Math.max(1L, Math.min(estimatedTokens, laneCapacity)));
+        try {
+            return call.get();
+        } finally {
+            release(lane);
+        }
+    }
+
+    /**
+     * Número de llamadas en cola para un carril
+     */
+    public int getQueued(Lane lane) {
+        return queued.get(lane).get();
+    }
+
+    /**
+     * Número de llamadas en curso para un carril
+     */
+    public int getInFlight(Lane lane) {
+        return inFlight.get(lane).get();
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void acquire(Lane lane, long tokens) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(
+                lane == Lane.INTERACTIVE ? interactiveMaxWaitMs : backgroundMaxWaitMs);
+
+        lock.lock();
+        queued.get(lane).incrementAndGet();
+        try {
+            while (!tryAdmit(lane, tokens)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejectedCounters.get(lane).increment();
+                    throw new QueueRejectedException("Presupuesto de Azure AI agotado: tiempo máximo en cola superado (carril "
+                            + lane + ")");
+                }
+                stateChanged.awaitNanos(Math.min(remaining, nextRecheckNanos(lane, tokens)));
+            }
+            inFlight.get(lane).incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueueRejectedException("Interrumpido esperando presupuesto de Azure AI", e);
+        } finally {
+            queued.get(lane).decrementAndGet();
+            // Al salir una solicitud interactiva de la cola el carril de fondo puede volver a avanzar
+            stateChanged.signalAll();
+            lock.unlock();
+        }
+
+        long waitedNanos = System.nanoTime() - start;
+        queueWaitTimers.get(lane).record(waitedNanos, TimeUnit.NANOSECONDS);
+        if (waitedNanos > TimeUnit.SECONDS.toNanos(1)) {
+            log.debug("Llamada a Azure AI (carril {}) esperó {} ms en cola", lane, TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+        }
+    }
+
+    private void release(Lane lane) {
+        lock.lock();
+        try {
+            inFlight.get(lane).decrementAndGet();
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admite la llamada si el carril lo permite y hay presupuesto; debe invocarse con el lock tomado
+     */
+    private boolean tryAdmit(Lane lane, long tokens) {
+        long requestReserve = 0L;
+        long tokenReserve = 0L;
+
+        if (lane == Lane.BACKGROUND) {
+            if (queued.get(Lane.INTERACTIVE).get() > 0
+                    || inFlight.get(Lane.BACKGROUND).get() >= backgroundMaxConcurrency) {
+                return false;
+            }
+            requestReserve = reservedRequests;
+            tokenReserve = reservedTokens;
+        }
+
+        if (requestBudget.nanosUntilAvailable(1, requestReserve) > 0
+                || tokenBudget.nanosUntilAvailable(tokens, tokenReserve) > 0) {
+            return false;
+        }
+
+        requestBudget.tryConsume(1);
+        tokenBudget.tryConsume(tokens);
+        return true;
+    }
+
+    /**
+     * Tiempo hasta volver a intentar: lo que falte para recargar el presupuesto, acotado para
+     * reaccionar también a cambios de cola y concurrencia
+     */
+    private long nextRecheckNanos(Lane lane, long tokens) {
+        long requestReserve = lane == Lane.BACKGROUND ? reservedRequests : 0L;
+        long tokenReserve = lane == Lane.BACKGROUND ? reservedTokens : 0L;
+        long refillNanos = Math.max(requestBudget.nanosUntilAvailable(1, requestReserve),
+                tokenBudget.nanosUntilAvailable(tokens, tokenReserve));
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(10), Math.min(refillNanos, MAX_RECHECK_NANOS));
+    }
+}
@@ -0,0 +1,262 @@
+package com.gamified.application.exercise.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Presupuesto de tokens por plantilla y ruta de modelo a partir de las respuestas observadas.
+ * Guarda una ventana de los tokens de completion reales y deriva max_tokens como el percentil
+ * configurado (p99) más un margen, acotado entre un mínimo y el máximo de la ruta. Las llamadas que
+ * no necesitan todo el presupuesto terminan antes y cuestan menos, y el scheduler reserva menos tokens.
+ *
+ * También sigue el tamaño del prompt por plantilla y marca las que crecen respecto a su línea base.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AiTokenBudgetTracker {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${azure.ai.foundry.token-budget.enabled:true}")
+    private Boolean budgetEnabled;
+
+    @Value("${azure.ai.foundry.max-tokens:4000}")
+    private Integer globalMaxTokens;
+
+    @Value("${azure.ai.foundry.token-budget.window-size:200}")
+    private Integer windowSize;
+
+    @Value("${azure.ai.foundry.token-budget.min-samples:20}")
+    private Integer minSamples;
+
+    @Value("${azure.ai.foundry.token-budget.percentile:0.99}")
+    private Double percentile;
+
+    @Value("${azure.ai.foundry.token-budget.headroom:1.25}")
+    private Double headroom;
+
+    @Value("${azure.ai.foundry.token-budget.floor:256}")
+    private Integer floorTokens;
+
+    @Value("${azure.ai.foundry.token-budget.prompt-growth-threshold:1.5}")
+    private Double promptGrowthThreshold;
+
+    private final Map<String, TemplateBudget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * Máximo de cada ruta por clave de presupuesto, para que el resumen use el mismo techo que las llamadas
+     */
+    private final Map<String, Integer> ceilings = new ConcurrentHashMap<>();
+
+    /**
+     * max_tokens a solicitar para una plantilla en una ruta
+     * @param templateId ID de la plantilla (null si la llamada no corresponde a una plantilla)
+     * @param route Ruta de modelo
+     * @return Presupuesto derivado de las observaciones, o el máximo de la ruta si aún no hay suficientes
+     */
+    public int maxTokensFor(Integer templateId, AiModelRouter.ModelRoute route) {
+        int ceiling = ceilingFor(route);
+        if (!budgetEnabled || templateId == null) {
+            return ceiling;
+        }
+
+        TemplateBudget budget = budgets.get(key(templateId, route));
+        if (budget == null) {
+            return ceiling;
+        }
+        return budget.maxTokens(minSamples, percentile, headroom, floorTokens, ceiling);
+    }
+
+    /**
+     * Registra el uso real de tokens de una respuesta
+     * @param truncated true si el modelo se detuvo por max_tokens (finish_reason = length)
+     */
+    public void recordCompletion(Integer templateId, AiModelRouter.ModelRoute route, int maxTokensRequested,
+                                 int promptTokens, int completionTokens, boolean truncated) {
+        if (templateId == null) {
+            return;
+        }
+
+        String key = key(templateId, route);
+        TemplateBudget budget = budgets.computeIfAbsent(key, k -> new TemplateBudget(windowSize));
+        ceilings.put(key, ceilingFor(route));
+        boolean wasGrowing = budget.isPromptGrowing(promptGrowthThreshold);
+        budget.record(promptTokens, completionTokens, maxTokensRequested, truncated);
+
+        if (truncated) {
+            Counter.builder("ai.token_budget.truncated")
+                    .description("Respuestas cortadas por max_tokens")
+                    .tag("route", route.getName())
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Respuesta truncada para plantilla {} en ruta {} con max_tokens={}",
+                    templateId, route.getName(), maxTokensRequested);
+        }
+        if (!wasGrowing && budget.isPromptGrowing(promptGrowthThreshold)) {
+            log.warn("El prompt de la plantilla {} crece: {} tokens (línea base {})",
+                    templateId, Math.round(budget.getPromptAverage()), Math.round(budget.getPromptBaseline()));
+        }
+    }
+
+    /**
+     * Registra la latencia de una respuesta exitosa
+     */
+    public void recordLatency(Integer templateId, AiModelRouter.ModelRoute route, long elapsedNanos) {
+        if (templateId == null) {
+            return;
+        }
+        TemplateBudget budget = budgets.get(key(templateId, route));
+        if (budget != null) {
+            budget.recordLatency(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+    }
+
+    /**
+     * Resumen por plantilla y ruta: presupuesto actual, percentiles observados y crecimiento del prompt
+     */
+    public Map<String, Object> getBudgetSummary() {
+        Map<String, Object> summary = new TreeMap<>();
+        budgets.forEach((key, budget) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("samples", budget.getSampleCount());
+            entry.put("completion_p50", budget.percentile(0.5));
+            entry.put("completion_p99", budget.percentile(percentile));
+            int ceiling = ceilings.getOrDefault(key, globalMaxTokens);
+            entry.put("max_tokens", budget.maxTokens(minSamples, percentile, headroom, floorTokens, ceiling));
+            entry.put("truncations", budget.getTruncations());
+            entry.put("avg_latency_ms", Math.round(budget.getLatencyAverageMs()));
+            entry.put("prompt_tokens_avg", Math.round(budget.getPromptAverage()));
+            entry.put("prompt_tokens_baseline", Math.round(budget.getPromptBaseline()));
+            entry.put("prompt_growing", budget.isPromptGrowing(promptGrowthThreshold));
+            summary.put(key, entry);
+        });
+        return summary;
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private int ceilingFor(AiModelRouter.ModelRoute route) {
+        return Math.min(route.getMaxTokens(), globalMaxTokens);
+    }
+
+    private String key(Integer templateId, AiModelRouter.ModelRoute route) {
+        return templateId + ":" + route.getName();
+    }
+
+    /**
+     * Observaciones de una plantilla en una ruta: ventana circular de tokens de completion,
+     * media móvil del prompt con su línea base y media móvil de latencia
+     */
+    static class TemplateBudget {
+        private static final int BASELINE_SAMPLES = 20;
+        private static final double EWMA_ALPHA = 0.1;
+
+        private final int[] completionTokens;
+        private int count;
+        private int next;
+        private long truncations;
+        private int truncationSample;
+        private int recordsSinceTruncation;
+
+        private double promptAverage;
+        private double promptBaseline;
+        private int promptSamples;
+        private double latencyAverageMs;
+
+        TemplateBudget(int windowSize) {
+            this.completionTokens = new int[windowSize];
+        }
+
+        synchronized void record(int promptTokens, int completion, int maxTokensRequested, boolean truncated) {
+            // Una respuesta truncada no dice cuánto necesitaba: se cuenta como el doble del presupuesto pedido
+            int sample = truncated ? Math.max(completion, maxTokensRequested) * 2 : completion;
+            if (truncated) {
+                truncations++;
+                truncationSample = sample;
+                recordsSinceTruncation = 0;
+            } else {
+                recordsSinceTruncation++;
+            }
+            completionTokens[next] = sample;
+            next = (next + 1) % completionTokens.length;
+            count = Math.min(count + 1, completionTokens.length);
+
+            if (promptTokens > 0) {
+                promptSamples++;
+                if (promptSamples <= BASELINE_SAMPLES) {
+                    promptBaseline += (promptTokens - promptBaseline) / promptSamples;
+                    promptAverage = promptBaseline;
+                } else {
+                    promptAverage += EWMA_ALPHA * (promptTokens - promptAverage);
+                }
+            }
+        }
+
+        synchronized void recordLatency(long latencyMs) {
+            latencyAverageMs = latencyAverageMs == 0 ? latencyMs : latencyAverageMs + EWMA_ALPHA * (latencyMs - latencyAverageMs);
+        }
+
+        /**
+         * Percentil de los tokens de completion de la ventana (0 si no hay muestras)
+         */
+        synchronized int percentile(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            int[] sorted = Arrays.copyOf(completionTokens, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+
+        synchronized int maxTokens(int minSamples, double p, double headroom, int floor, int ceiling) {
+            if (count < minSamples) {
+                return ceiling;
+            }
+            int budget = (int) Math.ceil(percentile(p) * headroom);
+            // Mientras la truncación siga en la ventana, el presupuesto no baja de lo que la evitaría
+            if (truncations > 0 && recordsSinceTruncation < completionTokens.length) {
+                budget = Math.max(budget, truncationSample);
+            }
+            return Math.max(Math.min(floor, ceiling), Math.min(budget, ceiling));
+        }
+
+        synchronized boolean isPromptGrowing(double threshold) {
+            return promptSamples > BASELINE_SAMPLES && promptAverage > promptBaseline * threshold;
+        }
+
+        synchronized int getSampleCount() {
+            return count;
+        }
+
+        synchronized long getTruncations() {
+            return truncations;
+        }
+
+        synchronized double getPromptAverage() {
+            return promptAverage;
+        }
+
+        synchronized double getPromptBaseline() {
+            return promptBaseline;
+        }
+
+        synchronized double getLatencyAverageMs() {
+            return latencyAverageMs;
+        }
+    }
+}
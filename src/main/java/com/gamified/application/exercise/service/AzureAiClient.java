@@ -8,13 +8,21 @@ import com.azure.ai.inference.models.ChatRequestMessage;
 import com.azure.ai.inference.models.ChatRequestSystemMessage;
 import com.azure.ai.inference.models.ChatRequestUserMessage;
 import com.azure.core.credential.AzureKeyCredential;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +38,12 @@ public class AzureAiClient {
 
     private final ObjectMapper objectMapper;
     private final RestTemplate restTemplate;
+    private final AiRequestScheduler requestScheduler;
+    private final AiModelRouter modelRouter;
+    private final AiTokenBudgetTracker tokenBudgetTracker;
+    private final AiCallMetrics callMetrics;
+    private final AiCircuitBreaker circuitBreaker;
+    private final RestTemplate healthCheckRestTemplate;
     private ChatCompletionsClient chatClient;
 
     @Value("${azure.ai.foundry.endpoint}")
@@ -65,9 +79,22 @@ public class AzureAiClient {
     @Value("${azure.ai.foundry.timeout:30}")
     private int timeoutSeconds;
 
-    public AzureAiClient(ObjectMapper objectMapper, RestTemplate restTemplate) {
+    @Value("${azure.ai.foundry.streaming.enabled:false}")
+    private boolean streamingEnabled;
+
+    public AzureAiClient(ObjectMapper objectMapper, @Qualifier("restTemplate") RestTemplate restTemplate,
+                         AiRequestScheduler requestScheduler,
+                         AiModelRouter modelRouter, AiTokenBudgetTracker tokenBudgetTracker,
+                         AiCallMetrics callMetrics, AiCircuitBreaker circuitBreaker,
+                         @Qualifier("healthCheckRestTemplate") RestTemplate healthCheckRestTemplate) {
         this.objectMapper = objectMapper;
         this.restTemplate = restTemplate;
+        this.requestScheduler = requestScheduler;
+        this.modelRouter = modelRouter;
+        this.tokenBudgetTracker = tokenBudgetTracker;
+        this.callMetrics = callMetrics;
+        this.circuitBreaker = circuitBreaker;
+        this.healthCheckRestTemplate = healthCheckRestTemplate;
     }
 
     /**
@@ -99,49 +126,178 @@ public class AzureAiClient {
      * @throws RuntimeException si la generación falla
      */
     public String generateExerciseContent(String prompt) {
-        log.info("Generando ejercicio con Azure AI Foundry. Prompt length: {}", prompt.length());
+        return generateExerciseContent(prompt, AiRequestScheduler.Lane.INTERACTIVE, null);
+    }
+
+    /**
+     * Genera contenido de ejercicio usando Azure AI Foundry en el carril de prioridad indicado
+     * 
+     * @param prompt El prompt estructurado para generar el ejercicio
+     * @param lane INTERACTIVE si un estudiante espera la respuesta, BACKGROUND para el pool
+     * @param templateId ID de la plantilla, para ajustar max_tokens a lo observado (puede ser null)
+     * @return JSON string con el contenido del ejercicio generado
+     * @throws RuntimeException si la generación falla o se agota el tiempo en cola
+     */
+    public String generateExerciseContent(String prompt, AiRequestScheduler.Lane lane, Integer templateId) {
+        return generateExercise(prompt, lane, templateId).getContent();
+    }
+
+    /**
+     * Igual que {@link #generateExerciseContent(String, AiRequestScheduler.Lane, Integer)} pero indica
+     * además el modelo que respondió, para registrarlo en ai_model_version
+     *
+     * @return Contenido generado y versión del modelo de la ruta que lo generó
+     * @throws RuntimeException si la generación falla o se agota el tiempo en cola
+     */
+    public GeneratedContent generateExercise(String prompt, AiRequestScheduler.Lane lane, Integer templateId) {
+        log.info("Generando ejercicio con Azure AI Foundry (carril {}). Prompt length: {}", lane, prompt.length());
         
         try {
             // ULTRA LIMPIEZA del prompt antes de enviar
             String cleanPrompt = ultraCleanPrompt(prompt);
             log.info("Prompt limpio length: {}", cleanPrompt.length());
 
-            // Intentar con llamada REST directa PRIMERO (más confiable)
-            String directResult = callAzureAiDirectly(cleanPrompt);
-            if (directResult != null && !directResult.trim().isEmpty()) {
-                log.info("Llamada REST directa exitosa");
-                return directResult;
+            // Ruta principal según el carril y, si falla, la de respaldo
+            List<AiModelRouter.ModelRoute> routes = modelRouter.routesFor(lane);
+            RuntimeException lastError = null;
+            for (int i = 0; i < routes.size(); i++) {
+                AiModelRouter.ModelRoute route = routes.get(i);
+                if (i > 0) {
+                    modelRouter.recordFallback(routes.get(i - 1), route);
+                    log.warn("Usando ruta de respaldo {} ({})", route.getName(), route.getDeploymentName());
+                }
+                // Con el circuito del deployment abierto se pasa a la siguiente ruta sin esperar en cola
+                if (circuitBreaker.isOpen(route.getDeploymentName())) {
+                    log.warn("Ruta {} ({}) omitida: circuito abierto", route.getName(), route.getDeploymentName());
+                    lastError = new RuntimeException("Azure AI no disponible (circuito abierto): "
+                            + circuitBreaker.getLastReason(route.getDeploymentName()));
+                    continue;
+                }
+                GenerationCall call = new GenerationCall(route, templateId, tokenBudgetTracker.maxTokensFor(templateId, route));
+                try {
+                    // Esperar turno en el presupuesto compartido de solicitudes y tokens por minuto
+                    String content = requestScheduler.execute(lane, estimateTokens(cleanPrompt, call),
+                            () -> completeExerciseGuarded(cleanPrompt, call, lane));
+                    return new GeneratedContent(content, modelVersionOf(route.getDeploymentName()));
+                } catch (AiRequestScheduler.QueueRejectedException e) {
+                    // El presupuesto es compartido por todas las rutas: otra ruta esperaría lo mismo
+                    throw e;
+                } catch (RuntimeException e) {
+                    log.warn("Ruta {} ({}) falló: {}", route.getName(), route.getDeploymentName(), e.getMessage());
+                    lastError = e;
+                }
             }
+            throw lastError;
 
-            // Fallback: intentar con SDK
-            ChatCompletionsClient client = getChatClient();
-            if (client == null) {
-                throw new RuntimeException("Azure AI client not configured");
-            }
+        } catch (AiRequestScheduler.QueueRejectedException e) {
+            // No es un fallo de Azure AI: no se llegó a llamar y no cuenta para el circuit breaker
+            log.warn("Solicitud a Azure AI rechazada en cola (carril {}): {}", lane, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Error al comunicarse con Azure AI Foundry", e);
             
-            // Mensajes optimizados para modelo de razonamiento
-            List<ChatRequestMessage> chatMessages = Arrays.asList(
-                new ChatRequestSystemMessage("Eres un experto profesor de matemáticas con un modelo de razonamiento avanzado. INCLUYE tu proceso de razonamiento completo en la respuesta, luego termina con el JSON solicitado. Piensa paso a paso, razona sobre el problema, y asegúrate de que la pregunta y respuesta sean coherentes. Usa español en todo el contenido educativo."),
-                new ChatRequestUserMessage(cleanPrompt)
-            );
+            // NO usar respaldo - FALLAR correctamente
+            throw new RuntimeException("Fallo completo en Azure AI: " + e.getMessage(), e);
+        }
+    }
 
-            // Configurar opciones para modelo de razonamiento
-            ChatCompletionsOptions options = new ChatCompletionsOptions(chatMessages);
-            options.setModel(deploymentName);
-            options.setMaxTokens(4000); // Más tokens para razonamiento completo
-            options.setTemperature(1.2); // Mayor creatividad para variabilidad
-            options.setTopP(0.95); // Más diversidad en respuestas
+    /**
+     * Tokens que Azure contabiliza en el límite por minuto: prompt (aprox. 4 caracteres por token) más max_tokens
+     */
+    private long estimateTokens(String cleanPrompt, GenerationCall call) {
+        return cleanPrompt.length() / 4 + call.maxTokens;
+    }
+
+    /**
+     * Realiza la llamada ya admitida por el scheduler y registra su resultado en el circuito del deployment.
+     * Solo los fallos del servicio cuentan; el resto solo libera la llamada de prueba si lo era.
+     */
+    private String completeExerciseGuarded(String cleanPrompt, GenerationCall call, AiRequestScheduler.Lane lane) {
+        String deployment = call.route.getDeploymentName();
+        if (!circuitBreaker.allowRequest(deployment)) {
+            throw new RuntimeException("Azure AI no disponible (circuito abierto): " + circuitBreaker.getLastReason(deployment));
+        }
+        try {
+            String content = completeExerciseTimed(cleanPrompt, call, lane);
+            circuitBreaker.recordSuccess(deployment);
+            return content;
+        } catch (RuntimeException e) {
+            if (AiCircuitBreaker.isUpstreamFailure(e)) {
+                circuitBreaker.recordFailure(deployment, e.getMessage());
+            } else {
+                circuitBreaker.recordIgnored(deployment);
+            }
+            throw e;
+        }
+    }
 
+    /**
+     * Realiza la llamada y registra su latencia por ruta (sin contar el tiempo en cola)
+     */
+    private String completeExerciseTimed(String cleanPrompt, GenerationCall call, AiRequestScheduler.Lane lane) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            String content = completeExercise(cleanPrompt, call);
+            success = true;
+            return content;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            modelRouter.recordLatency(call.route, lane, elapsed, success);
+            if (success) {
+                tokenBudgetTracker.recordLatency(call.templateId, call.route, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Realiza la llamada de generación en la ruta indicada: REST directa y, si falla procesando la
+     * respuesta, el SDK. Los fallos del servicio no pasan al SDK, que llamaría al mismo deployment.
+     */
+    private String completeExercise(String cleanPrompt, GenerationCall call) {
+        // Intentar con llamada REST directa PRIMERO (más confiable)
+        String directResult = callAzureAiDirectly(cleanPrompt, call);
+        if (directResult != null && !directResult.trim().isEmpty()) {
+            log.info("Llamada REST directa exitosa");
+            return directResult;
+        }
+
+        // Fallback: intentar con SDK
+        ChatCompletionsClient client = getChatClient();
+        if (client == null) {
+            throw new RuntimeException("Azure AI client not configured");
+        }
+            
+        // Mensajes con el prompt de sistema de la ruta (solo JSON o con razonamiento)
+        List<ChatRequestMessage> chatMessages = Arrays.asList(
+            new ChatRequestSystemMessage(call.route.getSystemPrompt()),
+            new ChatRequestUserMessage(cleanPrompt)
+        );
+
+        // Configurar opciones según la ruta
+        ChatCompletionsOptions options = new ChatCompletionsOptions(chatMessages);
+        options.setModel(call.route.getDeploymentName());
+        options.setMaxTokens(call.maxTokens);
+        options.setTemperature(call.route.getTemperature());
+        options.setTopP(0.95); // Más diversidad en respuestas
+
+        long sdkStart = System.nanoTime();
+        try {
             ChatCompletions completions = client.complete(options);
-            String exerciseContent = extractAndCleanContentFromResponse(completions);
+            if (completions.getUsage() != null) {
+                boolean truncated = !completions.getChoices().isEmpty()
+                        && "length".equals(String.valueOf(completions.getChoices().get(0).getFinishReason()));
+                recordUsage(call, completions.getUsage().getPromptTokens(),
+                        completions.getUsage().getCompletionTokens(), truncated);
+            }
+            String exerciseContent = extractAndCleanContentFromResponse(completions, call);
+            callMetrics.recordCall(call.route.getName(), AiCallMetrics.PATH_SDK, System.nanoTime() - sdkStart, null);
             log.info("Ejercicio generado exitosamente con SDK. Content length: {}", exerciseContent.length());
             return exerciseContent;
-
-        } catch (Exception e) {
-            log.error("Error al comunicarse con Azure AI Foundry", e);
-            
-            // NO usar respaldo - FALLAR correctamente
-            throw new RuntimeException("Fallo completo en Azure AI: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            callMetrics.recordCall(call.route.getName(), AiCallMetrics.PATH_SDK, System.nanoTime() - sdkStart,
+                    AiCallMetrics.categorize(e));
+            throw e;
         }
     }
 
@@ -172,7 +328,7 @@ public class AzureAiClient {
     /**
      * Extrae y limpia el contenido del ejercicio de la respuesta de Azure AI Foundry
      */
-    private String extractAndCleanContentFromResponse(ChatCompletions completions) {
+    private String extractAndCleanContentFromResponse(ChatCompletions completions, GenerationCall call) {
         try {
             if (completions.getChoices() == null || completions.getChoices().isEmpty()) {
                 throw new RuntimeException("Respuesta inesperada de Azure AI Foundry: no hay choices");
@@ -181,15 +337,10 @@ public class AzureAiClient {
             String content = completions.getChoices().get(0).getMessage().getContent();
             log.info("Contenido original recibido de Azure AI: '{}'", 
                     content.substring(0, Math.min(100, content.length())));
+            callMetrics.recordResponseSize(call.route.getName(), content.getBytes(StandardCharsets.UTF_8).length);
             
-            // Limpieza y extracción de JSON
-            content = cleanContent(content);
-            content = extractJsonFromContent(content);
-            
-            // Validar JSON final
-            validateJsonContent(content);
-            
-            return content;
+            // Limpieza, extracción y validación del JSON
+            return parseExerciseContent(content, call);
             
         } catch (Exception e) {
             log.error("Error extracting content from Azure response", e);
@@ -197,6 +348,21 @@ public class AzureAiClient {
         }
     }
 
+    /**
+     * Limpia el contenido, extrae el JSON (reparándolo si hace falta) y lo valida, midiendo el tiempo
+     */
+    private String parseExerciseContent(String content, GenerationCall call) {
+        long start = System.nanoTime();
+        try {
+            content = cleanContent(content);
+            content = extractJsonFromContent(content);
+            validateJsonContent(content);
+            return content;
+        } finally {
+            callMetrics.recordParse(call.route.getName(), System.nanoTime() - start);
+        }
+    }
+
     /**
      * Limpia y formatea el contenido para que sea compatible con Azure AI
      */
@@ -281,12 +447,14 @@ public class AzureAiClient {
         // Si no hay JSON, convertir formato de propiedades a JSON
         if (content.contains("question :") && content.contains("correct_answer :")) {
             log.info("Detectado formato de propiedades, convirtiendo a JSON...");
+            callMetrics.recordRepair("properties");
             return convertPropertiesToJson(content);
         }
         
         // Último intento: buscar patrones de JSON malformados y repararlos
         if (content.contains("\"question\"") && content.contains("\"correct_answer\"")) {
             log.info("Detectado JSON malformado, intentando reparar...");
+            callMetrics.recordRepair("malformed");
             return repairMalformedJson(content);
         }
         
@@ -433,55 +601,134 @@ public class AzureAiClient {
 
     /**
      * Hace una llamada REST directa a Azure AI como método principal
+     * @return Contenido generado, o null si falló por la respuesta (se intenta con el SDK)
+     * @throws RuntimeException si falló el servicio (HTTP 5xx/429, red o timeout)
      */
-    private String callAzureAiDirectly(String cleanPrompt) {
+    private String callAzureAiDirectly(String cleanPrompt, GenerationCall call) {
+        long start = System.nanoTime();
         try {
             log.info("Intentando llamada REST directa a Azure AI");
             
             // Construir endpoint correcto para Azure AI Foundry
-            String correctEndpoint = buildCorrectEndpoint();
+            String correctEndpoint = buildCorrectEndpoint(call.route.getDeploymentName());
             log.info("Usando endpoint: {}", correctEndpoint);
             
             // Construir payload simple y limpio
             Map<String, Object> payload = new HashMap<>();
             payload.put("messages", List.of(
-                Map.of("role", "system", "content", "Eres un experto profesor de matemáticas con capacidades de razonamiento avanzado. PIENSA PASO A PASO: incluye tu proceso completo de razonamiento, luego termina con el JSON exacto solicitado. Asegúrate de que la pregunta tenga sentido, resuélvela correctamente, y verifica que tu respuesta sea coherente. Usa español en todo el contenido. Formato final: {\"question\": \"pregunta completa en español\", \"correct_answer\": \"respuesta correcta\", \"options\": [\"opcion correcta\", \"error común 1\", \"error común 2\", \"error común 3\"], \"explanation\": \"explicación paso a paso en español\"}"),
+                Map.of("role", "system", "content", call.route.getSystemPrompt()),
                 Map.of("role", "user", "content", cleanPrompt)
             ));
-            payload.put("max_tokens", 4000);
-            payload.put("temperature", 1.2);
+            payload.put("max_tokens", call.maxTokens);
+            payload.put("temperature", call.route.getTemperature());
             payload.put("top_p", 0.95);
+            if (streamingEnabled) {
+                // Con streaming se mide el tiempo hasta el primer token; el uso llega en el último chunk
+                payload.put("stream", true);
+                payload.put("stream_options", Map.of("include_usage", true));
+            }
+            byte[] body = objectMapper.writeValueAsBytes(payload);
             
-            // Headers correctos
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("api-key", azureAiApiKey); // Azure AI Foundry usa 'api-key', no 'Authorization'
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(payload, headers);
-            
-            // Hacer llamada
-            ResponseEntity<String> response = restTemplate.postForEntity(correctEndpoint, request, String.class);
+            // Hacer llamada; el extractor se invoca al recibir las cabeceras
+            String content = restTemplate.execute(correctEndpoint, HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                request.getHeaders().set("api-key", azureAiApiKey); // Azure AI Foundry usa 'api-key', no 'Authorization'
+                request.getBody().write(body);
+            }, response -> readDirectResponse(response, call, start));
             
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                String rawResponse = response.getBody();
-                log.debug("Respuesta REST exitosa recibida");
-                
-                return extractContentFromDirectResponse(rawResponse);
-            } else {
-                log.warn("Llamada REST falló con status: {}", response.getStatusCode());
-                return null;
-            }
+            String exerciseContent = parseExerciseContent(content, call);
+            callMetrics.recordCall(call.route.getName(), AiCallMetrics.PATH_REST, System.nanoTime() - start, null);
+            log.info("CONTENIDO FINAL VALIDADO: '{}'", exerciseContent);
+            return exerciseContent;
             
         } catch (Exception e) {
+            callMetrics.recordCall(call.route.getName(), AiCallMetrics.PATH_REST, System.nanoTime() - start,
+                    AiCallMetrics.categorize(e));
+            if (AiCircuitBreaker.isUpstreamFailure(e)) {
+                // El SDK llama al mismo deployment: reintentar solo duplicaría la carga sobre un servicio
+                // caído. Se propaga para que completeExerciseGuarded lo cuente en el circuit breaker.
+                log.error("Error del servicio en llamada REST directa: {}", e.getMessage());
+                throw e instanceof RuntimeException runtime ? runtime
+                        : new RuntimeException("Error en llamada REST directa: " + e.getMessage(), e);
+            }
             log.error("Error en llamada REST directa: {}", e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Lee la respuesta REST (completa o en streaming) y devuelve el contenido del mensaje sin procesar
+     */
+    private String readDirectResponse(ClientHttpResponse response, GenerationCall call, long start) throws IOException {
+        callMetrics.recordTimeToHeaders(call.route.getName(), System.nanoTime() - start);
+        
+        // Las respuestas que no son 2xx no llegan aquí: el manejador de errores de RestTemplate lanza
+        // HttpStatusCodeException antes de invocar el extractor
+        if (streamingEnabled) {
+            return readStreamingResponse(response.getBody(), call, start);
+        }
+        
+        byte[] responseBody = response.getBody().readAllBytes();
+        callMetrics.recordResponseSize(call.route.getName(), responseBody.length);
+        log.debug("Respuesta REST exitosa recibida");
+        return extractContentFromDirectResponse(new String(responseBody, StandardCharsets.UTF_8), call);
+    }
+
+    /**
+     * Lee una respuesta en streaming (server-sent events) acumulando los deltas de contenido
+     */
+    private String readStreamingResponse(InputStream body, GenerationCall call, long start) throws IOException {
+        StringBuilder content = new StringBuilder();
+        long bytes = 0;
+        boolean firstToken = false;
+        String finishReason = null;
+        JsonNode usage = null;
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            bytes += line.length() + 1;
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+            
+            JsonNode chunk = objectMapper.readTree(data);
+            JsonNode choice = chunk.path("choices").path(0);
+            String delta = choice.path("delta").path("content").asText("");
+            if (!delta.isEmpty()) {
+                if (!firstToken) {
+                    callMetrics.recordTimeToFirstToken(call.route.getName(), System.nanoTime() - start);
+                    firstToken = true;
+                }
+                content.append(delta);
+            }
+            if (choice.hasNonNull("finish_reason")) {
+                finishReason = choice.get("finish_reason").asText();
+            }
+            if (chunk.hasNonNull("usage")) {
+                usage = chunk.get("usage");
+            }
+        }
+        
+        callMetrics.recordResponseSize(call.route.getName(), bytes);
+        if (usage != null) {
+            recordUsage(call, usage.path("prompt_tokens").asInt(), usage.path("completion_tokens").asInt(),
+                    "length".equals(finishReason));
+        }
+        if (content.length() == 0) {
+            throw new RuntimeException("Respuesta en streaming sin contenido");
+        }
+        return content.toString();
+    }
+
     /**
      * Construye el endpoint correcto para Azure AI Foundry
      */
-    private String buildCorrectEndpoint() {
+    private String buildCorrectEndpoint(String deployment) {
         // Corregir endpoint si es necesario
         String baseEndpoint = azureAiEndpoint;
         
@@ -491,18 +738,19 @@ public class AzureAiClient {
         }
         
         // Construir endpoint correcto para chat completions
-        return baseEndpoint + "/openai/deployments/" + deploymentName + "/chat/completions?api-version=" + apiVersion;
+        return baseEndpoint + "/openai/deployments/" + deployment + "/chat/completions?api-version=" + apiVersion;
     }
 
     /**
-     * Extrae el contenido del mensaje de la respuesta REST directa
+     * Extrae el contenido del mensaje (sin limpiar) de la respuesta REST directa
      */
-    private String extractContentFromDirectResponse(String rawResponse) {
+    private String extractContentFromDirectResponse(String rawResponse, GenerationCall call) {
         try {
             log.info("RESPUESTA CRUDA DE AZURE AI: {}", rawResponse);
             
             // Parsear respuesta JSON
             var responseJson = objectMapper.readTree(rawResponse);
+            recordDirectUsage(responseJson, call);
             log.info("JSON parseado exitosamente");
             
             var choices = responseJson.get("choices");
@@ -519,17 +767,6 @@ public class AzureAiClient {
                     if (content != null) {
                         String exerciseContent = content.asText();
                         log.info("CONTENIDO EXTRAÍDO DE AZURE AI: '{}'", exerciseContent);
-                        
-                        // Limpiar y validar
-                        log.info("CONTENIDO ANTES DE LIMPIAR: '{}'", exerciseContent);
-                        exerciseContent = cleanContent(exerciseContent);
-                        log.info("CONTENIDO DESPUÉS DE LIMPIAR: '{}'", exerciseContent);
-                        
-                        exerciseContent = extractJsonFromContent(exerciseContent);
-                        log.info("CONTENIDO DESPUÉS DE EXTRAER JSON: '{}'", exerciseContent);
-                        validateJsonContent(exerciseContent);
-                        
-                        log.info("CONTENIDO FINAL VALIDADO: '{}'", exerciseContent);
                         return exerciseContent;
                     }
                 }
@@ -543,6 +780,23 @@ public class AzureAiClient {
         }
     }
 
+    /**
+     * Registra los tokens informados en el campo usage de la respuesta REST
+     */
+    private void recordDirectUsage(JsonNode responseJson, GenerationCall call) {
+        JsonNode usage = responseJson.get("usage");
+        if (usage != null && usage.isObject()) {
+            boolean truncated = "length".equals(responseJson.path("choices").path(0).path("finish_reason").asText());
+            recordUsage(call, usage.path("prompt_tokens").asInt(), usage.path("completion_tokens").asInt(), truncated);
+        }
+    }
+
+    private void recordUsage(GenerationCall call, int promptTokens, int completionTokens, boolean truncated) {
+        modelRouter.recordUsage(call.route, promptTokens, completionTokens);
+        tokenBudgetTracker.recordCompletion(call.templateId, call.route, call.maxTokens,
+                promptTokens, completionTokens, truncated);
+    }
+
     /**
      * Valida que el contenido sea JSON válido
      */
@@ -558,10 +812,22 @@ public class AzureAiClient {
 
 
     /**
-     * Obtiene la versión del modelo configurado
+     * Obtiene la versión del modelo configurado, tal como se registra en ai_model_version
+     * (deployment y versión, p. ej. "Phi-4-mini-instruct-v1")
      */
     public String getModelVersion() {
-        return modelVersion;
+        return modelVersionOf(deploymentName);
+    }
+
+    /**
+     * Deployment configurado por defecto (el que consulta el chequeo de salud)
+     */
+    public String getDeploymentName() {
+        return deploymentName;
+    }
+
+    private String modelVersionOf(String deployment) {
+        return deployment + "-v" + modelVersion;
     }
 
     /**
@@ -583,7 +849,8 @@ public class AzureAiClient {
     }
 
     /**
-     * Verifica el estado de salud de Azure AI Foundry
+     * Verifica en vivo el estado de salud de Azure AI Foundry.
+     * Lo invoca AzureAiHealthProber en segundo plano; los endpoints sirven el último resultado cacheado.
      */
     public Map<String, Object> healthCheck() {
         log.info("Verificando estado de salud de Azure AI Foundry");
@@ -599,25 +866,24 @@ public class AzureAiClient {
                 );
             }
 
-            // Intenta hacer una llamada simple para verificar conectividad
+            // Llamada mínima (1 token) con el RestTemplate de timeouts cortos para verificar conectividad
             long startTime = System.currentTimeMillis();
             
-            ChatCompletionsClient client = getChatClient();
-            List<ChatRequestMessage> testMessages = Arrays.asList(
-                new ChatRequestUserMessage("Hello")
+            Map<String, Object> payload = Map.of(
+                "messages", List.of(Map.of("role", "user", "content", "ping")),
+                "max_tokens", 1
             );
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("api-key", azureAiApiKey);
 
-            ChatCompletionsOptions testOptions = new ChatCompletionsOptions(testMessages);
-            testOptions.setModel(deploymentName);
-            testOptions.setMaxTokens(10);
-            testOptions.setTemperature(0.1);
-
-            ChatCompletions testResponse = client.complete(testOptions);
+            ResponseEntity<String> testResponse = healthCheckRestTemplate.postForEntity(
+                    buildCorrectEndpoint(deploymentName), new HttpEntity<>(payload, headers), String.class);
             
             long endTime = System.currentTimeMillis();
             long responseTime = endTime - startTime;
 
-            if (testResponse != null && testResponse.getChoices() != null && !testResponse.getChoices().isEmpty()) {
+            if (testResponse.getStatusCode().is2xxSuccessful() && testResponse.getBody() != null) {
                 return Map.of(
                     "status", "UP",
                     "endpoint", azureAiEndpoint,
@@ -631,28 +897,39 @@ public class AzureAiClient {
                     "status", "DOWN",
                     "endpoint", azureAiEndpoint,
                     "deployment", deploymentName,
-                    "error", "Empty response from Azure AI",
+                    "error", "Unexpected response from Azure AI: " + testResponse.getStatusCode(),
                     "response_time_ms", responseTime,
                     "timestamp", System.currentTimeMillis()
                 );
             }
 
         } catch (Exception e) {
-            log.error("Error verificando estado de Azure AI Foundry", e);
+            log.warn("Error verificando estado de Azure AI Foundry: {}", e.getMessage());
             return Map.of(
                 "status", "ERROR",
                 "endpoint", azureAiEndpoint != null ? azureAiEndpoint : "",
                 "deployment", deploymentName != null ? deploymentName : "",
-                "error", e.getMessage(),
+                "error", String.valueOf(e.getMessage()),
                 "timestamp", System.currentTimeMillis()
             );
         }
     }
 
     /**
-     * Obtiene métricas de rendimiento y configuración de Azure AI Foundry
+     * Obtiene las métricas de rendimiento medidas de las llamadas a Azure AI Foundry
+     * (percentiles por ruta y camino, tiempo hasta cabeceras/primer token, parseo y fallos)
      */
     public Map<String, Object> getPerformanceMetrics() {
+        Map<String, Object> metrics = callMetrics.getSnapshot();
+        metrics.put("streaming_enabled", streamingEnabled);
+        metrics.put("timestamp", System.currentTimeMillis());
+        return metrics;
+    }
+
+    /**
+     * Obtiene la configuración de Azure AI Foundry (sin datos sensibles)
+     */
+    public Map<String, Object> getConfigurationInfo() {
         Map<String, Object> metrics = new HashMap<>();
         metrics.put("deployment_name", deploymentName);
         metrics.put("model_version", modelVersion);
@@ -670,4 +947,40 @@ public class AzureAiClient {
         metrics.put("timestamp", System.currentTimeMillis());
         return metrics;
     }
+
+    /**
+     * Contenido generado junto con el modelo que lo generó
+     */
+    public static final class GeneratedContent {
+        private final String content;
+        private final String modelVersion;
+
+        GeneratedContent(String content, String modelVersion) {
+            this.content = content;
+            this.modelVersion = modelVersion;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public String getModelVersion() {
+            return modelVersion;
+        }
+    }
+
+    /**
+     * Parámetros de una llamada de generación: ruta, plantilla y max_tokens presupuestado
+     */
+    private static final class GenerationCall {
+        private final AiModelRouter.ModelRoute route;
+        private final Integer templateId;
+        private final int maxTokens;
+
+        GenerationCall(AiModelRouter.ModelRoute route, Integer templateId, int maxTokens) {
+            this.route = route;
+            this.templateId = templateId;
+            this.maxTokens = maxTokens;
+        }
+    }
 }
@@ -0,0 +1,132 @@
+package com.gamified.application.exercise.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sondeo de salud de Azure AI en segundo plano.
+ * Refresca el estado cada intervalo (con jitter para no sincronizar varias instancias) y los
+ * endpoints de salud sirven el último resultado de inmediato, con su antigüedad, sin hacer
+ * llamadas en vivo. El resultado del sondeo también cuenta en el circuit breaker del deployment
+ * sondeado: un éxito lo cierra y un fallo cuenta como uno más, sin abrir el resto de rutas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AzureAiHealthProber {
+
+    private final AzureAiClient azureAiClient;
+    private final AiCircuitBreaker circuitBreaker;
+
+    @Value("${azure.ai.foundry.health.enabled:true}")
+    private Boolean probeEnabled;
+
+    @Value("${azure.ai.foundry.health.interval-seconds:60}")
+    private Long intervalSeconds;
+
+    @Value("${azure.ai.foundry.health.jitter-seconds:10}")
+    private Long jitterSeconds;
+
+    @Value("${azure.ai.foundry.health.initial-delay-seconds:15}")
+    private Long initialDelaySeconds;
+
+    private ScheduledExecutorService scheduler;
+    private volatile Map<String, Object> lastResult;
+    private volatile long lastCheckedAtMillis;
+
+    @PostConstruct
+    void init() {
+        if (!probeEnabled) {
+            return;
+        }
+        // Hilo propio: un sondeo lento no retrasa otras tareas programadas
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "azure-ai-health-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.schedule(this::probeAndReschedule, initialDelaySeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Último estado conocido, sin llamadas en vivo
+     * @return Resultado del último sondeo con su antigüedad, o UNKNOWN si aún no se ha sondeado
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Map<String, Object> result = lastResult;
+
+        if (result == null) {
+            status.put("status", probeEnabled ? "UNKNOWN" : "DISABLED");
+        } else {
+            status.putAll(result);
+            long ageMillis = System.currentTimeMillis() - lastCheckedAtMillis;
+            status.put("checked_at", lastCheckedAtMillis);
+            status.put("age_ms", ageMillis);
+            status.put("stale", ageMillis > TimeUnit.SECONDS.toMillis(2 * (intervalSeconds + jitterSeconds)));
+        }
+        status.put("circuit", circuitBreaker.getState(azureAiClient.getDeploymentName()).name());
+        status.put("circuits", circuitBreaker.getStates());
+        status.put("timestamp", System.currentTimeMillis());
+        return status;
+    }
+
+    /**
+     * Indica si el último sondeo fue exitoso y el circuito no está abierto
+     */
+    public boolean isUp() {
+        Map<String, Object> result = lastResult;
+        return result != null && "UP".equals(result.get("status"))
+                && circuitBreaker.getState(azureAiClient.getDeploymentName()) != AiCircuitBreaker.State.OPEN;
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void probeAndReschedule() {
+        try {
+            probe();
+        } catch (Exception e) {
+            log.warn("Error en el sondeo de salud de Azure AI: {}", e.getMessage());
+        } finally {
+            long jitterMillis = jitterSeconds > 0
+                    ? ThreadLocalRandom.current().nextLong(-jitterSeconds * 1000, jitterSeconds * 1000 + 1) : 0L;
+            long delayMillis = Math.max(1000L, TimeUnit.SECONDS.toMillis(intervalSeconds) + jitterMillis);
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(this::probeAndReschedule, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void probe() {
+        Map<String, Object> result = azureAiClient.healthCheck();
+        lastResult = result;
+        lastCheckedAtMillis = System.currentTimeMillis();
+
+        String deployment = azureAiClient.getDeploymentName();
+        if ("UP".equals(result.get("status"))) {
+            circuitBreaker.recordSuccess(deployment);
+        } else {
+            circuitBreaker.recordFailure(deployment, "sondeo de salud: " + result.getOrDefault("error", result.get("status")));
+        }
+    }
+}
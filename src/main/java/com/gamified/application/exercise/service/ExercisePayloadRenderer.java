@@ -0,0 +1,349 @@
+package com.gamified.application.exercise.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamified.application.exercise.model.dto.response.ExerciseResponseDto;
+import com.gamified.application.exercise.model.entity.Exercise;
+import com.gamified.application.exercise.model.entity.ExerciseType;
+import com.gamified.application.exercise.model.entity.GeneratedExercise;
+import com.gamified.application.exercise.repository.ExerciseRepository;
+import com.gamified.application.exercise.repository.GeneratedExerciseRepository;
+import com.gamified.application.learning.model.entity.LearningPoint;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Pre-renderiza el payload que ve el estudiante (NextExerciseDto sin la respuesta correcta)
+ * una sola vez, al generar el ejercicio, y lo guarda serializado en generated_exercise.rendered_payload.
+ * Al servir solo se añaden los campos que dependen de la solicitud (ID del ejercicio generado e
+ * intentos previos) concatenando bytes, sin volver a parsear el JSON de la IA.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExercisePayloadRenderer {
+
+    private static final byte[] GENERATED_ID_PREFIX = "{\"generatedExerciseId\":".getBytes(StandardCharsets.UTF_8);
+
+    private final ExerciseRepository exerciseRepository;
+    private final GeneratedExerciseRepository generatedExerciseRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Contrato del payload según el endpoint que lo sirve. Cada uno conserva los valores que devolvía
+     * antes de compartir el renderizado (tiempos, puntuación parcial, instrucciones por defecto y
+     * origen de la dificultad); en ninguno van la respuesta correcta ni la explicación.
+     */
+    public enum Format {
+        /** /exercises: es el que se guarda en generated_exercise.rendered_payload */
+        EXERCISES,
+        /** /generated-exercises/next: se renderiza al generar y se sirve en la misma solicitud */
+        GENERATED_EXERCISES
+    }
+
+    /**
+     * Renderiza la parte estática del payload de /exercises a partir del JSON de la IA
+     * @param aiContentJson Contenido JSON generado por la IA
+     * @param exerciseTemplate Plantilla del ejercicio
+     * @param learningPoint Learning point de la plantilla
+     * @return Payload JSON serializado (sin generatedExerciseId ni datos de intentos)
+     */
+    public byte[] render(String aiContentJson, Exercise exerciseTemplate, LearningPoint learningPoint) {
+        return render(aiContentJson, exerciseTemplate, learningPoint, Format.EXERCISES);
+    }
+
+    /**
+     * Renderiza la parte estática del payload con el contrato del endpoint indicado
+     */
+    public byte[] render(String aiContentJson, Exercise exerciseTemplate, LearningPoint learningPoint, Format format) {
+        // Obtener información del tipo de ejercicio
+        Optional<ExerciseType> exerciseTypeOpt = exerciseRepository
+                .findExerciseTypeById(exerciseTemplate.getExerciseTypeId());
+        String exerciseTypeName = exerciseTypeOpt
+                .map(ExerciseType::getName)
+                .orElse("multiple_choice");
+
+        return render(aiContentJson, exerciseTypeName, exerciseTemplate, learningPoint, format);
+    }
+
+    /**
+     * Renderiza con el tipo de ejercicio ya resuelto
+     */
+    byte[] render(String aiContentJson, String exerciseTypeName, Exercise exerciseTemplate,
+                  LearningPoint learningPoint, Format format) {
+        try {
+            // 1. Parsear el contenido JSON generado por la IA
+            Map<String, Object> aiContent = objectMapper.readValue(
+                    aiContentJson, new TypeReference<Map<String, Object>>() {});
+
+            // 2. Construir respuesta según estructura de GUIA.md; los campos por solicitud quedan en null
+            // y no se serializan (@JsonInclude NON_NULL en NextExerciseDto)
+            boolean exercises = format == Format.EXERCISES;
+            ExerciseResponseDto.NextExerciseDto dto = ExerciseResponseDto.NextExerciseDto.builder()
+                    .exerciseTemplateId(exerciseTemplate.getId())
+                    .exerciseType(exerciseTypeName)
+                    .renderVariant(exercises ? determineRenderVariant(exerciseTypeName)
+                            : determineRenderVariant(exerciseTypeName.toLowerCase()))
+                    // /exercises usaba la dificultad del ejercicio generado, /generated-exercises la de la plantilla
+                    .difficultyLevel(exercises ? GeneratedExercise.DEFAULT_DIFFICULTY_LEVEL : exerciseTemplate.getDifficulty())
+                    .config(exercises ? buildExerciseConfig(exerciseTypeName, exerciseTemplate, aiContent)
+                            : buildGeneratedExerciseConfig(exerciseTypeName, exerciseTemplate, aiContent))
+                    .content(exercises ? buildExerciseContent(aiContent) : buildGeneratedExerciseContent(aiContent))
+                    .learningPointId(learningPoint.getId())
+                    .learningPointTitle(learningPoint.getTitle())
+                    .build();
+
+            return objectMapper.writeValueAsBytes(dto);
+
+        } catch (Exception e) {
+            log.error("Error renderizando payload de ejercicio: {}", e.getMessage(), e);
+            throw new RuntimeException("Error procesando contenido del ejercicio: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve el payload pre-renderizado del ejercicio; para filas anteriores a esta columna
+     * lo renderiza y lo guarda (relleno perezoso)
+     */
+    public byte[] getOrRender(GeneratedExercise generatedExercise, Exercise exerciseTemplate, LearningPoint learningPoint) {
+        byte[] payload = generatedExercise.getRenderedPayload();
+        if (payload == null || payload.length == 0) {
+            payload = render(generatedExercise.getGeneratedContentJson(), exerciseTemplate, learningPoint);
+            generatedExercise.setRenderedPayload(payload);
+            generatedExerciseRepository.updateRenderedPayload(generatedExercise.getId(), payload);
+        }
+        return payload;
+    }
+
+    /**
+     * Completa el payload pre-renderizado con los campos de la solicitud sin parsearlo:
+     * {"generatedExerciseId":ID, ...payload..., "hasAttempts":x, "previousAttempts":n}
+     */
+    public byte[] toResponse(Long generatedExerciseId, byte[] payload, Boolean hasAttempts, Integer previousAttempts) {
+        int end = payload.length - 1;
+        while (end > 0 && payload[end] != '}') {
+            end--;
+        }
+        // Cuerpo del objeto sin las llaves exteriores (el payload siempre incluye al menos exerciseTemplateId)
+        int bodyLength = end - 1;
+
+        byte[] suffix = (",\"hasAttempts\":" + hasAttempts + ",\"previousAttempts\":" + previousAttempts + "}")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] id = (generatedExerciseId + ",").getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(GENERATED_ID_PREFIX.length + id.length + bodyLength + suffix.length);
+        out.write(GENERATED_ID_PREFIX, 0, GENERATED_ID_PREFIX.length);
+        out.write(id, 0, id.length);
+        out.write(payload, 1, bodyLength);
+        out.write(suffix, 0, suffix.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Convierte un payload de respuesta a DTO, para los pocos casos que necesitan el objeto
+     * (p. ej. adjuntarlo al resultado de un intento)
+     */
+    public ExerciseResponseDto.NextExerciseDto toDto(byte[] response) {
+        try {
+            return objectMapper.readValue(response, ExerciseResponseDto.NextExerciseDto.class);
+        } catch (Exception e) {
+            throw new RuntimeException("Error procesando contenido del ejercicio: " + e.getMessage());
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    /**
+     * Construye la configuración del ejercicio según el tipo y GUIA.md (contrato de /exercises)
+     */
+    private ExerciseResponseDto.ExerciseConfigDto buildExerciseConfig(
+            String exerciseTypeName, Exercise exerciseTemplate, Map<String, Object> aiContent) {
+
+        ExerciseResponseDto.ExerciseConfigDto.ExerciseConfigDtoBuilder configBuilder =
+                ExerciseResponseDto.ExerciseConfigDto.builder();
+
+        // Configuración base común
+        configBuilder
+                .showTimer(true)
+                .showHints(true)
+                .allowRetry(false); // Solo un intento por defecto
+
+        // Configuración específica por tipo de ejercicio
+        switch (exerciseTypeName) {
+            case "multiple_choice":
+                configBuilder
+                        .maxTime(300) // 5 minutos
+                        .allowPartialScore(false)
+                        .shuffleItems(true);
+                break;
+
+            case "drag_and_drop":
+                configBuilder
+                        .maxTime(420) // 7 minutos
+                        .allowPartialScore(true)
+                        .shuffleItems(true)
+                        .itemCount(getItemCount(aiContent));
+                break;
+
+            case "numeric_input":
+                configBuilder
+                        .maxTime(480) // 8 minutos
+                        .allowPartialScore(false)
+                        .shuffleItems(false);
+                break;
+
+            case "ordering":
+                configBuilder
+                        .maxTime(360) // 6 minutos
+                        .allowPartialScore(true)
+                        .shuffleItems(true)
+                        .itemCount(getItemCount(aiContent));
+                break;
+
+            default:
+                configBuilder
+                        .maxTime(exerciseTemplate.getEstimatedTimeMinutes() * 60)
+                        .allowPartialScore(false)
+                        .shuffleItems(false);
+        }
+
+        return configBuilder.build();
+    }
+
+    /**
+     * Configuración de /generated-exercises: puntuación parcial salvo en entrada numérica y tiempos más cortos
+     */
+    private ExerciseResponseDto.ExerciseConfigDto buildGeneratedExerciseConfig(
+            String exerciseType, Exercise exerciseTemplate, Map<String, Object> aiContent) {
+
+        // Configuración base
+        ExerciseResponseDto.ExerciseConfigDto.ExerciseConfigDtoBuilder configBuilder =
+                ExerciseResponseDto.ExerciseConfigDto.builder()
+                .showTimer(true)
+                .allowPartialScore(true)
+                .showHints(true)
+                .allowRetry(false);
+
+        // Configuración específica por tipo
+        switch (exerciseType.toLowerCase()) {
+            case "drag_and_drop", "arrastrar_soltar" -> {
+                configBuilder
+                    .maxTime(90)
+                    .itemCount(getOptionCount(aiContent))
+                    .shuffleItems(true);
+            }
+            case "multiple_choice", "múltiple_opción" -> {
+                configBuilder
+                    .maxTime(60)
+                    .shuffleItems(true);
+            }
+            case "numeric_input", "entrada_numérica" -> {
+                configBuilder
+                    .maxTime(120)
+                    .allowPartialScore(false);
+            }
+            default -> {
+                configBuilder
+                    .maxTime(exerciseTemplate.getEstimatedTimeMinutes() * 60);
+            }
+        }
+
+        return configBuilder.build();
+    }
+
+    /**
+     * Construye el contenido del ejercicio desde el JSON de la IA (contrato de /exercises).
+     * La respuesta correcta no se incluye: se evalúa en el servidor y se devuelve al enviar el intento.
+     * Tampoco la explicación: revela la respuesta y, al ir en el payload guardado, quedaría
+     * desactualizada si se corrige después.
+     */
+    private ExerciseResponseDto.ExerciseContentDto buildExerciseContent(Map<String, Object> aiContent) {
+        return ExerciseResponseDto.ExerciseContentDto.builder()
+                .title((String) aiContent.get("title"))
+                .instructions((String) aiContent.get("instructions"))
+                .options(aiContent.get("options")) // Puede ser List, Map, etc.
+                .hints(parseHints(aiContent.get("hints")))
+                .imageUrl((String) aiContent.get("image_url"))
+                .build();
+    }
+
+    /**
+     * Contenido de /generated-exercises: el título es la pregunta de la IA e incluye instrucciones por
+     * defecto; sin respuesta correcta ni explicación, igual que en /exercises
+     */
+    @SuppressWarnings("unchecked")
+    private ExerciseResponseDto.ExerciseContentDto buildGeneratedExerciseContent(Map<String, Object> aiContent) {
+        Object hints = aiContent.get("hints");
+        return ExerciseResponseDto.ExerciseContentDto.builder()
+                .title((String) aiContent.get("question"))
+                .instructions((String) aiContent.getOrDefault("instructions", "Selecciona la respuesta correcta"))
+                .options(aiContent.get("options"))
+                .hints(hints instanceof List ? (List<String>) hints : null)
+                .imageUrl((String) aiContent.get("image_url"))
+                .build();
+    }
+
+    /**
+     * Obtiene el número de elementos para ejercicios que lo requieren
+     */
+    private Integer getItemCount(Map<String, Object> aiContent) {
+        Object items = aiContent.get("items");
+        if (items instanceof List) {
+            return ((List<?>) items).size();
+        }
+        Object options = aiContent.get("options");
+        if (options instanceof List) {
+            return ((List<?>) options).size();
+        }
+        return 4; // Valor por defecto
+    }
+
+    /**
+     * Número de opciones del contenido de IA (/generated-exercises no cuenta 'items')
+     */
+    private Integer getOptionCount(Map<String, Object> aiContent) {
+        Object options = aiContent.get("options");
+        if (options instanceof List) {
+            return ((List<?>) options).size();
+        }
+        return 4; // Default
+    }
+
+    /**
+     * Parsea las pistas del JSON de la IA
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> parseHints(Object hintsObj) {
+        if (hintsObj instanceof List) {
+            return (List<String>) hintsObj;
+        }
+        return List.of("Revisa los conceptos fundamentales", "Piensa paso a paso");
+    }
+
+    /**
+     * Determina la variante de renderizado según el tipo de ejercicio; /generated-exercises lo pasa
+     * en minúsculas
+     */
+    private String determineRenderVariant(String exerciseType) {
+        return switch (exerciseType) {
+            case "multiple_choice", "múltiple_opción" -> "radio-buttons";
+            case "drag_and_drop", "arrastrar_soltar" -> "drag-to-sort";
+            case "numeric_input", "entrada_numérica" -> "number-input";
+            case "text_input", "entrada_texto" -> "text-area";
+            case "true_false", "verdadero_falso" -> "toggle-buttons";
+            case "ordering", "ordenamiento" -> "sortable-list";
+            case "matching", "emparejamiento" -> "connect-pairs";
+            case "fill_blanks", "llenar_espacios" -> "input-blanks";
+            default -> "default-renderer";
+        };
+    }
+}
@@ -4,6 +4,7 @@ import com.gamified.application.exercise.model.entity.Exercise;
 import com.gamified.application.exercise.model.entity.GeneratedExercise;
 import com.gamified.application.exercise.repository.ExerciseRepository;
 import com.gamified.application.exercise.repository.GeneratedExerciseRepository;
+import com.gamified.application.learning.repository.LearningRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,6 +33,10 @@ public class ExercisePoolService {
     private final GeneratedExerciseRepository generatedExerciseRepository;
     private final AzureAiClient azureAiClient;
     private final ExercisePromptBuilder promptBuilder;
+    private final GeneratedExercisePurgeService purgeService;
+    private final TemplateDemandTracker demandTracker;
+    private final ExercisePayloadRenderer payloadRenderer;
+    private final LearningRepository learningRepository;
 
     @Value("${exercise.pool.min-exercises-per-template:5}")
     private Integer minExercisesPerTemplate;
@@ -101,9 +106,19 @@ public class ExercisePoolService {
         log.info("Iniciando limpieza de ejercicios antiguos");
         
         try {
-            // Eliminar ejercicios generados hace más de 30 días que no han sido usados
-            Integer deletedCount = generatedExerciseRepository.deleteOldExercises(30);
-            log.info("Limpieza completada. Ejercicios eliminados: {}", deletedCount);
+            // Eliminar por bloques los ejercicios antiguos que no han sido usados,
+            // sin bloquear generated_exercise durante toda la limpieza
+            GeneratedExercisePurgeService.PurgeResult result = purgeService.purgeOldExercises();
+            if (result != null) {
+                switch (result.getStopReason()) {
+                    case "COMPLETED" -> log.info("Limpieza completada. Ejercicios eliminados: {}",
+                            result.getRowsDeleted());
+                    case "ERROR" -> log.error("Limpieza fallida tras eliminar {} ejercicios (último ID procesado: {})",
+                            result.getRowsDeleted(), result.getLastProcessedId());
+                    default -> log.warn("Limpieza detenida ({}) tras eliminar {} ejercicios; continuará en la próxima ejecución",
+                            result.getStopReason(), result.getRowsDeleted());
+                }
+            }
             
         } catch (Exception e) {
             log.error("Error durante la limpieza de ejercicios antiguos", e);
@@ -112,23 +127,25 @@ public class ExercisePoolService {
 
     /**
      * Identifica plantillas de ejercicios que necesitan más ejercicios en el pool
+     * Prioriza por demanda pronosticada; sin historial de demanda usa el conteo histórico
      */
     private List<Integer> identifyTemplatesNeedingExercises() {
-        // Obtener las plantillas más demandadas
-        List<Integer> mostDemandedTemplates = generatedExerciseRepository
-                .findMostDemandedTemplates(batchSize);
+        List<Integer> candidateTemplates = demandTracker.getTemplatesByForecast(batchSize * 3);
+        if (candidateTemplates.isEmpty()) {
+            candidateTemplates = generatedExerciseRepository.findMostDemandedTemplates(batchSize);
+        }
 
-        return mostDemandedTemplates.stream()
+        return candidateTemplates.stream()
                 .filter(templateId -> {
-                    Integer currentCount = generatedExerciseRepository.countByTemplate(templateId);
-                    return currentCount < minExercisesPerTemplate;
+                    Integer currentStock = generatedExerciseRepository.countUnusedByTemplate(templateId);
+                    return currentStock < demandTracker.getTargetStock(templateId);
                 })
                 .limit(batchSize)
                 .toList();
     }
 
     /**
-     * Genera ejercicios para una plantilla específica hasta alcanzar el mínimo
+     * Genera ejercicios para una plantilla específica hasta alcanzar el stock objetivo
      */
     private int generateExercisesForTemplate(Integer templateId) {
         log.info("Generando ejercicios para plantilla {}", templateId);
@@ -140,14 +157,18 @@ public class ExercisePoolService {
         }
 
         Exercise template = templateOpt.get();
-        Integer currentCount = generatedExerciseRepository.countByTemplate(templateId);
-        int toGenerate = Math.min(minExercisesPerTemplate - currentCount, 
-                                 maxExercisesPerTemplate - currentCount);
+        Integer currentStock = generatedExerciseRepository.countUnusedByTemplate(templateId);
+        // Stock objetivo proporcional a la demanda pronosticada y al tiempo de reposición (acotado a min/max)
+        int targetStock = demandTracker.getTargetStock(templateId);
+        int toGenerate = targetStock - currentStock;
 
         if (toGenerate <= 0) {
             return 0;
         }
 
+        log.debug("Plantilla {}: stock {} / objetivo {} (demanda {}/h)", templateId, currentStock, targetStock,
+                String.format("%.2f", demandTracker.getForecastRate(templateId)));
+
         int generatedCount = 0;
         for (int i = 0; i < toGenerate; i++) {
             try {
@@ -175,8 +196,9 @@ public class ExercisePoolService {
         // 1. Construir prompt para pool generation (sin contexto específico de estudiante)
         String prompt = promptBuilder.buildPromptForPoolGeneration(template);
         
-        // 2. Llamar al servicio de IA
-        String aiJsonResponse = azureAiClient.generateExerciseContent(prompt);
+        // 2. Llamar al servicio de IA en el carril de fondo: cede el paso a las solicitudes de estudiantes
+        AzureAiClient.GeneratedContent generated = azureAiClient.generateExercise(prompt, AiRequestScheduler.Lane.BACKGROUND, template.getId());
+        String aiJsonResponse = generated.getContent();
         
         // 3. Calcular hash de la respuesta correcta
         String correctAnswerHash = calculateCorrectAnswerHash(aiJsonResponse);
@@ -189,8 +211,9 @@ public class ExercisePoolService {
                 .generatedContentJson(aiJsonResponse) // Campo real: generated_content_json
                 .correctAnswerHash(correctAnswerHash) // Campo real: correct_answer_hash
                 .generationPrompt(prompt) // Campo real: generation_prompt
-                .aiModelVersion(azureAiClient.getModelVersion()) // Campo real: ai_model_version
+                .aiModelVersion(generated.getModelVersion()) // Campo real: ai_model_version
                 .createdAt(LocalDateTime.now()) // Campo real: created_at
+                .renderedPayload(renderPayload(aiJsonResponse, template)) // Campo real: rendered_payload
                 .build();
 
         Long savedId = generatedExerciseRepository.save(generatedExercise);
@@ -262,6 +285,21 @@ public class ExercisePoolService {
         return count > 0;
     }
 
+    /**
+     * Pre-renderiza el payload del estudiante al llenar el pool; si falla se deja en null
+     * y se renderiza de forma perezosa al servirlo
+     */
+    private byte[] renderPayload(String aiJsonResponse, Exercise template) {
+        try {
+            return learningRepository.findLearningPointById(template.getLearningPointId())
+                    .map(learningPoint -> payloadRenderer.render(aiJsonResponse, template, learningPoint))
+                    .orElse(null);
+        } catch (Exception e) {
+            log.warn("No se pudo pre-renderizar el payload para plantilla {}: {}", template.getId(), e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Calcula hash SHA256 de la respuesta correcta
      */
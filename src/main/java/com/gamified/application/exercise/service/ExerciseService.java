@@ -19,6 +19,16 @@ public interface ExerciseService {
      */
     ExerciseResponseDto.NextExerciseDto getNextExercise(Integer studentId, Integer learningPointId, String difficulty);
 
+    /**
+     * Obtiene el siguiente ejercicio como JSON ya serializado (payload pre-renderizado),
+     * listo para escribirse directamente en la respuesta
+     * @param studentId ID del estudiante
+     * @param learningPointId ID del learning point
+     * @param difficulty Dificultad preferida (opcional)
+     * @return JSON UTF-8 con la estructura de NextExerciseDto
+     */
+    byte[] getNextExercisePayload(Integer studentId, Integer learningPointId, String difficulty);
+
     /**
      * Envía un intento de respuesta a un ejercicio
      * @param request Datos del intento
@@ -2,6 +2,7 @@ package com.gamified.application.exercise.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamified.application.adaptive.service.AdaptiveLearningService;
 import com.gamified.application.exercise.model.dto.request.ExerciseRequestDto;
 import com.gamified.application.exercise.model.dto.response.ExerciseResponseDto;
 import com.gamified.application.exercise.model.entity.Exercise;
@@ -19,6 +20,7 @@ import com.gamified.application.shared.exception.ResourceNotFoundException;
 import com.gamified.application.shared.model.event.DomainEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
@@ -37,6 +39,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ExerciseServiceImpl implements ExerciseService {
 
+    // Candidatos leídos del pool para poder saltar los reservados por pre-cargas
+    private static final int POOL_CANDIDATES = 5;
+
     private final ExerciseRepository exerciseRepository;
     private final LearningRepository learningRepository; // Para obtener información del learning point
     private final GeneratedExerciseRepository generatedExerciseRepository; // Para el pool de ejercicios
@@ -45,9 +50,21 @@ public class ExerciseServiceImpl implements ExerciseService {
     private final AzureAiClient azureAiClient; // Para llamar a la IA (se implementará en paso 3)
     private final ObjectMapper objectMapper;
     private final ApplicationEventPublisher eventPublisher;
+    private final TemplateDemandTracker demandTracker; // Pronóstico de demanda para el pool
+    private final NextExercisePrefetcher nextExercisePrefetcher; // Pre-carga del siguiente ejercicio
+    private final ExercisePayloadRenderer payloadRenderer; // Payload pre-renderizado para el frontend
+    private final AdaptiveLearningService adaptiveLearningService; // Dificultad del siguiente ejercicio
+
+    @Value("${exercise.prefetch.submit-wait-ms:250}")
+    private Long prefetchSubmitWaitMs;
 
     @Override
     public ExerciseResponseDto.NextExerciseDto getNextExercise(Integer studentId, Integer learningPointId, String difficulty) {
+        return payloadRenderer.toDto(getNextExercisePayload(studentId, learningPointId, difficulty));
+    }
+
+    @Override
+    public byte[] getNextExercisePayload(Integer studentId, Integer learningPointId, String difficulty) {
         log.info("Obteniendo siguiente ejercicio para estudiante {} en learning point {} con dificultad {}", 
                 studentId, learningPointId, difficulty);
         
@@ -58,47 +75,73 @@ public class ExerciseServiceImpl implements ExerciseService {
         }
         LearningPoint learningPoint = learningPointOpt.get();
         
-        // 2. Buscar plantilla de ejercicio adecuada para este learning point
+        // 2. Usar el ejercicio pre-cargado tras el último intento si existe; si no, resolverlo ahora
+        NextExercisePrefetcher.PrefetchedExercise resolved = nextExercisePrefetcher
+                .claim(studentId, learningPointId, difficulty)
+                .orElseGet(() -> resolveNextExercise(studentId, learningPoint, difficulty, false));
+        Exercise exerciseTemplate = resolved.getExerciseTemplate();
+        GeneratedExercise generatedExercise = resolved.getGeneratedExercise();
+        demandTracker.recordRequest(exerciseTemplate.getId(), resolved.isFromPool());
+        
+        // 3. Verificar intentos previos del estudiante en esta plantilla
+        Integer previousAttempts = exerciseRepository.countAttemptsByStudentAndTemplate(
+                studentId, exerciseTemplate.getId());
+        Boolean hasAttempts = previousAttempts > 0;
+        
+        // 4. Servir el payload pre-renderizado añadiendo solo los datos de esta solicitud
+        byte[] payload = payloadRenderer.getOrRender(generatedExercise, exerciseTemplate, learningPoint);
+        return payloadRenderer.toResponse(generatedExercise.getId(), payload, hasAttempts, previousAttempts);
+    }
+
+    /**
+     * Resuelve la plantilla y el ejercicio generado a servir: del pool si hay disponibles
+     * o generándolo con IA. Se usa tanto en línea como desde la pre-carga especulativa.
+     * @param speculative true desde la pre-carga: la IA se llama en el carril BACKGROUND y el
+     *                    ejercicio del pool se reserva mientras espera en el slot
+     */
+    private NextExercisePrefetcher.PrefetchedExercise resolveNextExercise(Integer studentId, LearningPoint learningPoint, 
+                                                                          String difficulty, boolean speculative) {
+        // 1. Buscar plantilla de ejercicio adecuada para este learning point
         Optional<Exercise> exerciseTemplateOpt = exerciseRepository.findNextExerciseForLearningPoint(
-                studentId, learningPointId, difficulty);
+                studentId, learningPoint.getId(), difficulty);
         
         if (exerciseTemplateOpt.isEmpty()) {
             throw new ResourceNotFoundException("No hay plantillas de ejercicio disponibles para este learning point");
         }
         Exercise exerciseTemplate = exerciseTemplateOpt.get();
         
-        // 3. Intentar obtener ejercicio del pool (ejercicio ya generado)
+        // 2. Intentar obtener ejercicio del pool (ejercicio ya generado), saltando los reservados
+        //    por pre-cargas pendientes de reclamar
         List<GeneratedExercise> availableExercises = generatedExerciseRepository
-                .findAvailableByTemplate(exerciseTemplate.getId(), 1);
-        
-        GeneratedExercise generatedExercise;
-        
-        if (!availableExercises.isEmpty()) {
-            // 3a. Usar ejercicio del pool
-            generatedExercise = availableExercises.get(0);
+                .findAvailableByTemplate(exerciseTemplate.getId(), POOL_CANDIDATES);
+        GeneratedExercise generatedExercise = availableExercises.stream()
+                .filter(candidate -> speculative
+                        ? nextExercisePrefetcher.reserve(candidate.getId())
+                        : !nextExercisePrefetcher.isReserved(candidate.getId()))
+                .findFirst()
+                .orElse(null);
+        boolean fromPool = generatedExercise != null;
+        
+        if (fromPool) {
+            // 2a. Usar ejercicio del pool
             log.info("Usando ejercicio del pool: {}", generatedExercise.getId());
         } else {
-            // 3b. Generar nuevo ejercicio con IA
+            // 2b. Generar nuevo ejercicio con IA
             log.info("No hay ejercicios en el pool, generando nuevo ejercicio para plantilla {}", 
                     exerciseTemplate.getId());
-            generatedExercise = generateNewExercise(exerciseTemplate, learningPoint, studentId, difficulty);
+            AiRequestScheduler.Lane lane = speculative ? AiRequestScheduler.Lane.BACKGROUND : AiRequestScheduler.Lane.INTERACTIVE;
+            generatedExercise = generateNewExercise(exerciseTemplate, learningPoint, studentId, difficulty, lane);
         }
         
-        // 4. Verificar intentos previos del estudiante en esta plantilla
-        Integer previousAttempts = exerciseRepository.countAttemptsByStudentAndTemplate(
-                studentId, exerciseTemplate.getId());
-        Boolean hasAttempts = previousAttempts > 0;
-        
-        // 5. Construir respuesta para el frontend
-        return buildNextExerciseResponse(generatedExercise, exerciseTemplate, learningPoint, 
-                hasAttempts, previousAttempts);
+        return new NextExercisePrefetcher.PrefetchedExercise(generatedExercise, exerciseTemplate, learningPoint, 
+                fromPool);
     }
 
     /**
      * Genera un nuevo ejercicio usando IA cuando no hay ejercicios disponibles en el pool
      */
     private GeneratedExercise generateNewExercise(Exercise exerciseTemplate, LearningPoint learningPoint, 
-                                                 Integer studentId, String difficulty) {
+                                                 Integer studentId, String difficulty, AiRequestScheduler.Lane lane) {
         try {
             // 1. Obtener plantilla de prompt
             if (exerciseTemplate.getPromptTemplateId() == null) {
@@ -119,7 +162,9 @@ public class ExerciseServiceImpl implements ExerciseService {
                     promptTemplate, exerciseTemplate, learningPoint, studentId, difficulty);
             
             // 3. Llamar a Azure AI
-            String aiResponseJson = azureAiClient.generateExerciseContent(builtPrompt);
+            AzureAiClient.GeneratedContent generated = azureAiClient.generateExercise(
+                    builtPrompt, lane, exerciseTemplate.getId());
+            String aiResponseJson = generated.getContent();
             
             // 4. Guardar ejercicio generado en el pool usando los nombres de campo correctos
             GeneratedExercise generatedExercise = GeneratedExercise.builder()
@@ -128,8 +173,9 @@ public class ExerciseServiceImpl implements ExerciseService {
                     .generatedContentJson(aiResponseJson) // Campo real: generated_content_json
                     .correctAnswerHash(generateAnswerHash(aiResponseJson)) // Campo real: correct_answer_hash
                     .generationPrompt(builtPrompt) // Campo real: generation_prompt
-                    .aiModelVersion("Phi-4-mini-instruct-v1") // Campo real: ai_model_version
+                    .aiModelVersion(generated.getModelVersion()) // Campo real: ai_model_version
                     .createdAt(LocalDateTime.now()) // Campo real: created_at
+                    .renderedPayload(payloadRenderer.render(aiResponseJson, exerciseTemplate, learningPoint)) // Campo real: rendered_payload
                     .build();
             
             Long generatedId = generatedExerciseRepository.save(generatedExercise);
@@ -190,172 +236,6 @@ public class ExerciseServiceImpl implements ExerciseService {
         }
     }
 
-    /**
-     * Construye la respuesta final para el frontend con la estructura requerida según GUIA.md
-     */
-    private ExerciseResponseDto.NextExerciseDto buildNextExerciseResponse(
-            GeneratedExercise generatedExercise, Exercise exerciseTemplate, 
-            LearningPoint learningPoint, Boolean hasAttempts, Integer previousAttempts) {
-        
-        try {
-            // 1. Parsear el contenido JSON generado por la IA
-            Map<String, Object> aiContent = objectMapper.readValue(
-                    generatedExercise.getGeneratedContentJson(), 
-                    new TypeReference<Map<String, Object>>() {});
-            
-            // 2. Obtener información del tipo de ejercicio
-            Optional<ExerciseType> exerciseTypeOpt = exerciseRepository
-                    .findExerciseTypeById(exerciseTemplate.getExerciseTypeId());
-            String exerciseTypeName = exerciseTypeOpt
-                    .map(ExerciseType::getName)
-                    .orElse("multiple_choice");
-            
-            // 3. Determinar render_variant según el tipo de ejercicio
-            String renderVariant = determineRenderVariant(exerciseTypeName);
-            
-            // 4. Construir configuración del ejercicio según GUIA.md
-            ExerciseResponseDto.ExerciseConfigDto config = buildExerciseConfig(
-                    exerciseTypeName, exerciseTemplate, aiContent);
-            
-            // 5. Construir contenido del ejercicio
-            ExerciseResponseDto.ExerciseContentDto content = buildExerciseContent(aiContent);
-            
-            // 6. Construir respuesta completa según estructura de GUIA.md
-            return ExerciseResponseDto.NextExerciseDto.builder()
-                    .generatedExerciseId(generatedExercise.getId())
-                    .exerciseTemplateId(exerciseTemplate.getId())
-                    .exerciseType(exerciseTypeName)
-                    .renderVariant(renderVariant)
-                    .difficultyLevel(generatedExercise.getDifficultyLevel())
-                    .config(config)
-                    .content(content)
-                    .learningPointId(learningPoint.getId())
-                    .learningPointTitle(learningPoint.getTitle())
-                    .hasAttempts(hasAttempts)
-                    .previousAttempts(previousAttempts)
-                    .build();
-                    
-        } catch (Exception e) {
-            log.error("Error construyendo respuesta de ejercicio: {}", e.getMessage(), e);
-            throw new RuntimeException("Error procesando contenido del ejercicio: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Construye la configuración del ejercicio según el tipo y GUIA.md
-     */
-    private ExerciseResponseDto.ExerciseConfigDto buildExerciseConfig(
-            String exerciseTypeName, Exercise exerciseTemplate, Map<String, Object> aiContent) {
-        
-        ExerciseResponseDto.ExerciseConfigDto.ExerciseConfigDtoBuilder configBuilder = 
-                ExerciseResponseDto.ExerciseConfigDto.builder();
-        
-        // Configuración base común
-        configBuilder
-                .showTimer(true)
-                .showHints(true)
-                .allowRetry(false); // Solo un intento por defecto
-        
-        // Configuración específica por tipo de ejercicio
-        switch (exerciseTypeName) {
-            case "multiple_choice":
-                configBuilder
-                        .maxTime(300) // 5 minutos
-                        .allowPartialScore(false)
-                        .shuffleItems(true);
-                break;
-                
-            case "drag_and_drop":
-                configBuilder
-                        .maxTime(420) // 7 minutos
-                        .allowPartialScore(true)
-                        .shuffleItems(true)
-                        .itemCount(getItemCount(aiContent));
-                break;
-                
-            case "numeric_input":
-                configBuilder
-                        .maxTime(480) // 8 minutos
-                        .allowPartialScore(false)
-                        .shuffleItems(false);
-                break;
-                
-            case "ordering":
-                configBuilder
-                        .maxTime(360) // 6 minutos
-                        .allowPartialScore(true)
-                        .shuffleItems(true)
-                        .itemCount(getItemCount(aiContent));
-                break;
-                
-            default:
-                configBuilder
-                        .maxTime(exerciseTemplate.getEstimatedTimeMinutes() * 60)
-                        .allowPartialScore(false)
-                        .shuffleItems(false);
-        }
-        
-        return configBuilder.build();
-    }
-
-    /**
-     * Construye el contenido del ejercicio desde el JSON de la IA
-     */
-    private ExerciseResponseDto.ExerciseContentDto buildExerciseContent(Map<String, Object> aiContent) {
-        return ExerciseResponseDto.ExerciseContentDto.builder()
-                .title((String) aiContent.get("title"))
-                .instructions((String) aiContent.get("instructions"))
-                .options(aiContent.get("options")) // Puede ser List, Map, etc.
-                .correctAnswer(aiContent.get("correct_answer"))
-                .explanation((String) aiContent.get("explanation"))
-                .hints(parseHints(aiContent.get("hints")))
-                .imageUrl((String) aiContent.get("image_url"))
-                .build();
-    }
-
-    /**
-     * Obtiene el número de elementos para ejercicios que lo requieren
-     */
-    private Integer getItemCount(Map<String, Object> aiContent) {
-        Object items = aiContent.get("items");
-        if (items instanceof List) {
-            return ((List<?>) items).size();
-        }
-        Object options = aiContent.get("options");
-        if (options instanceof List) {
-            return ((List<?>) options).size();
-        }
-        return 4; // Valor por defecto
-    }
-
-    /**
-     * Parsea las pistas del JSON de la IA
-     */
-    @SuppressWarnings("unchecked")
-    private List<String> parseHints(Object hintsObj) {
-        if (hintsObj instanceof List) {
-            return (List<String>) hintsObj;
-        }
-        return List.of("Revisa los conceptos fundamentales", "Piensa paso a paso");
-    }
-
-    /**
-     * Determina la variante de renderizado según el tipo de ejercicio
-     */
-    private String determineRenderVariant(String exerciseType) {
-        return switch (exerciseType) {
-            case "multiple_choice" -> "radio-buttons";
-            case "drag_and_drop" -> "drag-to-sort";
-            case "numeric_input" -> "number-input";
-            case "text_input" -> "text-area";
-            case "true_false" -> "toggle-buttons";
-            case "ordering" -> "sortable-list";
-            case "matching" -> "connect-pairs";
-            case "fill_blanks" -> "input-blanks";
-            default -> "default-renderer";
-        };
-    }
-
     @Override
     public ExerciseResponseDto.AttemptResultDto submitExerciseAttempt(ExerciseRequestDto.SubmitAttemptDto request) {
         log.info("Procesando intento de ejercicio generado {} por estudiante {}", 
@@ -414,11 +294,11 @@ public class ExerciseServiceImpl implements ExerciseService {
         // Emitir evento de ejercicio completado para el Rule Engine
         publishExerciseCompletedEvent(exerciseTemplate, attempt);
         
-        // Buscar siguiente ejercicio sugerido
+        // Pre-cargar en segundo plano el siguiente ejercicio del mismo learning point, en lugar de
+        // bloquear la respuesta del intento esperando a la IA
         ExerciseResponseDto.NextExerciseDto nextExercise = null;
         try {
-            nextExercise = getNextExercise(request.getStudentProfileId(), 
-                    exerciseTemplate.getLearningPointId(), exerciseTemplate.getDifficulty());
+            nextExercise = prefetchNextExercise(request.getStudentProfileId(), exerciseTemplate);
         } catch (Exception e) {
             log.warn("No se pudo obtener siguiente ejercicio: {}", e.getMessage());
         }
@@ -426,6 +306,36 @@ public class ExerciseServiceImpl implements ExerciseService {
         return mapToAttemptResultDto(attempt, correctAnswer, nextExercise);
     }
 
+    /**
+     * Lanza la pre-carga del siguiente ejercicio y lo devuelve solo si está listo en submit-wait-ms
+     * (normalmente cuando sale del pool). El slot no se consume: next-exercise servirá el mismo ejercicio.
+     */
+    private ExerciseResponseDto.NextExerciseDto prefetchNextExercise(Integer studentId, Exercise completedTemplate) {
+        Integer learningPointId = completedTemplate.getLearningPointId();
+        Optional<LearningPoint> learningPointOpt = learningRepository.findLearningPointById(learningPointId);
+        if (learningPointOpt.isEmpty()) {
+            return null;
+        }
+        LearningPoint learningPoint = learningPointOpt.get();
+        // La dificultad que pedirá el siguiente paso adaptativo (la ventana ya incluye este intento),
+        // no la de la plantilla recién completada
+        String difficulty = adaptiveLearningService.getRecommendedDifficulty(studentId, learningPointId);
+
+        nextExercisePrefetcher.prefetch(studentId, learningPointId, difficulty,
+                () -> resolveNextExercise(studentId, learningPoint, difficulty, true));
+
+        return nextExercisePrefetcher.peek(studentId, learningPointId, prefetchSubmitWaitMs)
+                .map(prefetched -> {
+                    Integer previousAttempts = exerciseRepository.countAttemptsByStudentAndTemplate(
+                            studentId, prefetched.getExerciseTemplate().getId());
+                    byte[] payload = payloadRenderer.getOrRender(prefetched.getGeneratedExercise(),
+                            prefetched.getExerciseTemplate(), learningPoint);
+                    return payloadRenderer.toDto(payloadRenderer.toResponse(prefetched.getGeneratedExercise().getId(),
+                            payload, previousAttempts > 0, previousAttempts));
+                })
+                .orElse(null);
+    }
+
     @Override
     public List<ExerciseResponseDto.AttemptHistoryDto> getAttemptHistory(Integer studentId, Integer limit) {
         log.info("Obteniendo historial de intentos para estudiante {}", studentId);
@@ -565,6 +475,8 @@ public class ExerciseServiceImpl implements ExerciseService {
                 .hintsUsed(attempt.getHintsUsed())
                 .attemptNumber(attempt.getAttemptNumber())
                 .exerciseType(exerciseType)
+                .estimatedTimeSeconds(exercise.getEstimatedTime() != null ? exercise.getEstimatedTime() * 60 : null)
+                .competencyId(exercise.getCompetencyId())
                 .build();
                 
             // Configurar campos base manualmente
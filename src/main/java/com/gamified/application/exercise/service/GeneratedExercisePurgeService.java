@@ -0,0 +1,342 @@
+package com.gamified.application.exercise.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamified.application.exercise.model.entity.GeneratedExercise;
+import com.gamified.application.exercise.repository.GeneratedExerciseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Motor de purga de ejercicios generados antiguos.
+ * Elimina en bloques pequeños ordenados por ID (keyset) para no mantener bloqueos largos sobre
+ * generated_exercise mientras el pool sigue sirviendo ejercicios. El tamaño del bloque y la pausa
+ * entre bloques se ajustan según la latencia observada de cada DELETE.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GeneratedExercisePurgeService {
+
+    private static final DateTimeFormatter ARCHIVE_FILE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final GeneratedExerciseRepository generatedExerciseRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${exercise.pool.purge.retention-days:30}")
+    private Integer retentionDays;
+
+    @Value("${exercise.pool.purge.chunk-size:500}")
+    private Integer initialChunkSize;
+
+    @Value("${exercise.pool.purge.min-chunk-size:50}")
+    private Integer minChunkSize;
+
+    @Value("${exercise.pool.purge.max-chunk-size:5000}")
+    private Integer maxChunkSize;
+
+    @Value("${exercise.pool.purge.target-chunk-latency-ms:200}")
+    private Long targetChunkLatencyMs;
+
+    @Value("${exercise.pool.purge.min-pause-ms:20}")
+    private Long minPauseMs;
+
+    @Value("${exercise.pool.purge.max-pause-ms:2000}")
+    private Long maxPauseMs;
+
+    @Value("${exercise.pool.purge.max-duration-minutes:60}")
+    private Long maxDurationMinutes;
+
+    @Value("${exercise.pool.purge.archive.enabled:false}")
+    private Boolean archiveEnabled;
+
+    @Value("${exercise.pool.purge.archive.directory:./archive/generated-exercise}")
+    private String archiveDirectory;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicReference<PurgeResult> lastResult = new AtomicReference<>();
+
+    @PostConstruct
+    void registerGauges() {
+        meterRegistry.gauge("exercise.pool.purge.rows_per_second", lastResult,
+                ref -> ref.get() != null ? ref.get().getRowsPerSecond() : 0.0);
+    }
+
+    /**
+     * Purga los ejercicios no utilizados más antiguos que el período de retención configurado
+     */
+    public PurgeResult purgeOldExercises() {
+        return purgeOldExercises(retentionDays);
+    }
+
+    /**
+     * Purga en bloques los ejercicios generados hace más de {@code daysOld} días que no han sido usados
+     * @param daysOld Días de antigüedad
+     * @return Resultado de la ejecución (también disponible en {@link #getLastResult()})
+     */
+    public PurgeResult purgeOldExercises(Integer daysOld) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Ya hay una purga de ejercicios en curso, se omite esta ejecución");
+            return null;
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        // El corte se fija al inicio para que los bloques siguientes no persigan filas nuevas
+        LocalDateTime cutoff = startedAt.minusDays(daysOld);
+        long deadlineNanos = System.nanoTime() + TimeUnit.MINUTES.toNanos(maxDurationMinutes);
+        long startNanos = System.nanoTime();
+
+        int chunkSize = initialChunkSize;
+        long lastId = 0L;
+        long totalDeleted = 0;
+        int chunks = 0;
+        long maxChunkLatencyMs = 0;
+        String stopReason = "COMPLETED";
+        Path archiveFile = null;
+
+        log.info("Iniciando purga por bloques de ejercicios anteriores a {} (bloque inicial: {})", cutoff, chunkSize);
+
+        try (ArchiveWriter archive = archiveEnabled ? ArchiveWriter.open(archiveDirectory, startedAt, objectMapper) : null) {
+            archiveFile = archive != null ? archive.getFile() : null;
+
+            while (true) {
+                if (System.nanoTime() > deadlineNanos) {
+                    stopReason = "TIME_LIMIT";
+                    log.warn("Purga detenida por límite de duración ({} min). Se continuará en la próxima ejecución",
+                            maxDurationMinutes);
+                    break;
+                }
+
+                long chunkStart = System.nanoTime();
+                int requested = chunkSize;
+
+                // 1. Seleccionar el siguiente bloque (keyset por ID)
+                List<Long> ids;
+                if (archive != null) {
+                    List<GeneratedExercise> rows = generatedExerciseRepository.findPurgeCandidates(cutoff, lastId, chunkSize);
+                    if (rows.isEmpty()) {
+                        break;
+                    }
+                    // 2. Archivar antes de borrar; si falla no se elimina nada del bloque
+                    archive.write(rows);
+                    ids = rows.stream().map(GeneratedExercise::getId).toList();
+                } else {
+                    ids = generatedExerciseRepository.findPurgeCandidateIds(cutoff, lastId, chunkSize);
+                    if (ids.isEmpty()) {
+                        break;
+                    }
+                }
+
+                // 3. Eliminar el bloque (transacción corta por sentencia)
+                Integer deleted = generatedExerciseRepository.deleteUnusedByIds(ids);
+                long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - chunkStart);
+
+                totalDeleted += deleted != null ? deleted : 0;
+                chunks++;
+                maxChunkLatencyMs = Math.max(maxChunkLatencyMs, latencyMs);
+                lastId = ids.get(ids.size() - 1);
+
+                // 4. Ajustar tamaño de bloque y pausa según la latencia observada
+                int nextChunkSize = nextChunkSize(chunkSize, latencyMs);
+                long pauseMs = pauseFor(latencyMs);
+                log.debug("Bloque {} purgado: {} filas en {} ms (siguiente bloque: {}, pausa: {} ms)",
+                        chunks, deleted, latencyMs, nextChunkSize, pauseMs);
+                chunkSize = nextChunkSize;
+
+                if (ids.size() < requested) {
+                    // Último bloque parcial: no hace falta otra consulta ni otra pausa
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopReason = "INTERRUPTED";
+            log.warn("Purga de ejercicios interrumpida");
+        } catch (Exception e) {
+            stopReason = "ERROR";
+            log.error("Error durante la purga de ejercicios antiguos (último ID procesado: {})", lastId, e);
+        } finally {
+            running.set(false);
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        PurgeResult result = PurgeResult.builder()
+                .startedAt(startedAt)
+                .cutoff(cutoff)
+                .rowsDeleted(totalDeleted)
+                .chunks(chunks)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .rowsPerSecond(seconds > 0 ? totalDeleted / seconds : 0.0)
+                .maxChunkLatencyMs(maxChunkLatencyMs)
+                .lastProcessedId(lastId)
+                .archiveFile(archiveFile != null ? archiveFile.toString() : null)
+                .stopReason(stopReason)
+                .build();
+
+        recordMetrics(result, elapsedNanos);
+        lastResult.set(result);
+
+        String rate = String.format("%.1f", result.getRowsPerSecond());
+        if ("COMPLETED".equals(stopReason)) {
+            log.info("Purga completada. Ejercicios eliminados: {} en {} bloques, {} ms ({} filas/s)",
+                    totalDeleted, chunks, result.getDurationMs(), rate);
+        } else {
+            log.warn("Purga detenida ({}). Ejercicios eliminados: {} en {} bloques, {} ms ({} filas/s)",
+                    stopReason, totalDeleted, chunks, result.getDurationMs(), rate);
+        }
+        return result;
+    }
+
+    /**
+     * Obtiene el resultado de la última purga ejecutada
+     */
+    public PurgeResult getLastResult() {
+        return lastResult.get();
+    }
+
+    /**
+     * Indica si hay una purga en curso
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    /**
+     * Incremento aditivo mientras la latencia esté por debajo del objetivo y reducción
+     * multiplicativa cuando se supera, para ceder rápidamente ante contención
+     */
+    private int nextChunkSize(int current, long latencyMs) {
+        return nextChunkSize(current, latencyMs, targetChunkLatencyMs, minChunkSize, maxChunkSize);
+    }
+
+    static int nextChunkSize(int current, long latencyMs, long targetLatencyMs, int minSize, int maxSize) {
+        if (latencyMs > targetLatencyMs) {
+            return Math.max(minSize, current / 2);
+        }
+        return Math.min(maxSize, current + Math.max(minSize, current / 4));
+    }
+
+    /**
+     * Pausa proporcional a la latencia del último bloque: cuanto más tarda el DELETE,
+     * más tiempo se deja libre la tabla para las lecturas del pool
+     */
+    private long pauseFor(long latencyMs) {
+        return pauseFor(latencyMs, targetChunkLatencyMs, minPauseMs, maxPauseMs);
+    }
+
+    static long pauseFor(long latencyMs, long targetLatencyMs, long minPause, long maxPause) {
+        long pause = latencyMs > targetLatencyMs ? latencyMs * 2 : latencyMs / 2;
+        return Math.max(minPause, Math.min(maxPause, pause));
+    }
+
+    private void recordMetrics(PurgeResult result, long elapsedNanos) {
+        Timer.builder("exercise.pool.purge.duration")
+                .description("Duración total de la purga de ejercicios generados")
+                .tag("result", result.getStopReason())
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("exercise.pool.purge.rows")
+                .description("Ejercicios generados eliminados por la purga")
+                .register(meterRegistry)
+                .increment(result.getRowsDeleted());
+    }
+
+    /**
+     * Archivo NDJSON comprimido con gzip donde se copian las filas antes de eliminarlas
+     */
+    private static final class ArchiveWriter implements AutoCloseable {
+
+        private final Path file;
+        private final OutputStream out;
+        private final ObjectMapper objectMapper;
+
+        private ArchiveWriter(Path file, OutputStream out, ObjectMapper objectMapper) {
+            this.file = file;
+            this.out = out;
+            this.objectMapper = objectMapper;
+        }
+
+        static ArchiveWriter open(String directory, LocalDateTime startedAt, ObjectMapper objectMapper) throws IOException {
+            Path dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            Path file = dir.resolve("generated_exercise_" + startedAt.format(ARCHIVE_FILE_FORMAT) + ".ndjson.gz");
+            OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), 64 * 1024, true);
+            log.info("Archivando ejercicios purgados en {}", file);
+            return new ArchiveWriter(file, out, objectMapper);
+        }
+
+        void write(List<GeneratedExercise> rows) throws IOException {
+            for (GeneratedExercise row : rows) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("id", row.getId());
+                record.put("exercise_template_id", row.getExerciseTemplateId());
+                record.put("generated_content_json", row.getGeneratedContentJson());
+                record.put("correct_answer_hash", row.getCorrectAnswerHash());
+                record.put("generation_prompt", row.getGenerationPrompt());
+                record.put("ai_model_version", row.getAiModelVersion());
+                record.put("created_at", row.getCreatedAt() != null ? row.getCreatedAt().toString() : null);
+                out.write(objectMapper.writeValueAsBytes(record));
+                out.write('\n');
+            }
+            // Asegurar que el bloque está en disco antes de que se elimine de la base de datos
+            out.flush();
+        }
+
+        Path getFile() {
+            return file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Resultado de una ejecución de purga
+     */
+    @Getter
+    @Builder
+    public static class PurgeResult {
+        private final LocalDateTime startedAt;
+        private final LocalDateTime cutoff;
+        private final long rowsDeleted;
+        private final int chunks;
+        private final long durationMs;
+        private final double rowsPerSecond;
+        private final long maxChunkLatencyMs;
+        private final long lastProcessedId;
+        private final String archiveFile;
+        private final String stopReason;
+    }
+}
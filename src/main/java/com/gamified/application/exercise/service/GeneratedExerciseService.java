@@ -1,11 +1,9 @@
 package com.gamified.application.exercise.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gamified.application.exercise.model.dto.response.GeneratedExerciseResponseDto;
 import com.gamified.application.exercise.model.dto.response.ExerciseResponseDto;
 import com.gamified.application.exercise.model.entity.Exercise;
-import com.gamified.application.exercise.model.entity.ExerciseType;
 import com.gamified.application.exercise.model.entity.GeneratedExercise;
 import com.gamified.application.exercise.repository.ExerciseRepository;
 import com.gamified.application.exercise.repository.GeneratedExerciseRepository;
@@ -21,7 +19,6 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -39,6 +36,8 @@ public class GeneratedExerciseService {
     private final AzureAiClient azureAiClient;
     private final ExercisePromptBuilder promptBuilder;
     private final ObjectMapper objectMapper;
+    private final TemplateDemandTracker demandTracker;
+    private final ExercisePayloadRenderer payloadRenderer;
 
     /**
      * Obtiene el siguiente ejercicio para un estudiante, generando dinámicamente con IA
@@ -49,22 +48,39 @@ public class GeneratedExerciseService {
      * @param preferredDifficulty Dificultad preferida (opcional)
      * @return Ejercicio generado listo para presentar al estudiante
      */
-    @Transactional
     public ExerciseResponseDto.NextExerciseDto getNextExercise(
             Integer studentId, Integer learningPointId, String preferredDifficulty) {
+        return payloadRenderer.toDto(getNextExercisePayload(studentId, learningPointId, preferredDifficulty));
+    }
+
+    /**
+     * Igual que {@link #getNextExercise} pero devuelve el JSON ya serializado
+     */
+    @Transactional
+    public byte[] getNextExercisePayload(Integer studentId, Integer learningPointId, String preferredDifficulty) {
         
         log.info("Generando ejercicio dinámico con IA para estudiante {} en learning point {}", 
                 studentId, learningPointId);
 
         // 1. Determinar la plantilla de ejercicio apropiada
         Exercise exerciseTemplate = determineExerciseTemplate(studentId, learningPointId, preferredDifficulty);
+        LearningPoint learningPoint = learningRepository.findLearningPointById(exerciseTemplate.getLearningPointId())
+                .orElseThrow(() -> new ResourceNotFoundException("Learning point no encontrado"));
         
         // 2. Generar nuevo ejercicio dinámicamente con IA (siguiendo la guía)
-        GeneratedExercise generatedExercise = generateNewExercise(exerciseTemplate, studentId);
+        GeneratedExercise generatedExercise = generateNewExercise(exerciseTemplate, learningPoint, studentId);
+        demandTracker.recordRequest(exerciseTemplate.getId(), false);
         log.info("Nuevo ejercicio generado dinámicamente con IA. ID: {}", generatedExercise.getId());
 
-        // 3. Mapear a DTO de respuesta con formato completo según la guía
-        return mapToNextExerciseDto(generatedExercise, exerciseTemplate);
+        // 3. Verificar intentos previos del estudiante en esta plantilla
+        Integer previousAttempts = exerciseRepository.countAttemptsByStudentAndTemplate(
+                studentId, exerciseTemplate.getId());
+
+        // 4. Completar el payload con los datos de esta solicitud. El guardado en la fila es el de /exercises
+        // (la fila puede servirse después desde el pool); este endpoint mantiene su propio contrato.
+        byte[] payload = payloadRenderer.render(generatedExercise.getGeneratedContentJson(), exerciseTemplate,
+                learningPoint, ExercisePayloadRenderer.Format.GENERATED_EXERCISES);
+        return payloadRenderer.toResponse(generatedExercise.getId(), payload, previousAttempts > 0, previousAttempts);
     }
 
     /**
@@ -111,14 +127,15 @@ public class GeneratedExerciseService {
      * Genera un nuevo ejercicio usando IA de manera transaccional
      */
     @Transactional
-    private GeneratedExercise generateNewExercise(Exercise exerciseTemplate, Integer studentId) {
+    private GeneratedExercise generateNewExercise(Exercise exerciseTemplate, LearningPoint learningPoint, Integer studentId) {
         try {
             // 1. Construir el prompt dinámico
             String prompt = promptBuilder.buildPromptForExercise(exerciseTemplate, studentId);
             
             // 2. Llamar al servicio de IA
             long startTime = System.currentTimeMillis();
-            String aiJsonResponse = azureAiClient.generateExerciseContent(prompt);
+            AzureAiClient.GeneratedContent generated = azureAiClient.generateExercise(prompt, AiRequestScheduler.Lane.INTERACTIVE, exerciseTemplate.getId());
+            String aiJsonResponse = generated.getContent();
             long generationTime = System.currentTimeMillis() - startTime;
             
             // 3. Validar el JSON de respuesta
@@ -135,8 +152,9 @@ public class GeneratedExerciseService {
                     .generatedContentJson(aiJsonResponse) // Campo real: generated_content_json
                     .correctAnswerHash(correctAnswerHash) // Campo real: correct_answer_hash
                     .generationPrompt(prompt) // Campo real: generation_prompt
-                    .aiModelVersion(azureAiClient.getModelVersion()) // Campo real: ai_model_version
+                    .aiModelVersion(generated.getModelVersion()) // Campo real: ai_model_version
                     .createdAt(LocalDateTime.now()) // Campo real: created_at
+                    .renderedPayload(payloadRenderer.render(aiJsonResponse, exerciseTemplate, learningPoint)) // Campo real: rendered_payload
                     .exerciseTemplate(exerciseTemplate)
                     .build();
 
@@ -204,151 +222,6 @@ public class GeneratedExerciseService {
         }
     }
 
-    /**
-     * Mapea GeneratedExercise a DTO de respuesta con formato completo según la guía
-     */
-    private ExerciseResponseDto.NextExerciseDto mapToNextExerciseDto(
-            GeneratedExercise generatedExercise, Exercise exerciseTemplate) {
-        
-        try {
-            // 1. Obtener información del learning point
-            Optional<LearningPoint> learningPointOpt = learningRepository
-                    .findLearningPointById(exerciseTemplate.getLearningPointId());
-            LearningPoint learningPoint = learningPointOpt.orElseThrow(() -> 
-                    new ResourceNotFoundException("Learning point no encontrado"));
-
-            // 2. Parsear el contenido JSON generado por la IA
-            Map<String, Object> aiContent = objectMapper.readValue(
-                    generatedExercise.getGeneratedContentJson(), 
-                    new TypeReference<Map<String, Object>>() {});
-
-            // 3. Obtener información del tipo de ejercicio
-            Optional<ExerciseType> exerciseTypeOpt = exerciseRepository
-                    .findExerciseTypeById(exerciseTemplate.getExerciseTypeId());
-            String exerciseTypeName = exerciseTypeOpt
-                    .map(ExerciseType::getName)
-                    .orElse("multiple_choice");
-
-            // 4. Determinar render_variant según el tipo de ejercicio
-            String renderVariant = determineRenderVariant(exerciseTypeName);
-
-            // 5. Construir configuración del ejercicio según GUIA.md
-            ExerciseResponseDto.ExerciseConfigDto config = buildExerciseConfig(
-                    exerciseTypeName, exerciseTemplate, aiContent);
-
-            // 6. Construir contenido del ejercicio
-            ExerciseResponseDto.ExerciseContentDto content = buildExerciseContent(aiContent);
-
-            // 7. Verificar intentos previos del estudiante en esta plantilla
-            // TODO: Implementar lógica para obtener studentId y consultar intentos previos
-            Boolean hasAttempts = false;
-            Integer previousAttempts = 0;
-
-            // 8. Construir respuesta completa según estructura de GUIA.md
-            return ExerciseResponseDto.NextExerciseDto.builder()
-                    .generatedExerciseId(generatedExercise.getId())
-                    .exerciseTemplateId(exerciseTemplate.getId())
-                    .exerciseType(exerciseTypeName)
-                    .renderVariant(renderVariant)
-                    .difficultyLevel(exerciseTemplate.getDifficulty())
-                    .config(config)
-                    .content(content)
-                    .learningPointId(learningPoint.getId())
-                    .learningPointTitle(learningPoint.getTitle())
-                    .hasAttempts(hasAttempts)
-                    .previousAttempts(previousAttempts)
-                    .build();
-
-        } catch (Exception e) {
-            log.error("Error construyendo respuesta de ejercicio: {}", e.getMessage(), e);
-            throw new RuntimeException("Error procesando contenido del ejercicio: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Determina el render_variant según el tipo de ejercicio
-     */
-    private String determineRenderVariant(String exerciseType) {
-        return switch (exerciseType.toLowerCase()) {
-            case "multiple_choice", "múltiple_opción" -> "radio-buttons";
-            case "drag_and_drop", "arrastrar_soltar" -> "drag-to-sort";
-            case "numeric_input", "entrada_numérica" -> "number-input";
-            case "text_input", "entrada_texto" -> "text-area";
-            case "true_false", "verdadero_falso" -> "toggle-buttons";
-            case "ordering", "ordenamiento" -> "sortable-list";
-            case "matching", "emparejamiento" -> "connect-pairs";
-            case "fill_blanks", "llenar_espacios" -> "input-blanks";
-            default -> "default-renderer";
-        };
-    }
-
-    /**
-     * Construye la configuración del ejercicio según el tipo y GUIA.md
-     */
-    private ExerciseResponseDto.ExerciseConfigDto buildExerciseConfig(
-            String exerciseType, Exercise exerciseTemplate, Map<String, Object> aiContent) {
-        
-        // Configuración base
-        ExerciseResponseDto.ExerciseConfigDto.ExerciseConfigDtoBuilder configBuilder = 
-                ExerciseResponseDto.ExerciseConfigDto.builder()
-                .showTimer(true)
-                .allowPartialScore(true)
-                .showHints(true)
-                .allowRetry(false);
-
-        // Configuración específica por tipo
-        switch (exerciseType.toLowerCase()) {
-            case "drag_and_drop", "arrastrar_soltar" -> {
-                configBuilder
-                    .maxTime(90)
-                    .itemCount(getItemCount(aiContent))
-                    .shuffleItems(true);
-            }
-            case "multiple_choice", "múltiple_opción" -> {
-                configBuilder
-                    .maxTime(60)
-                    .shuffleItems(true);
-            }
-            case "numeric_input", "entrada_numérica" -> {
-                configBuilder
-                    .maxTime(120)
-                    .allowPartialScore(false);
-            }
-            default -> {
-                configBuilder
-                    .maxTime(exerciseTemplate.getEstimatedTimeMinutes() * 60);
-            }
-        }
-
-        return configBuilder.build();
-    }
-
-    /**
-     * Construye el contenido del ejercicio desde el JSON de la IA
-     */
-    private ExerciseResponseDto.ExerciseContentDto buildExerciseContent(Map<String, Object> aiContent) {
-        return ExerciseResponseDto.ExerciseContentDto.builder()
-                .title((String) aiContent.get("question"))
-                .instructions((String) aiContent.getOrDefault("instructions", "Selecciona la respuesta correcta"))
-                .options(aiContent.get("options"))
-                .correctAnswer(aiContent.get("correct_answer"))
-                .explanation((String) aiContent.get("explanation"))
-                .hints((List<String>) aiContent.get("hints"))
-                .imageUrl((String) aiContent.get("image_url"))
-                .build();
-    }
-
-    /**
-     * Obtiene el número de elementos del contenido de IA
-     */
-    private Integer getItemCount(Map<String, Object> aiContent) {
-        Object options = aiContent.get("options");
-        if (options instanceof List) {
-            return ((List<?>) options).size();
-        }
-        return 4; // Default
-    }
-
     /**
      * Obtiene estadísticas del pool de ejercicios
      */
@@ -359,7 +232,7 @@ public class GeneratedExerciseService {
                 .totalGeneratedExercises(poolStats.getTotalGenerated())
                 .totalAttempts(poolStats.getTotalUsed())
                 .averageGenerationTime(poolStats.getAverageGenerationTimeMs())
-                .cacheHitRate(poolStats.getCacheHitRate())
+                .cacheHitRate(demandTracker.getPoolHitRate())
                 .mostUsedAiModel(azureAiClient.getModelVersion())
                 .successfulGenerations(poolStats.getTotalGenerated()) // Se puede refinar
                 .failedGenerations(0) // Se puede implementar tracking de fallos
@@ -0,0 +1,344 @@
+package com.gamified.application.exercise.service;
+
+import com.gamified.application.exercise.model.entity.Exercise;
+import com.gamified.application.exercise.model.entity.GeneratedExercise;
+import com.gamified.application.learning.model.entity.LearningPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pre-carga especulativa del siguiente ejercicio de un estudiante.
+ * Tras enviar un intento, la siguiente llamada casi siempre es next-exercise para el mismo
+ * learning point; este servicio resuelve ese ejercicio en segundo plano y lo deja en un slot
+ * por (estudiante, learning point) con TTL corto, para que la solicitud no espere a la IA.
+ * El slot recuerda la dificultad con la que se resolvió y solo se sirve a una solicitud de esa
+ * misma dificultad (o sin dificultad).
+ *
+ * La pre-carga es especulativa: se resuelve en el carril BACKGROUND de la IA, detrás de las
+ * solicitudes interactivas. Un ejercicio tomado del pool queda reservado mientras está en el slot,
+ * para que no se sirva a la vez a otro estudiante; al reclamarse, vencer o reemplazarse el slot la
+ * reserva se libera y, si no se llegó a usar, el ejercicio vuelve a estar disponible en el pool.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NextExercisePrefetcher {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${exercise.prefetch.enabled:true}")
+    private Boolean prefetchEnabled;
+
+    @Value("${exercise.prefetch.ttl-seconds:600}")
+    private Long ttlSeconds;
+
+    @Value("${exercise.prefetch.claim-wait-ms:30000}")
+    private Long claimWaitMs;
+
+    @Value("${exercise.prefetch.threads:4}")
+    private Integer threads;
+
+    @Value("${exercise.prefetch.queue-capacity:100}")
+    private Integer queueCapacity;
+
+    private final Map<SlotKey, Slot> slots = new ConcurrentHashMap<>();
+    private final Set<Long> reservedExerciseIds = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor executor;
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter mismatchCounter;
+    private Counter unusedCounter;
+    private Counter rejectedCounter;
+    private Timer claimWaitTimer;
+
+    @PostConstruct
+    void init() {
+        // Pool propio (no un bean Executor) para no desplazar al executor por defecto de @Async
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "exercise-prefetch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        hitCounter = prefetchCounter("hit");
+        missCounter = prefetchCounter("miss");
+        mismatchCounter = prefetchCounter("mismatch");
+        unusedCounter = prefetchCounter("unused");
+        rejectedCounter = prefetchCounter("rejected");
+        claimWaitTimer = Timer.builder("exercise.prefetch.claim.wait")
+                .description("Tiempo esperando a una pre-carga en curso al servir next-exercise")
+                .register(meterRegistry);
+        meterRegistry.gauge("exercise.prefetch.slots", slots, Map::size);
+        meterRegistry.gauge("exercise.prefetch.reserved", reservedExerciseIds, Set::size);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Lanza en segundo plano la resolución del siguiente ejercicio y la deja en el slot del estudiante.
+     * Si ya había un ejercicio pre-cargado para el mismo learning point, se reemplaza.
+     * @param studentId ID del estudiante
+     * @param learningPointId ID del learning point
+     * @param difficulty Dificultad con la que se resuelve el ejercicio
+     * @param resolver Resuelve el ejercicio (pool o IA); se ejecuta en el pool de pre-carga
+     */
+    public void prefetch(Integer studentId, Integer learningPointId, String difficulty,
+                         Supplier<PrefetchedExercise> resolver) {
+        if (!prefetchEnabled || studentId == null || learningPointId == null) {
+            return;
+        }
+
+        SlotKey key = new SlotKey(studentId, learningPointId);
+        CompletableFuture<PrefetchedExercise> future;
+        try {
+            future = CompletableFuture.supplyAsync(resolver, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.debug("Cola de pre-carga llena, se omite para estudiante {} en learning point {}", studentId, learningPointId);
+            return;
+        }
+
+        Slot previous = slots.put(key, new Slot(future, difficulty,
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds)));
+        if (previous != null) {
+            discard(previous);
+        }
+
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                // Sin slot válido la siguiente solicitud sigue el flujo normal
+                slots.computeIfPresent(key, (k, slot) -> slot.future == future ? null : slot);
+                log.warn("Error en pre-carga para estudiante {} en learning point {}: {}",
+                        studentId, learningPointId, error.getMessage());
+            } else {
+                log.debug("Ejercicio pre-cargado para estudiante {} en learning point {}: {}",
+                        studentId, learningPointId, result != null ? result.getGeneratedExercise().getId() : null);
+            }
+        });
+    }
+
+    /**
+     * Toma (y elimina) el ejercicio pre-cargado del estudiante para el learning point.
+     * Si la pre-carga sigue en curso espera hasta claim-wait-ms: la generación ya iniciada
+     * termina antes que una nueva.
+     * @param difficulty Dificultad pedida; si es otra que la del slot, el slot no se sirve ni se consume
+     * @return Ejercicio pre-cargado, o vacío si no hay slot válido para esa dificultad
+     */
+    public Optional<PrefetchedExercise> claim(Integer studentId, Integer learningPointId, String difficulty) {
+        if (!prefetchEnabled) {
+            return Optional.empty();
+        }
+
+        SlotKey key = new SlotKey(studentId, learningPointId);
+        Slot slot = slots.get(key);
+        if (slot != null && !slot.isExpired() && !matchesDifficulty(difficulty, slot.difficulty)) {
+            mismatchCounter.increment();
+            return Optional.empty();
+        }
+        boolean removed = slot != null && slots.remove(key, slot);
+        if (!removed || slot.isExpired()) {
+            if (removed) {
+                discard(slot);
+            }
+            missCounter.increment();
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        Optional<PrefetchedExercise> result = await(slot.future, claimWaitMs);
+        claimWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        // Servido (o abandonado tras la espera): el ejercicio deja de estar reservado
+        releaseWhenDone(slot);
+
+        if (result.isPresent()) {
+            hitCounter.increment();
+        } else {
+            missCounter.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Consulta el ejercicio pre-cargado sin tomarlo, esperando como máximo waitMs.
+     * Se usa para adjuntar el siguiente ejercicio a la respuesta del intento si ya está listo;
+     * la siguiente llamada a next-exercise servirá el mismo ejercicio desde el slot.
+     */
+    public Optional<PrefetchedExercise> peek(Integer studentId, Integer learningPointId, long waitMs) {
+        Slot slot = slots.get(new SlotKey(studentId, learningPointId));
+        if (slot == null || slot.isExpired()) {
+            return Optional.empty();
+        }
+        return await(slot.future, waitMs);
+    }
+
+    /**
+     * Reserva un ejercicio del pool para el slot que se está resolviendo
+     * @return false si ya estaba reservado por otra pre-carga
+     */
+    public boolean reserve(Long generatedExerciseId) {
+        return generatedExerciseId != null && reservedExerciseIds.add(generatedExerciseId);
+    }
+
+    /**
+     * Indica si el ejercicio está reservado por un slot y no debe servirse desde el pool
+     */
+    public boolean isReserved(Long generatedExerciseId) {
+        return generatedExerciseId != null && reservedExerciseIds.contains(generatedExerciseId);
+    }
+
+    /**
+     * Elimina periódicamente los slots vencidos que nadie reclamó
+     */
+    @Scheduled(fixedDelayString = "${exercise.prefetch.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        slots.entrySet().removeIf(entry -> {
+            if (entry.getValue().isExpired()) {
+                discard(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Sin dificultad pedida sirve cualquier slot; si se pide una, debe ser la del slot
+     */
+    static boolean matchesDifficulty(String requested, String prefetched) {
+        if (requested == null || requested.isBlank()) {
+            return true;
+        }
+        return prefetched != null && requested.trim().equalsIgnoreCase(prefetched.trim());
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private Optional<PrefetchedExercise> await(CompletableFuture<PrefetchedExercise> future, long waitMs) {
+        try {
+            if (waitMs <= 0) {
+                return future.isDone() && !future.isCompletedExceptionally()
+                        ? Optional.ofNullable(future.getNow(null)) : Optional.empty();
+            }
+            return Optional.ofNullable(future.get(waitMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Cuenta como no utilizado un slot que se descarta (vencido o reemplazado).
+     * Si la pre-carga seguía en curso se deja terminar y su reserva se libera al acabar.
+     */
+    private void discard(Slot slot) {
+        if (slot.future.isDone() && !slot.future.isCompletedExceptionally()) {
+            unusedCounter.increment();
+        }
+        releaseWhenDone(slot);
+    }
+
+    /**
+     * Libera la reserva del ejercicio del slot en cuanto la pre-carga termina (o ya, si terminó)
+     */
+    private void releaseWhenDone(Slot slot) {
+        slot.future.thenAccept(result -> {
+            if (result != null && result.getGeneratedExercise() != null) {
+                reservedExerciseIds.remove(result.getGeneratedExercise().getId());
+            }
+        });
+    }
+
+    private Counter prefetchCounter(String result) {
+        return Counter.builder("exercise.prefetch")
+                .description("Resultado de las pre-cargas especulativas de ejercicios")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class SlotKey {
+        private final Integer studentId;
+        private final Integer learningPointId;
+
+        SlotKey(Integer studentId, Integer learningPointId) {
+            this.studentId = studentId;
+            this.learningPointId = learningPointId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SlotKey other)) return false;
+            return studentId.equals(other.studentId) && learningPointId.equals(other.learningPointId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(studentId, learningPointId);
+        }
+    }
+
+    private static final class Slot {
+        private final CompletableFuture<PrefetchedExercise> future;
+        private final String difficulty;
+        private final long expiresAtMillis;
+
+        Slot(CompletableFuture<PrefetchedExercise> future, String difficulty, long expiresAtMillis) {
+            this.future = future;
+            this.difficulty = difficulty;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAtMillis;
+        }
+    }
+
+    /**
+     * Ejercicio resuelto por la pre-carga, con el contexto necesario para construir la respuesta
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PrefetchedExercise {
+        private final GeneratedExercise generatedExercise;
+        private final Exercise exerciseTemplate;
+        private final LearningPoint learningPoint;
+        private final boolean fromPool;
+    }
+}
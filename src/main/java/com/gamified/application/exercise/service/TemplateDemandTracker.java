@@ -0,0 +1,324 @@
+package com.gamified.application.exercise.service;
+
+import com.gamified.application.exercise.model.entity.TemplateDemandSnapshot;
+import com.gamified.application.exercise.repository.TemplateDemandRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pronóstico de demanda por plantilla de ejercicio para dimensionar el pool.
+ * Cada solicitud de siguiente ejercicio actualiza en memoria una tasa de solicitudes/hora con
+ * decaimiento exponencial (EWMA en tiempo continuo), de modo que la demanda reciente pesa más que
+ * el histórico. La tasa se guarda periódicamente en template_demand_snapshot y se restaura al
+ * iniciar; opcionalmente se siembra con los estudiantes asignados a cada learning point.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TemplateDemandTracker {
+
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+    private static final double MIN_TRACKED_RATE = 0.001;
+
+    private final TemplateDemandRepository templateDemandRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${exercise.pool.demand.half-life-hours:24}")
+    private Double halfLifeHours;
+
+    @Value("${exercise.pool.demand.lead-time-hours:2.5}")
+    private Double leadTimeHours;
+
+    @Value("${exercise.pool.demand.safety-factor:1.5}")
+    private Double safetyFactor;
+
+    @Value("${exercise.pool.demand.seed.enabled:true}")
+    private Boolean seedEnabled;
+
+    @Value("${exercise.pool.demand.seed.requests-per-student-hour:0.05}")
+    private Double seedRequestsPerStudentHour;
+
+    @Value("${exercise.pool.min-exercises-per-template:5}")
+    private Integer minExercisesPerTemplate;
+
+    @Value("${exercise.pool.max-exercises-per-template:20}")
+    private Integer maxExercisesPerTemplate;
+
+    private final Map<Integer, DemandState> states = new ConcurrentHashMap<>();
+    private final LongAdder totalHits = new LongAdder();
+    private final LongAdder totalMisses = new LongAdder();
+
+    private Counter poolHitCounter;
+    private Counter poolMissCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        poolHitCounter = Counter.builder("exercise.pool.requests")
+                .description("Solicitudes de siguiente ejercicio según origen")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        poolMissCounter = Counter.builder("exercise.pool.requests")
+                .description("Solicitudes de siguiente ejercicio según origen")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        meterRegistry.gauge("exercise.pool.hit_rate", this, TemplateDemandTracker::getPoolHitRate);
+        meterRegistry.gauge("exercise.pool.demand.tracked_templates", states, Map::size);
+    }
+
+    /**
+     * Registra una solicitud de ejercicio para la plantilla
+     * @param exerciseTemplateId ID de la plantilla solicitada
+     * @param servedFromPool true si se sirvió del pool, false si hubo que generarlo con IA
+     */
+    public void recordRequest(Integer exerciseTemplateId, boolean servedFromPool) {
+        if (exerciseTemplateId == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        states.computeIfAbsent(exerciseTemplateId, id -> new DemandState(now))
+                .record(now, timeConstantHours(), servedFromPool);
+
+        if (servedFromPool) {
+            totalHits.increment();
+            poolHitCounter.increment();
+        } else {
+            totalMisses.increment();
+            poolMissCounter.increment();
+        }
+    }
+
+    /**
+     * Tasa de solicitudes/hora pronosticada para la plantilla
+     */
+    public double getForecastRate(Integer exerciseTemplateId) {
+        DemandState state = states.get(exerciseTemplateId);
+        return state != null ? state.rateAt(System.currentTimeMillis(), timeConstantHours()) : 0.0;
+    }
+
+    /**
+     * Stock objetivo del pool para la plantilla: demanda pronosticada durante el tiempo de reposición
+     * (intervalo del job de mantenimiento + generación) con un margen de seguridad, acotado a min/max
+     */
+    public int getTargetStock(Integer exerciseTemplateId) {
+        double expectedDemand = getForecastRate(exerciseTemplateId) * leadTimeHours * safetyFactor;
+        int target = (int) Math.ceil(expectedDemand);
+        return Math.max(minExercisesPerTemplate, Math.min(maxExercisesPerTemplate, target));
+    }
+
+    /**
+     * Plantillas ordenadas por demanda pronosticada (mayor primero)
+     * @param limit Número máximo de plantillas
+     * @return IDs de plantillas; vacío si aún no hay historial
+     */
+    public List<Integer> getTemplatesByForecast(int limit) {
+        long now = System.currentTimeMillis();
+        double tau = timeConstantHours();
+        return states.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().rateAt(now, tau)))
+                .filter(entry -> entry.getValue() >= MIN_TRACKED_RATE)
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Tasa global de aciertos del pool (ejercicios servidos sin llamar a la IA)
+     */
+    public double getPoolHitRate() {
+        long hits = totalHits.sum();
+        long total = hits + totalMisses.sum();
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+
+    /**
+     * Resumen de la demanda por plantilla para validar el pronóstico contra la tasa de aciertos
+     * @param limit Número máximo de plantillas
+     */
+    public List<TemplateDemand> getDemandSummary(int limit) {
+        List<TemplateDemand> summary = new ArrayList<>();
+        for (Integer templateId : getTemplatesByForecast(limit)) {
+            DemandState state = states.get(templateId);
+            if (state == null) {
+                continue;
+            }
+            long hits = state.hits.sum();
+            long misses = state.misses.sum();
+            summary.add(TemplateDemand.builder()
+                    .exerciseTemplateId(templateId)
+                    .forecastRatePerHour(getForecastRate(templateId))
+                    .targetStock(getTargetStock(templateId))
+                    .poolHits(hits)
+                    .poolMisses(misses)
+                    .hitRate(hits + misses > 0 ? (double) hits / (hits + misses) : 0.0)
+                    .build());
+        }
+        return summary;
+    }
+
+    /**
+     * Guarda periódicamente la demanda estimada en la base de datos
+     */
+    @Scheduled(fixedDelayString = "${exercise.pool.demand.snapshot-interval-ms:600000}",
+               initialDelayString = "${exercise.pool.demand.snapshot-interval-ms:600000}")
+    public void snapshot() {
+        if (states.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        double tau = timeConstantHours();
+        List<TemplateDemandSnapshot> snapshots = new ArrayList<>(states.size());
+        states.forEach((templateId, state) -> snapshots.add(TemplateDemandSnapshot.builder()
+                .exerciseTemplateId(templateId)
+                .requestRate(state.rateAt(now, tau))
+                .poolHits(state.hits.sum())
+                .poolMisses(state.misses.sum())
+                .lastRequestAt(state.lastRequestMillis > 0 ? toLocalDateTime(state.lastRequestMillis) : null)
+                .build()));
+
+        int saved = templateDemandRepository.saveSnapshots(snapshots);
+        log.debug("Snapshot de demanda guardado para {} plantillas", saved);
+    }
+
+    /**
+     * Restaura la demanda guardada y la siembra con las asignaciones actuales al iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        List<TemplateDemandSnapshot> snapshots = templateDemandRepository.findAllSnapshots();
+        for (TemplateDemandSnapshot snapshot : snapshots) {
+            // La tasa se guardó en updated_at; al leerla se aplica el decaimiento del tiempo sin servicio.
+            // La antigüedad la calcula la base de datos con su propio reloj (updated_at es GETDATE()),
+            // así no depende de que el reloj o la zona horaria de la aplicación coincidan
+            long now = System.currentTimeMillis();
+            long savedAt = snapshot.getAgeMs() != null ? now - Math.max(0L, snapshot.getAgeMs()) : now;
+            DemandState state = new DemandState(savedAt);
+            state.rate = snapshot.getRequestRate() != null ? snapshot.getRequestRate() : 0.0;
+            state.hits.add(snapshot.getPoolHits() != null ? snapshot.getPoolHits() : 0L);
+            state.misses.add(snapshot.getPoolMisses() != null ? snapshot.getPoolMisses() : 0L);
+            state.lastRequestMillis = snapshot.getLastRequestAt() != null ? toEpochMillis(snapshot.getLastRequestAt()) : 0L;
+            states.putIfAbsent(snapshot.getExerciseTemplateId(), state);
+        }
+        log.info("Demanda restaurada para {} plantillas", snapshots.size());
+
+        seedFromAssignments();
+    }
+
+    /**
+     * Siembra la demanda con los estudiantes cuyo learning point actual usa cada plantilla.
+     * Solo eleva la tasa (nunca la reduce), así plantillas recién asignadas no empiezan en cero.
+     */
+    @Scheduled(cron = "${exercise.pool.demand.seed.cron:0 30 5 * * *}")
+    public void seedFromAssignments() {
+        if (!seedEnabled) {
+            return;
+        }
+
+        Map<Integer, Integer> activeStudents = templateDemandRepository.countActiveStudentsByTemplate();
+        long now = System.currentTimeMillis();
+        double tau = timeConstantHours();
+        activeStudents.forEach((templateId, students) ->
+                states.computeIfAbsent(templateId, id -> new DemandState(now))
+                        .raiseTo(students * seedRequestsPerStudentHour, now, tau));
+
+        log.info("Demanda sembrada desde asignaciones para {} plantillas", activeStudents.size());
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    /**
+     * Constante de tiempo del decaimiento: tau = vida media / ln 2
+     */
+    private double timeConstantHours() {
+        return halfLifeHours / Math.log(2);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Estado de demanda de una plantilla.
+     * rate es la suma de exp(-(t - t_i)/tau)/tau sobre las solicitudes; con llegadas a tasa constante
+     * lambda converge a lambda (solicitudes/hora).
+     */
+    static final class DemandState {
+        private double rate;
+        private long lastUpdateMillis;
+        private volatile long lastRequestMillis;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        DemandState(long nowMillis) {
+            this.lastUpdateMillis = nowMillis;
+        }
+
+        synchronized void record(long nowMillis, double tauHours, boolean hit) {
+            rate = decayedRate(nowMillis, tauHours) + 1.0 / tauHours;
+            lastUpdateMillis = Math.max(lastUpdateMillis, nowMillis);
+            lastRequestMillis = nowMillis;
+            if (hit) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+        }
+
+        synchronized double rateAt(long nowMillis, double tauHours) {
+            return decayedRate(nowMillis, tauHours);
+        }
+
+        synchronized void raiseTo(double seedRate, long nowMillis, double tauHours) {
+            if (decayedRate(nowMillis, tauHours) < seedRate) {
+                rate = seedRate;
+                lastUpdateMillis = nowMillis;
+            }
+        }
+
+        private double decayedRate(long nowMillis, double tauHours) {
+            double elapsedHours = Math.max(0, nowMillis - lastUpdateMillis) / MILLIS_PER_HOUR;
+            return rate * Math.exp(-elapsedHours / tauHours);
+        }
+    }
+
+    /**
+     * Demanda pronosticada de una plantilla
+     */
+    @Getter
+    @Builder
+    public static class TemplateDemand {
+        private final Integer exerciseTemplateId;
+        private final double forecastRatePerHour;
+        private final int targetStock;
+        private final long poolHits;
+        private final long poolMisses;
+        private final double hitRate;
+    }
+}
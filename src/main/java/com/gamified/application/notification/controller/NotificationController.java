@@ -0,0 +1,132 @@
+package com.gamified.application.notification.controller;
+
+import com.gamified.application.auth.service.auth.TokenService;
+import com.gamified.application.notification.service.NotificationService;
+import com.gamified.application.notification.service.NotificationStreamService;
+import com.gamified.application.shared.util.AuthenticationUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controlador REST para notificaciones
+ */
+@RestController
+@RequestMapping("/notifications")
+public class NotificationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationController.class);
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    /**
+     * GET /api/notifications/stream - Canal SSE con las notificaciones in-app del usuario autenticado.
+     * Requiere el header Authorization (JwtAuthenticationFilter); el cliente se reconecta al expirar
+     * y, con Last-Event-ID, recibe las notificaciones publicadas mientras tanto.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(Authentication authentication, HttpServletRequest request,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Integer userId = resolveUserId(authentication, request);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        logger.debug("GET /api/notifications/stream - usuario {}", userId);
+
+        // Sin caché ni buffering de proxies intermedios (nginx) para que los eventos lleguen al momento
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .header("X-Accel-Buffering", "no")
+                .body(notificationStreamService.subscribe(userId, lastEventId));
+    }
+
+    /**
+     * GET /api/notifications/unread-count - No leídas del usuario autenticado (sin COUNT en la BD)
+     */
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Object>> getUnreadCount(Authentication authentication, HttpServletRequest request) {
+        Integer userId = resolveUserId(authentication, request);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        int unread = notificationService.getUnreadCount(userId);
+        if (unread < 0) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(Map.of("unreadCount", unread));
+    }
+
+    /**
+     * POST /api/notifications/read - Marca como leídas las notificaciones indicadas (lista de uids)
+     */
+    @PostMapping("/read")
+    public ResponseEntity<Map<String, Object>> markAsRead(Authentication authentication, HttpServletRequest request,
+                                                          @RequestBody List<String> notificationUids) {
+        Integer userId = resolveUserId(authentication, request);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        logger.debug("POST /api/notifications/read - usuario {}, {} notificaciones", userId, notificationUids.size());
+        int updated = notificationService.markAsRead(userId, notificationUids);
+        return ResponseEntity.ok(Map.of("updated", updated, "unreadCount", notificationService.getUnreadCount(userId)));
+    }
+
+    /**
+     * POST /api/notifications/read-all - Marca como leídas todas las notificaciones del usuario
+     */
+    @PostMapping("/read-all")
+    public ResponseEntity<Map<String, Object>> markAllAsRead(Authentication authentication, HttpServletRequest request) {
+        Integer userId = resolveUserId(authentication, request);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        logger.debug("POST /api/notifications/read-all - usuario {}", userId);
+        int updated = notificationService.markAllAsRead(userId);
+        return ResponseEntity.ok(Map.of("updated", updated, "unreadCount", 0));
+    }
+
+    /**
+     * Id del usuario autenticado tomado del claim userId del JWT, sin consultar la BD (el filtro JWT
+     * ya validó el token y que el usuario está activo). Solo los tokens sin ese claim lo buscan por email.
+     */
+    private Integer resolveUserId(Authentication authentication, HttpServletRequest request) {
+        if (authentication == null) {
+            return null;
+        }
+        String token = AuthenticationUtils.extractToken(request);
+        Long userId = token != null ? tokenService.extractUserId(token) : null;
+        if (userId != null) {
+            return userId.intValue();
+        }
+        return notificationService.findActiveUserIdByEmail(authentication.getName());
+    }
+}
@@ -0,0 +1,19 @@
+package com.gamified.application.notification.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estudiante sin actividad reciente, candidato a recordatorio
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InactiveStudent {
+    private Integer studentProfileId;
+    private Integer userId;
+    private Integer daysInactive;
+}
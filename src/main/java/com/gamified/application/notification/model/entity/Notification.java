@@ -1,6 +1,7 @@
 package com.gamified.application.notification.model.entity;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 /**
  * Entidad para notificaciones del sistema
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
  */
 public class Notification {
     private Integer id;
+    private String uid; // UUID generado en la aplicación (notification_uid)
     private Integer recipientUserId;
     private String recipientUserType; // STUDENT, TEACHER, ADMIN
     private String notificationType; // ACHIEVEMENT, REMINDER, ALERT, INFO, SYSTEM
@@ -56,6 +58,7 @@ public class Notification {
         this.showInApp = true;
         this.createdAt = LocalDateTime.now();
         this.scheduledFor = LocalDateTime.now();
+        this.uid = UUID.randomUUID().toString();
     }
 
     // Getters and Setters
@@ -67,6 +70,14 @@ public class Notification {
         this.id = id;
     }
 
+    public String getUid() {
+        return uid;
+    }
+
+    public void setUid(String uid) {
+        this.uid = uid;
+    }
+
     public Integer getRecipientUserId() {
         return recipientUserId;
     }
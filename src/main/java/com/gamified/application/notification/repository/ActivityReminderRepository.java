@@ -0,0 +1,20 @@
+package com.gamified.application.notification.repository;
+
+import com.gamified.application.notification.model.entity.InactiveStudent;
+
+import java.util.List;
+
+/**
+ * Repositorio de consultas de los recordatorios de actividad
+ */
+public interface ActivityReminderRepository {
+
+    /**
+     * Obtiene la siguiente página de estudiantes activos sin actividad reciente, en orden de id
+     * @param afterStudentProfileId Último id de la página anterior (0 para empezar)
+     * @param minDaysInactive Días mínimos sin actividad
+     * @param limit Tamaño de la página
+     * @return Página de estudiantes inactivos (vacía al terminar, null si falla la consulta)
+     */
+    List<InactiveStudent> findInactiveStudentsAfter(long afterStudentProfileId, int minDaysInactive, int limit);
+}
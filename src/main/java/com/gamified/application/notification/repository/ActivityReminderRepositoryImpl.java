@@ -0,0 +1,67 @@
+package com.gamified.application.notification.repository;
+
+import com.gamified.application.notification.model.entity.InactiveStudent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Implementación del repositorio de recordatorios de actividad usando NamedParameterJdbcTemplate
+ */
+@Repository
+@RequiredArgsConstructor
+public class ActivityReminderRepositoryImpl implements ActivityReminderRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public List<InactiveStudent> findInactiveStudentsAfter(long afterStudentProfileId, int minDaysInactive, int limit) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("after_id", afterStudentProfileId, Types.BIGINT);
+            parameters.addValue("min_days", minDaysInactive, Types.INTEGER);
+            parameters.addValue("limit", limit, Types.INTEGER);
+
+            // Paginación por clave sobre student_profile; la última actividad sale de student_activity
+            // (una fila por estudiante) en lugar de agregar exercise_attempt. El filtro compara la columna
+            // con una fecha de corte (puede usar IX_student_activity_last) en vez de aplicarle DATEDIFF:
+            // last_activity_at anterior al día (hoy - min_days + 1) equivale a DATEDIFF(DAY, ...) >= min_days.
+            // Quien no tiene fila en student_activity cuenta desde la creación del perfil.
+            String sql = """
+                SELECT TOP (:limit) student_profile_id, user_id,
+                       DATEDIFF(DAY, last_activity_at, GETDATE()) AS days_inactive
+                FROM (
+                    SELECT sp.id AS student_profile_id, sp.user_id, sa.last_activity_at
+                    FROM student_profile sp
+                    INNER JOIN student_activity sa ON sa.student_profile_id = sp.id
+                    WHERE sp.is_active = 1
+                      AND sp.id > :after_id
+                      AND sa.last_activity_at < DATEADD(DAY, 1 - :min_days, CAST(GETDATE() AS date))
+                    UNION ALL
+                    SELECT sp.id, sp.user_id, sp.created_at
+                    FROM student_profile sp
+                    WHERE sp.is_active = 1
+                      AND sp.id > :after_id
+                      AND sp.created_at < DATEADD(DAY, 1 - :min_days, CAST(GETDATE() AS date))
+                      AND NOT EXISTS (SELECT 1 FROM student_activity sa WHERE sa.student_profile_id = sp.id)
+                ) inactive
+                ORDER BY student_profile_id
+                """;
+
+            return namedParameterJdbcTemplate.query(sql, parameters, (rs, rowNum) ->
+                    InactiveStudent.builder()
+                            .studentProfileId(rs.getInt("student_profile_id"))
+                            .userId(rs.getInt("user_id"))
+                            .daysInactive(rs.getInt("days_inactive"))
+                            .build());
+        } catch (Exception e) {
+            // null y no lista vacía: el trabajo no debe confundir un fallo con el final del recorrido
+            System.err.println("Error al obtener estudiantes inactivos: " + e.getMessage());
+            return null;
+        }
+    }
+}
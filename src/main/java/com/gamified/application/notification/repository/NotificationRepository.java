@@ -0,0 +1,85 @@
+package com.gamified.application.notification.repository;
+
+import com.gamified.application.notification.model.entity.Notification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Repositorio de notificaciones persistidas
+ */
+public interface NotificationRepository {
+
+    /**
+     * Inserta un lote de notificaciones. Es idempotente por notification_uid: reintentar un lote
+     * ya insertado no duplica filas.
+     * @return Número de filas insertadas, o -1 si falló el lote
+     */
+    int insertBatch(List<Notification> notifications);
+
+    /**
+     * Actualiza el estado de entrega de un canal para un conjunto de notificaciones
+     * @param channel EMAIL o PUSH
+     * @param status SENT o FAILED
+     * @return Número de filas actualizadas, o -1 si falló la actualización
+     */
+    int updateDeliveryStatus(String channel, String status, List<String> notificationUids);
+
+    /**
+     * Marca como enviadas las notificaciones programadas indicadas que sigan pendientes y activas.
+     * La marca y la lectura son una sola sentencia: con varias instancias cada notificación la reclama solo una.
+     * @return Notificaciones reclamadas, o null si falló la actualización
+     */
+    List<Notification> claimScheduled(List<String> notificationUids);
+
+    /**
+     * Desactiva las notificaciones indicadas (caducadas)
+     * @return No leídas desactivadas por destinatario, o null si falló la actualización
+     */
+    Map<Integer, Integer> deactivate(List<String> notificationUids);
+
+    /**
+     * Desactiva de una vez todas las notificaciones activas cuya caducidad ya pasó
+     * @return Número de filas desactivadas, o -1 si falló la actualización
+     */
+    int deactivateExpired();
+
+    /**
+     * Recorre las notificaciones programadas aún no enviadas sin cargarlas todas en memoria.
+     * Cada elemento trae solo uid y scheduledFor.
+     * @return Número de filas recorridas, o -1 si falló la consulta
+     */
+    long forEachUnsent(Consumer<Notification> consumer);
+
+    /**
+     * Recorre las notificaciones activas con caducidad sin cargarlas todas en memoria.
+     * Cada elemento trae solo uid y expiresAt.
+     * @return Número de filas recorridas, o -1 si falló la consulta
+     */
+    long forEachExpiring(Consumer<Notification> consumer);
+
+    /**
+     * Cuenta las notificaciones no leídas visibles en la bandeja de un usuario
+     * @return Número de no leídas, o -1 si falló la consulta
+     */
+    int countUnread(Integer userId);
+
+    /**
+     * Cuenta las no leídas de varios usuarios en una consulta (los usuarios sin ninguna no aparecen)
+     * @return No leídas por usuario, o null si falló la consulta
+     */
+    Map<Integer, Integer> countUnreadByUsers(List<Integer> userIds);
+
+    /**
+     * Marca como leídas las notificaciones indicadas del usuario
+     * @return Número de filas que pasaron a leídas, o -1 si falló la actualización
+     */
+    int markAsRead(Integer userId, List<String> notificationUids);
+
+    /**
+     * Marca como leídas todas las notificaciones del usuario
+     * @return Número de filas que pasaron a leídas, o -1 si falló la actualización
+     */
+    int markAllAsRead(Integer userId);
+}
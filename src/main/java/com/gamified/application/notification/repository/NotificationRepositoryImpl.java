@@ -0,0 +1,358 @@
+package com.gamified.application.notification.repository;
+
+import com.gamified.application.notification.model.entity.Notification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Implementación del repositorio de notificaciones usando NamedParameterJdbcTemplate
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationRepositoryImpl implements NotificationRepository {
+
+    private static final int MAX_IN_PARAMETERS = 1000;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public int insertBatch(List<Notification> notifications) {
+        if (notifications == null || notifications.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // NOT EXISTS por uid: un lote reintentado tras un fallo parcial no duplica filas
+            String sql = """
+                INSERT INTO notification (
+                    notification_uid, recipient_user_id, recipient_user_type, notification_type, title, message,
+                    priority, related_entity_id, related_entity_type, action_url, is_read, is_active, read_at,
+                    expires_at, send_email, send_push, show_in_app, email_status, push_status, created_at,
+                    scheduled_for, sent_at
+                )
+                SELECT :uid, :recipient_user_id, :recipient_user_type, :notification_type, :title, :message,
+                       :priority, :related_entity_id, :related_entity_type, :action_url, :is_read, :is_active, :read_at,
+                       :expires_at, :send_email, :send_push, :show_in_app, :email_status, :push_status, :created_at,
+                       :scheduled_for, :sent_at
+                WHERE NOT EXISTS (SELECT 1 FROM notification WHERE notification_uid = :uid)
+                """;
+
+            MapSqlParameterSource[] batch = new MapSqlParameterSource[notifications.size()];
+            for (int i = 0; i < notifications.size(); i++) {
+                Notification notification = notifications.get(i);
+                MapSqlParameterSource parameters = new MapSqlParameterSource();
+                parameters.addValue("uid", notification.getUid(), Types.VARCHAR);
+                parameters.addValue("recipient_user_id", notification.getRecipientUserId(), Types.INTEGER);
+                parameters.addValue("recipient_user_type", notification.getRecipientUserType(), Types.VARCHAR);
+                parameters.addValue("notification_type", notification.getNotificationType(), Types.VARCHAR);
+                parameters.addValue("title", notification.getTitle(), Types.NVARCHAR);
+                parameters.addValue("message", notification.getMessage(), Types.NVARCHAR);
+                parameters.addValue("priority", notification.getPriority(), Types.VARCHAR);
+                parameters.addValue("related_entity_id", notification.getRelatedEntityId(), Types.INTEGER);
+                parameters.addValue("related_entity_type", notification.getRelatedEntityType(), Types.VARCHAR);
+                parameters.addValue("action_url", notification.getActionUrl(), Types.NVARCHAR);
+                parameters.addValue("is_read", Boolean.TRUE.equals(notification.getIsRead()), Types.BIT);
+                parameters.addValue("is_active", !Boolean.FALSE.equals(notification.getIsActive()), Types.BIT);
+                parameters.addValue("read_at", toTimestamp(notification.getReadAt()), Types.TIMESTAMP);
+                parameters.addValue("expires_at", toTimestamp(notification.getExpiresAt()), Types.TIMESTAMP);
+                parameters.addValue("send_email", Boolean.TRUE.equals(notification.getSendEmail()), Types.BIT);
+                parameters.addValue("send_push", Boolean.TRUE.equals(notification.getSendPush()), Types.BIT);
+                parameters.addValue("show_in_app", !Boolean.FALSE.equals(notification.getShowInApp()), Types.BIT);
+                parameters.addValue("email_status", notification.getEmailStatus(), Types.VARCHAR);
+                parameters.addValue("push_status", notification.getPushStatus(), Types.VARCHAR);
+                parameters.addValue("created_at", toTimestamp(notification.getCreatedAt() != null
+                        ? notification.getCreatedAt() : LocalDateTime.now()), Types.TIMESTAMP);
+                parameters.addValue("scheduled_for", toTimestamp(notification.getScheduledFor()), Types.TIMESTAMP);
+                parameters.addValue("sent_at", toTimestamp(notification.getSentAt()), Types.TIMESTAMP);
+                batch[i] = parameters;
+            }
+
+            int inserted = 0;
+            for (int result : namedParameterJdbcTemplate.batchUpdate(sql, batch)) {
+                inserted += Math.max(result, 0);
+            }
+            return inserted;
+        } catch (Exception e) {
+            System.err.println("Error al insertar lote de notificaciones: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public int updateDeliveryStatus(String channel, String status, List<String> notificationUids) {
+        if (notificationUids == null || notificationUids.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // La columna sale de una lista cerrada, nunca de la entrada
+            String column = "PUSH".equals(channel) ? "push_status" : "email_status";
+
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("status", status, Types.VARCHAR);
+            parameters.addValue("uids", notificationUids);
+
+            String sql = "UPDATE notification SET " + column + " = :status WHERE notification_uid IN (:uids)";
+
+            return namedParameterJdbcTemplate.update(sql, parameters);
+        } catch (Exception e) {
+            System.err.println("Error al actualizar estado de entrega de notificaciones: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public List<Notification> claimScheduled(List<String> notificationUids) {
+        if (notificationUids == null || notificationUids.isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            String sql = """
+                UPDATE notification
+                SET sent_at = GETDATE()
+                OUTPUT inserted.id, inserted.notification_uid, inserted.recipient_user_id, inserted.recipient_user_type,
+                       inserted.notification_type, inserted.title, inserted.message, inserted.priority,
+                       inserted.related_entity_id, inserted.related_entity_type, inserted.action_url,
+                       inserted.expires_at, inserted.send_email, inserted.send_push, inserted.show_in_app,
+                       inserted.created_at, inserted.scheduled_for, inserted.sent_at
+                WHERE notification_uid IN (:uids) AND sent_at IS NULL AND is_active = 1
+                """;
+
+            MapSqlParameterSource parameters = new MapSqlParameterSource("uids", notificationUids);
+            return namedParameterJdbcTemplate.query(sql, parameters, (rs, rowNum) -> mapClaimed(rs));
+        } catch (Exception e) {
+            System.err.println("Error al reclamar notificaciones programadas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> deactivate(List<String> notificationUids) {
+        Map<Integer, Integer> unreadByUser = new HashMap<>();
+        if (notificationUids == null || notificationUids.isEmpty()) {
+            return unreadByUser;
+        }
+
+        try {
+            // OUTPUT devuelve qué no leídas desaparecen de cada bandeja para ajustar los contadores
+            String sql = """
+                UPDATE notification
+                SET is_active = 0
+                OUTPUT inserted.recipient_user_id,
+                       CASE WHEN inserted.is_read = 0 AND inserted.show_in_app = 1 AND inserted.sent_at IS NOT NULL
+                            THEN 1 ELSE 0 END AS was_unread
+                WHERE notification_uid IN (:uids) AND is_active = 1
+                """;
+
+            namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource("uids", notificationUids), rs -> {
+                unreadByUser.merge(rs.getInt("recipient_user_id"), rs.getInt("was_unread"), Integer::sum);
+            });
+            return unreadByUser;
+        } catch (Exception e) {
+            System.err.println("Error al desactivar notificaciones caducadas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int deactivateExpired() {
+        try {
+            String sql = "UPDATE notification SET is_active = 0 WHERE is_active = 1 AND expires_at <= GETDATE()";
+            return namedParameterJdbcTemplate.update(sql, new MapSqlParameterSource());
+        } catch (Exception e) {
+            System.err.println("Error al desactivar notificaciones caducadas: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public long forEachUnsent(Consumer<Notification> consumer) {
+        try {
+            String sql = """
+                SELECT notification_uid, scheduled_for
+                FROM notification
+                WHERE sent_at IS NULL AND is_active = 1
+                """;
+
+            long[] count = new long[1];
+            namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource(), rs -> {
+                Notification notification = new Notification();
+                notification.setUid(rs.getString("notification_uid"));
+                notification.setScheduledFor(toLocalDateTime(rs.getTimestamp("scheduled_for")));
+                consumer.accept(notification);
+                count[0]++;
+            });
+            return count[0];
+        } catch (Exception e) {
+            System.err.println("Error al recorrer notificaciones programadas: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public long forEachExpiring(Consumer<Notification> consumer) {
+        try {
+            String sql = """
+                SELECT notification_uid, expires_at
+                FROM notification
+                WHERE is_active = 1 AND expires_at IS NOT NULL
+                """;
+
+            long[] count = new long[1];
+            namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource(), rs -> {
+                Notification notification = new Notification();
+                notification.setUid(rs.getString("notification_uid"));
+                notification.setExpiresAt(toLocalDateTime(rs.getTimestamp("expires_at")));
+                consumer.accept(notification);
+                count[0]++;
+            });
+            return count[0];
+        } catch (Exception e) {
+            System.err.println("Error al recorrer notificaciones con caducidad: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public int countUnread(Integer userId) {
+        try {
+            String sql = """
+                SELECT COUNT(*)
+                FROM notification
+                WHERE recipient_user_id = :user_id AND is_read = 0 AND is_active = 1
+                  AND show_in_app = 1 AND sent_at IS NOT NULL
+                """;
+
+            Integer count = namedParameterJdbcTemplate.queryForObject(sql,
+                    new MapSqlParameterSource("user_id", userId), Integer.class);
+            return count != null ? count : 0;
+        } catch (Exception e) {
+            System.err.println("Error al contar notificaciones no leídas: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> countUnreadByUsers(List<Integer> userIds) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return counts;
+        }
+
+        try {
+            String sql = """
+                SELECT recipient_user_id, COUNT(*) AS unread
+                FROM notification
+                WHERE recipient_user_id IN (:user_ids) AND is_read = 0 AND is_active = 1
+                  AND show_in_app = 1 AND sent_at IS NOT NULL
+                GROUP BY recipient_user_id
+                """;
+
+            namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource("user_ids", userIds), rs -> {
+                counts.put(rs.getInt("recipient_user_id"), rs.getInt("unread"));
+            });
+            return counts;
+        } catch (Exception e) {
+            System.err.println("Error al contar notificaciones no leídas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int markAsRead(Integer userId, List<String> notificationUids) {
+        if (notificationUids == null || notificationUids.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // Mismo filtro que countUnread: solo cuenta lo que estaba en el contador
+            String sql = """
+                UPDATE notification
+                SET is_read = 1, read_at = GETDATE()
+                WHERE recipient_user_id = :user_id AND notification_uid IN (:uids)
+                  AND is_read = 0 AND is_active = 1 AND show_in_app = 1 AND sent_at IS NOT NULL
+                """;
+
+            // SQL Server admite como máximo 2100 parámetros por sentencia: la lista IN va por bloques
+            int updated = 0;
+            for (int from = 0; from < notificationUids.size(); from += MAX_IN_PARAMETERS) {
+                MapSqlParameterSource parameters = new MapSqlParameterSource();
+                parameters.addValue("user_id", userId);
+                parameters.addValue("uids", notificationUids.subList(from,
+                        Math.min(from + MAX_IN_PARAMETERS, notificationUids.size())));
+                updated += namedParameterJdbcTemplate.update(sql, parameters);
+            }
+            return updated;
+        } catch (Exception e) {
+            System.err.println("Error al marcar notificaciones como leídas: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public int markAllAsRead(Integer userId) {
+        try {
+            String sql = """
+                UPDATE notification
+                SET is_read = 1, read_at = GETDATE()
+                WHERE recipient_user_id = :user_id AND is_read = 0 AND is_active = 1
+                  AND show_in_app = 1 AND sent_at IS NOT NULL
+                """;
+
+            return namedParameterJdbcTemplate.update(sql, new MapSqlParameterSource("user_id", userId));
+        } catch (Exception e) {
+            System.err.println("Error al marcar notificaciones como leídas: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private Notification mapClaimed(ResultSet rs) throws SQLException {
+        Notification notification = new Notification();
+        notification.setId(rs.getInt("id"));
+        notification.setUid(rs.getString("notification_uid"));
+        notification.setRecipientUserId(rs.getInt("recipient_user_id"));
+        notification.setRecipientUserType(rs.getString("recipient_user_type"));
+        notification.setNotificationType(rs.getString("notification_type"));
+        notification.setTitle(rs.getString("title"));
+        notification.setMessage(rs.getString("message"));
+        notification.setPriority(rs.getString("priority"));
+        notification.setRelatedEntityId((Integer) rs.getObject("related_entity_id"));
+        notification.setRelatedEntityType(rs.getString("related_entity_type"));
+        notification.setActionUrl(rs.getString("action_url"));
+        notification.setIsRead(false);
+        notification.setIsActive(true);
+        notification.setExpiresAt(toLocalDateTime(rs.getTimestamp("expires_at")));
+        notification.setSendEmail(rs.getBoolean("send_email"));
+        notification.setSendPush(rs.getBoolean("send_push"));
+        notification.setShowInApp(rs.getBoolean("show_in_app"));
+        notification.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        notification.setScheduledFor(toLocalDateTime(rs.getTimestamp("scheduled_for")));
+        notification.setSentAt(toLocalDateTime(rs.getTimestamp("sent_at")));
+        return notification;
+    }
+
+    private LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+}
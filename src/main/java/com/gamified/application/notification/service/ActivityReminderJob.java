@@ -0,0 +1,272 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.InactiveStudent;
+import com.gamified.application.notification.repository.ActivityReminderRepository;
+import com.gamified.application.progress.service.StudentActivityTracker;
+import com.gamified.application.shared.model.entity.JobCheckpoint;
+import com.gamified.application.shared.repository.JobCheckpointRepository;
+import com.gamified.application.shared.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Recordatorios masivos a estudiantes inactivos.
+ * Recorre los estudiantes por páginas ordenadas por id (keyset), de modo que la memoria no crece con
+ * el número de estudiantes; cada página se envía en lotes paralelos limitados por una cubeta de tokens
+ * y, al terminarla, se guarda en job_checkpoint el último id hasta el que todos los recordatorios se
+ * entregaron. Si un envío falla la ejecución se detiene ahí y la siguiente continúa desde ese estudiante
+ * (los ya entregados después de él en la misma página se reenvían: entrega al menos una vez). Un
+ * estudiante que vuelve a fallar al reanudar se omite para no bloquear al resto.
+ */
+@Service
+public class ActivityReminderJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityReminderJob.class);
+
+    static final String JOB_NAME = "activity-reminders";
+
+    @Autowired
+    private ActivityReminderRepository activityReminderRepository;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private StudentActivityTracker studentActivityTracker;
+
+    @Value("${notification.reminders.min-inactive-days:3}")
+    private int minInactiveDays;
+
+    @Value("${notification.reminders.page-size:500}")
+    private int pageSize;
+
+    @Value("${notification.reminders.batch-size:50}")
+    private int batchSize;
+
+    @Value("${notification.reminders.parallelism:4}")
+    private int parallelism;
+
+    @Value("${notification.reminders.rate-per-minute:6000}")
+    private long ratePerMinute;
+
+    @Value("${notification.reminders.resume-window-hours:12}")
+    private long resumeWindowHours;
+
+    private ExecutorService dispatchExecutor;
+    private TokenBucket rateLimiter;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopping;
+    // Estudiante en el que se detuvo la última ejecución por un envío fallido
+    private volatile Integer lastFailedStudentId;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        dispatchExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "activity-reminder-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        rateLimiter = new TokenBucket(ratePerMinute);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // La página en curso se termina; el progreso queda RUNNING y se reanuda en la siguiente ejecución
+        stopping = true;
+        dispatchExecutor.shutdown();
+    }
+
+    /**
+     * Envía un recordatorio a cada estudiante inactivo, reanudando una ejecución interrumpida si la hay
+     * @param sender Envío de un recordatorio (userId, días sin actividad)
+     * @return Reporte de la ejecución
+     */
+    public Map<String, Object> run(ObjIntConsumer<Integer> sender) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        if (!running.compareAndSet(false, true)) {
+            report.put("status", "ALREADY_RUNNING");
+            return report;
+        }
+
+        long start = System.nanoTime();
+        try {
+            // La actividad de los últimos segundos puede estar aún solo en memoria
+            studentActivityTracker.flush();
+            JobCheckpoint checkpoint = startOrResume();
+            report.put("resumed_from", checkpoint.getLastKey());
+
+            int pages = 0;
+            int sent = 0;
+            int failed = 0;
+            while (!stopping) {
+                List<InactiveStudent> page = activityReminderRepository.findInactiveStudentsAfter(
+                        checkpoint.getLastKey(), minInactiveDays, pageSize);
+                if (page == null) {
+                    report.put("status", "INTERRUPTED");
+                    break;
+                }
+                if (page.isEmpty()) {
+                    checkpoint.setStatus(JobCheckpoint.COMPLETED);
+                    jobCheckpointRepository.save(checkpoint);
+                    report.put("status", JobCheckpoint.COMPLETED);
+                    break;
+                }
+
+                boolean[] delivered = dispatchPage(page, sender);
+                int pageSent = 0;
+                for (boolean ok : delivered) {
+                    pageSent += ok ? 1 : 0;
+                }
+                sent += pageSent;
+                failed += page.size() - pageSent;
+                pages++;
+
+                // El checkpoint solo avanza hasta el último estudiante antes del primer envío fallido
+                int advance = deliveredPrefix(page, delivered);
+                if (advance > 0) {
+                    checkpoint.setLastKey((long) page.get(advance - 1).getStudentProfileId());
+                    checkpoint.setProcessed(checkpoint.getProcessed() + advance);
+                    jobCheckpointRepository.save(checkpoint);
+                }
+                if (advance < page.size()) {
+                    lastFailedStudentId = page.get(advance).getStudentProfileId();
+                    logger.warn("Recordatorios masivos detenidos en el estudiante {}: se reanudarán desde ahí",
+                            lastFailedStudentId);
+                    report.put("status", "INTERRUPTED");
+                    break;
+                }
+                lastFailedStudentId = null;
+            }
+            report.putIfAbsent("status", "STOPPED");
+
+            report.put("pages", pages);
+            report.put("sent", sent);
+            report.put("failed", failed);
+            report.put("processed_total", checkpoint.getProcessed());
+        } catch (Exception e) {
+            logger.error("Error en los recordatorios masivos: {}", e.getMessage());
+            report.put("status", "FAILED");
+            report.put("error", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+
+        report.put("duration_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info("Recordatorios masivos: {}", report);
+        return report;
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    /**
+     * Continúa la ejecución anterior si quedó a medias hace poco; si no, empieza desde el principio
+     */
+    private JobCheckpoint startOrResume() {
+        LocalDateTime now = LocalDateTime.now();
+        JobCheckpoint previous = jobCheckpointRepository.findByJobName(JOB_NAME).orElse(null);
+        if (previous != null && JobCheckpoint.RUNNING.equals(previous.getStatus())
+                && previous.getStartedAt().isAfter(now.minusHours(resumeWindowHours))) {
+            logger.info("Reanudando recordatorios masivos desde el estudiante {} ({} ya procesados)",
+                    previous.getLastKey(), previous.getProcessed());
+            return previous;
+        }
+
+        JobCheckpoint checkpoint = JobCheckpoint.builder()
+                .jobName(JOB_NAME)
+                .lastKey(0L)
+                .processed(0L)
+                .status(JobCheckpoint.RUNNING)
+                .startedAt(now)
+                .build();
+        jobCheckpointRepository.save(checkpoint);
+        return checkpoint;
+    }
+
+    /**
+     * Estudiantes de la página, desde el principio, que el checkpoint puede dejar atrás: los entregados
+     * hasta el primer fallo. Si el primer fallo es el mismo estudiante en el que se detuvo la ejecución
+     * anterior, se da por perdido y se sigue hasta el siguiente fallo.
+     */
+    private int deliveredPrefix(List<InactiveStudent> page, boolean[] delivered) {
+        int advance = 0;
+        while (advance < page.size()) {
+            if (!delivered[advance]) {
+                Integer studentId = page.get(advance).getStudentProfileId();
+                if (!studentId.equals(lastFailedStudentId)) {
+                    break;
+                }
+                logger.error("El recordatorio del estudiante {} volvió a fallar al reanudar: se omite", studentId);
+                lastFailedStudentId = null;
+            }
+            advance++;
+        }
+        return advance;
+    }
+
+    /**
+     * Envía una página en lotes paralelos y espera a que terminen todos
+     * @return Por posición en la página, si el recordatorio se entregó
+     */
+    private boolean[] dispatchPage(List<InactiveStudent> page, ObjIntConsumer<Integer> sender) throws InterruptedException {
+        boolean[] delivered = new boolean[page.size()];
+        List<Callable<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < page.size(); from += batchSize) {
+            int batchFrom = from;
+            int batchTo = Math.min(from + batchSize, page.size());
+            batches.add(() -> {
+                dispatchBatch(page, batchFrom, batchTo, delivered, sender);
+                return null;
+            });
+        }
+
+        // invokeAll espera a todos los lotes: sus escrituras en delivered son visibles al volver
+        for (Future<Void> future : dispatchExecutor.invokeAll(batches)) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                logger.warn("Error en un lote de recordatorios: {}", e.getMessage());
+            }
+        }
+        return delivered;
+    }
+
+    private void dispatchBatch(List<InactiveStudent> page, int from, int to, boolean[] delivered,
+                               ObjIntConsumer<Integer> sender) {
+        for (int i = from; i < to; i++) {
+            InactiveStudent student = page.get(i);
+            // Espera a que haya token: el ritmo global lo marca rate-per-minute, no el número de hilos
+            while (!rateLimiter.tryConsume(1)) {
+                LockSupport.parkNanos(rateLimiter.nanosUntilAvailable(1, 0));
+            }
+            try {
+                sender.accept(student.getUserId(), student.getDaysInactive());
+                delivered[i] = true;
+            } catch (Exception e) {
+                logger.warn("Error enviando recordatorio a estudiante {}: {}", student.getUserId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import com.gamified.application.shared.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Agrupación de notificaciones y límite por usuario.
+ * La primera notificación de un (destinatario, tipo) pasa al momento y abre una ventana; las que
+ * lleguen durante la ventana se acumulan y al cerrarla se envían como una sola notificación resumen.
+ * Cada usuario tiene además una cubeta de tokens: si la agota, lo acumulado espera al siguiente token.
+ * Las notificaciones URGENT no se agrupan ni se limitan.
+ */
+@Component
+@DependsOn("notificationWriter") // Al apagar, lo acumulado se emite antes de que se detenga el escritor
+public class NotificationCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationCoalescer.class);
+
+    private static final int DIGEST_MAX_LINES = 5;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.coalesce.window-ms:10000}")
+    private long windowMs;
+
+    @Value("${notification.coalesce.max-batch:50}")
+    private int maxBatch;
+
+    @Value("${notification.rate-limit.per-user-per-minute:20}")
+    private long perUserPerMinute;
+
+    @Value("${notification.rate-limit.max-users:100000}")
+    private int maxUsers;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final Map<Integer, TokenBucket> userBuckets = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, TokenBucket> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    private ScheduledExecutorService scheduler;
+    private Counter coalesced;
+    private Counter rateLimited;
+
+    @PostConstruct
+    void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        coalesced = Counter.builder("notification.coalesced")
+                .description("Notificaciones absorbidas en un resumen")
+                .register(meterRegistry);
+        rateLimited = Counter.builder("notification.rate.limited")
+                .description("Envíos diferidos por el límite por usuario")
+                .register(meterRegistry);
+        Gauge.builder("notification.coalesce.windows", windows, Map::size)
+                .description("Ventanas de agrupación abiertas")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        // Lo acumulado se emite sin esperar a la ventana ni al límite
+        for (String key : new ArrayList<>(windows.keySet())) {
+            Window window = windows.remove(key);
+            if (window != null && !window.buffered.isEmpty()) {
+                emit(window.buffered, window.sink);
+            }
+        }
+    }
+
+    /**
+     * Entrega la notificación a sink ahora (si no hay ventana abierta y quedan tokens) o la acumula
+     * para el resumen de la ventana en curso
+     */
+    public void offer(Notification notification, Consumer<Notification> sink) {
+        if ("URGENT".equals(notification.getPriority())) {
+            sink.accept(notification);
+            return;
+        }
+
+        String key = notification.getRecipientUserId() + ":" + notification.getNotificationType();
+        boolean[] passNow = new boolean[1];
+        boolean[] flushNow = new boolean[1];
+
+        windows.compute(key, (k, window) -> {
+            if (window == null) {
+                Window opened = new Window(sink);
+                if (tryAcquire(notification.getRecipientUserId())) {
+                    passNow[0] = true;
+                } else {
+                    opened.buffered.add(notification);
+                    rateLimited.increment();
+                }
+                scheduleFlush(key, windowMs);
+                return opened;
+            }
+            window.buffered.add(notification);
+            flushNow[0] = window.buffered.size() >= maxBatch;
+            return window;
+        });
+
+        if (passNow[0]) {
+            sink.accept(notification);
+        } else if (flushNow[0]) {
+            scheduleFlush(key, 0);
+        }
+    }
+
+    /**
+     * Combina notificaciones del mismo destinatario y tipo en una sola
+     */
+    static Notification buildDigest(List<Notification> notifications) {
+        Notification first = notifications.get(0);
+        Notification last = notifications.get(notifications.size() - 1);
+        if (notifications.size() == 1 || "REMINDER".equals(first.getNotificationType())) {
+            // Varios recordatorios seguidos dicen lo mismo: basta con el más reciente
+            return last;
+        }
+
+        int count = notifications.size();
+        String title = switch (first.getNotificationType()) {
+            case "ACHIEVEMENT" -> String.format("¡Desbloqueaste %d logros nuevos!", count);
+            case "ALERT" -> String.format("%d estudiantes requieren atención", count);
+            default -> String.format("Tienes %d notificaciones nuevas", count);
+        };
+
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < Math.min(count, DIGEST_MAX_LINES); i++) {
+            if (i > 0) {
+                message.append('\n');
+            }
+            message.append(notifications.get(i).getMessage());
+        }
+        if (count > DIGEST_MAX_LINES) {
+            message.append(String.format("%n…y %d más", count - DIGEST_MAX_LINES));
+        }
+
+        Notification digest = new Notification(first.getRecipientUserId(), first.getRecipientUserType(),
+                first.getNotificationType(), title, message.toString(), highestPriority(notifications));
+
+        boolean sameUrl = notifications.stream().allMatch(n -> Objects.equals(n.getActionUrl(), first.getActionUrl()));
+        boolean sameEntityType = notifications.stream().allMatch(n -> Objects.equals(n.getRelatedEntityType(), first.getRelatedEntityType()));
+        digest.setActionUrl(sameUrl ? first.getActionUrl() : "/dashboard");
+        digest.setRelatedEntityType(sameEntityType ? first.getRelatedEntityType() : null);
+        digest.setSendEmail(notifications.stream().anyMatch(n -> Boolean.TRUE.equals(n.getSendEmail())));
+        digest.setSendPush(notifications.stream().anyMatch(n -> Boolean.TRUE.equals(n.getSendPush())));
+        digest.setShowInApp(notifications.stream().anyMatch(n -> !Boolean.FALSE.equals(n.getShowInApp())));
+
+        // Caduca con la última que caduque (o nunca si alguna no caduca)
+        LocalDateTime expiresAt = null;
+        for (Notification notification : notifications) {
+            if (notification.getExpiresAt() == null) {
+                expiresAt = null;
+                break;
+            }
+            if (expiresAt == null || notification.getExpiresAt().isAfter(expiresAt)) {
+                expiresAt = notification.getExpiresAt();
+            }
+        }
+        digest.setExpiresAt(expiresAt);
+        return digest;
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void scheduleFlush(String key, long delayMs) {
+        try {
+            scheduler.schedule(() -> flush(key), delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.warn("No se pudo programar el cierre de la ventana {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Cierra la ventana: emite lo acumulado si hay token, o la mantiene abierta hasta el siguiente
+     */
+    private void flush(String key) {
+        List<List<Notification>> toEmit = new ArrayList<>(1);
+        List<Consumer<Notification>> sinks = new ArrayList<>(1);
+
+        windows.compute(key, (k, window) -> {
+            if (window == null || window.buffered.isEmpty()) {
+                return null;
+            }
+            Integer userId = window.buffered.get(0).getRecipientUserId();
+            if (!tryAcquire(userId)) {
+                rateLimited.increment();
+                scheduleFlush(key, Math.max(windowMs, TimeUnit.NANOSECONDS.toMillis(nanosUntilToken(userId))));
+                return window;
+            }
+            toEmit.add(window.buffered);
+            sinks.add(window.sink);
+            return null;
+        });
+
+        if (!toEmit.isEmpty()) {
+            emit(toEmit.get(0), sinks.get(0));
+        }
+    }
+
+    private void emit(List<Notification> buffered, Consumer<Notification> sink) {
+        if (buffered.size() > 1) {
+            coalesced.increment(buffered.size() - 1);
+        }
+        try {
+            sink.accept(buildDigest(buffered));
+        } catch (Exception e) {
+            logger.error("Error emitiendo {} notificaciones agrupadas para usuario {}: {}",
+                    buffered.size(), buffered.get(0).getRecipientUserId(), e.getMessage());
+        }
+    }
+
+    private boolean tryAcquire(Integer userId) {
+        return bucket(userId).tryConsume(1);
+    }
+
+    private long nanosUntilToken(Integer userId) {
+        return bucket(userId).nanosUntilAvailable(1, 0);
+    }
+
+    private TokenBucket bucket(Integer userId) {
+        synchronized (userBuckets) {
+            return userBuckets.computeIfAbsent(userId, id -> new TokenBucket(perUserPerMinute));
+        }
+    }
+
+    private static String highestPriority(List<Notification> notifications) {
+        List<String> order = List.of("LOW", "MEDIUM", "HIGH", "URGENT");
+        String highest = "LOW";
+        for (Notification notification : notifications) {
+            if (order.indexOf(notification.getPriority()) > order.indexOf(highest)) {
+                highest = notification.getPriority();
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Ventana abierta de un (destinatario, tipo)
+     */
+    private static class Window {
+        private final Consumer<Notification> sink;
+        private final List<Notification> buffered = new ArrayList<>();
+
+        Window(Consumer<Notification> sink) {
+            this.sink = sink;
+        }
+    }
+}
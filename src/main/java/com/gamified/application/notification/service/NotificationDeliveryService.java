@@ -0,0 +1,195 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entrega de notificaciones por email y push.
+ * Cada canal tiene su propio pool acotado (hilos y cola): un proveedor de email lento no retrasa
+ * los push ni bloquea al escritor. Los fallos se reintentan con backoff exponencial programado,
+ * sin ocupar un hilo del pool mientras se espera. El resultado final se registra vía NotificationWriter.
+ */
+@Component
+public class NotificationDeliveryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDeliveryService.class);
+
+    static final String EMAIL = "EMAIL";
+    static final String PUSH = "PUSH";
+
+    @Autowired
+    private NotificationWriter notificationWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.delivery.email.threads:4}")
+    private int emailThreads;
+
+    @Value("${notification.delivery.email.queue-capacity:1000}")
+    private int emailQueueCapacity;
+
+    @Value("${notification.delivery.push.threads:4}")
+    private int pushThreads;
+
+    @Value("${notification.delivery.push.queue-capacity:2000}")
+    private int pushQueueCapacity;
+
+    @Value("${notification.delivery.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${notification.delivery.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private ThreadPoolExecutor emailExecutor;
+    private ThreadPoolExecutor pushExecutor;
+    private ScheduledExecutorService retryScheduler;
+
+    @PostConstruct
+    void init() {
+        emailExecutor = boundedPool("notification-email", emailThreads, emailQueueCapacity);
+        pushExecutor = boundedPool("notification-push", pushThreads, pushQueueCapacity);
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-delivery-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        retryScheduler.shutdownNow();
+        emailExecutor.shutdown();
+        pushExecutor.shutdown();
+    }
+
+    /**
+     * Programa la entrega por los canales externos que tenga activos la notificación.
+     * Se llama cuando la notificación ya está persistida.
+     */
+    public void dispatch(Notification notification) {
+        if (Boolean.TRUE.equals(notification.getSendEmail())) {
+            submit(EMAIL, notification, 1);
+        }
+        if (Boolean.TRUE.equals(notification.getSendPush())) {
+            submit(PUSH, notification, 1);
+        }
+    }
+
+    /**
+     * Envía el email de la notificación (package-private para sustituir el proveedor en los tests)
+     */
+    void sendEmail(Notification notification) throws Exception {
+        // Simular envío de email hasta integrar el proveedor
+        Thread.sleep(100);
+        logger.info("Email enviado exitosamente a usuario {}", notification.getRecipientUserId());
+    }
+
+    /**
+     * Envía el push de la notificación (package-private para sustituir el proveedor en los tests)
+     */
+    void sendPush(Notification notification) throws Exception {
+        // Simular envío de push hasta integrar el proveedor
+        Thread.sleep(50);
+        logger.info("Push enviado exitosamente a usuario {}", notification.getRecipientUserId());
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void submit(String channel, Notification notification, int attempt) {
+        try {
+            (EMAIL.equals(channel) ? emailExecutor : pushExecutor).execute(() -> deliver(channel, notification, attempt));
+        } catch (RejectedExecutionException e) {
+            // Cola del canal llena (o pool detenido): no se bloquea al escritor
+            logger.warn("Cola de {} llena, no se entrega la notificación {}", channel, notification.getUid());
+            complete(channel, notification, "FAILED", "rejected");
+        }
+    }
+
+    private void deliver(String channel, Notification notification, int attempt) {
+        long start = System.nanoTime();
+        try {
+            if (EMAIL.equals(channel)) {
+                sendEmail(notification);
+            } else {
+                sendPush(notification);
+            }
+            recordDuration(channel, start, "success");
+            complete(channel, notification, "SENT", "sent");
+        } catch (Exception e) {
+            recordDuration(channel, start, "failure");
+            if (attempt < maxAttempts) {
+                long delay = retryBackoffMs * (1L << (attempt - 1));
+                logger.warn("Error enviando {} a usuario {} (intento {}), reintento en {} ms: {}",
+                        channel, notification.getRecipientUserId(), attempt, delay, e.getMessage());
+                countOutcome(channel, "retried");
+                try {
+                    retryScheduler.schedule(() -> submit(channel, notification, attempt + 1), delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException rejected) {
+                    complete(channel, notification, "FAILED", "failed");
+                }
+            } else {
+                logger.error("Error enviando {} a usuario {} tras {} intentos: {}",
+                        channel, notification.getRecipientUserId(), attempt, e.getMessage());
+                complete(channel, notification, "FAILED", "failed");
+            }
+        }
+    }
+
+    private void complete(String channel, Notification notification, String status, String outcome) {
+        if (EMAIL.equals(channel)) {
+            notification.setEmailStatus(status);
+        } else {
+            notification.setPushStatus(status);
+        }
+        notificationWriter.enqueueStatusUpdate(notification.getUid(), channel, status);
+        countOutcome(channel, outcome);
+    }
+
+    private void countOutcome(String channel, String outcome) {
+        Counter.builder("notification.delivery")
+                .description("Entregas de notificaciones por canal y resultado")
+                .tag("channel", channel.toLowerCase())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void recordDuration(String channel, long startNanos, String outcome) {
+        Timer.builder("notification.delivery.duration")
+                .description("Duración de cada intento de entrega")
+                .tag("channel", channel.toLowerCase())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private ThreadPoolExecutor boundedPool(String name, int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,228 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import com.gamified.application.notification.repository.NotificationRepository;
+import com.gamified.application.shared.util.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Temporizador de notificaciones programadas (scheduledFor) y con caducidad (expiresAt).
+ * Solo guarda en memoria el uid de cada notificación dentro de una rueda jerárquica: programar y
+ * disparar cuesta O(1) y un único hilo duerme hasta el siguiente vencimiento, sin consultar la BD
+ * periódicamente. Al vencer, las entregas se reclaman en la BD (sent_at) y se envían; las caducadas
+ * se desactivan y se descuentan del contador de no leídas. Al arrancar se recargan desde la tabla
+ * las pendientes que hubiera.
+ */
+@Service
+public class NotificationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationScheduler.class);
+
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private NotificationDeliveryService notificationDeliveryService;
+
+    @Autowired
+    private UnreadCountService unreadCountService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.scheduler.tick-ms:1}")
+    private long tickMs;
+
+    @Value("${notification.scheduler.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${notification.scheduler.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notification.scheduler.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    private HierarchicalTimingWheel<Task> wheel;
+    private Thread timerThread;
+    private volatile boolean running = true;
+    private Counter delivered;
+    private Counter expired;
+
+    @PostConstruct
+    void init() {
+        wheel = new HierarchicalTimingWheel<>(tickMs, wheelSize);
+
+        Gauge.builder("notification.scheduler.pending", wheel, HierarchicalTimingWheel::size)
+                .description("Entregas y caducidades programadas en memoria")
+                .register(meterRegistry);
+        delivered = Counter.builder("notification.scheduler.fired")
+                .tag("kind", "deliver")
+                .description("Notificaciones programadas entregadas")
+                .register(meterRegistry);
+        expired = Counter.builder("notification.scheduler.fired")
+                .tag("kind", "expire")
+                .description("Notificaciones desactivadas por caducidad")
+                .register(meterRegistry);
+
+        timerThread = new Thread(this::runTimer, "notification-scheduler");
+        timerThread.setDaemon(true);
+        timerThread.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Lo pendiente sigue en la BD (sent_at NULL / is_active = 1) y se recarga al arrancar
+        running = false;
+        timerThread.interrupt();
+    }
+
+    /**
+     * Programa la entrega de una notificación ya persistida sin enviar
+     */
+    public void scheduleDelivery(String notificationUid, LocalDateTime scheduledFor) {
+        wheel.schedule(delayUntil(scheduledFor), new Task(notificationUid, false));
+    }
+
+    /**
+     * Programa la desactivación de una notificación ya persistida al llegar su caducidad
+     */
+    public void scheduleExpiry(String notificationUid, LocalDateTime expiresAt) {
+        if (expiresAt != null) {
+            wheel.schedule(delayUntil(expiresAt), new Task(notificationUid, true));
+        }
+    }
+
+    /**
+     * Entregas y caducidades programadas en memoria
+     */
+    public long getPendingCount() {
+        return wheel.size();
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void runTimer() {
+        rehydrate();
+
+        List<String> dueDeliveries = new ArrayList<>();
+        List<String> dueExpiries = new ArrayList<>();
+        while (running) {
+            try {
+                wheel.advance(POLL_TIMEOUT_MS, task -> (task.expiry ? dueExpiries : dueDeliveries).add(task.uid));
+                if (!dueDeliveries.isEmpty()) {
+                    deliver(dueDeliveries);
+                    dueDeliveries.clear();
+                }
+                if (!dueExpiries.isEmpty()) {
+                    expire(dueExpiries);
+                    dueExpiries.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Error en el temporizador de notificaciones: {}", e.getMessage());
+                dueDeliveries.clear();
+                dueExpiries.clear();
+            }
+        }
+    }
+
+    /**
+     * Carga en la rueda lo pendiente en la BD: entregas sin enviar y caducidades futuras.
+     * Lo que venció mientras la aplicación estaba detenida se dispara en el primer ciclo.
+     */
+    private void rehydrate() {
+        long start = System.nanoTime();
+        int deactivated = notificationRepository.deactivateExpired();
+        long unsent = notificationRepository.forEachUnsent(
+                notification -> scheduleDelivery(notification.getUid(), notification.getScheduledFor()));
+        long expiring = notificationRepository.forEachExpiring(
+                notification -> scheduleExpiry(notification.getUid(), notification.getExpiresAt()));
+
+        if (unsent < 0 || expiring < 0) {
+            logger.warn("No se pudieron recargar las notificaciones programadas; solo se atenderán las nuevas");
+            return;
+        }
+        logger.info("Temporizador de notificaciones: {} entregas y {} caducidades recargadas, {} caducadas desactivadas ({} ms)",
+                unsent, expiring, Math.max(deactivated, 0), Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private void deliver(List<String> uids) {
+        for (int from = 0; from < uids.size(); from += batchSize) {
+            List<String> batch = uids.subList(from, Math.min(from + batchSize, uids.size()));
+            List<Notification> claimed = notificationRepository.claimScheduled(batch);
+            if (claimed == null) {
+                batch.forEach(uid -> wheel.schedule(retryDelayMs, new Task(uid, false)));
+                logger.warn("No se pudieron reclamar {} notificaciones programadas, se reintentará", batch.size());
+                continue;
+            }
+
+            for (Notification notification : claimed) {
+                try {
+                    if (Boolean.TRUE.equals(notification.getShowInApp())) {
+                        notificationStreamService.publish(notification);
+                    }
+                    notificationDeliveryService.dispatch(notification);
+                    unreadCountService.onDelivered(notification);
+                    delivered.increment();
+                } catch (Exception e) {
+                    logger.warn("Error entregando notificación programada {}: {}", notification.getUid(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void expire(List<String> uids) {
+        for (int from = 0; from < uids.size(); from += batchSize) {
+            List<String> batch = uids.subList(from, Math.min(from + batchSize, uids.size()));
+            Map<Integer, Integer> unreadByUser = notificationRepository.deactivate(batch);
+            if (unreadByUser == null) {
+                batch.forEach(uid -> wheel.schedule(retryDelayMs, new Task(uid, true)));
+                logger.warn("No se pudieron desactivar {} notificaciones caducadas, se reintentará", batch.size());
+                continue;
+            }
+            unreadByUser.forEach(unreadCountService::onRemoved);
+            expired.increment(batch.size());
+        }
+    }
+
+    private static long delayUntil(LocalDateTime instant) {
+        return instant != null ? Duration.between(LocalDateTime.now(), instant).toMillis() : 0L;
+    }
+
+    /**
+     * Vencimiento programado: entrega o caducidad de una notificación
+     */
+    private static class Task {
+        private final String uid;
+        private final boolean expiry;
+
+        Task(String uid, boolean expiry) {
+            this.uid = uid;
+            this.expiry = expiry;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.gamified.application.notification.service;
 
 import com.gamified.application.notification.model.entity.Notification;
+import com.gamified.application.notification.repository.NotificationRepository;
+import com.gamified.application.progress.service.StudentActivityTracker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,87 +30,147 @@ public class NotificationService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationWriter notificationWriter;
+
+    @Autowired
+    private NotificationDeliveryService notificationDeliveryService;
+
+    @Autowired
+    private NotificationCoalescer notificationCoalescer;
+
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private NotificationScheduler notificationScheduler;
+
+    @Autowired
+    private UnreadCountService unreadCountService;
+
+    @Autowired
+    private ActivityReminderJob activityReminderJob;
+
+    @Autowired
+    private StudentActivityTracker studentActivityTracker;
+
     /**
-     * Envía una notificación al sistema
+     * Envía una notificación al sistema.
+     * Pasa por NotificationCoalescer (agrupación por destinatario y tipo, límite por usuario) y luego
+     * se encola: NotificationWriter la persiste en el siguiente lote y, ya persistida,
+     * NotificationDeliveryService la entrega por email/push en sus propios pools.
+     * Si scheduledFor es futuro se persiste sin enviar y NotificationScheduler la entrega a su hora.
      */
     public void sendNotification(Notification notification) {
         logger.info("Enviando notificación tipo {} a usuario {}", 
                    notification.getNotificationType(), notification.getRecipientUserId());
         
-        try {
-            // Simular guardado en base de datos (sin tabla real aún)
-            logger.info("Guardando notificación: {}", notification.getTitle());
-            
-            // Marcar como enviada
-            notification.markAsSent();
-            
-            // Procesar según el tipo de entrega
-            if (notification.getShowInApp()) {
-                processInAppNotification(notification);
-            }
-            
-            if (notification.getSendEmail()) {
-                processEmailNotification(notification);
-            }
-            
-            if (notification.getSendPush()) {
-                processPushNotification(notification);
-            }
-            
-            logger.info("Notificación enviada exitosamente: {}", notification.getId());
-            
-        } catch (Exception e) {
-            logger.error("Error enviando notificación: {}", e.getMessage());
-            throw new RuntimeException("Error al enviar notificación", e);
+        if (isDeferred(notification)) {
+            // Se agrupa con lo que llegue en su momento, no con lo de ahora
+            enqueueNotification(notification);
+            return;
         }
+        notificationCoalescer.offer(notification, this::enqueueNotification);
     }
 
     /**
-     * Procesa notificación en la aplicación
+     * Encola una notificación (o un resumen de varias) para persistirla
+     */
+    private void enqueueNotification(Notification notification) {
+        // Los canales externos quedan pendientes hasta que termine su entrega.
+        // Las programadas quedan sin sent_at: así las identifica el temporizador al recargar.
+        notification.setSentAt(isDeferred(notification) ? null : LocalDateTime.now());
+        if (Boolean.TRUE.equals(notification.getSendEmail())) {
+            notification.setEmailStatus("PENDING");
+        }
+        if (Boolean.TRUE.equals(notification.getSendPush())) {
+            notification.setPushStatus("PENDING");
+        }
+        
+        if (!notificationWriter.enqueue(notification, this::onPersisted)) {
+            logger.error("Cola de notificaciones llena, se descarta la notificación a usuario {}", 
+                        notification.getRecipientUserId());
+            throw new RuntimeException("Error al enviar notificación: cola llena");
+        }
+    }
+
+    /**
+     * Continúa el procesamiento de una notificación una vez persistida (hilo del escritor)
+     */
+    private void onPersisted(Notification notification) {
+        notificationScheduler.scheduleExpiry(notification.getUid(), notification.getExpiresAt());
+        if (notification.getSentAt() == null) {
+            notificationScheduler.scheduleDelivery(notification.getUid(), notification.getScheduledFor());
+            return;
+        }
+        if (Boolean.TRUE.equals(notification.getShowInApp())) {
+            processInAppNotification(notification);
+        }
+        notificationDeliveryService.dispatch(notification);
+        unreadCountService.onDelivered(notification);
+    }
+
+    private boolean isDeferred(Notification notification) {
+        return notification.getScheduledFor() != null && notification.getScheduledFor().isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * Procesa notificación en la aplicación: la envía a las conexiones abiertas del destinatario
      */
     private void processInAppNotification(Notification notification) {
-        logger.info("Procesando notificación in-app para usuario {}: {}", 
+        logger.debug("Notificación in-app disponible para usuario {}: {}", 
                    notification.getRecipientUserId(), notification.getTitle());
-        // TODO: Implementar almacenamiento en BD cuando esté disponible
+        notificationStreamService.publish(notification);
     }
 
     /**
-     * Procesa notificación por email
+     * Número de notificaciones no leídas del usuario (contador en memoria, ver UnreadCountService)
      */
-    @Async
-    private void processEmailNotification(Notification notification) {
-        logger.info("Procesando notificación por email para usuario {}: {}", 
-                   notification.getRecipientUserId(), notification.getTitle());
-        
-        try {
-            // Simular envío de email
-            Thread.sleep(100); // Simular latencia de envío
-            notification.setEmailStatus("SENT");
-            logger.info("Email enviado exitosamente a usuario {}", notification.getRecipientUserId());
-            
-        } catch (Exception e) {
-            logger.error("Error enviando email a usuario {}: {}", notification.getRecipientUserId(), e.getMessage());
-            notification.setEmailStatus("FAILED");
+    public int getUnreadCount(Integer userId) {
+        return unreadCountService.getUnreadCount(userId);
+    }
+
+    /**
+     * Marca como leídas notificaciones del usuario y descuenta las que cambiaron del contador
+     * @return Número de notificaciones marcadas
+     */
+    public int markAsRead(Integer userId, List<String> notificationUids) {
+        int updated = notificationRepository.markAsRead(userId, notificationUids);
+        if (updated < 0) {
+            throw new RuntimeException("Error al marcar notificaciones como leídas");
         }
+        unreadCountService.onRemoved(userId, updated);
+        return updated;
     }
 
     /**
-     * Procesa notificación push
+     * Marca como leídas todas las notificaciones del usuario
+     * @return Número de notificaciones marcadas
      */
-    @Async
-    private void processPushNotification(Notification notification) {
-        logger.info("Procesando notificación push para usuario {}: {}", 
-                   notification.getRecipientUserId(), notification.getTitle());
-        
+    public int markAllAsRead(Integer userId) {
+        int updated = notificationRepository.markAllAsRead(userId);
+        if (updated < 0) {
+            throw new RuntimeException("Error al marcar notificaciones como leídas");
+        }
+        unreadCountService.onAllRead(userId);
+        return updated;
+    }
+
+    /**
+     * Obtiene el id del usuario activo con el email dado (subject del JWT)
+     * @return null si no existe o no está activo
+     */
+    public Integer findActiveUserIdByEmail(String email) {
         try {
-            // Simular envío de push
-            Thread.sleep(50); // Simular latencia de envío
-            notification.setPushStatus("SENT");
-            logger.info("Push enviado exitosamente a usuario {}", notification.getRecipientUserId());
-            
+            List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM [user] WHERE email = ? AND is_active = 1", Integer.class, email);
+            return ids.isEmpty() ? null : ids.get(0);
         } catch (Exception e) {
-            logger.error("Error enviando push a usuario {}: {}", notification.getRecipientUserId(), e.getMessage());
-            notification.setPushStatus("FAILED");
+            logger.warn("Error obteniendo usuario {}: {}", email, e.getMessage());
+            return null;
         }
     }
 
@@ -157,42 +219,13 @@ public class NotificationService {
     }
 
     /**
-     * Envía recordatorios masivos a estudiantes inactivos
+     * Envía recordatorios masivos a estudiantes inactivos.
+     * Recorrido por páginas con envío paralelo limitado y reanudable (ver ActivityReminderJob).
      */
+    @Scheduled(cron = "${notification.reminders.cron:0 0 17 * * *}")
     public void sendMassActivityReminders() {
         logger.info("Enviando recordatorios masivos a estudiantes inactivos");
-        
-        try {
-            // Buscar estudiantes inactivos (sin actividad en más de 3 días)
-            String sql = """
-                SELECT DISTINCT 
-                    sp.id as student_id,
-                    sp.user_id,
-                    DATEDIFF(DAY, MAX(COALESCE(ea.completed_at, sp.created_at)), GETDATE()) as days_inactive
-                FROM student_profile sp
-                LEFT JOIN exercise_attempt ea ON sp.id = ea.student_profile_id
-                WHERE sp.is_active = 1
-                GROUP BY sp.id, sp.user_id, sp.created_at
-                HAVING DATEDIFF(DAY, MAX(COALESCE(ea.completed_at, sp.created_at)), GETDATE()) >= 3
-                ORDER BY days_inactive DESC
-                """;
-            
-            List<InactiveStudent> inactiveStudents = jdbcTemplate.query(sql, new InactiveStudentRowMapper());
-            
-            logger.info("Encontrados {} estudiantes inactivos para recordatorios", inactiveStudents.size());
-            
-            for (InactiveStudent student : inactiveStudents) {
-                try {
-                    sendActivityReminder(student.userId, student.daysInactive);
-                } catch (Exception e) {
-                    logger.warn("Error enviando recordatorio a estudiante {}: {}", 
-                               student.userId, e.getMessage());
-                }
-            }
-            
-        } catch (Exception e) {
-            logger.error("Error enviando recordatorios masivos: {}", e.getMessage());
-        }
+        activityReminderJob.run(this::sendActivityReminder);
     }
 
     /**
@@ -202,7 +235,11 @@ public class NotificationService {
         logger.info("Enviando alertas de estudiantes con problemas a profesores");
         
         try {
-            // Buscar estudiantes con alertas y sus profesores
+            // Guardar la actividad que aún esté solo en memoria antes de leer los contadores
+            studentActivityTracker.flush();
+
+            // Estudiantes con bajo rendimiento en los últimos 7 días (rango sobre student_daily_stats,
+            // a lo sumo 7 filas por estudiante) y sus profesores
             String sql = """
                 SELECT DISTINCT
                     tp.user_id as teacher_user_id,
@@ -210,17 +247,18 @@ public class NotificationService {
                     sp.id as student_profile_id,
                     sp.username as student_name,
                     'Bajo rendimiento detectado' as alert_reason
-                FROM enrollment e
+                FROM (
+                    SELECT student_profile_id
+                    FROM student_daily_stats
+                    WHERE stat_date > DATEADD(DAY, -7, CAST(GETDATE() AS DATE))
+                    GROUP BY student_profile_id
+                    HAVING SUM(attempts) > 0 AND CAST(SUM(correct) AS FLOAT) / SUM(attempts) < 0.6
+                ) recent
+                INNER JOIN student_profile sp ON sp.id = recent.student_profile_id
+                INNER JOIN enrollment e ON e.student_profile_id = sp.id
                 INNER JOIN classroom c ON e.classroom_id = c.id
                 INNER JOIN teacher_profile tp ON c.teacher_profile_id = tp.id
-                INNER JOIN student_profile sp ON e.student_profile_id = sp.id
-                LEFT JOIN exercise_attempt ea ON sp.id = ea.student_profile_id 
-                    AND ea.completed_at >= DATEADD(DAY, -7, GETDATE())
                 WHERE sp.is_active = 1 AND tp.is_active = 1
-                GROUP BY tp.user_id, sp.user_id, sp.id, sp.username
-                HAVING 
-                    COUNT(ea.id) > 0 AND
-                    (CAST(SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) AS FLOAT) / COUNT(ea.id)) < 0.6
                 """;
             
             List<StudentAlert> alerts = jdbcTemplate.query(sql, new StudentAlertRowMapper());
@@ -280,12 +318,6 @@ public class NotificationService {
 
     // Clases auxiliares para mapeo de datos
     
-    private static class InactiveStudent {
-        int studentId;
-        int userId;
-        int daysInactive;
-    }
-    
     private static class StudentAlert {
         int teacherUserId;
         int studentUserId;
@@ -296,17 +328,6 @@ public class NotificationService {
     
     // Row Mappers
     
-    private static class InactiveStudentRowMapper implements RowMapper<InactiveStudent> {
-        @Override
-        public InactiveStudent mapRow(ResultSet rs, int rowNum) throws SQLException {
-            InactiveStudent student = new InactiveStudent();
-            student.studentId = rs.getInt("student_id");
-            student.userId = rs.getInt("user_id");
-            student.daysInactive = rs.getInt("days_inactive");
-            return student;
-        }
-    }
-    
     private static class StudentAlertRowMapper implements RowMapper<StudentAlert> {
         @Override
         public StudentAlert mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -343,6 +364,9 @@ public class NotificationService {
         logger.info("Sistema de notificaciones activo y funcionando");
         logger.info("Tipos soportados: ACHIEVEMENT, REMINDER, ALERT, INFO, SYSTEM");
         logger.info("Canales: In-App, Email, Push");
+        logger.info("Notificaciones pendientes de persistir: {}", notificationWriter.getQueueSize());
+        logger.info("Conexiones en tiempo real abiertas: {}", notificationStreamService.getConnectionCount());
+        logger.info("Entregas y caducidades programadas: {}", notificationScheduler.getPendingCount());
         logger.info("======================================");
     }
 } 
\ No newline at end of file
@@ -0,0 +1,364 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Canal en tiempo real de notificaciones in-app (Server-Sent Events).
+ * Cada usuario autenticado abre /notifications/stream y queda registrado por su id. Las conexiones
+ * son asíncronas (no ocupan un hilo del servidor mientras están inactivas); los envíos se hacen en
+ * hilos virtuales, uno por conexión con eventos pendientes. Cada conexión tiene un buffer acotado
+ * que descarta el evento más antiguo si el cliente no consume a tiempo.
+ * Se guardan además los últimos eventos de cada usuario: al reconectar con Last-Event-ID (el
+ * EventSource lo envía solo) se reenvían los publicados después, p. ej. durante la reconexión.
+ * El registro es local a la instancia: con varias instancias cada una entrega a sus conexiones.
+ */
+@Service
+public class NotificationStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamService.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.stream.buffer-size:32}")
+    private int bufferSize;
+
+    @Value("${notification.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${notification.stream.heartbeat-interval-ms:25000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${notification.stream.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${notification.stream.replay-size:20}")
+    private int replaySize;
+
+    @Value("${notification.stream.replay-max-users:20000}")
+    private int replayMaxUsers;
+
+    private final Map<Integer, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<Integer, EventBuffer<ReplayEvent>> recentEvents = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, EventBuffer<ReplayEvent>> eldest) {
+            return size() > replayMaxUsers;
+        }
+    };
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private ExecutorService senderExecutor;
+    private ScheduledExecutorService heartbeatScheduler;
+    private Counter droppedEvents;
+
+    @PostConstruct
+    void init() {
+        senderExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("notification-stream-", 0).factory());
+        heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatScheduler.scheduleWithFixedDelay(this::sendHeartbeats,
+                heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("notification.stream.connections", connectionCount, AtomicInteger::get)
+                .description("Conexiones SSE de notificaciones abiertas")
+                .register(meterRegistry);
+        droppedEvents = Counter.builder("notification.stream.dropped")
+                .description("Eventos descartados por buffer de conexión lleno")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(subscription -> subscription.emitter.complete()));
+        senderExecutor.shutdownNow();
+    }
+
+    /**
+     * Registra una nueva conexión del usuario. Si supera el máximo de conexiones por usuario
+     * se cierra la más antigua.
+     * @param lastEventId Último evento recibido antes de reconectar (header Last-Event-ID), o null
+     */
+    public SseEmitter subscribe(Integer userId, String lastEventId) {
+        SseEmitter emitter = newEmitter(timeoutMs);
+        Subscription subscription = new Subscription(userId, emitter, bufferSize);
+
+        Set<Subscription> userSubscriptions = subscriptions.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet());
+        userSubscriptions.add(subscription);
+        connectionCount.incrementAndGet();
+
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(error -> remove(subscription));
+
+        if (userSubscriptions.size() > maxConnectionsPerUser) {
+            userSubscriptions.stream()
+                    .filter(existing -> existing != subscription)
+                    .min((a, b) -> Long.compare(a.connectedAtNanos, b.connectedAtNanos))
+                    .ifPresent(oldest -> oldest.emitter.complete());
+        }
+
+        // Primer evento: confirma la conexión al cliente y atraviesa proxies que esperan datos
+        subscription.buffer.offer(SseEmitter.event().name("connected").data(Map.of("userId", userId)).build());
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            for (ReplayEvent missed : eventsAfter(userId, lastEventId)) {
+                subscription.buffer.offer(missed.event);
+            }
+        }
+        scheduleSend(subscription);
+
+        logger.debug("Usuario {} conectado al canal de notificaciones ({} conexiones)", userId, connectionCount.get());
+        return emitter;
+    }
+
+    /**
+     * Entrega una notificación a las conexiones abiertas de su destinatario (si las hay)
+     */
+    public void publish(Notification notification) {
+        // Se construye una sola vez: el builder no es reutilizable, el evento construido sí
+        Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event()
+                .id(notification.getUid())
+                .name("notification")
+                .data(toPayload(notification), MediaType.APPLICATION_JSON)
+                .build();
+
+        // Se guarda aunque el usuario no tenga conexiones: puede estar reconectando
+        if (replaySize > 0 && notification.getUid() != null) {
+            synchronized (recentEvents) {
+                recentEvents.computeIfAbsent(notification.getRecipientUserId(), key -> new EventBuffer<>(replaySize))
+                        .offer(new ReplayEvent(notification.getUid(), event));
+            }
+        }
+
+        Set<Subscription> userSubscriptions = subscriptions.get(notification.getRecipientUserId());
+        if (userSubscriptions == null || userSubscriptions.isEmpty()) {
+            return;
+        }
+
+        for (Subscription subscription : userSubscriptions) {
+            if (subscription.buffer.offer(event)) {
+                droppedEvents.increment();
+            }
+            scheduleSend(subscription);
+        }
+    }
+
+    /**
+     * Número de conexiones abiertas en esta instancia
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Crea el emisor de una conexión; separado para poder sustituirlo en los tests
+     */
+    SseEmitter newEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    /**
+     * Eventos guardados del usuario posteriores a lastEventId. Si ese evento ya no está guardado
+     * (o no es de este usuario) se reenvían todos los guardados.
+     */
+    private List<ReplayEvent> eventsAfter(Integer userId, String lastEventId) {
+        List<ReplayEvent> retained;
+        synchronized (recentEvents) {
+            EventBuffer<ReplayEvent> buffer = recentEvents.get(userId);
+            if (buffer == null) {
+                return List.of();
+            }
+            retained = buffer.snapshot();
+        }
+        for (int i = retained.size() - 1; i >= 0; i--) {
+            if (lastEventId.equals(retained.get(i).uid)) {
+                return retained.subList(i + 1, retained.size());
+            }
+        }
+        return retained;
+    }
+
+    private void scheduleSend(Subscription subscription) {
+        // Un solo envío activo por conexión: los eventos que lleguen mientras tanto los recoge el mismo bucle
+        if (subscription.sending.compareAndSet(false, true)) {
+            try {
+                senderExecutor.execute(() -> send(subscription));
+            } catch (Exception e) {
+                subscription.sending.set(false);
+            }
+        }
+    }
+
+    private void send(Subscription subscription) {
+        try {
+            while (true) {
+                Set<ResponseBodyEmitter.DataWithMediaType> event = subscription.buffer.poll();
+                if (event != null) {
+                    subscription.emitter.send(event);
+                    continue;
+                }
+                if (subscription.heartbeatDue.compareAndSet(true, false)) {
+                    subscription.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+
+                subscription.sending.set(false);
+                // Revisa de nuevo: un evento pudo llegar justo antes de liberar el envío
+                if ((subscription.buffer.isEmpty() && !subscription.heartbeatDue.get())
+                        || !subscription.sending.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            // Cliente desconectado: el contenedor cierra la respuesta asíncrona, aquí solo se libera el registro
+            logger.debug("Conexión de notificaciones del usuario {} cerrada: {}", subscription.userId, e.getMessage());
+            remove(subscription);
+        }
+    }
+
+    private void sendHeartbeats() {
+        try {
+            for (Set<Subscription> userSubscriptions : subscriptions.values()) {
+                for (Subscription subscription : userSubscriptions) {
+                    subscription.heartbeatDue.set(true);
+                    scheduleSend(subscription);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Error enviando heartbeats de notificaciones: {}", e.getMessage());
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        if (!subscription.removed.compareAndSet(false, true)) {
+            return;
+        }
+        connectionCount.decrementAndGet();
+        subscriptions.computeIfPresent(subscription.userId, (userId, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    private Map<String, Object> toPayload(Notification notification) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("uid", notification.getUid());
+        payload.put("type", notification.getNotificationType());
+        payload.put("title", notification.getTitle());
+        payload.put("message", notification.getMessage());
+        payload.put("priority", notification.getPriority());
+        payload.put("relatedEntityId", notification.getRelatedEntityId());
+        payload.put("relatedEntityType", notification.getRelatedEntityType());
+        payload.put("actionUrl", notification.getActionUrl());
+        payload.put("createdAt", notification.getCreatedAt() != null ? notification.getCreatedAt().toString() : null);
+        return payload;
+    }
+
+    /**
+     * Conexión abierta de un usuario
+     */
+    private static class Subscription {
+        private final Integer userId;
+        private final SseEmitter emitter;
+        private final EventBuffer<Set<ResponseBodyEmitter.DataWithMediaType>> buffer;
+        private final long connectedAtNanos = System.nanoTime();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        Subscription(Integer userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new EventBuffer<>(bufferSize);
+        }
+    }
+
+    /**
+     * Evento guardado para reenviarlo tras una reconexión
+     */
+    private static class ReplayEvent {
+        private final String uid;
+        private final Set<ResponseBodyEmitter.DataWithMediaType> event;
+
+        ReplayEvent(String uid, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            this.uid = uid;
+            this.event = event;
+        }
+    }
+
+    /**
+     * Buffer acotado que descarta el elemento más antiguo al llenarse
+     */
+    static class EventBuffer<T> {
+        private final ArrayDeque<T> events;
+        private final int capacity;
+
+        EventBuffer(int capacity) {
+            this.capacity = capacity;
+            this.events = new ArrayDeque<>(capacity);
+        }
+
+        /**
+         * @return true si se descartó el evento más antiguo para hacer sitio
+         */
+        synchronized boolean offer(T event) {
+            boolean dropped = false;
+            if (events.size() >= capacity) {
+                events.pollFirst();
+                dropped = true;
+            }
+            events.addLast(event);
+            return dropped;
+        }
+
+        synchronized T poll() {
+            return events.pollFirst();
+        }
+
+        synchronized boolean isEmpty() {
+            return events.isEmpty();
+        }
+
+        synchronized int size() {
+            return events.size();
+        }
+
+        synchronized List<T> snapshot() {
+            return new ArrayList<>(events);
+        }
+    }
+}
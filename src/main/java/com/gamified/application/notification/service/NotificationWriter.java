@@ -0,0 +1,254 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import com.gamified.application.notification.repository.NotificationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Escritor en segundo plano de notificaciones.
+ * sendNotification solo encola; un hilo propio vacía la cola en lotes (batch insert) y, una vez
+ * persistido cada lote, avisa a quien encoló para que siga con la entrega. Los cambios de estado
+ * de email/push también se acumulan aquí y se aplican agrupados por canal y estado.
+ */
+@Component
+public class NotificationWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationWriter.class);
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notification.writer.batch-size:200}")
+    private int batchSize;
+
+    @Value("${notification.writer.poll-timeout-ms:200}")
+    private long pollTimeoutMs;
+
+    @Value("${notification.writer.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${notification.writer.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Value("${notification.writer.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private BlockingQueue<PendingNotification> queue;
+    private BlockingQueue<StatusUpdate> statusUpdates;
+    private Thread writerThread;
+    private volatile boolean running = true;
+
+    private Timer persistLatency;
+    private DistributionSummary batchSizes;
+    private Counter rejected;
+    private Counter dropped;
+
+    @PostConstruct
+    void init() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        statusUpdates = new LinkedBlockingQueue<>(queueCapacity);
+
+        persistLatency = Timer.builder("notification.persist.latency")
+                .description("Tiempo desde que se encola una notificación hasta que queda persistida")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("notification.batch.size")
+                .description("Notificaciones insertadas por lote")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        rejected = Counter.builder("notification.enqueue.rejected")
+                .description("Notificaciones rechazadas por cola llena")
+                .register(meterRegistry);
+        dropped = Counter.builder("notification.persist.dropped")
+                .description("Notificaciones descartadas tras agotar los reintentos de inserción")
+                .register(meterRegistry);
+        Gauge.builder("notification.queue.size", this, writer -> writer.queue.size())
+                .description("Notificaciones pendientes de persistir")
+                .register(meterRegistry);
+
+        writerThread = new Thread(this::runLoop, "notification-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Sin interrumpir: el hilo termina de vaciar la cola y sale en cuanto queda vacía
+        running = false;
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("Se detuvo el escritor con {} notificaciones sin persistir", queue.size());
+        }
+    }
+
+    /**
+     * Encola una notificación para persistirla en el siguiente lote
+     * @param onPersisted Se invoca en el hilo del escritor una vez insertada la fila (puede ser null)
+     * @return false si la cola está llena
+     */
+    public boolean enqueue(Notification notification, Consumer<Notification> onPersisted) {
+        if (notification.getUid() == null) {
+            notification.setUid(UUID.randomUUID().toString());
+        }
+        boolean accepted = queue.offer(new PendingNotification(notification, onPersisted, System.nanoTime()));
+        if (!accepted) {
+            rejected.increment();
+        }
+        return accepted;
+    }
+
+    /**
+     * Registra el resultado de la entrega por email o push de una notificación ya persistida
+     */
+    public void enqueueStatusUpdate(String notificationUid, String channel, String status) {
+        if (!statusUpdates.offer(new StatusUpdate(notificationUid, channel, status))) {
+            logger.warn("Cola de estados llena, se descarta el estado {} {} de la notificación {}",
+                    channel, status, notificationUid);
+        }
+    }
+
+    /**
+     * Notificaciones pendientes de persistir
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void runLoop() {
+        List<PendingNotification> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !statusUpdates.isEmpty()) {
+            try {
+                PendingNotification first = queue.poll(pollTimeoutMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    // Lo que se acumuló mientras se escribía el lote anterior entra en este
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    persist(batch);
+                    batch.clear();
+                }
+                // Los estados se aplican después de las inserciones: la fila ya existe
+                flushStatusUpdates();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Error en el escritor de notificaciones: {}", e.getMessage());
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<PendingNotification> batch) throws InterruptedException {
+        List<Notification> notifications = new ArrayList<>(batch.size());
+        for (PendingNotification pending : batch) {
+            notifications.add(pending.notification);
+        }
+
+        int attempt = 0;
+        while (notificationRepository.insertBatch(notifications) < 0) {
+            if (++attempt > maxRetries) {
+                dropped.increment(batch.size());
+                logger.error("No se pudo persistir un lote de {} notificaciones tras {} reintentos",
+                        batch.size(), maxRetries);
+                return;
+            }
+            Thread.sleep(retryBackoffMs * (1L << (attempt - 1)));
+        }
+
+        long now = System.nanoTime();
+        batchSizes.record(batch.size());
+        for (PendingNotification pending : batch) {
+            persistLatency.record(now - pending.enqueuedAtNanos, TimeUnit.NANOSECONDS);
+            if (pending.onPersisted != null) {
+                try {
+                    pending.onPersisted.accept(pending.notification);
+                } catch (Exception e) {
+                    logger.warn("Error procesando la notificación {} tras persistirla: {}",
+                            pending.notification.getUid(), e.getMessage());
+                }
+            }
+        }
+        logger.debug("Lote de {} notificaciones persistido", batch.size());
+    }
+
+    private void flushStatusUpdates() {
+        if (statusUpdates.isEmpty()) {
+            return;
+        }
+
+        List<StatusUpdate> updates = new ArrayList<>();
+        statusUpdates.drainTo(updates, batchSize);
+
+        // Una sentencia por canal y estado (EMAIL/PUSH × SENT/FAILED)
+        Map<String, List<String>> uidsByKey = new LinkedHashMap<>();
+        for (StatusUpdate update : updates) {
+            uidsByKey.computeIfAbsent(update.channel + ":" + update.status, key -> new ArrayList<>())
+                    .add(update.notificationUid);
+        }
+        uidsByKey.forEach((key, uids) -> {
+            int separator = key.indexOf(':');
+            if (notificationRepository.updateDeliveryStatus(key.substring(0, separator), key.substring(separator + 1), uids) < 0) {
+                logger.warn("No se pudo registrar el estado {} de {} notificaciones", key, uids.size());
+            }
+        });
+    }
+
+    private static class PendingNotification {
+        private final Notification notification;
+        private final Consumer<Notification> onPersisted;
+        private final long enqueuedAtNanos;
+
+        PendingNotification(Notification notification, Consumer<Notification> onPersisted, long enqueuedAtNanos) {
+            this.notification = notification;
+            this.onPersisted = onPersisted;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+    }
+
+    private static class StatusUpdate {
+        private final String notificationUid;
+        private final String channel;
+        private final String status;
+
+        StatusUpdate(String notificationUid, String channel, String status) {
+            this.notificationUid = notificationUid;
+            this.channel = channel;
+            this.status = status;
+        }
+    }
+}
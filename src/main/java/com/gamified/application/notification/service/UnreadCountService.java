@@ -0,0 +1,181 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import com.gamified.application.notification.repository.NotificationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contador de notificaciones no leídas por usuario.
+ * Cada usuario consultado tiene un contador atómico en memoria que se carga con un COUNT la primera
+ * vez y después se ajusta con cada notificación entregada, leída o caducada, de modo que mostrar el
+ * indicador de no leídas no consulta la BD. Una conciliación periódica corrige las desviaciones
+ * (otras instancias, carreras durante la carga).
+ */
+@Service
+public class UnreadCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCountService.class);
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.unread.max-users:100000}")
+    private int maxUsers;
+
+    @Value("${notification.unread.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    private final Map<Integer, AtomicInteger> counters = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, AtomicInteger> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    private Counter hits;
+    private Counter misses;
+    private Counter corrections;
+
+    @PostConstruct
+    void init() {
+        hits = Counter.builder("notification.unread.lookups").tag("result", "hit")
+                .description("Consultas del contador de no leídas").register(meterRegistry);
+        misses = Counter.builder("notification.unread.lookups").tag("result", "miss")
+                .description("Consultas del contador de no leídas").register(meterRegistry);
+        corrections = Counter.builder("notification.unread.corrections")
+                .description("Contadores corregidos por la conciliación").register(meterRegistry);
+    }
+
+    /**
+     * No leídas del usuario; solo la primera consulta (o tras ser desalojado) va a la BD
+     * @return Número de no leídas, o -1 si no se pudo cargar
+     */
+    public int getUnreadCount(Integer userId) {
+        AtomicInteger counter = get(userId);
+        if (counter != null) {
+            hits.increment();
+            return counter.get();
+        }
+
+        misses.increment();
+        int count = notificationRepository.countUnread(userId);
+        if (count < 0) {
+            return -1;
+        }
+        synchronized (counters) {
+            counter = counters.putIfAbsent(userId, new AtomicInteger(count));
+        }
+        return counter != null ? counter.get() : count;
+    }
+
+    /**
+     * Una notificación se entregó y aparece en la bandeja del destinatario
+     */
+    public void onDelivered(Notification notification) {
+        if (Boolean.FALSE.equals(notification.getShowInApp()) || Boolean.TRUE.equals(notification.getIsRead())) {
+            return;
+        }
+        // Sin contador en memoria no hay nada que ajustar: la próxima carga ya la cuenta
+        AtomicInteger counter = get(notification.getRecipientUserId());
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+    }
+
+    /**
+     * Notificaciones no leídas que dejan de estarlo (leídas o caducadas)
+     */
+    public void onRemoved(Integer userId, int count) {
+        AtomicInteger counter = get(userId);
+        if (counter != null && count > 0) {
+            counter.updateAndGet(value -> Math.max(0, value - count));
+        }
+    }
+
+    /**
+     * El usuario leyó todas sus notificaciones
+     */
+    public void onAllRead(Integer userId) {
+        AtomicInteger counter = get(userId);
+        if (counter != null) {
+            counter.set(0);
+        }
+    }
+
+    /**
+     * Recalcula por lotes los contadores en memoria y corrige los que se hayan desviado
+     */
+    @Scheduled(fixedDelayString = "${notification.unread.reconcile-interval-ms:300000}",
+               initialDelayString = "${notification.unread.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        List<Integer> userIds;
+        synchronized (counters) {
+            userIds = new ArrayList<>(counters.keySet());
+        }
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        int corrected = 0;
+        for (int from = 0; from < userIds.size(); from += reconcileBatchSize) {
+            List<Integer> batch = userIds.subList(from, Math.min(from + reconcileBatchSize, userIds.size()));
+
+            // Valor de cada contador antes del recuento: si cambia mientras se cuenta (entrega o lectura
+            // concurrente) el recuento ya no es fiable para ese usuario y se deja para la siguiente pasada
+            Map<Integer, Integer> before = new HashMap<>();
+            for (Integer userId : batch) {
+                AtomicInteger counter = get(userId);
+                if (counter != null) {
+                    before.put(userId, counter.get());
+                }
+            }
+
+            Map<Integer, Integer> stored = notificationRepository.countUnreadByUsers(batch);
+            if (stored == null) {
+                logger.warn("No se pudo conciliar el contador de no leídas de {} usuarios", batch.size());
+                continue;
+            }
+            for (Map.Entry<Integer, Integer> entry : before.entrySet()) {
+                AtomicInteger counter = get(entry.getKey());
+                int previous = entry.getValue();
+                int expected = stored.getOrDefault(entry.getKey(), 0);
+                if (counter != null && previous != expected && counter.compareAndSet(previous, expected)) {
+                    corrected++;
+                }
+            }
+        }
+
+        if (corrected > 0) {
+            corrections.increment(corrected);
+            logger.info("Conciliación de no leídas: {} de {} contadores corregidos", corrected, userIds.size());
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private AtomicInteger get(Integer userId) {
+        synchronized (counters) {
+            return counters.get(userId);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.gamified.application.progress.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Actividad reciente de un estudiante: última actividad y contadores de los últimos 7 días
+ * Mapea a las tablas 'student_activity' y 'student_daily_stats' (db/migration/V006)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentActivity {
+    private Integer studentProfileId;
+    private LocalDateTime lastActivityAt;
+    private Integer attemptsLast7Days;
+    private Integer correctLast7Days;
+}
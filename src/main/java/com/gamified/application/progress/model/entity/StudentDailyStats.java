@@ -0,0 +1,25 @@
+package com.gamified.application.progress.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Contadores de un estudiante en un día (un día con attempts > 0 es un día activo)
+ * Mapea a la tabla 'student_daily_stats' (db/migration/V006, V009)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentDailyStats {
+    private Integer studentProfileId;
+    private LocalDate statDate;
+    private Integer attempts;
+    private Integer correct;
+    private Integer points;
+    private Integer timeSpentSeconds;
+}
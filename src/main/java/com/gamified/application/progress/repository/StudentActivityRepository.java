@@ -0,0 +1,54 @@
+package com.gamified.application.progress.repository;
+
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Repositorio de la actividad incremental por estudiante
+ */
+public interface StudentActivityRepository {
+
+    /**
+     * Obtiene la última actividad registrada de un estudiante
+     */
+    Optional<LocalDateTime> findLastActivity(Integer studentProfileId);
+
+    /**
+     * Obtiene los contadores diarios de un estudiante entre dos fechas (ambas inclusive)
+     */
+    List<StudentDailyStats> findDailyStats(Integer studentProfileId, LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Guarda la última actividad de varios estudiantes (nunca la retrocede).
+     * Propaga el error para que la transacción del llamador se deshaga.
+     * @return Número de filas afectadas
+     */
+    int saveLastActivities(Map<Integer, LocalDateTime> lastActivities);
+
+    /**
+     * Suma los incrementos dados a los contadores diarios (crea el día si no existe).
+     * No es idempotente: debe ejecutarse en una transacción junto con saveLastActivities y propaga
+     * el error para que el llamador solo reintente si nada quedó guardado.
+     * @return Número de filas afectadas
+     */
+    int addDailyStats(List<StudentDailyStats> increments);
+
+    /**
+     * Obtiene los ids de estudiante siguientes a afterId, en orden (recorrido por páginas)
+     * @return Ids de la página, o null si falló la consulta
+     */
+    List<Integer> findStudentIdsAfter(int afterId, int limit);
+
+    /**
+     * Recalcula desde exercise_attempt los contadores diarios de los estudiantes con id en
+     * (afterId, toId] para los días en [fromDate, toDate). Reemplaza los valores: solo debe
+     * usarse con días cerrados, que ya no reciben incrementos.
+     * @return Número de filas afectadas, o -1 si falló
+     */
+    int rebuildDailyStats(int afterId, int toId, LocalDate fromDate, LocalDate toDate);
+}
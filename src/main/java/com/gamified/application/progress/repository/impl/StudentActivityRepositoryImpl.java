@@ -0,0 +1,219 @@
+package com.gamified.application.progress.repository.impl;
+
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+import com.gamified.application.progress.repository.StudentActivityRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Implementación del repositorio de actividad por estudiante usando NamedParameterJdbcTemplate
+ */
+@Repository
+@RequiredArgsConstructor
+public class StudentActivityRepositoryImpl implements StudentActivityRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public Optional<LocalDateTime> findLastActivity(Integer studentProfileId) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("student_profile_id", studentProfileId, Types.INTEGER);
+
+            String sql = """
+                SELECT last_activity_at
+                FROM student_activity
+                WHERE student_profile_id = :student_profile_id
+                """;
+
+            List<Timestamp> results = namedParameterJdbcTemplate.queryForList(sql, parameters, Timestamp.class);
+            return results.isEmpty() || results.get(0) == null
+                    ? Optional.empty() : Optional.of(results.get(0).toLocalDateTime());
+        } catch (Exception e) {
+            System.err.println("Error al obtener última actividad del estudiante: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<StudentDailyStats> findDailyStats(Integer studentProfileId, LocalDate fromDate, LocalDate toDate) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("student_profile_id", studentProfileId, Types.INTEGER);
+            parameters.addValue("from_date", Date.valueOf(fromDate), Types.DATE);
+            parameters.addValue("to_date", Date.valueOf(toDate), Types.DATE);
+
+            String sql = """
+                SELECT student_profile_id, stat_date, attempts, correct, points, time_spent_seconds
+                FROM student_daily_stats
+                WHERE student_profile_id = :student_profile_id AND stat_date BETWEEN :from_date AND :to_date
+                ORDER BY stat_date
+                """;
+
+            return namedParameterJdbcTemplate.query(sql, parameters, (rs, rowNum) ->
+                    StudentDailyStats.builder()
+                            .studentProfileId(rs.getInt("student_profile_id"))
+                            .statDate(rs.getDate("stat_date").toLocalDate())
+                            .attempts(rs.getInt("attempts"))
+                            .correct(rs.getInt("correct"))
+                            .points(rs.getInt("points"))
+                            .timeSpentSeconds(rs.getInt("time_spent_seconds"))
+                            .build());
+        } catch (Exception e) {
+            System.err.println("Error al obtener estadísticas diarias del estudiante: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public int saveLastActivities(Map<Integer, LocalDateTime> lastActivities) {
+        if (lastActivities == null || lastActivities.isEmpty()) {
+            return 0;
+        }
+
+        // Sin try/catch: se ejecuta en la transacción del flush, que debe deshacerse si falla
+        String sql = """
+                MERGE student_activity AS target
+                USING (SELECT :student_profile_id AS student_profile_id) AS source
+                ON target.student_profile_id = source.student_profile_id
+                WHEN MATCHED AND target.last_activity_at < :last_activity_at THEN
+                    UPDATE SET last_activity_at = :last_activity_at, updated_at = GETDATE()
+                WHEN NOT MATCHED THEN
+                    INSERT (student_profile_id, last_activity_at, updated_at)
+                    VALUES (:student_profile_id, :last_activity_at, GETDATE());
+                """;
+
+        List<MapSqlParameterSource> batch = new ArrayList<>(lastActivities.size());
+        lastActivities.forEach((studentProfileId, lastActivityAt) -> {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("student_profile_id", studentProfileId, Types.INTEGER);
+            parameters.addValue("last_activity_at", Timestamp.valueOf(lastActivityAt), Types.TIMESTAMP);
+            batch.add(parameters);
+        });
+
+        return sum(namedParameterJdbcTemplate.batchUpdate(sql, batch.toArray(new MapSqlParameterSource[0])));
+    }
+
+    @Override
+    public int addDailyStats(List<StudentDailyStats> increments) {
+        if (increments == null || increments.isEmpty()) {
+            return 0;
+        }
+
+        // Sin try/catch: los incrementos son aditivos y solo pueden reintentarse si la transacción se deshizo
+        String sql = """
+                MERGE student_daily_stats AS target
+                USING (SELECT :student_profile_id AS student_profile_id, :stat_date AS stat_date) AS source
+                ON target.student_profile_id = source.student_profile_id AND target.stat_date = source.stat_date
+                WHEN MATCHED THEN
+                    UPDATE SET attempts = target.attempts + :attempts, correct = target.correct + :correct,
+                               points = target.points + :points,
+                               time_spent_seconds = target.time_spent_seconds + :time_spent_seconds,
+                               updated_at = GETDATE()
+                WHEN NOT MATCHED THEN
+                    INSERT (student_profile_id, stat_date, attempts, correct, points, time_spent_seconds, updated_at)
+                    VALUES (:student_profile_id, :stat_date, :attempts, :correct, :points, :time_spent_seconds, GETDATE());
+                """;
+
+        MapSqlParameterSource[] batch = new MapSqlParameterSource[increments.size()];
+        for (int i = 0; i < increments.size(); i++) {
+            StudentDailyStats increment = increments.get(i);
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("student_profile_id", increment.getStudentProfileId(), Types.INTEGER);
+            parameters.addValue("stat_date", Date.valueOf(increment.getStatDate()), Types.DATE);
+            parameters.addValue("attempts", increment.getAttempts(), Types.INTEGER);
+            parameters.addValue("correct", increment.getCorrect(), Types.INTEGER);
+            parameters.addValue("points", increment.getPoints() != null ? increment.getPoints() : 0, Types.INTEGER);
+            parameters.addValue("time_spent_seconds", increment.getTimeSpentSeconds() != null
+                    ? increment.getTimeSpentSeconds() : 0, Types.INTEGER);
+            batch[i] = parameters;
+        }
+
+        return sum(namedParameterJdbcTemplate.batchUpdate(sql, batch));
+    }
+
+    @Override
+    public List<Integer> findStudentIdsAfter(int afterId, int limit) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("after_id", afterId, Types.INTEGER);
+            parameters.addValue("limit", limit, Types.INTEGER);
+
+            String sql = """
+                SELECT TOP (:limit) id
+                FROM student_profile
+                WHERE id > :after_id
+                ORDER BY id
+                """;
+
+            return namedParameterJdbcTemplate.queryForList(sql, parameters, Integer.class);
+        } catch (Exception e) {
+            System.err.println("Error al obtener página de estudiantes: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int rebuildDailyStats(int afterId, int toId, LocalDate fromDate, LocalDate toDate) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("after_id", afterId, Types.INTEGER);
+            parameters.addValue("to_id", toId, Types.INTEGER);
+            parameters.addValue("from_date", Date.valueOf(fromDate), Types.DATE);
+            parameters.addValue("to_date", Date.valueOf(toDate), Types.DATE);
+
+            // Rango de completed_at sin funciones sobre la columna; el CAST solo agrupa
+            String sql = """
+                MERGE student_daily_stats AS target
+                USING (
+                    SELECT student_profile_id, CAST(completed_at AS DATE) AS stat_date,
+                           COUNT(*) AS attempts,
+                           SUM(CASE WHEN is_correct = 1 THEN 1 ELSE 0 END) AS correct,
+                           SUM(COALESCE(points_earned, 0)) AS points,
+                           SUM(COALESCE(time_spent, 0)) AS time_spent_seconds
+                    FROM exercise_attempt
+                    WHERE student_profile_id > :after_id AND student_profile_id <= :to_id
+                      AND completed_at >= :from_date AND completed_at < :to_date
+                    GROUP BY student_profile_id, CAST(completed_at AS DATE)
+                ) AS source
+                ON target.student_profile_id = source.student_profile_id AND target.stat_date = source.stat_date
+                WHEN MATCHED THEN
+                    UPDATE SET attempts = source.attempts, correct = source.correct, points = source.points,
+                               time_spent_seconds = source.time_spent_seconds, updated_at = GETDATE()
+                WHEN NOT MATCHED THEN
+                    INSERT (student_profile_id, stat_date, attempts, correct, points, time_spent_seconds, updated_at)
+                    VALUES (source.student_profile_id, source.stat_date, source.attempts, source.correct,
+                            source.points, source.time_spent_seconds, GETDATE());
+                """;
+
+            return namedParameterJdbcTemplate.update(sql, parameters);
+        } catch (Exception e) {
+            System.err.println("Error al recalcular estadísticas diarias: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private int sum(int[] results) {
+        int affected = 0;
+        for (int result : results) {
+            affected += Math.max(result, 0);
+        }
+        return affected;
+    }
+}
@@ -0,0 +1,156 @@
+package com.gamified.application.progress.service;
+
+import com.gamified.application.progress.repository.StudentActivityRepository;
+import com.gamified.application.shared.model.entity.JobCheckpoint;
+import com.gamified.application.shared.repository.JobCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Carga inicial de student_daily_stats desde exercise_attempt.
+ * Recorre los estudiantes por páginas de ids y recalcula sus días cerrados (hasta ayer) con una
+ * sentencia por página; el último id procesado se guarda en job_checkpoint, así que si se interrumpe
+ * la siguiente ejecución continúa desde ahí. Arranca al iniciar la aplicación (y cada noche, por si
+ * se interrumpió) hasta completarse; a partir de entonces los contadores los mantiene
+ * StudentActivityTracker con cada intento. Mientras no se completa, los reportes leen exercise_attempt
+ * (ver isCompleted).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailyStatsBackfillJob {
+
+    static final String JOB_NAME = "daily-stats-backfill";
+
+    private final StudentActivityRepository studentActivityRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final StudentActivityTracker studentActivityTracker;
+
+    @Value("${progress.daily-stats.backfill-days:400}")
+    private int backfillDays;
+
+    @Value("${progress.daily-stats.backfill-page-size:200}")
+    private int pageSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Una vez completada la carga no vuelve a consultarse el checkpoint
+    private volatile boolean completed;
+
+    /**
+     * Al iniciar la aplicación continúa (o empieza) la carga si no está completada, sin esperar al
+     * cron: hasta entonces student_daily_stats solo tiene los 7 días iniciales de V006
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        run();
+    }
+
+    /**
+     * Indica si student_daily_stats ya tiene todo el historial. Los reportes lo consultan para
+     * decidir si suman los contadores diarios o los intentos.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Ejecuta (o reanuda) la carga si aún no se completó
+     * @return Reporte de la ejecución
+     */
+    @Scheduled(cron = "${progress.daily-stats.backfill-cron:0 30 3 * * *}")
+    public Map<String, Object> run() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        if (!running.compareAndSet(false, true)) {
+            report.put("status", "ALREADY_RUNNING");
+            return report;
+        }
+
+        long start = System.nanoTime();
+        try {
+            JobCheckpoint checkpoint = jobCheckpointRepository.findByJobName(JOB_NAME).orElse(null);
+            if (checkpoint != null && JobCheckpoint.COMPLETED.equals(checkpoint.getStatus())) {
+                completed = true;
+                report.put("status", "ALREADY_COMPLETED");
+                return report;
+            }
+            if (checkpoint == null) {
+                checkpoint = JobCheckpoint.builder()
+                        .jobName(JOB_NAME)
+                        .lastKey(0L)
+                        .processed(0L)
+                        .status(JobCheckpoint.RUNNING)
+                        .startedAt(LocalDateTime.now())
+                        .build();
+                jobCheckpointRepository.save(checkpoint);
+            }
+            report.put("resumed_from", checkpoint.getLastKey());
+
+            // Solo días cerrados: el día en curso recibe incrementos y recalcularlo los duplicaría.
+            // Lo pendiente en memoria de ayer se guarda antes para que tampoco se sume dos veces.
+            studentActivityTracker.flush();
+            LocalDate toDate = LocalDate.now();
+            LocalDate fromDate = toDate.minusDays(backfillDays);
+
+            int pages = 0;
+            long rows = 0;
+            while (true) {
+                int afterId = checkpoint.getLastKey().intValue();
+                List<Integer> page = studentActivityRepository.findStudentIdsAfter(afterId, pageSize);
+                if (page == null) {
+                    report.put("status", "INTERRUPTED");
+                    break;
+                }
+                if (page.isEmpty()) {
+                    checkpoint.setStatus(JobCheckpoint.COMPLETED);
+                    jobCheckpointRepository.save(checkpoint);
+                    completed = true;
+                    report.put("status", JobCheckpoint.COMPLETED);
+                    break;
+                }
+
+                int lastId = page.get(page.size() - 1);
+                int affected = studentActivityRepository.rebuildDailyStats(afterId, lastId, fromDate, toDate);
+                if (affected < 0) {
+                    report.put("status", "INTERRUPTED");
+                    break;
+                }
+                rows += affected;
+                pages++;
+
+                checkpoint.setLastKey((long) lastId);
+                checkpoint.setProcessed(checkpoint.getProcessed() + page.size());
+                jobCheckpointRepository.save(checkpoint);
+            }
+
+            report.put("pages", pages);
+            report.put("rows", rows);
+            report.put("processed_total", checkpoint.getProcessed());
+        } catch (Exception e) {
+            log.error("Error en la carga inicial de estadísticas diarias: {}", e.getMessage());
+            report.put("status", "FAILED");
+            report.put("error", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+
+        report.put("duration_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Carga inicial de estadísticas diarias: {}", report);
+        return report;
+    }
+}
@@ -0,0 +1,302 @@
+package com.gamified.application.progress.service;
+
+import com.gamified.application.progress.model.entity.StudentActivity;
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+import com.gamified.application.progress.repository.StudentActivityRepository;
+import com.gamified.application.shared.model.event.DomainEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Actividad incremental por estudiante.
+ * Cada intento actualiza en memoria la última actividad y los contadores por día de los últimos
+ * 7 días, y acumula los incrementos pendientes (intentos, aciertos, puntos y tiempo) que se guardan
+ * por lotes en student_activity y student_daily_stats. Así la detección de inactividad, la de bajo
+ * rendimiento y los reportes recorren tablas pequeñas por rango en lugar de agregar exercise_attempt.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StudentActivityTracker {
+
+    static final int WINDOW_DAYS = 7;
+
+    private final StudentActivityRepository studentActivityRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${progress.activity.max-entries:50000}")
+    private int maxEntries;
+
+    private final Map<Integer, ActivityWindow> windows = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ActivityWindow> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // Incrementos aún no guardados por estudiante
+    private final Map<Integer, PendingActivity> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Registra cada intento sin tocar la BD: solo memoria e incrementos pendientes
+     */
+    @EventListener
+    public void onExerciseCompleted(DomainEvent.ExerciseCompletedEvent event) {
+        if (event.getStudentProfileId() == null) {
+            return;
+        }
+
+        LocalDateTime occurredAt = event.getOccurredAt() != null ? event.getOccurredAt() : LocalDateTime.now();
+        boolean correct = Boolean.TRUE.equals(event.getIsCorrect());
+        // Mismos valores que guarda el intento: points_earned = parte entera del score
+        int points = event.getScore() != null ? event.getScore().intValue() : 0;
+        int timeSpent = event.getTimeSpentSeconds() != null ? event.getTimeSpentSeconds() : 0;
+
+        pending.compute(event.getStudentProfileId(), (studentId, activity) -> {
+            PendingActivity updated = activity != null ? activity : new PendingActivity();
+            updated.record(occurredAt, correct, points, timeSpent);
+            return updated;
+        });
+
+        synchronized (windows) {
+            // Solo si ya está en memoria: una ventana ausente se carga al leerla (BD + pendientes)
+            ActivityWindow window = windows.get(event.getStudentProfileId());
+            if (window != null) {
+                window.record(occurredAt, correct);
+            }
+        }
+    }
+
+    /**
+     * Actividad reciente de un estudiante, cargándola desde la BD si no está en memoria
+     */
+    public StudentActivity getActivity(Integer studentProfileId) {
+        LocalDate today = LocalDate.now();
+        ActivityWindow window;
+        synchronized (windows) {
+            window = windows.get(studentProfileId);
+        }
+
+        if (window == null) {
+            window = hydrate(studentProfileId, today);
+            synchronized (windows) {
+                ActivityWindow existing = windows.putIfAbsent(studentProfileId, window);
+                if (existing != null) {
+                    window = existing;
+                }
+            }
+        }
+
+        synchronized (windows) {
+            return window.toActivity(studentProfileId, today);
+        }
+    }
+
+    /**
+     * Contadores diarios de un estudiante entre dos fechas (inclusive), incluidos los incrementos
+     * aún no guardados. Una fila por día con actividad, en orden de fecha.
+     */
+    public List<StudentDailyStats> getDailyStats(Integer studentProfileId, LocalDate fromDate, LocalDate toDate) {
+        Map<LocalDate, StudentDailyStats> byDate = new TreeMap<>();
+        for (StudentDailyStats stats : studentActivityRepository.findDailyStats(studentProfileId, fromDate, toDate)) {
+            byDate.put(stats.getStatDate(), stats);
+        }
+
+        PendingActivity unsaved = pending.get(studentProfileId);
+        if (unsaved != null) {
+            synchronized (unsaved) {
+                unsaved.perDay.forEach((date, counts) -> {
+                    if (date.isBefore(fromDate) || date.isAfter(toDate)) {
+                        return;
+                    }
+                    StudentDailyStats stats = byDate.computeIfAbsent(date, key -> StudentDailyStats.builder()
+                            .studentProfileId(studentProfileId).statDate(key)
+                            .attempts(0).correct(0).points(0).timeSpentSeconds(0).build());
+                    stats.setAttempts(stats.getAttempts() + counts[0]);
+                    stats.setCorrect(stats.getCorrect() + counts[1]);
+                    stats.setPoints(stats.getPoints() + counts[2]);
+                    stats.setTimeSpentSeconds(stats.getTimeSpentSeconds() + counts[3]);
+                });
+            }
+        }
+        return new ArrayList<>(byDate.values());
+    }
+
+    /**
+     * Guarda los incrementos pendientes. Los trabajos que leen las tablas lo llaman antes de empezar.
+     */
+    @Scheduled(fixedDelayString = "${progress.activity.flush-interval-ms:30000}",
+               initialDelayString = "${progress.activity.flush-interval-ms:30000}")
+    @PreDestroy
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, PendingActivity> drained = new HashMap<>();
+        for (Integer studentId : new ArrayList<>(pending.keySet())) {
+            PendingActivity activity = pending.remove(studentId);
+            if (activity != null) {
+                drained.put(studentId, activity);
+            }
+        }
+
+        Map<Integer, LocalDateTime> lastActivities = new HashMap<>();
+        List<StudentDailyStats> increments = new ArrayList<>();
+        drained.forEach((studentId, activity) -> {
+            lastActivities.put(studentId, activity.lastActivityAt);
+            activity.perDay.forEach((date, counts) -> increments.add(StudentDailyStats.builder()
+                    .studentProfileId(studentId)
+                    .statDate(date)
+                    .attempts(counts[0])
+                    .correct(counts[1])
+                    .points(counts[2])
+                    .timeSpentSeconds(counts[3])
+                    .build()));
+        });
+
+        try {
+            // Ambos lotes en una transacción: si algo falla no queda ningún incremento sumado
+            transactionTemplate.executeWithoutResult(status -> {
+                studentActivityRepository.saveLastActivities(lastActivities);
+                studentActivityRepository.addDailyStats(increments);
+            });
+        } catch (RuntimeException e) {
+            // Se deshizo todo: se reintenta en el siguiente ciclo sumando lo que haya llegado mientras tanto
+            drained.forEach((studentId, activity) -> pending.merge(studentId, activity, PendingActivity::mergeWith));
+            log.warn("No se pudo guardar la actividad de {} estudiantes, se reintentará: {}", drained.size(), e.getMessage());
+        }
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private ActivityWindow hydrate(Integer studentProfileId, LocalDate today) {
+        ActivityWindow window = new ActivityWindow();
+        studentActivityRepository.findLastActivity(studentProfileId).ifPresent(window::touch);
+        for (StudentDailyStats stats : studentActivityRepository.findDailyStats(studentProfileId, today.minusDays(WINDOW_DAYS - 1), today)) {
+            window.add(stats.getStatDate(), stats.getAttempts(), stats.getCorrect());
+        }
+
+        // Lo registrado en memoria y aún no guardado no está en la BD
+        PendingActivity unsaved = pending.get(studentProfileId);
+        if (unsaved != null) {
+            synchronized (unsaved) {
+                window.touch(unsaved.lastActivityAt);
+                unsaved.perDay.forEach((date, counts) -> window.add(date, counts[0], counts[1]));
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Incrementos de un estudiante pendientes de guardar
+     */
+    private static class PendingActivity {
+        private LocalDateTime lastActivityAt;
+        private final Map<LocalDate, int[]> perDay = new HashMap<>(4);
+
+        synchronized void record(LocalDateTime occurredAt, boolean correct, int points, int timeSpentSeconds) {
+            if (lastActivityAt == null || occurredAt.isAfter(lastActivityAt)) {
+                lastActivityAt = occurredAt;
+            }
+            // {intentos, aciertos, puntos, segundos}
+            int[] counts = perDay.computeIfAbsent(occurredAt.toLocalDate(), date -> new int[4]);
+            counts[0]++;
+            if (correct) {
+                counts[1]++;
+            }
+            counts[2] += points;
+            counts[3] += timeSpentSeconds;
+        }
+
+        synchronized PendingActivity mergeWith(PendingActivity other) {
+            if (other.lastActivityAt != null && (lastActivityAt == null || other.lastActivityAt.isAfter(lastActivityAt))) {
+                lastActivityAt = other.lastActivityAt;
+            }
+            other.perDay.forEach((date, counts) -> {
+                int[] merged = perDay.computeIfAbsent(date, key -> new int[4]);
+                for (int i = 0; i < merged.length; i++) {
+                    merged[i] += counts[i];
+                }
+            });
+            return this;
+        }
+    }
+
+    /**
+     * Última actividad y contadores por día en un anillo de 7 posiciones (una por día)
+     */
+    static class ActivityWindow {
+        private LocalDateTime lastActivityAt;
+        private final long[] days = new long[WINDOW_DAYS];
+        private final int[] attempts = new int[WINDOW_DAYS];
+        private final int[] correct = new int[WINDOW_DAYS];
+
+        ActivityWindow() {
+            Arrays.fill(days, Long.MIN_VALUE);
+        }
+
+        void record(LocalDateTime occurredAt, boolean isCorrect) {
+            touch(occurredAt);
+            add(occurredAt.toLocalDate(), 1, isCorrect ? 1 : 0);
+        }
+
+        void touch(LocalDateTime occurredAt) {
+            if (occurredAt != null && (lastActivityAt == null || occurredAt.isAfter(lastActivityAt))) {
+                lastActivityAt = occurredAt;
+            }
+        }
+
+        void add(LocalDate date, int attemptCount, int correctCount) {
+            long day = date.toEpochDay();
+            int slot = (int) Math.floorMod(day, (long) WINDOW_DAYS);
+            if (days[slot] > day) {
+                return; // Más antiguo que lo que ocupa la posición: fuera de la ventana
+            }
+            if (days[slot] != day) {
+                days[slot] = day;
+                attempts[slot] = 0;
+                correct[slot] = 0;
+            }
+            attempts[slot] += attemptCount;
+            correct[slot] += correctCount;
+        }
+
+        StudentActivity toActivity(Integer studentProfileId, LocalDate today) {
+            long from = today.toEpochDay() - (WINDOW_DAYS - 1);
+            int totalAttempts = 0;
+            int totalCorrect = 0;
+            for (int i = 0; i < WINDOW_DAYS; i++) {
+                if (days[i] >= from) {
+                    totalAttempts += attempts[i];
+                    totalCorrect += correct[i];
+                }
+            }
+            return StudentActivity.builder()
+                    .studentProfileId(studentProfileId)
+                    .lastActivityAt(lastActivityAt)
+                    .attemptsLast7Days(totalAttempts)
+                    .correctLast7Days(totalCorrect)
+                    .build();
+        }
+    }
+}
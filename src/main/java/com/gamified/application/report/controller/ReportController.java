@@ -1,19 +1,40 @@
 package com.gamified.application.report.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamified.application.auth.service.auth.TokenService;
+import com.gamified.application.clasroom.service.ClassroomService;
+import com.gamified.application.institution.service.InstitutionService;
 import com.gamified.application.report.model.entity.StudentReport;
+import com.gamified.application.report.service.ReportExportService;
 import com.gamified.application.report.service.ReportService;
 import com.gamified.application.shared.model.dto.response.CommonResponseDto;
+import com.gamified.application.shared.util.AuthenticationUtils;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controlador REST para módulo de reportes y analytics
@@ -29,6 +50,21 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
 
+    @Autowired
+    private ReportExportService reportExportService;
+
+    @Autowired
+    private InstitutionService institutionService;
+
+    @Autowired
+    private ClassroomService classroomService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Genera reporte semanal para un estudiante
      */
@@ -175,8 +211,8 @@ public class ReportController {
         logger.info("GET /api/reports/student/{}/quick-stats", studentProfileId);
         
         try {
-            // Generar reporte de los últimos 7 días para obtener métricas rápidas
-            StudentReport weeklyReport = reportService.generateWeeklyReport(studentProfileId);
+            // Reporte de los últimos 7 días (caché de reportes) para obtener métricas rápidas
+            StudentReport weeklyReport = reportService.getCachedWeeklyReport(studentProfileId);
             
             // Extraer solo las métricas más importantes para dashboards
             Map<String, Object> quickStats = Map.of(
@@ -213,9 +249,9 @@ public class ReportController {
         logger.info("GET /api/reports/student/{}/trends", studentProfileId);
         
         try {
-            // Generar reportes de diferentes periodos para comparar tendencias
-            StudentReport currentWeek = reportService.generateWeeklyReport(studentProfileId);
-            StudentReport currentMonth = reportService.generateMonthlyReport(studentProfileId);
+            // Reportes de diferentes periodos (caché de reportes) para comparar tendencias
+            StudentReport currentWeek = reportService.getCachedWeeklyReport(studentProfileId);
+            StudentReport currentMonth = reportService.getCachedMonthlyReport(studentProfileId);
             
             // Calcular tendencias básicas
             Map<String, Object> trends = Map.of(
@@ -250,4 +286,222 @@ public class ReportController {
             );
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Exporta en streaming los datos de un aula (CSV o NDJSON, opcionalmente con gzip)
+     * @param dataset students (totales del periodo por estudiante) o attempts (cada intento)
+     * @param from Primer día del periodo (YYYY-MM-DD); por defecto 30 días antes de to
+     * @param to Último día del periodo (YYYY-MM-DD); por defecto hoy
+     */
+    @GetMapping("/classroom/{classroomId}/export")
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportClassroom(
+            @PathVariable Integer classroomId,
+            @RequestParam(defaultValue = "students") String dataset,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication,
+            HttpServletRequest httpRequest) {
+
+        logger.info("GET /api/reports/classroom/{}/export?dataset={}&format={}&from={}&to={}&gzip={}",
+                   classroomId, dataset, format, from, to, gzip);
+
+        // Un profesor solo exporta sus propias aulas; el administrador, cualquiera
+        if (!AuthenticationUtils.hasRole(authentication, "ADMIN")
+                && !teacherOwnsClassroom(httpRequest, classroomId)) {
+            return errorResponse(HttpStatus.FORBIDDEN, "El aula no pertenece al profesor");
+        }
+
+        try {
+            ReportExportService.Dataset exportDataset = ReportExportService.Dataset.valueOf(dataset.toUpperCase());
+            ReportExportService.Format exportFormat = ReportExportService.Format.valueOf(format.toUpperCase());
+            LocalDate toDate = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate fromDate = from != null ? LocalDate.parse(from) : toDate.minusDays(29);
+
+            StreamingResponseBody export = out -> reportExportService.exportClassroom(
+                    classroomId, exportDataset, exportFormat, fromDate, toDate, gzip, out);
+            return exportResponse("aula_" + classroomId, exportDataset, exportFormat, fromDate, toDate, gzip,
+                    export, httpRequest);
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            logger.error("Parámetros de exportación inválidos: {}", e.getMessage());
+            return errorResponse(HttpStatus.BAD_REQUEST,
+                    "Parámetros inválidos. dataset: students|attempts, format: csv|ndjson, fechas YYYY-MM-DD");
+        }
+    }
+
+    /**
+     * ADMIN: exporta en streaming los datos de toda la institución (CSV o NDJSON, opcionalmente con gzip)
+     * @param dataset students (totales del periodo por estudiante) o attempts (cada intento)
+     * @param from Primer día del periodo (YYYY-MM-DD); por defecto 30 días antes de to
+     * @param to Último día del periodo (YYYY-MM-DD); por defecto hoy
+     */
+    @GetMapping("/institution/{institutionId}/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportInstitution(
+            @PathVariable Long institutionId,
+            @RequestParam(defaultValue = "students") String dataset,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication,
+            HttpServletRequest httpRequest) {
+
+        logger.info("GET /api/reports/institution/{}/export?dataset={}&format={}&from={}&to={}&gzip={}",
+                   institutionId, dataset, format, from, to, gzip);
+
+        if (authentication == null
+                || !institutionService.validateUserBelongsToInstitution(authentication.getName(), institutionId)) {
+            return errorResponse(HttpStatus.FORBIDDEN, "El administrador no pertenece a esta institución");
+        }
+
+        try {
+            ReportExportService.Dataset exportDataset = ReportExportService.Dataset.valueOf(dataset.toUpperCase());
+            ReportExportService.Format exportFormat = ReportExportService.Format.valueOf(format.toUpperCase());
+            LocalDate toDate = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate fromDate = from != null ? LocalDate.parse(from) : toDate.minusDays(29);
+
+            StreamingResponseBody export = out -> reportExportService.exportInstitution(
+                    institutionId, exportDataset, exportFormat, fromDate, toDate, gzip, out);
+            return exportResponse("institucion_" + institutionId, exportDataset, exportFormat, fromDate, toDate, gzip,
+                    export, httpRequest);
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            logger.error("Parámetros de exportación inválidos: {}", e.getMessage());
+            return errorResponse(HttpStatus.BAD_REQUEST,
+                    "Parámetros inválidos. dataset: students|attempts, format: csv|ndjson, fechas YYYY-MM-DD");
+        }
+    }
+
+    /**
+     * Respuesta de descarga: el cuerpo se escribe fila a fila después de devolver las cabeceras.
+     * El turno de exportación se reserva antes de responder, para que sin turnos libres el cliente
+     * reciba un 429 en lugar de una descarga ya iniciada que se corta. Se libera al terminar el cuerpo
+     * o, si la respuesta caduca o falla antes, al avisar de ello el ciclo asíncrono de la petición.
+     * El tiempo máximo se aplica solo a esta respuesta.
+     */
+    private ResponseEntity<StreamingResponseBody> exportResponse(String scope, ReportExportService.Dataset dataset,
+                                                                 ReportExportService.Format format, LocalDate fromDate,
+                                                                 LocalDate toDate, boolean gzip, StreamingResponseBody export,
+                                                                 HttpServletRequest httpRequest) {
+        if (fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("from posterior a to");
+        }
+        if (!reportExportService.tryAcquireSlot()) {
+            logger.warn("Exportación de {} rechazada: no hay turnos libres", scope);
+            ResponseEntity<StreamingResponseBody> rejected = errorResponse(HttpStatus.TOO_MANY_REQUESTS,
+                    "Hay demasiadas exportaciones en curso, intente más tarde");
+            return ResponseEntity.status(rejected.getStatusCode())
+                    .headers(rejected.getHeaders())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(reportExportService.getRetryAfterSeconds()))
+                    .body(rejected.getBody());
+        }
+
+        // El cuerpo y el ciclo asíncrono pueden terminar a la vez: el turno se devuelve una sola vez
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable releaseSlot = () -> {
+            if (released.compareAndSet(false, true)) {
+                reportExportService.releaseSlot();
+            }
+        };
+        WebAsyncUtils.getAsyncManager(httpRequest).registerCallableInterceptor("report-export",
+                new ExportLifecycleInterceptor(scope, reportExportService.getTimeoutMs(), releaseSlot));
+
+        StreamingResponseBody body = out -> {
+            try {
+                export.writeTo(out);
+            } finally {
+                releaseSlot.run();
+            }
+        };
+
+        String filename = String.format("%s_%s_%s_%s.%s%s", scope, dataset.name().toLowerCase(), fromDate, toDate,
+                format.getExtension(), gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8");
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Respuesta de error de las exportaciones. Se escribe como cuerpo en streaming porque el tipo
+     * declarado de estos endpoints debe ser StreamingResponseBody para que Spring los trate como descarga
+     */
+    private ResponseEntity<StreamingResponseBody> errorResponse(HttpStatus status, String message) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(new CommonResponseDto<>(false, message, (Object) null));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta de error", e);
+        }
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(json));
+    }
+
+    /**
+     * Comprueba con el usuario del token que el aula pertenece al profesor que la exporta
+     */
+    private boolean teacherOwnsClassroom(HttpServletRequest httpRequest, Integer classroomId) {
+        try {
+            String token = AuthenticationUtils.extractToken(httpRequest);
+            if (token == null) {
+                return false;
+            }
+            Long teacherUserId = tokenService.extractUserId(token);
+            return teacherUserId != null && classroomService.verifyClassroomOwnership(teacherUserId, classroomId);
+        } catch (Exception e) {
+            logger.error("Error al verificar el aula {} del profesor: {}", classroomId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Fija el tiempo máximo de la respuesta de exportación antes de iniciar el procesamiento asíncrono
+     * y devuelve el turno si la respuesta caduca, falla o se cierra sin que el cuerpo termine
+     */
+    private static class ExportLifecycleInterceptor implements CallableProcessingInterceptor {
+        private final String scope;
+        private final long timeoutMs;
+        private final Runnable releaseSlot;
+
+        ExportLifecycleInterceptor(String scope, long timeoutMs, Runnable releaseSlot) {
+            this.scope = scope;
+            this.timeoutMs = timeoutMs;
+            this.releaseSlot = releaseSlot;
+        }
+
+        @Override
+        public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+            if (request instanceof AsyncWebRequest asyncRequest) {
+                asyncRequest.setTimeout(timeoutMs);
+            }
+        }
+
+        @Override
+        public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+            logger.warn("Exportación de {} cancelada: superó {} ms", scope, timeoutMs);
+            releaseSlot.run();
+            return RESULT_NONE;
+        }
+
+        @Override
+        public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) {
+            logger.warn("Exportación de {} interrumpida: {}", scope, t.getMessage());
+            releaseSlot.run();
+            return RESULT_NONE;
+        }
+
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+            releaseSlot.run();
+        }
+    }
+}
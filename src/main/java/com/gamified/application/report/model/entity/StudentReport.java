@@ -63,6 +63,39 @@ public class StudentReport {
         this.isActive = true;
     }
 
+    /**
+     * Copia de otro reporte; todos los campos son inmutables, así que la copia es independiente
+     */
+    public StudentReport(StudentReport other) {
+        this.id = other.id;
+        this.studentProfileId = other.studentProfileId;
+        this.studentUsername = other.studentUsername;
+        this.reportType = other.reportType;
+        this.reportPeriodStart = other.reportPeriodStart;
+        this.reportPeriodEnd = other.reportPeriodEnd;
+        this.totalExercisesCompleted = other.totalExercisesCompleted;
+        this.correctExercises = other.correctExercises;
+        this.successRate = other.successRate;
+        this.averageTimePerExercise = other.averageTimePerExercise;
+        this.totalPointsEarned = other.totalPointsEarned;
+        this.achievementsUnlocked = other.achievementsUnlocked;
+        this.totalAchievementPoints = other.totalAchievementPoints;
+        this.activeDays = other.activeDays;
+        this.currentStreak = other.currentStreak;
+        this.longestStreak = other.longestStreak;
+        this.learningPointsCompleted = other.learningPointsCompleted;
+        this.learningPointsInProgress = other.learningPointsInProgress;
+        this.alertLevel = other.alertLevel;
+        this.alertReason = other.alertReason;
+        this.overallPerformanceScore = other.overallPerformanceScore;
+        this.classAverage = other.classAverage;
+        this.classRanking = other.classRanking;
+        this.totalClassmates = other.totalClassmates;
+        this.generatedAt = other.generatedAt;
+        this.lastUpdated = other.lastUpdated;
+        this.isActive = other.isActive;
+    }
+
     // Getters and Setters
     public Integer getId() {
         return id;
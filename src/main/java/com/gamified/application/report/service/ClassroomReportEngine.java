@@ -0,0 +1,219 @@
+package com.gamified.application.report.service;
+
+import com.gamified.application.progress.service.DailyStatsBackfillJob;
+import com.gamified.application.progress.service.StudentActivityTracker;
+import com.gamified.application.report.model.entity.StudentReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reportes de todos los estudiantes de un aula a la vez.
+ * En lugar de generar el reporte de cada estudiante por separado (unas 8 consultas por estudiante),
+ * obtiene las métricas de toda el aula con tres consultas agrupadas por estudiante y calcula en
+ * memoria promedios, ranking y niveles de alerta.
+ */
+@Service
+public class ClassroomReportEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassroomReportEngine.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StudentActivityTracker studentActivityTracker;
+
+    @Autowired
+    private DailyStatsBackfillJob dailyStatsBackfillJob;
+
+    /**
+     * Genera los reportes del periodo para todos los estudiantes inscritos en el aula
+     */
+    public List<StudentReport> generateClassroomReports(Integer classroomId, String reportType,
+                                                        LocalDateTime periodStart, LocalDateTime periodEnd) {
+        long start = System.nanoTime();
+
+        Map<Integer, StudentReport> reports = loadStudents(classroomId, reportType, periodStart, periodEnd);
+        if (reports.isEmpty()) {
+            return List.of();
+        }
+        populateExerciseMetrics(reports, classroomId, periodStart, periodEnd);
+        populateAchievementMetrics(reports, classroomId, periodStart, periodEnd);
+
+        List<StudentReport> result = reports.values().parallelStream()
+                .map(report -> {
+                    report.calculateOverallPerformanceScore();
+                    report.calculateAlertLevel();
+                    return report;
+                })
+                .toList();
+        populateClassComparatives(result);
+
+        logger.info("Reportes {} de aula {} generados: {} estudiantes en {} ms", reportType, classroomId,
+                result.size(), (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Estudiantes del aula con alguna alerta en la última semana, de mayor a menor prioridad
+     */
+    public List<StudentReport> getStudentsNeedingAttention(Integer classroomId) {
+        LocalDateTime endDate = LocalDateTime.now();
+        LocalDateTime startDate = endDate.minusDays(7);
+
+        return generateClassroomReports(classroomId, "WEEKLY", startDate, endDate).parallelStream()
+                .filter(report -> !"NONE".equals(report.getAlertLevel()))
+                .sorted(Comparator.comparingInt((StudentReport report) -> getAlertPriority(report.getAlertLevel())).reversed())
+                .toList();
+    }
+
+    /**
+     * Obtiene la prioridad numérica del nivel de alerta
+     */
+    static int getAlertPriority(String alertLevel) {
+        if (alertLevel == null) {
+            return 0;
+        }
+        return switch (alertLevel) {
+            case "HIGH" -> 3;
+            case "MEDIUM" -> 2;
+            case "LOW" -> 1;
+            default -> 0;
+        };
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    /**
+     * Estudiantes inscritos con nombre y racha (consulta 1)
+     */
+    private Map<Integer, StudentReport> loadStudents(Integer classroomId, String reportType,
+                                                     LocalDateTime periodStart, LocalDateTime periodEnd) {
+        String sql = """
+            SELECT DISTINCT e.student_profile_id, sp.username, s.current_streak_days, s.longest_streak_days
+            FROM enrollment e
+            LEFT JOIN student_profile sp ON sp.id = e.student_profile_id
+            LEFT JOIN streak s ON s.student_profile_id = e.student_profile_id
+            WHERE e.classroom_id = ?
+            """;
+
+        Map<Integer, StudentReport> reports = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            StudentReport report = new StudentReport(rs.getInt("student_profile_id"), reportType, periodStart, periodEnd);
+            String username = rs.getString("username");
+            report.setStudentUsername(username != null ? username : "Usuario Desconocido");
+            report.setCurrentStreak(rs.getInt("current_streak_days"));
+            report.setLongestStreak(rs.getInt("longest_streak_days"));
+
+            // Valores por defecto para quien no tenga actividad en el periodo
+            report.setTotalExercisesCompleted(0);
+            report.setCorrectExercises(0);
+            report.setSuccessRate(0.0);
+            report.setAverageTimePerExercise(0.0);
+            report.setTotalPointsEarned(0);
+            report.setActiveDays(0);
+            report.setAchievementsUnlocked(0);
+            report.setTotalAchievementPoints(0);
+            report.setLearningPointsCompleted(0);
+            report.setLearningPointsInProgress(0);
+            reports.put(report.getStudentProfileId(), report);
+        }, classroomId);
+        return reports;
+    }
+
+    /**
+     * Ejercicios, aciertos, tiempo, puntos y días activos por estudiante (consulta 2).
+     * Suma los contadores diarios de student_daily_stats (a lo sumo una fila por estudiante y día) o,
+     * mientras su carga inicial no termina, los intentos del periodo
+     */
+    private void populateExerciseMetrics(Map<Integer, StudentReport> reports, Integer classroomId,
+                                         LocalDateTime periodStart, LocalDateTime periodEnd) {
+        String sql = ReportService.periodTotalsSql(ReportService.CLASSROOM_STUDENTS_SQL,
+                dailyStatsBackfillJob.isCompleted());
+
+        try {
+            // Lo registrado en memoria y aún no guardado no está en student_daily_stats
+            studentActivityTracker.flush();
+            jdbcTemplate.query(sql, rs -> {
+                StudentReport report = reports.get(rs.getInt("student_profile_id"));
+                if (report == null) {
+                    return;
+                }
+                int total = rs.getInt("attempts");
+                int correct = rs.getInt("correct");
+                report.setTotalExercisesCompleted(total);
+                report.setCorrectExercises(correct);
+                report.setAverageTimePerExercise(total > 0
+                        ? Math.round(rs.getLong("time_spent_seconds") * 100.0 / total) / 100.0 : 0.0);
+                report.setTotalPointsEarned(rs.getInt("points"));
+                report.setActiveDays(rs.getInt("active_days"));
+                report.setSuccessRate(total > 0 ? Math.round(correct / (double) total * 10000.0) / 100.0 : 0.0);
+            }, classroomId, ReportService.windowStartDate(periodStart), periodEnd.toLocalDate().plusDays(1));
+        } catch (Exception e) {
+            logger.warn("No se pudieron obtener métricas de ejercicios del aula {}: {}", classroomId, e.getMessage());
+        }
+    }
+
+    /**
+     * Logros desbloqueados y sus puntos por estudiante (consulta 3)
+     */
+    private void populateAchievementMetrics(Map<Integer, StudentReport> reports, Integer classroomId,
+                                            LocalDateTime periodStart, LocalDateTime periodEnd) {
+        String sql = """
+            SELECT
+                sa.student_profile_id,
+                COUNT(*) as achievements_count,
+                SUM(sa.points_awarded) as achievement_points
+            FROM student_achievement sa
+            WHERE sa.student_profile_id IN (SELECT e.student_profile_id FROM enrollment e WHERE e.classroom_id = ?)
+              AND sa.earned_at BETWEEN ? AND ?
+              AND sa.is_active = 1
+            GROUP BY sa.student_profile_id
+            """;
+
+        try {
+            jdbcTemplate.query(sql, rs -> {
+                StudentReport report = reports.get(rs.getInt("student_profile_id"));
+                if (report != null) {
+                    report.setAchievementsUnlocked(rs.getInt("achievements_count"));
+                    report.setTotalAchievementPoints(rs.getInt("achievement_points"));
+                }
+            }, classroomId, periodStart, periodEnd);
+        } catch (Exception e) {
+            logger.warn("No se pudieron obtener métricas de logros del aula {}: {}", classroomId, e.getMessage());
+        }
+    }
+
+    /**
+     * Promedio de la clase (estudiantes sin actividad cuentan como 0) y posición por tasa de éxito
+     */
+    private void populateClassComparatives(List<StudentReport> reports) {
+        double classAverage = reports.stream().mapToDouble(StudentReport::getSuccessRate).average().orElse(0.0);
+        double roundedAverage = Math.round(classAverage * 100.0) / 100.0;
+
+        // Empates comparten posición: ranking = 1 + estudiantes con tasa estrictamente mayor
+        Map<Double, Integer> rankByRate = new HashMap<>();
+        List<Double> rates = reports.stream().map(StudentReport::getSuccessRate).sorted(Comparator.reverseOrder()).toList();
+        for (int i = 0; i < rates.size(); i++) {
+            rankByRate.putIfAbsent(rates.get(i), i + 1);
+        }
+
+        for (StudentReport report : reports) {
+            report.setTotalClassmates(reports.size());
+            report.setClassAverage(roundedAverage);
+            report.setClassRanking(rankByRate.get(report.getSuccessRate()));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.gamified.application.report.service;
+
+import com.gamified.application.report.model.entity.StudentReport;
+import com.gamified.application.shared.model.event.DomainEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caché de reportes por (estudiante, tipo de reporte, ventana).
+ * Un intento, logro o cambio de racha del estudiante borra sus reportes. Además cada reporte tiene un
+ * TTL blando: pasado ese tiempo se sirve el reporte guardado y se recalcula en segundo plano (cubre
+ * cambios ajenos al estudiante, como el promedio de su clase); pasado el TTL máximo se recalcula antes
+ * de responder. Las peticiones simultáneas de un mismo reporte comparten un único cálculo.
+ * Cada llamador recibe su propia copia del reporte, así que modificarla no altera lo guardado.
+ */
+@Component
+public class ReportCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportCache.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${report.cache.soft-ttl-ms:60000}")
+    private long softTtlMs;
+
+    @Value("${report.cache.max-age-ms:600000}")
+    private long maxAgeMs;
+
+    @Value("${report.cache.max-students:20000}")
+    private int maxStudents;
+
+    @Value("${report.cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    private final Map<Integer, StudentEntries> students = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, StudentEntries> eldest) {
+            return size() > maxStudents;
+        }
+    };
+
+    // Cálculos en curso: las peticiones del mismo reporte esperan el mismo resultado
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private ExecutorService refreshExecutor;
+    private Counter hits;
+    private Counter staleHits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        refreshExecutor = Executors.newFixedThreadPool(refreshThreads, runnable -> {
+            Thread thread = new Thread(runnable, "report-cache-refresh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        hits = Counter.builder("report.cache.lookups").tag("result", "hit")
+                .description("Consultas de la caché de reportes").register(meterRegistry);
+        staleHits = Counter.builder("report.cache.lookups").tag("result", "stale")
+                .description("Consultas de la caché de reportes").register(meterRegistry);
+        misses = Counter.builder("report.cache.lookups").tag("result", "miss")
+                .description("Consultas de la caché de reportes").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Devuelve el reporte guardado o lo calcula con loader (una sola vez aunque lo pidan varios a la vez)
+     * @param window Ventana del reporte (p. ej. "7d"); junto al tipo identifica el reporte del estudiante
+     */
+    public StudentReport get(Integer studentProfileId, String reportType, String window, Supplier<StudentReport> loader) {
+        String reportKey = reportType + ":" + window;
+        Entry entry = null;
+        synchronized (students) {
+            StudentEntries entries = students.get(studentProfileId);
+            if (entries != null) {
+                entry = entries.reports.get(reportKey);
+            }
+        }
+
+        if (entry != null) {
+            long ageMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.computedAtNanos);
+            if (ageMs < softTtlMs) {
+                hits.increment();
+                return copyOf(entry.report);
+            }
+            if (ageMs < maxAgeMs) {
+                staleHits.increment();
+                load(studentProfileId, reportKey, loader, true);
+                return copyOf(entry.report);
+            }
+        }
+
+        misses.increment();
+        try {
+            return copyOf(load(studentProfileId, reportKey, loader, false).join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Borra los reportes guardados del estudiante y descarta los cálculos en curso, aunque el
+     * estudiante no tenga reportes guardados o se hayan desalojado mientras se calculaban
+     */
+    public void invalidate(Integer studentProfileId) {
+        if (studentProfileId == null) {
+            return;
+        }
+        synchronized (students) {
+            StudentEntries entries = students.get(studentProfileId);
+            if (entries != null) {
+                entries.reports.clear();
+            }
+            // Pocos cálculos en curso a la vez: recorrerlos es barato
+            for (Flight flight : inFlight.values()) {
+                if (flight.studentProfileId.equals(studentProfileId)) {
+                    flight.invalidated = true;
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void onExerciseCompleted(DomainEvent.ExerciseCompletedEvent event) {
+        invalidate(event.getStudentProfileId());
+    }
+
+    @EventListener
+    public void onAchievementUnlocked(DomainEvent.AchievementUnlockedEvent event) {
+        invalidate(event.getStudentProfileId());
+    }
+
+    @EventListener
+    public void onStreakUpdated(DomainEvent.StreakUpdatedEvent event) {
+        invalidate(event.getStudentProfileId());
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private CompletableFuture<StudentReport> load(Integer studentProfileId, String reportKey,
+                                                  Supplier<StudentReport> loader, boolean async) {
+        String flightKey = studentProfileId + ":" + reportKey;
+        Flight created = new Flight(studentProfileId);
+        Flight existing = inFlight.putIfAbsent(flightKey, created);
+        if (existing != null) {
+            // Un cálculo que empezó antes de la última invalidación no sirve a quien pide después
+            if (!existing.invalidated || async || !inFlight.replace(flightKey, existing, created)) {
+                return existing.future;
+            }
+        }
+
+        Runnable task = () -> {
+            long startedAtNanos = System.nanoTime();
+            try {
+                StudentReport report = loader.get();
+                store(studentProfileId, reportKey, report, startedAtNanos, created);
+                created.future.complete(report);
+            } catch (Throwable e) {
+                created.future.completeExceptionally(e);
+            } finally {
+                inFlight.remove(flightKey, created);
+            }
+        };
+
+        if (!async) {
+            task.run();
+            return created.future;
+        }
+        try {
+            refreshExecutor.execute(task);
+        } catch (Exception e) {
+            inFlight.remove(flightKey, created);
+            logger.debug("No se pudo programar la actualización del reporte {}: {}", flightKey, e.getMessage());
+        }
+        return created.future;
+    }
+
+    private void store(Integer studentProfileId, String reportKey, StudentReport report, long startedAtNanos,
+                       Flight flight) {
+        synchronized (students) {
+            // Si llegó un intento mientras se calculaba, el resultado ya no está al día
+            if (flight.invalidated) {
+                return;
+            }
+            students.computeIfAbsent(studentProfileId, id -> new StudentEntries())
+                    .reports.put(reportKey, new Entry(copyOf(report), startedAtNanos));
+        }
+    }
+
+    private static StudentReport copyOf(StudentReport report) {
+        return report != null ? new StudentReport(report) : null;
+    }
+
+    /**
+     * Reportes guardados de un estudiante
+     */
+    private static class StudentEntries {
+        private final Map<String, Entry> reports = new LinkedHashMap<>(4);
+    }
+
+    /**
+     * Cálculo en curso de un reporte; se marca como invalidado si el estudiante cambia mientras tanto
+     */
+    private static class Flight {
+        private final Integer studentProfileId;
+        private final CompletableFuture<StudentReport> future = new CompletableFuture<>();
+        private volatile boolean invalidated; // se marca con el lock de students
+
+        Flight(Integer studentProfileId) {
+            this.studentProfileId = studentProfileId;
+        }
+    }
+
+    private static class Entry {
+        private final StudentReport report;
+        private final long computedAtNanos;
+
+        Entry(StudentReport report, long computedAtNanos) {
+            this.report = report;
+            this.computedAtNanos = computedAtNanos;
+        }
+    }
+}
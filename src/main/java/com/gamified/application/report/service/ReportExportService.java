@@ -0,0 +1,292 @@
+package com.gamified.application.report.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamified.application.progress.service.DailyStatsBackfillJob;
+import com.gamified.application.progress.service.StudentActivityTracker;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDate;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación de datos de reportes de un aula o una institución en CSV o NDJSON.
+ * Cada fila se escribe en la respuesta en cuanto se lee de un cursor de solo avance, sin cargar el
+ * resultado en memoria, por lo que el heap usado no depende del tamaño de la exportación. Cada
+ * exportación ocupa una conexión mientras dura, así que se limitan las exportaciones simultáneas:
+ * el controlador obtiene un turno con tryAcquireSlot antes de responder y lo libera con releaseSlot
+ * cuando termina de escribir la respuesta.
+ */
+@Service
+public class ReportExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportExportService.class);
+
+    /**
+     * Formato de salida
+     */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Datos a exportar: resumen por estudiante del periodo o cada intento del periodo
+     */
+    public enum Dataset {
+        STUDENTS,
+        ATTEMPTS
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentActivityTracker studentActivityTracker;
+
+    @Autowired
+    private DailyStatsBackfillJob dailyStatsBackfillJob;
+
+    @Value("${report.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${report.export.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${report.export.wait-ms:10000}")
+    private long waitMs;
+
+    @Value("${report.export.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    @Value("${report.export.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private Semaphore slots;
+
+    @PostConstruct
+    void init() {
+        slots = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Reserva un turno de exportación, esperando como máximo report.export.wait-ms
+     * @return false si no quedó ningún turno libre a tiempo
+     */
+    public boolean tryAcquireSlot() {
+        try {
+            return slots.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Libera un turno obtenido con tryAcquireSlot
+     */
+    public void releaseSlot() {
+        slots.release();
+    }
+
+    /**
+     * Segundos que se sugiere esperar al cliente cuando no hay turnos libres
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Tiempo máximo de una respuesta de exportación (solo para estas respuestas, no el global de MVC)
+     */
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Exporta los datos de los estudiantes inscritos en un aula. El llamador debe tener un turno.
+     * @param fromDate Primer día del periodo (inclusive)
+     * @param toDate Último día del periodo (inclusive)
+     * @return Filas exportadas
+     */
+    public long exportClassroom(Integer classroomId, Dataset dataset, Format format, LocalDate fromDate,
+                                LocalDate toDate, boolean gzip, OutputStream out) throws IOException {
+        String students = "SELECT DISTINCT student_profile_id FROM enrollment WHERE classroom_id = ?";
+        return export("aula " + classroomId, dataset, format, students, classroomId, fromDate, toDate, gzip, out);
+    }
+
+    /**
+     * Exporta los datos de todos los estudiantes de una institución. El llamador debe tener un turno.
+     * @param fromDate Primer día del periodo (inclusive)
+     * @param toDate Último día del periodo (inclusive)
+     * @return Filas exportadas
+     */
+    public long exportInstitution(Long institutionId, Dataset dataset, Format format, LocalDate fromDate,
+                                  LocalDate toDate, boolean gzip, OutputStream out) throws IOException {
+        String students = """
+            SELECT sp.id AS student_profile_id
+            FROM student_profile sp
+            INNER JOIN [user] u ON u.id = sp.user_id
+            WHERE u.institution_id = ?
+            """;
+        return export("institución " + institutionId, dataset, format, students, institutionId, fromDate, toDate, gzip, out);
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private long export(String scope, Dataset dataset, Format format, String studentsSql, Object scopeId,
+                        LocalDate fromDate, LocalDate toDate, boolean gzip, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String sql;
+            Object[] params;
+            if (dataset == Dataset.STUDENTS) {
+                // Lo registrado en memoria y aún no guardado no está en student_daily_stats
+                studentActivityTracker.flush();
+                sql = studentsSummarySql(studentsSql, dailyStatsBackfillJob.isCompleted());
+                params = new Object[]{scopeId, scopeId, fromDate, toDate.plusDays(1)};
+            } else {
+                sql = attemptsSql(studentsSql);
+                params = new Object[]{scopeId, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay()};
+            }
+
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            ReportExportWriter writer = ReportExportWriter.of(format, target, objectMapper);
+            Long rows = jdbcTemplate.query(forwardOnly(sql, params), writeRows(writer));
+            writer.finish();
+            if (target instanceof GZIPOutputStream compressed) {
+                compressed.finish();
+            }
+
+            logger.info("Exportación {} de {} ({} a {}): {} filas en {} ms", dataset, scope, fromDate, toDate,
+                    rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return rows != null ? rows : 0;
+        } catch (UncheckedIOException e) {
+            // Normalmente el cliente cerró la conexión; la consulta ya se canceló al salir del cursor
+            logger.warn("Exportación {} de {} interrumpida: {}", dataset, scope, e.getCause().getMessage());
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Totales del periodo por estudiante desde los contadores diarios, o desde los intentos mientras
+     * su carga inicial no termina (una fila por estudiante)
+     */
+    private static String studentsSummarySql(String studentsSql, boolean fromDailyStats) {
+        return """
+            SELECT
+                s.student_profile_id,
+                sp.username,
+                COALESCE(t.attempts, 0) AS attempts,
+                COALESCE(t.correct, 0) AS correct,
+                COALESCE(t.points, 0) AS points,
+                COALESCE(t.time_spent_seconds, 0) AS time_spent_seconds,
+                COALESCE(t.active_days, 0) AS active_days,
+                t.last_active_date,
+                COALESCE(st.current_streak_days, 0) AS current_streak_days
+            FROM (%s) s
+            INNER JOIN student_profile sp ON sp.id = s.student_profile_id
+            LEFT JOIN (%s) t ON t.student_profile_id = s.student_profile_id
+            LEFT JOIN streak st ON st.student_profile_id = s.student_profile_id
+            ORDER BY s.student_profile_id
+            """.formatted(studentsSql, ReportService.periodTotalsSql(studentsSql, fromDailyStats));
+    }
+
+    /**
+     * Cada intento completado del periodo. Sin ORDER BY para que las filas empiecen a llegar sin
+     * esperar a que el servidor ordene todo el periodo.
+     */
+    private static String attemptsSql(String studentsSql) {
+        return """
+            SELECT
+                ea.id AS attempt_id,
+                ea.student_profile_id,
+                sp.username,
+                ea.exercise_template_id,
+                ea.generated_exercise_id,
+                ea.completed_at,
+                ea.is_correct,
+                ea.time_spent,
+                ea.points_earned
+            FROM exercise_attempt ea
+            INNER JOIN student_profile sp ON sp.id = ea.student_profile_id
+            WHERE ea.student_profile_id IN (%s)
+              AND ea.completed_at >= ? AND ea.completed_at < ?
+            """.formatted(studentsSql);
+    }
+
+    private PreparedStatementCreator forwardOnly(String sql, Object[] params) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            return statement;
+        };
+    }
+
+    private static ResultSetExtractor<Long> writeRows(ReportExportWriter writer) {
+        return rs -> {
+            try {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                String[] columns = new String[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    columns[i] = metaData.getColumnLabel(i + 1);
+                }
+                writer.writeHeader(columns);
+
+                long rows = 0;
+                Object[] values = new Object[columnCount];
+                while (rs.next()) {
+                    for (int i = 0; i < columnCount; i++) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    writer.writeRow(values);
+                    rows++;
+                }
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+package com.gamified.application.report.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+/**
+ * Escribe filas de una exportación a medida que se leen, sin acumularlas.
+ * No cierra el stream de destino: quien lo abrió (la respuesta HTTP o el gzip) lo termina.
+ */
+abstract class ReportExportWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    static ReportExportWriter of(ReportExportService.Format format, OutputStream out, ObjectMapper objectMapper)
+            throws IOException {
+        return format == ReportExportService.Format.NDJSON
+                ? new NdjsonWriter(out, objectMapper)
+                : new CsvWriter(out);
+    }
+
+    abstract void writeHeader(String[] columns) throws IOException;
+
+    abstract void writeRow(Object[] values) throws IOException;
+
+    /**
+     * Vacía el buffer hacia el stream de destino
+     */
+    abstract void finish() throws IOException;
+
+    /**
+     * Fechas en ISO 8601 como en el resto de la API
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate().toString();
+        }
+        return value;
+    }
+
+    /**
+     * CSV (RFC 4180) en UTF-8 con BOM para que Excel muestre bien los acentos
+     */
+    static final class CsvWriter extends ReportExportWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writer.write('\uFEFF');
+        }
+
+        @Override
+        void writeHeader(String[] columns) throws IOException {
+            writeRow(columns);
+        }
+
+        @Override
+        void writeRow(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = normalize(values[i]);
+                if (value instanceof Boolean bool) {
+                    writer.write(bool ? "1" : "0");
+                } else if (value instanceof Number number) {
+                    writer.write(number.toString());
+                } else if (value != null) {
+                    writer.write(escape(value.toString()));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        /**
+         * Entre comillas si hace falta. Los textos que empiezan como una fórmula (=, +, -, @) llevan
+         * un apóstrofo delante para que la hoja de cálculo no los ejecute.
+         */
+        static String escape(String text) {
+            if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+                text = "'" + text;
+            }
+            boolean quote = text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                    || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+            return quote ? "\"" + text.replace("\"", "\"\"") + "\"" : text;
+        }
+    }
+
+    /**
+     * Un objeto JSON por línea, con los nombres de columna como claves
+     */
+    static final class NdjsonWriter extends ReportExportWriter {
+
+        private final JsonGenerator generator;
+        private String[] columns;
+
+        NdjsonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void writeHeader(String[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        void writeRow(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                generator.writeFieldName(columns[i]);
+                Object value = normalize(values[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Boolean bool) {
+                    generator.writeBoolean(bool);
+                } else if (value instanceof Number) {
+                    generator.writeNumber(value.toString());
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.gamified.application.report.service;
 
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+import com.gamified.application.progress.service.DailyStatsBackfillJob;
+import com.gamified.application.progress.service.StudentActivityTracker;
 import com.gamified.application.report.model.entity.StudentReport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -7,7 +10,9 @@ import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
@@ -22,9 +27,36 @@ public class ReportService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
 
+    static final String CLASSROOM_STUDENTS_SQL = "SELECT student_profile_id FROM enrollment WHERE classroom_id = ?";
+
+    // Totales de un estudiante desde los intentos, en el mismo periodo por días que los contadores diarios
+    private static final String STUDENT_ATTEMPT_TOTALS_SQL = """
+        SELECT
+            COUNT(*) AS attempts,
+            SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) AS correct,
+            SUM(COALESCE(ea.points_earned, 0)) AS points,
+            SUM(CAST(COALESCE(ea.time_spent, 0) AS BIGINT)) AS time_spent_seconds,
+            COUNT(DISTINCT CAST(ea.completed_at AS DATE)) AS active_days
+        FROM exercise_attempt ea
+        WHERE ea.student_profile_id = ?
+          AND ea.completed_at >= ? AND ea.completed_at < ?
+        """;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ClassroomReportEngine classroomReportEngine;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private StudentActivityTracker studentActivityTracker;
+
+    @Autowired
+    private DailyStatsBackfillJob dailyStatsBackfillJob;
+
     /**
      * Genera un reporte completo para un estudiante en un periodo específico
      */
@@ -90,41 +122,51 @@ public class ReportService {
     }
 
     /**
-     * Calcula métricas de ejercicios completados
+     * Calcula métricas de ejercicios completados.
+     * Suma los contadores diarios del periodo (una fila por día, ver StudentActivityTracker) en lugar
+     * de recorrer los intentos: el coste depende de los días del periodo, no de la actividad. Mientras
+     * la carga inicial de los contadores no termina, suma los intentos del mismo periodo.
      */
     private void populateExerciseMetrics(StudentReport report) {
-        String sql = """
-            SELECT 
-                COUNT(*) as total_exercises,
-                SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) as correct_exercises,
-                AVG(CAST(ea.time_spent AS DECIMAL(8,2))) as avg_time,
-                SUM(ea.points_earned) as total_points
-            FROM exercise_attempt ea
-            WHERE ea.student_profile_id = ?
-              AND ea.completed_at BETWEEN ? AND ?
-              AND ea.completed_at IS NOT NULL
-            """;
-        
         try {
-            Map<String, Object> metrics = jdbcTemplate.queryForMap(sql, 
-                report.getStudentProfileId(), 
-                report.getReportPeriodStart(), 
-                report.getReportPeriodEnd()
-            );
-            
-            Integer totalExercises = (Integer) metrics.get("total_exercises");
-            Integer correctExercises = (Integer) metrics.get("correct_exercises");
-            Double avgTime = (Double) metrics.get("avg_time");
-            Integer totalPoints = (Integer) metrics.get("total_points");
+            int totalExercises = 0;
+            int correctExercises = 0;
+            int totalPoints = 0;
+            long totalTime = 0;
+            int activeDays = 0;
+            if (dailyStatsBackfillJob.isCompleted()) {
+                for (StudentDailyStats day : getDailyStats(report)) {
+                    totalExercises += day.getAttempts();
+                    correctExercises += day.getCorrect();
+                    totalPoints += day.getPoints();
+                    totalTime += day.getTimeSpentSeconds();
+                    if (day.getAttempts() > 0) {
+                        activeDays++;
+                    }
+                }
+            } else {
+                Map<String, Object> totals = jdbcTemplate.queryForMap(STUDENT_ATTEMPT_TOTALS_SQL,
+                    report.getStudentProfileId(),
+                    windowStartDate(report.getReportPeriodStart()),
+                    report.getReportPeriodEnd().toLocalDate().plusDays(1)
+                );
+                totalExercises = intValue(totals.get("attempts"));
+                correctExercises = intValue(totals.get("correct"));
+                totalPoints = intValue(totals.get("points"));
+                totalTime = totals.get("time_spent_seconds") instanceof Number time ? time.longValue() : 0L;
+                activeDays = intValue(totals.get("active_days"));
+            }
             
-            report.setTotalExercisesCompleted(totalExercises != null ? totalExercises : 0);
-            report.setCorrectExercises(correctExercises != null ? correctExercises : 0);
-            report.setAverageTimePerExercise(avgTime != null ? avgTime : 0.0);
-            report.setTotalPointsEarned(totalPoints != null ? totalPoints : 0);
+            report.setTotalExercisesCompleted(totalExercises);
+            report.setCorrectExercises(correctExercises);
+            report.setAverageTimePerExercise(totalExercises > 0
+                ? Math.round(totalTime * 100.0 / totalExercises) / 100.0 : 0.0);
+            report.setTotalPointsEarned(totalPoints);
+            report.setActiveDays(activeDays);
             
             // Calcular tasa de éxito
-            if (totalExercises != null && totalExercises > 0) {
-                double successRate = (correctExercises != null ? correctExercises : 0) / (double) totalExercises;
+            if (totalExercises > 0) {
+                double successRate = correctExercises / (double) totalExercises;
                 report.setSuccessRate(Math.round(successRate * 10000.0) / 100.0); // Porcentaje con 2 decimales
             } else {
                 report.setSuccessRate(0.0);
@@ -134,6 +176,7 @@ public class ReportService {
             logger.warn("No se pudieron obtener métricas de ejercicios para estudiante {}: {}", 
                        report.getStudentProfileId(), e.getMessage());
             setDefaultExerciseMetrics(report);
+            report.setActiveDays(0);
         }
     }
 
@@ -177,22 +220,8 @@ public class ReportService {
      */
     private void populateProgressMetrics(StudentReport report) {
         try {
-            // Días activos en el periodo
-            String activeDaysSQL = """
-                SELECT COUNT(DISTINCT CAST(ea.completed_at AS DATE)) as active_days
-                FROM exercise_attempt ea
-                WHERE ea.student_profile_id = ?
-                  AND ea.completed_at BETWEEN ? AND ?
-                  AND ea.completed_at IS NOT NULL
-                """;
-            
-            Integer activeDays = jdbcTemplate.queryForObject(activeDaysSQL, Integer.class, 
-                report.getStudentProfileId(), 
-                report.getReportPeriodStart(), 
-                report.getReportPeriodEnd()
-            );
-            report.setActiveDays(activeDays != null ? activeDays : 0);
-            
+            // Los días activos del periodo se calculan junto con las métricas de ejercicios
+
             // Información de streaks de la tabla streak
             String streakSQL = """
                 SELECT current_streak_days, longest_streak_days
@@ -217,7 +246,6 @@ public class ReportService {
         } catch (Exception e) {
             logger.warn("No se pudieron obtener métricas de progreso para estudiante {}: {}", 
                        report.getStudentProfileId(), e.getMessage());
-            report.setActiveDays(0);
             report.setCurrentStreak(0);
             report.setLongestStreak(0);
         }
@@ -242,11 +270,10 @@ public class ReportService {
         try {
             // Obtener la clase del estudiante (si está enrollado)
             String classSQL = """
-                SELECT c.id as classroom_id
+                SELECT TOP 1 c.id as classroom_id
                 FROM enrollment e
                 INNER JOIN classroom c ON e.classroom_id = c.id
                 WHERE e.student_profile_id = ?
-                LIMIT 1
                 """;
             
             Integer classroomId = jdbcTemplate.queryForObject(classSQL, Integer.class, report.getStudentProfileId());
@@ -257,32 +284,25 @@ public class ReportService {
                     SELECT 
                         COUNT(DISTINCT e.student_profile_id) as total_classmates,
                         AVG(CASE 
-                            WHEN ea_count.total > 0 THEN 
-                                (ea_count.correct * 100.0) / ea_count.total 
+                            WHEN ea_count.attempts > 0 THEN 
+                                (ea_count.correct * 100.0) / ea_count.attempts 
                             ELSE 0 
                         END) as class_average
                     FROM enrollment e
-                    LEFT JOIN (
-                        SELECT 
-                            ea.student_profile_id,
-                            COUNT(*) as total,
-                            SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) as correct
-                        FROM exercise_attempt ea
-                        WHERE ea.completed_at BETWEEN ? AND ?
-                          AND ea.completed_at IS NOT NULL
-                        GROUP BY ea.student_profile_id
-                    ) ea_count ON e.student_profile_id = ea_count.student_profile_id
+                    LEFT JOIN (%s) ea_count ON e.student_profile_id = ea_count.student_profile_id
                     WHERE e.classroom_id = ?
-                    """;
+                    """.formatted(periodTotalsSql(CLASSROOM_STUDENTS_SQL, dailyStatsBackfillJob.isCompleted()));
                 
                 Map<String, Object> classStats = jdbcTemplate.queryForMap(classStatsSQL, 
-                    report.getReportPeriodStart(), 
-                    report.getReportPeriodEnd(), 
+                    classroomId,
+                    windowStartDate(report.getReportPeriodStart()), 
+                    report.getReportPeriodEnd().toLocalDate().plusDays(1), 
                     classroomId
                 );
                 
                 Integer totalClassmates = (Integer) classStats.get("total_classmates");
-                Double classAverage = (Double) classStats.get("class_average");
+                Number average = (Number) classStats.get("class_average");
+                Double classAverage = average != null ? average.doubleValue() : null;
                 
                 report.setTotalClassmates(totalClassmates != null ? totalClassmates : 0);
                 report.setClassAverage(classAverage != null ? Math.round(classAverage * 100.0) / 100.0 : 0.0);
@@ -314,6 +334,67 @@ public class ReportService {
         }
     }
 
+    /**
+     * Totales por estudiante en [desde, hasta): de student_daily_stats o, mientras la carga inicial de
+     * los contadores no termina, de exercise_attempt. Columnas: student_profile_id, attempts, correct,
+     * points, time_spent_seconds, active_days y last_active_date.
+     * Parámetros: los de studentsSql (una consulta de student_profile_id), la fecha desde y la fecha
+     * hasta (exclusiva).
+     */
+    static String periodTotalsSql(String studentsSql, boolean fromDailyStats) {
+        if (fromDailyStats) {
+            return """
+                SELECT
+                    ds.student_profile_id,
+                    SUM(ds.attempts) AS attempts,
+                    SUM(ds.correct) AS correct,
+                    SUM(ds.points) AS points,
+                    SUM(CAST(ds.time_spent_seconds AS BIGINT)) AS time_spent_seconds,
+                    SUM(CASE WHEN ds.attempts > 0 THEN 1 ELSE 0 END) AS active_days,
+                    MAX(CASE WHEN ds.attempts > 0 THEN ds.stat_date END) AS last_active_date
+                FROM student_daily_stats ds
+                WHERE ds.student_profile_id IN (%s)
+                  AND ds.stat_date >= ? AND ds.stat_date < ?
+                GROUP BY ds.student_profile_id
+                """.formatted(studentsSql);
+        }
+        return """
+            SELECT
+                ea.student_profile_id,
+                COUNT(*) AS attempts,
+                SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) AS correct,
+                SUM(COALESCE(ea.points_earned, 0)) AS points,
+                SUM(CAST(COALESCE(ea.time_spent, 0) AS BIGINT)) AS time_spent_seconds,
+                COUNT(DISTINCT CAST(ea.completed_at AS DATE)) AS active_days,
+                MAX(CAST(ea.completed_at AS DATE)) AS last_active_date
+            FROM exercise_attempt ea
+            WHERE ea.student_profile_id IN (%s)
+              AND ea.completed_at >= ? AND ea.completed_at < ?
+            GROUP BY ea.student_profile_id
+            """.formatted(studentsSql);
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    /**
+     * Contadores diarios del periodo del reporte, incluidos los incrementos aún no guardados
+     */
+    private List<StudentDailyStats> getDailyStats(StudentReport report) {
+        return studentActivityTracker.getDailyStats(report.getStudentProfileId(),
+                windowStartDate(report.getReportPeriodStart()), report.getReportPeriodEnd().toLocalDate());
+    }
+
+    /**
+     * Primer día completo o en curso del periodo: un inicio a media jornada (p. ej. "hace 7 días"
+     * a las 15:00) empieza a contar desde el día siguiente, de modo que la semana son 7 filas
+     */
+    static LocalDate windowStartDate(LocalDateTime periodStart) {
+        return periodStart.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? periodStart.toLocalDate() : periodStart.toLocalDate().plusDays(1);
+    }
+
     /**
      * Establece métricas por defecto para ejercicios
      */
@@ -344,44 +425,28 @@ public class ReportService {
     }
 
     /**
-     * Obtiene estudiantes que requieren atención (con alertas)
+     * Reporte semanal desde la caché de reportes (se recalcula tras la actividad del estudiante)
+     */
+    public StudentReport getCachedWeeklyReport(Integer studentProfileId) {
+        return reportCache.get(studentProfileId, "WEEKLY", "7d", () -> generateWeeklyReport(studentProfileId));
+    }
+
+    /**
+     * Reporte mensual desde la caché de reportes (se recalcula tras la actividad del estudiante)
+     */
+    public StudentReport getCachedMonthlyReport(Integer studentProfileId) {
+        return reportCache.get(studentProfileId, "MONTHLY", "30d", () -> generateMonthlyReport(studentProfileId));
+    }
+
+    /**
+     * Obtiene estudiantes que requieren atención (con alertas), de mayor a menor prioridad.
+     * Se calcula para toda el aula con consultas agrupadas (ver ClassroomReportEngine).
      */
     public List<StudentReport> getStudentsNeedingAttention(Integer classroomId) {
         logger.info("Obteniendo estudiantes que requieren atención en aula {}", classroomId);
         
-        List<StudentReport> alertReports = new ArrayList<>();
-        
         try {
-            // Obtener estudiantes del aula
-            String studentsSQL = """
-                SELECT e.student_profile_id
-                FROM enrollment e
-                WHERE e.classroom_id = ?
-                """;
-            
-            List<Integer> studentIds = jdbcTemplate.queryForList(studentsSQL, Integer.class, classroomId);
-            
-            // Generar reportes semanales para cada estudiante
-            for (Integer studentId : studentIds) {
-                try {
-                    StudentReport report = generateWeeklyReport(studentId);
-                    
-                    // Solo incluir estudiantes con alertas
-                    if (!"NONE".equals(report.getAlertLevel())) {
-                        alertReports.add(report);
-                    }
-                    
-                } catch (Exception e) {
-                    logger.warn("Error generando reporte para estudiante {}: {}", studentId, e.getMessage());
-                }
-            }
-            
-            // Ordenar por nivel de alerta (HIGH, MEDIUM, LOW)
-            alertReports.sort((a, b) -> {
-                int priorityA = getAlertPriority(a.getAlertLevel());
-                int priorityB = getAlertPriority(b.getAlertLevel());
-                return Integer.compare(priorityB, priorityA); // Orden descendente
-            });
+            List<StudentReport> alertReports = classroomReportEngine.getStudentsNeedingAttention(classroomId);
             
             logger.info("Encontrados {} estudiantes que requieren atención en aula {}", 
                        alertReports.size(), classroomId);
@@ -394,18 +459,6 @@ public class ReportService {
         }
     }
 
-    /**
-     * Obtiene la prioridad numérica del nivel de alerta
-     */
-    private int getAlertPriority(String alertLevel) {
-        return switch (alertLevel) {
-            case "HIGH" -> 3;
-            case "MEDIUM" -> 2;
-            case "LOW" -> 1;
-            default -> 0;
-        };
-    }
-
     /**
      * Genera reporte general de una clase
      */
@@ -415,28 +468,22 @@ public class ReportService {
         String sql = """
             SELECT 
                 COUNT(DISTINCT e.student_profile_id) as total_students,
-                COALESCE(AVG(ea_stats.success_rate), 0) as class_average_success_rate,
-                COALESCE(SUM(ea_stats.total_exercises), 0) as total_exercises_completed,
-                COALESCE(SUM(ea_stats.total_points), 0) as total_points_earned,
-                COALESCE(COUNT(DISTINCT ea_stats.student_profile_id), 0) as active_students_last_week
+                COALESCE(AVG(CASE WHEN ea_stats.attempts > 0
+                                  THEN (ea_stats.correct * 100.0) / ea_stats.attempts END), 0) as class_average_success_rate,
+                COALESCE(SUM(ea_stats.attempts), 0) as total_exercises_completed,
+                COALESCE(SUM(ea_stats.points), 0) as total_points_earned,
+                COUNT(DISTINCT CASE WHEN ea_stats.attempts > 0 THEN ea_stats.student_profile_id END) as active_students_last_week
             FROM enrollment e
-            LEFT JOIN (
-                SELECT 
-                    ea.student_profile_id,
-                    COUNT(*) as total_exercises,
-                    SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) as correct_exercises,
-                    (SUM(CASE WHEN ea.is_correct = 1 THEN 1 ELSE 0 END) * 100.0) / COUNT(*) as success_rate,
-                    SUM(ea.points_earned) as total_points
-                FROM exercise_attempt ea
-                WHERE ea.completed_at >= DATEADD(DAY, -7, GETDATE())
-                  AND ea.completed_at IS NOT NULL
-                GROUP BY ea.student_profile_id
-            ) ea_stats ON e.student_profile_id = ea_stats.student_profile_id
+            LEFT JOIN (%s) ea_stats ON e.student_profile_id = ea_stats.student_profile_id
             WHERE e.classroom_id = ?
-            """;
+            """.formatted(periodTotalsSql(CLASSROOM_STUDENTS_SQL, dailyStatsBackfillJob.isCompleted()));
         
         try {
-            return jdbcTemplate.queryForMap(sql, classroomId);
+            // Lo registrado en memoria y aún no guardado no está en student_daily_stats
+            studentActivityTracker.flush();
+            // Últimos 7 días, hoy incluido
+            LocalDate today = LocalDate.now();
+            return jdbcTemplate.queryForMap(sql, classroomId, today.minusDays(6), today.plusDays(1), classroomId);
         } catch (Exception e) {
             logger.error("Error generando resumen de aula {}: {}", classroomId, e.getMessage());
             throw new RuntimeException("Error al generar resumen de aula", e);
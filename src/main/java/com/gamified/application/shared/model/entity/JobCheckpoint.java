@@ -0,0 +1,28 @@
+package com.gamified.application.shared.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progreso de un trabajo por lotes recorrido por clave
+ * Mapea a la tabla 'job_checkpoint' (db/migration/V005)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobCheckpoint {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+
+    private String jobName;
+    private Long lastKey;
+    private Long processed;
+    private String status; // RUNNING, COMPLETED
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+}
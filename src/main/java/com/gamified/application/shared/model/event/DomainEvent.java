@@ -46,6 +46,8 @@ public class DomainEvent {
         private Integer hintsUsed;
         private Integer attemptNumber;
         private String exerciseType;
+        private Integer estimatedTimeSeconds;
+        private Integer competencyId;
     }
 
     /**
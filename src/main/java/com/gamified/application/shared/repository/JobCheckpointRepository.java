@@ -0,0 +1,22 @@
+package com.gamified.application.shared.repository;
+
+import com.gamified.application.shared.model.entity.JobCheckpoint;
+
+import java.util.Optional;
+
+/**
+ * Repositorio del progreso de trabajos por lotes
+ */
+public interface JobCheckpointRepository {
+
+    /**
+     * Obtiene el último progreso guardado de un trabajo
+     */
+    Optional<JobCheckpoint> findByJobName(String jobName);
+
+    /**
+     * Guarda (inserta o actualiza) el progreso de un trabajo
+     * @return true si se guardó
+     */
+    boolean save(JobCheckpoint checkpoint);
+}
@@ -0,0 +1,80 @@
+package com.gamified.application.shared.repository;
+
+import com.gamified.application.shared.model.entity.JobCheckpoint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implementación del repositorio de progreso de trabajos usando NamedParameterJdbcTemplate
+ */
+@Repository
+@RequiredArgsConstructor
+public class JobCheckpointRepositoryImpl implements JobCheckpointRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public Optional<JobCheckpoint> findByJobName(String jobName) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("job_name", jobName, Types.VARCHAR);
+
+            String sql = """
+                SELECT job_name, last_key, processed, status, started_at, updated_at
+                FROM job_checkpoint
+                WHERE job_name = :job_name
+                """;
+
+            List<JobCheckpoint> results = namedParameterJdbcTemplate.query(sql, parameters, (rs, rowNum) ->
+                    JobCheckpoint.builder()
+                            .jobName(rs.getString("job_name"))
+                            .lastKey(rs.getLong("last_key"))
+                            .processed(rs.getLong("processed"))
+                            .status(rs.getString("status"))
+                            .startedAt(rs.getTimestamp("started_at").toLocalDateTime())
+                            .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+                            .build());
+
+            return results.stream().findFirst();
+        } catch (Exception e) {
+            System.err.println("Error al obtener progreso del trabajo " + jobName + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean save(JobCheckpoint checkpoint) {
+        try {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("job_name", checkpoint.getJobName(), Types.VARCHAR);
+            parameters.addValue("last_key", checkpoint.getLastKey(), Types.BIGINT);
+            parameters.addValue("processed", checkpoint.getProcessed(), Types.BIGINT);
+            parameters.addValue("status", checkpoint.getStatus(), Types.VARCHAR);
+            parameters.addValue("started_at", Timestamp.valueOf(checkpoint.getStartedAt()), Types.TIMESTAMP);
+
+            String sql = """
+                MERGE job_checkpoint AS target
+                USING (SELECT :job_name AS job_name) AS source
+                ON target.job_name = source.job_name
+                WHEN MATCHED THEN
+                    UPDATE SET last_key = :last_key, processed = :processed, status = :status,
+                               started_at = :started_at, updated_at = GETDATE()
+                WHEN NOT MATCHED THEN
+                    INSERT (job_name, last_key, processed, status, started_at, updated_at)
+                    VALUES (:job_name, :last_key, :processed, :status, :started_at, GETDATE());
+                """;
+
+            return namedParameterJdbcTemplate.update(sql, parameters) > 0;
+        } catch (Exception e) {
+            System.err.println("Error al guardar progreso del trabajo " + checkpoint.getJobName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.gamified.application.shared.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Temporizador de rueda jerárquica (timing wheel).
+ * Programar y disparar cuesta O(1) por elemento: cada elemento cae en la casilla de su instante
+ * dentro de la rueda cuyo rango lo cubre (las ruedas superiores tienen casillas más anchas y se crean
+ * solo si hacen falta). Solo las casillas con elementos entran en una DelayQueue, así que el hilo que
+ * llama a advance duerme hasta la siguiente casilla en lugar de avanzar milisegundo a milisegundo.
+ * Al vencer una casilla de una rueda superior sus elementos se redistribuyen hacia abajo.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final LongSupplier clockMs;
+    private final DelayQueue<Bucket<T>> queue = new DelayQueue<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong size = new AtomicLong();
+    private final Wheel<T> root;
+
+    /**
+     * @param tickMs Resolución de la rueda inferior en milisegundos
+     * @param wheelSize Casillas por rueda
+     */
+    public HierarchicalTimingWheel(long tickMs, int wheelSize) {
+        this(tickMs, wheelSize, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, LongSupplier clockMs) {
+        if (tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("La resolución y el tamaño de la rueda deben ser mayores que 0");
+        }
+        this.clockMs = clockMs;
+        this.root = new Wheel<>(tickMs, wheelSize, clockMs.getAsLong(), clockMs);
+    }
+
+    /**
+     * Programa un elemento para dentro de delayMs milisegundos (0 o negativo: en el siguiente advance)
+     * @return Entrada que permite cancelarlo
+     */
+    public Entry<T> schedule(long delayMs, T item) {
+        Entry<T> entry = new Entry<>(item, clockMs.getAsLong() + Math.max(0L, delayMs), size);
+        size.incrementAndGet();
+
+        lock.readLock().lock();
+        try {
+            if (!root.add(entry, queue)) {
+                // Ya vencido: casilla propia que la DelayQueue entrega de inmediato (despierta a quien espera)
+                Bucket<T> due = new Bucket<>(clockMs);
+                due.add(entry);
+                due.setExpiration(entry.expirationMs);
+                queue.offer(due);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return entry;
+    }
+
+    /**
+     * Espera hasta timeoutMs a que venza la siguiente casilla y entrega los elementos vencidos
+     * @return Número de elementos entregados
+     */
+    public int advance(long timeoutMs, Consumer<T> onExpired) throws InterruptedException {
+        Bucket<T> bucket = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return 0;
+        }
+
+        List<Entry<T>> expired = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                root.advanceClock(bucket.getExpiration());
+                bucket.flush(entry -> {
+                    if (!root.add(entry, queue)) {
+                        expired.add(entry);
+                    }
+                });
+                bucket = queue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        int fired = 0;
+        for (Entry<T> entry : expired) {
+            if (entry.complete()) {
+                onExpired.accept(entry.item);
+                fired++;
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Elementos programados pendientes
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Elemento programado
+     */
+    public static final class Entry<T> {
+        private final T item;
+        private final long expirationMs;
+        private final AtomicLong ownerSize;
+        private volatile boolean done;
+
+        private Entry(T item, long expirationMs, AtomicLong ownerSize) {
+            this.item = item;
+            this.expirationMs = expirationMs;
+            this.ownerSize = ownerSize;
+        }
+
+        /**
+         * Cancela el elemento si aún no se entregó
+         * @return true si se canceló
+         */
+        public boolean cancel() {
+            return complete();
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        private synchronized boolean complete() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            ownerSize.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Rueda de un nivel: wheelSize casillas de tickMs cada una
+     */
+    private static final class Wheel<T> {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket<T>[] buckets;
+        private final LongSupplier clockMs;
+        private long currentTime;
+        private volatile Wheel<T> overflow;
+
+        @SuppressWarnings("unchecked")
+        Wheel(long tickMs, int wheelSize, long startMs, LongSupplier clockMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.clockMs = clockMs;
+            this.currentTime = startMs - (startMs % tickMs);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>(clockMs);
+            }
+        }
+
+        /**
+         * @return false si el elemento ya venció (no cabe en ninguna casilla futura)
+         */
+        boolean add(Entry<T> entry, DelayQueue<Bucket<T>> queue) {
+            long expiration = entry.expirationMs;
+            if (entry.done) {
+                return true; // Cancelado: se descarta
+            }
+            if (expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                Bucket<T> bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(entry);
+                // Solo se encola la casilla cuando empieza una nueva vuelta
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            return overflowWheel().add(entry, queue);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                Wheel<T> upper = overflow;
+                if (upper != null) {
+                    upper.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private Wheel<T> overflowWheel() {
+            Wheel<T> upper = overflow;
+            if (upper == null) {
+                synchronized (this) {
+                    upper = overflow;
+                    if (upper == null) {
+                        upper = new Wheel<>(interval, wheelSize, currentTime, clockMs);
+                        overflow = upper;
+                    }
+                }
+            }
+            return upper;
+        }
+    }
+
+    /**
+     * Casilla: elementos que vencen en el mismo tick de su rueda
+     */
+    private static final class Bucket<T> implements Delayed {
+        private final LongSupplier clockMs;
+        private final AtomicLong expiration = new AtomicLong(-1L);
+        private List<Entry<T>> entries = new ArrayList<>();
+
+        Bucket(LongSupplier clockMs) {
+            this.clockMs = clockMs;
+        }
+
+        synchronized void add(Entry<T> entry) {
+            entries.add(entry);
+        }
+
+        /**
+         * @return true si cambió el vencimiento (la casilla debe volver a la DelayQueue)
+         */
+        boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        synchronized void flush(Consumer<Entry<T>> reinsert) {
+            List<Entry<T>> drained = entries;
+            entries = new ArrayList<>();
+            expiration.set(-1L);
+            drained.forEach(reinsert);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - clockMs.getAsLong(), 0L), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket<?>) other).getExpiration());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.gamified.application.shared.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Cubeta de tokens con recarga continua.
+ * Se usa para reproducir localmente los límites por minuto de servicios externos
+ * (p. ej. solicitudes/minuto y tokens/minuto de un deployment de Azure AI).
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier nanoClock;
+
+    private double available;
+    private long lastRefillNanos;
+
+    /**
+     * @param capacityPerMinute Tokens disponibles por minuto (también es la capacidad máxima de la cubeta)
+     */
+    public TokenBucket(long capacityPerMinute) {
+        this(capacityPerMinute, System::nanoTime);
+    }
+
+    public TokenBucket(long capacityPerMinute, LongSupplier nanoClock) {
+        if (capacityPerMinute <= 0) {
+            throw new IllegalArgumentException("La capacidad por minuto debe ser mayor que 0");
+        }
+        this.capacity = capacityPerMinute;
+        this.refillPerNano = capacityPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.available = capacityPerMinute;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Consume tokens si hay suficientes por encima de la reserva indicada
+     * @param tokens Tokens a consumir
+     * @param reserve Tokens que deben quedar disponibles tras consumir
+     * @return true si se consumieron
+     */
+    public synchronized boolean tryConsume(long tokens, long reserve) {
+        refill();
+        if (available - tokens < reserve) {
+            return false;
+        }
+        available -= tokens;
+        return true;
+    }
+
+    public synchronized boolean tryConsume(long tokens) {
+        return tryConsume(tokens, 0);
+    }
+
+    /**
+     * Nanosegundos hasta que haya los tokens indicados por encima de la reserva (0 si ya los hay)
+     */
+    public synchronized long nanosUntilAvailable(long tokens, long reserve) {
+        refill();
+        double missing = tokens + reserve - available;
+        if (missing <= 0) {
+            return 0L;
+        }
+        return (long) Math.ceil(missing / refillPerNano);
+    }
+
+    public synchronized double getAvailable() {
+        refill();
+        return available;
+    }
+
+    public long getCapacity() {
+        return (long) capacity;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            available = Math.min(capacity, available + elapsed * refillPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- Snapshot periódico de la demanda estimada (EWMA) por plantilla de ejercicio.
+-- Permite que el pronóstico del pool sobreviva reinicios de la aplicación.
+IF OBJECT_ID('dbo.template_demand_snapshot', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.template_demand_snapshot (
+        exercise_template_id INT NOT NULL PRIMARY KEY,
+        request_rate FLOAT NOT NULL,            -- solicitudes/hora estimadas (decaimiento exponencial)
+        pool_hits BIGINT NOT NULL DEFAULT 0,
+        pool_misses BIGINT NOT NULL DEFAULT 0,
+        last_request_at DATETIME2 NULL,
+        updated_at DATETIME2 NOT NULL DEFAULT GETDATE()
+    );
+END
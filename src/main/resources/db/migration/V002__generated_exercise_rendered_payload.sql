@@ -0,0 +1,6 @@
+-- Payload pre-renderizado (NextExerciseDto sin respuesta correcta) que se sirve directamente al estudiante.
+-- Las filas existentes quedan en NULL y se rellenan de forma perezosa al servirse.
+IF COL_LENGTH('dbo.generated_exercise', 'rendered_payload') IS NULL
+BEGIN
+    ALTER TABLE dbo.generated_exercise ADD rendered_payload VARBINARY(MAX) NULL;
+END
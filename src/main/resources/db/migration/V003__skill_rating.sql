@@ -0,0 +1,24 @@
+-- Ratings tipo Elo del motor adaptativo: habilidad por estudiante y competencia, y dificultad por ejercicio.
+-- Se actualizan en memoria en cada intento y se guardan por lotes (REAL: 4 bytes por rating).
+IF OBJECT_ID('dbo.student_skill_rating', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.student_skill_rating (
+        student_profile_id INT NOT NULL,
+        competency_id INT NOT NULL,
+        rating REAL NOT NULL,
+        attempts INT NOT NULL DEFAULT 0,
+        updated_at DATETIME2 NOT NULL DEFAULT GETDATE(),
+        CONSTRAINT PK_student_skill_rating PRIMARY KEY (student_profile_id, competency_id)
+    );
+END
+GO
+
+IF OBJECT_ID('dbo.exercise_skill_rating', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.exercise_skill_rating (
+        exercise_id INT NOT NULL PRIMARY KEY,
+        rating REAL NOT NULL,
+        attempts INT NOT NULL DEFAULT 0,
+        updated_at DATETIME2 NOT NULL DEFAULT GETDATE()
+    );
+END
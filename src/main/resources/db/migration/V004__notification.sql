@@ -0,0 +1,39 @@
+-- Notificaciones del sistema (in-app, email y push). Las inserta por lotes el escritor en segundo plano.
+-- notification_uid se genera en la aplicación: permite actualizar el estado de entrega sin esperar el id.
+IF OBJECT_ID('dbo.notification', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.notification (
+        id INT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+        notification_uid UNIQUEIDENTIFIER NOT NULL,
+        recipient_user_id INT NOT NULL,
+        recipient_user_type VARCHAR(20) NULL,
+        notification_type VARCHAR(30) NOT NULL,
+        title NVARCHAR(200) NOT NULL,
+        message NVARCHAR(1000) NULL,
+        priority VARCHAR(10) NULL,
+        related_entity_id INT NULL,
+        related_entity_type VARCHAR(30) NULL,
+        action_url NVARCHAR(300) NULL,
+        is_read BIT NOT NULL DEFAULT 0,
+        is_active BIT NOT NULL DEFAULT 1,
+        read_at DATETIME2 NULL,
+        expires_at DATETIME2 NULL,
+        send_email BIT NOT NULL DEFAULT 0,
+        send_push BIT NOT NULL DEFAULT 0,
+        show_in_app BIT NOT NULL DEFAULT 1,
+        email_status VARCHAR(10) NULL,
+        push_status VARCHAR(10) NULL,
+        created_at DATETIME2 NOT NULL DEFAULT GETDATE(),
+        scheduled_for DATETIME2 NULL,
+        sent_at DATETIME2 NULL,
+        CONSTRAINT UQ_notification_uid UNIQUE (notification_uid)
+    );
+END
+GO
+
+-- Bandeja del usuario: no leídas primero y más recientes
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_notification_recipient' AND object_id = OBJECT_ID('dbo.notification'))
+BEGIN
+    CREATE INDEX IX_notification_recipient ON dbo.notification (recipient_user_id, is_read, created_at DESC)
+        INCLUDE (notification_type, title, priority, is_active, expires_at);
+END
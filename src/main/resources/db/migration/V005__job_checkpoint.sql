@@ -0,0 +1,13 @@
+-- Progreso de trabajos por lotes (recordatorios masivos, backfills): permite reanudar tras un reinicio.
+-- last_key es la última clave procesada del recorrido por clave (keyset).
+IF OBJECT_ID('dbo.job_checkpoint', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.job_checkpoint (
+        job_name VARCHAR(100) NOT NULL PRIMARY KEY,
+        last_key BIGINT NOT NULL DEFAULT 0,
+        processed BIGINT NOT NULL DEFAULT 0,
+        status VARCHAR(20) NOT NULL,
+        started_at DATETIME2 NOT NULL DEFAULT GETDATE(),
+        updated_at DATETIME2 NOT NULL DEFAULT GETDATE()
+    );
+END
@@ -0,0 +1,60 @@
+-- Actividad incremental por estudiante: última actividad y contadores diarios de intentos/aciertos.
+-- Se actualizan desde los eventos de intento (StudentActivityTracker) para que la detección de
+-- inactividad y de bajo rendimiento no agregue exercise_attempt completo.
+IF OBJECT_ID('dbo.student_activity', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.student_activity (
+        student_profile_id INT NOT NULL PRIMARY KEY,
+        last_activity_at DATETIME2 NOT NULL,
+        updated_at DATETIME2 NOT NULL DEFAULT GETDATE()
+    );
+END
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_student_activity_last' AND object_id = OBJECT_ID('dbo.student_activity'))
+BEGIN
+    CREATE INDEX IX_student_activity_last ON dbo.student_activity (last_activity_at);
+END
+GO
+
+IF OBJECT_ID('dbo.student_daily_stats', 'U') IS NULL
+BEGIN
+    CREATE TABLE dbo.student_daily_stats (
+        student_profile_id INT NOT NULL,
+        stat_date DATE NOT NULL,
+        attempts INT NOT NULL DEFAULT 0,
+        correct INT NOT NULL DEFAULT 0,
+        updated_at DATETIME2 NOT NULL DEFAULT GETDATE(),
+        CONSTRAINT PK_student_daily_stats PRIMARY KEY (student_profile_id, stat_date)
+    );
+END
+GO
+
+-- Barrido por rango de fechas de la alerta semanal de bajo rendimiento
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_student_daily_stats_date' AND object_id = OBJECT_ID('dbo.student_daily_stats'))
+BEGIN
+    CREATE INDEX IX_student_daily_stats_date ON dbo.student_daily_stats (stat_date)
+        INCLUDE (student_profile_id, attempts, correct);
+END
+GO
+
+-- Carga inicial (una sola vez) desde el historial existente
+IF NOT EXISTS (SELECT 1 FROM dbo.student_activity)
+BEGIN
+    INSERT INTO dbo.student_activity (student_profile_id, last_activity_at)
+    SELECT student_profile_id, MAX(completed_at)
+    FROM dbo.exercise_attempt
+    WHERE completed_at IS NOT NULL
+    GROUP BY student_profile_id;
+END
+GO
+
+IF NOT EXISTS (SELECT 1 FROM dbo.student_daily_stats)
+BEGIN
+    INSERT INTO dbo.student_daily_stats (student_profile_id, stat_date, attempts, correct)
+    SELECT student_profile_id, CAST(completed_at AS DATE), COUNT(*),
+           SUM(CASE WHEN is_correct = 1 THEN 1 ELSE 0 END)
+    FROM dbo.exercise_attempt
+    WHERE completed_at >= DATEADD(DAY, -7, CAST(GETDATE() AS DATE))
+    GROUP BY student_profile_id, CAST(completed_at AS DATE);
+END
@@ -0,0 +1,15 @@
+-- Índices filtrados para recargar al arrancar el temporizador de notificaciones (solo filas pendientes)
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_notification_unsent' AND object_id = OBJECT_ID('dbo.notification'))
+BEGIN
+    CREATE INDEX IX_notification_unsent ON dbo.notification (scheduled_for)
+        INCLUDE (notification_uid, is_active)
+        WHERE sent_at IS NULL;
+END
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_notification_expiring' AND object_id = OBJECT_ID('dbo.notification'))
+BEGIN
+    CREATE INDEX IX_notification_expiring ON dbo.notification (expires_at)
+        INCLUDE (notification_uid)
+        WHERE is_active = 1 AND expires_at IS NOT NULL;
+END
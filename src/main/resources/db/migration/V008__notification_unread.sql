@@ -0,0 +1,7 @@
+-- Índice filtrado para contar las no leídas por usuario (hidratación y conciliación del contador en memoria)
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_notification_unread' AND object_id = OBJECT_ID('dbo.notification'))
+BEGIN
+    CREATE INDEX IX_notification_unread ON dbo.notification (recipient_user_id)
+        INCLUDE (show_in_app, sent_at)
+        WHERE is_read = 0 AND is_active = 1;
+END
@@ -0,0 +1,13 @@
+-- Los contadores diarios pasan a cubrir todas las métricas de los reportes (puntos y tiempo además de
+-- intentos y aciertos), de modo que cualquier ventana se calcula sumando a lo sumo una fila por día.
+-- El historial anterior lo recalcula DailyStatsBackfillJob.
+IF COL_LENGTH('dbo.student_daily_stats', 'points') IS NULL
+BEGIN
+    ALTER TABLE dbo.student_daily_stats ADD points INT NOT NULL CONSTRAINT DF_student_daily_stats_points DEFAULT 0;
+END
+GO
+
+IF COL_LENGTH('dbo.student_daily_stats', 'time_spent_seconds') IS NULL
+BEGIN
+    ALTER TABLE dbo.student_daily_stats ADD time_spent_seconds INT NOT NULL CONSTRAINT DF_student_daily_stats_time DEFAULT 0;
+END
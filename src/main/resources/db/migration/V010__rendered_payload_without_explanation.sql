@@ -0,0 +1,12 @@
+-- El payload pre-renderizado ya no incluye la explicación de la respuesta.
+-- Se vacían una sola vez los payloads guardados con el formato anterior; se vuelven a renderizar
+-- de forma perezosa al servirse. El registro en job_checkpoint evita repetir el recorrido en cada arranque.
+IF NOT EXISTS (SELECT 1 FROM dbo.job_checkpoint WHERE job_name = 'rendered-payload-without-explanation')
+BEGIN
+    UPDATE dbo.generated_exercise
+    SET rendered_payload = NULL
+    WHERE rendered_payload IS NOT NULL;
+
+    INSERT INTO dbo.job_checkpoint (job_name, last_key, processed, status)
+    VALUES ('rendered-payload-without-explanation', 0, @@ROWCOUNT, 'COMPLETED');
+END
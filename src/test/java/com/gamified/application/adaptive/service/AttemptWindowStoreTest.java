@@ -0,0 +1,138 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.shared.model.event.DomainEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la ventana circular de intentos (sin contexto de Spring)
+ */
+@DisplayName("AttemptWindowStore - Ventana de intentos")
+class AttemptWindowStoreTest {
+
+    @Test
+    @DisplayName("La ventana conserva solo los últimos N intentos")
+    void keepsLastAttempts() {
+        AttemptWindowStore.AttemptWindow window = new AttemptWindowStore.AttemptWindow(4);
+        window.add(false, 3.0, (byte) 0);
+        window.add(false, 3.0, (byte) 0);
+        window.add(true, 1.0, (byte) 1);
+        window.add(true, 1.0, (byte) 1);
+        window.add(true, 1.0, (byte) 1);
+        window.add(false, 1.0, (byte) 1);
+
+        assertEquals(4, window.getCount());
+        assertEquals(0.75, window.getSuccessRate(), 1e-9);
+        assertEquals(1.0, window.getAverageTimeRatio(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("La dificultad actual es la del intento más reciente con dificultad conocida")
+    void currentDifficultyIsMostRecent() {
+        AttemptWindowStore.AttemptWindow window = new AttemptWindowStore.AttemptWindow(3);
+        window.add(true, 1.0, (byte) 0);
+        window.add(true, 1.0, (byte) 2);
+        window.add(true, 1.0, (byte) -1);
+
+        assertEquals(AdaptiveLearningService.DifficultyLevel.HARD, window.getCurrentDifficulty());
+    }
+
+    @Test
+    @DisplayName("Reconoce nombres de dificultad y niveles numéricos")
+    void mapsDifficultyNames() {
+        assertEquals(1, AttemptWindowStore.difficultyOrdinal("medium"));
+        assertEquals(2, AttemptWindowStore.difficultyOrdinal("level_3"));
+        assertEquals(3, AttemptWindowStore.difficultyOrdinal("level_9"));
+        assertEquals(-1, AttemptWindowStore.difficultyOrdinal("desconocida"));
+    }
+
+    @Test
+    @DisplayName("Hidrata la ventana desde filas de exercise_attempt unidas a su plantilla")
+    void hydratesFromAttemptRows() {
+        StubJdbcTemplate jdbcTemplate = new StubJdbcTemplate(List.of(
+                // Del más reciente al más antiguo, como ORDER BY completed_at DESC
+                row(false, 600, 3, 5),
+                row(true, 150, 2, 5),
+                row(true, 300, null, 10)));
+        AttemptWindowStore store = store(jdbcTemplate);
+
+        AttemptWindowStore.AttemptWindow window = store.getWindow(7, 42);
+
+        assertTrue(jdbcTemplate.sql.contains("ea.exercise_template_id = e.id"));
+        assertTrue(jdbcTemplate.sql.contains("e.estimated_time"));
+        assertEquals(List.of(10, 7, 42), jdbcTemplate.args);
+        assertEquals(3, window.getCount());
+        assertEquals(2.0 / 3, window.getSuccessRate(), 1e-9);
+        assertEquals((0.5 + 0.5 + 2.0) / 3, window.getAverageTimeRatio(), 1e-6);
+        assertEquals(AdaptiveLearningService.DifficultyLevel.HARD, window.getCurrentDifficulty());
+    }
+
+    @Test
+    @DisplayName("Un intento da la misma ventana hidratado desde la BD que recibido por evento")
+    void eventAndRowAgree() {
+        AttemptWindowStore store = store(new StubJdbcTemplate(List.of()));
+        AttemptWindowStore.AttemptWindow fromEvent = store.newWindow();
+        store.prime(7, 42, fromEvent);
+        store.onExerciseCompleted(DomainEvent.ExerciseCompletedEvent.builder()
+                .studentProfileId(7)
+                .learningPointId(42)
+                .isCorrect(true)
+                .timeSpentSeconds(150)
+                .estimatedTimeSeconds(5 * 60)
+                .difficulty(AttemptWindowStore.templateDifficulty(3))
+                .build());
+
+        AttemptWindowStore.AttemptWindow fromRow = store.newWindow();
+        AttemptWindowStore.addAttempt(fromRow, row(true, 150, 3, 5));
+
+        assertEquals(fromEvent.getAverageTimeRatio(), fromRow.getAverageTimeRatio(), 1e-9);
+        assertEquals(0.5, fromRow.getAverageTimeRatio(), 1e-6);
+        assertEquals(fromEvent.getCurrentDifficulty(), fromRow.getCurrentDifficulty());
+    }
+
+    private static AttemptWindowStore store(JdbcTemplate jdbcTemplate) {
+        AttemptWindowStore store = new AttemptWindowStore();
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(store, "windowSize", 10);
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        return store;
+    }
+
+    /**
+     * Fila con los tipos que devuelve queryForList: time_spent en segundos, estimated_time en minutos
+     */
+    private static Map<String, Object> row(boolean correct, Integer timeSpent, Integer difficultyLevelId, Integer estimatedTime) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("is_correct", correct);
+        row.put("time_spent", timeSpent);
+        row.put("difficulty_level_id", difficultyLevelId);
+        row.put("estimated_time", estimatedTime);
+        return row;
+    }
+
+    private static class StubJdbcTemplate extends JdbcTemplate {
+        private final List<Map<String, Object>> rows;
+        private String sql;
+        private List<Object> args;
+
+        StubJdbcTemplate(List<Map<String, Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public List<Map<String, Object>> queryForList(String sql, Object... args) {
+            this.sql = sql;
+            this.args = List.of(args);
+            return rows;
+        }
+    }
+}
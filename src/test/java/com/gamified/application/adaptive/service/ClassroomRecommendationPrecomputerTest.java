@@ -0,0 +1,276 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.adaptive.model.entity.ExerciseSkillRating;
+import com.gamified.application.adaptive.model.entity.StudentSkillRating;
+import com.gamified.application.adaptive.repository.SkillRatingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del precálculo por clase a partir de filas con las columnas reales de exercise_attempt
+ * (sin contexto de Spring)
+ */
+@DisplayName("ClassroomRecommendationPrecomputer - Precálculo por clase")
+class ClassroomRecommendationPrecomputerTest {
+
+    private StubJdbcTemplate jdbcTemplate;
+    private StubRatingRepository ratingRepository;
+    private AttemptWindowStore attemptWindowStore;
+    private RecommendationCache recommendationCache;
+    private ClassroomRecommendationPrecomputer precomputer;
+    // Datos de la clase que recibió cada par estudiante/learning point
+    private final Map<String, List<Object>> received = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new StubJdbcTemplate();
+        ratingRepository = new StubRatingRepository();
+
+        attemptWindowStore = new AttemptWindowStore();
+        ReflectionTestUtils.setField(attemptWindowStore, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(attemptWindowStore, "windowSize", 10);
+        ReflectionTestUtils.setField(attemptWindowStore, "maxEntries", 100);
+
+        recommendationCache = new RecommendationCache();
+        ReflectionTestUtils.setField(recommendationCache, "ttlHours", 26L);
+        ReflectionTestUtils.setField(recommendationCache, "maxEntries", 100);
+
+        AdaptiveLearningService adaptiveLearningService = new AdaptiveLearningService() {
+            @Override
+            Map<String, Object> computeRecommendation(Integer studentProfileId, Integer learningPointId,
+                                                      List<StudentSkillRating> savedRatings, Set<Integer> recentlyAttempted) {
+                List<Object> data = new ArrayList<>();
+                data.add(savedRatings);
+                data.add(recentlyAttempted);
+                received.put(studentProfileId + "/" + learningPointId, data);
+                Map<String, Object> recommendation = new HashMap<>();
+                recommendation.put("id", learningPointId * 100);
+                return recommendation;
+            }
+        };
+
+        precomputer = new ClassroomRecommendationPrecomputer();
+        ReflectionTestUtils.setField(precomputer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(precomputer, "adaptiveLearningService", adaptiveLearningService);
+        ReflectionTestUtils.setField(precomputer, "attemptWindowStore", attemptWindowStore);
+        ReflectionTestUtils.setField(precomputer, "skillRatingService", new SkillRatingService());
+        ReflectionTestUtils.setField(precomputer, "skillRatingRepository", ratingRepository);
+        ReflectionTestUtils.setField(precomputer, "recentExclusionDays", 3);
+        ReflectionTestUtils.setField(precomputer, "recommendationCache", recommendationCache);
+        ReflectionTestUtils.setField(precomputer, "precomputeEnabled", true);
+        ReflectionTestUtils.setField(precomputer, "parallelism", 2);
+        ReflectionTestUtils.setField(precomputer, "windowSize", 10);
+        precomputer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        precomputer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Consulta las columnas reales y llena las ventanas como la carga individual")
+    void precomputesFromAttemptRows() {
+        // En orden cronológico dentro de cada par, como devuelve la consulta (rn DESC)
+        jdbcTemplate.rows = List.of(
+                row(7, 42, true, 150, 5, 1),
+                row(7, 42, false, 600, 5, 3),
+                row(8, 42, true, null, null, null));
+
+        Map<String, Object> report = precomputer.precomputeClassroom(5);
+
+        assertTrue(jdbcTemplate.sql.contains("ex.id = ea.exercise_template_id"));
+        assertTrue(jdbcTemplate.sql.contains("ea.time_spent"));
+        assertTrue(jdbcTemplate.sql.contains("ORDER BY ea.completed_at DESC"));
+        assertFalse(jdbcTemplate.sql.contains("ea.exercise_id"));
+        assertFalse(jdbcTemplate.sql.contains("submitted_at"));
+        assertEquals(List.of(5, 10), jdbcTemplate.args);
+
+        assertEquals(3L, report.get("rows"));
+        assertEquals(2, report.get("students"));
+        assertEquals(2, report.get("recommendations"));
+        assertEquals(4200, recommendationCache.get(7, 42).get("id"));
+
+        // Misma ventana que daría AttemptWindowStore al hidratar esas filas
+        AttemptWindowStore.AttemptWindow window = attemptWindowStore.getWindow(7, 42);
+        AttemptWindowStore.AttemptWindow expected = attemptWindowStore.newWindow();
+        AttemptWindowStore.addAttempt(expected, true, 150, 5, 1);
+        AttemptWindowStore.addAttempt(expected, false, 600, 5, 3);
+        assertEquals(2, window.getCount());
+        assertEquals(expected.getAverageTimeRatio(), window.getAverageTimeRatio(), 1e-9);
+        assertEquals((0.5 + 2.0) / 2, window.getAverageTimeRatio(), 1e-6);
+        assertEquals(AdaptiveLearningService.DifficultyLevel.HARD, window.getCurrentDifficulty());
+
+        AttemptWindowStore.AttemptWindow withoutTemplateData = attemptWindowStore.getWindow(8, 42);
+        assertEquals(1, withoutTemplateData.getCount());
+        assertEquals(0.0, withoutTemplateData.getAverageTimeRatio(), 1e-9);
+        assertEquals(AdaptiveLearningService.DifficultyLevel.MEDIUM, withoutTemplateData.getCurrentDifficulty());
+    }
+
+    @Test
+    @DisplayName("Los ratings y los intentos recientes se leen una vez por clase y llegan a cada tarea")
+    void loadsClassroomDataOnce() {
+        jdbcTemplate.rows = List.of(
+                row(7, 42, true, 150, 5, 1),
+                row(7, 43, false, 600, 5, 3),
+                row(8, 42, true, null, null, null));
+        StudentSkillRating rating = StudentSkillRating.builder()
+                .studentProfileId(7).competencyId(2).rating(1100f).attempts(4).build();
+        ratingRepository.classroomRatings = Map.of(7, List.of(rating));
+        ratingRepository.classroomRecent = Map.of(7, Map.of(42, Set.of(900, 901)));
+
+        precomputer.precomputeClassroom(5);
+
+        assertEquals(List.of(5), ratingRepository.classroomRatingQueries);
+        assertEquals(List.of(List.of(5, 3)), ratingRepository.classroomRecentQueries);
+        assertEquals(0, ratingRepository.perStudentQueries);
+
+        assertEquals(List.of(List.of(rating), Set.of(900, 901)), received.get("7/42"));
+        assertEquals(List.of(List.of(rating), Set.of()), received.get("7/43"));
+        // Sin filas en las consultas de la clase: no tiene ratings ni intentos recientes
+        assertEquals(List.of(List.of(), Set.of()), received.get("8/42"));
+    }
+
+    @Test
+    @DisplayName("Si una consulta de la clase falla, las tareas consultan como en una recomendación individual")
+    void fallsBackWhenClassroomQueryFails() {
+        jdbcTemplate.rows = List.of(row(7, 42, true, 150, 5, 1));
+        ratingRepository.classroomRatings = null;
+        ratingRepository.classroomRecent = Map.of();
+
+        precomputer.precomputeClassroom(5);
+
+        List<Object> data = received.get("7/42");
+        assertNull(data.get(0));
+        assertEquals(Set.of(), data.get(1));
+    }
+
+    private static Map<String, Object> row(int studentId, int learningPointId, boolean correct, Integer timeSpent,
+                                           Integer estimatedTime, Integer difficultyLevelId) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("student_profile_id", studentId);
+        row.put("learning_point_id", learningPointId);
+        row.put("is_correct", correct);
+        row.put("time_spent", timeSpent);
+        row.put("estimated_time", estimatedTime);
+        row.put("difficulty_level_id", difficultyLevelId);
+        return row;
+    }
+
+    /**
+     * ResultSet posicionado en una fila; falla si se lee una columna que la consulta no devuelve
+     */
+    private static ResultSet resultSet(Map<String, Object> row) {
+        Object[] last = new Object[1];
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("wasNull")) {
+                        return last[0] == null;
+                    }
+                    String column = (String) args[0];
+                    if (!row.containsKey(column)) {
+                        throw new SQLException("Columna inexistente: " + column);
+                    }
+                    last[0] = row.get(column);
+                    switch (method.getName()) {
+                        case "getInt":
+                            return last[0] != null ? ((Number) last[0]).intValue() : 0;
+                        case "getBoolean":
+                            return Boolean.TRUE.equals(last[0]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class StubRatingRepository implements SkillRatingRepository {
+        private Map<Integer, List<StudentSkillRating>> classroomRatings = Map.of();
+        private Map<Integer, Map<Integer, Set<Integer>>> classroomRecent = Map.of();
+        private final List<Integer> classroomRatingQueries = new ArrayList<>();
+        private final List<List<Integer>> classroomRecentQueries = new ArrayList<>();
+        private int perStudentQueries;
+
+        @Override
+        public List<StudentSkillRating> findStudentRatings(Integer studentProfileId) {
+            perStudentQueries++;
+            return List.of();
+        }
+
+        @Override
+        public Map<Integer, List<StudentSkillRating>> findStudentRatingsByClassroom(Integer classroomId) {
+            classroomRatingQueries.add(classroomId);
+            return classroomRatings;
+        }
+
+        @Override
+        public List<ExerciseSkillRating> findExerciseRatingsByLearningPoint(Integer learningPointId) {
+            return List.of();
+        }
+
+        @Override
+        public List<Integer> findRecentlyAttemptedExerciseIds(Integer studentProfileId, Integer learningPointId, int days) {
+            perStudentQueries++;
+            return List.of();
+        }
+
+        @Override
+        public Map<Integer, Map<Integer, Set<Integer>>> findRecentlyAttemptedExerciseIdsByClassroom(Integer classroomId, int days) {
+            classroomRecentQueries.add(List.of(classroomId, days));
+            return classroomRecent;
+        }
+
+        @Override
+        public int saveStudentRatings(List<StudentSkillRating> ratings) {
+            return ratings.size();
+        }
+
+        @Override
+        public int saveExerciseRatings(List<ExerciseSkillRating> ratings) {
+            return ratings.size();
+        }
+
+        @Override
+        public List<Map<String, Object>> findAttemptsForReplay(long afterAttemptId, int limit) {
+            return List.of();
+        }
+    }
+
+    private static class StubJdbcTemplate extends JdbcTemplate {
+        private List<Map<String, Object>> rows = List.of();
+        private String sql;
+        private List<Object> args;
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            this.sql = sql;
+            this.args = List.of(args);
+            for (Map<String, Object> row : rows) {
+                try {
+                    rch.processRow(resultSet(row));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
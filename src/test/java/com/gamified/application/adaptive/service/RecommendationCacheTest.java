@@ -0,0 +1,57 @@
+package com.gamified.application.adaptive.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests del tamaño máximo y la caducidad de las recomendaciones precalculadas (sin contexto de Spring)
+ */
+@DisplayName("RecommendationCache - Tamaño y caducidad")
+class RecommendationCacheTest {
+
+    private RecommendationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecommendationCache();
+        ReflectionTestUtils.setField(cache, "ttlHours", 26L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+    }
+
+    @Test
+    @DisplayName("Al superar el máximo descarta la recomendación menos usada")
+    void evictsLeastRecentlyUsed() {
+        cache.put(7, 42, Map.of("id", 1));
+        cache.put(8, 42, Map.of("id", 2));
+        // Se consulta la del 7: la menos usada pasa a ser la del 8
+        assertNotNull(cache.get(7, 42));
+
+        cache.put(9, 42, Map.of("id", 3));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(7, 42));
+        assertNull(cache.get(8, 42));
+        assertNotNull(cache.get(9, 42));
+    }
+
+    @Test
+    @DisplayName("La purga descarta las caducadas aunque nadie las vuelva a consultar")
+    void purgesExpiredEntries() {
+        ReflectionTestUtils.setField(cache, "ttlHours", -1L);
+        cache.put(7, 42, Map.of("id", 1));
+        ReflectionTestUtils.setField(cache, "ttlHours", 26L);
+        cache.put(8, 42, Map.of("id", 2));
+
+        assertEquals(1, cache.purgeExpired());
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(8, 42));
+    }
+}
@@ -0,0 +1,71 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.adaptive.model.entity.ExerciseSkillRating;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del motor de ratings Elo y del índice por learning point (sin contexto de Spring)
+ */
+@DisplayName("SkillRatingEngine - Ratings Elo")
+class SkillRatingEngineTest {
+
+    private final SkillRatingEngine engine = new SkillRatingEngine(40, 8, 0.1);
+
+    @Test
+    @DisplayName("Con ratings iguales la probabilidad de acierto es 0.5")
+    void equalRatingsGiveEvenOdds() {
+        assertEquals(0.5, engine.expectedSuccess(1500, 1500), 1e-9);
+        assertTrue(engine.expectedSuccess(1700, 1500) > 0.7);
+    }
+
+    @Test
+    @DisplayName("Un acierto sube la habilidad y baja la dificultad en la misma magnitud")
+    void correctAnswerMovesRatingsInOppositeDirections() {
+        SkillRatingEngine.RatingState student = new SkillRatingEngine.RatingState(1500f, 0);
+        SkillRatingEngine.RatingState exercise = new SkillRatingEngine.RatingState(1500f, 0);
+
+        double expected = engine.update(student, exercise, 1.0);
+
+        assertEquals(0.5, expected, 1e-9);
+        assertEquals(1520f, student.getRating(), 1e-3);
+        assertEquals(1480f, exercise.getRating(), 1e-3);
+        assertEquals(1, student.getAttempts());
+    }
+
+    @Test
+    @DisplayName("El factor K decrece con los intentos hasta el mínimo")
+    void kFactorDecays() {
+        assertEquals(40.0, engine.kFactor(0), 1e-9);
+        assertEquals(20.0, engine.kFactor(10), 1e-9);
+        assertEquals(8.0, engine.kFactor(1000), 1e-9);
+    }
+
+    @Test
+    @DisplayName("La dificultad objetivo da la probabilidad de acierto pedida")
+    void targetDifficultyMatchesSuccessProbability() {
+        double target = engine.targetDifficulty(1600, 0.7);
+        assertEquals(0.7, engine.expectedSuccess(1600, target), 1e-9);
+    }
+
+    @Test
+    @DisplayName("El índice devuelve el ejercicio con rating más cercano al objetivo")
+    void indexFindsNearestRating() {
+        float[] ratings = {1300f, 1500f, 1700f, 1900f};
+        ExerciseSkillRating[] exercises = new ExerciseSkillRating[ratings.length];
+        SkillRatingEngine.RatingState[] states = new SkillRatingEngine.RatingState[ratings.length];
+        for (int i = 0; i < ratings.length; i++) {
+            exercises[i] = ExerciseSkillRating.builder().exerciseId(i + 1).competencyId(7).build();
+            states[i] = new SkillRatingEngine.RatingState(ratings[ratings.length - 1 - i], 0);
+        }
+        SkillRatingService.LearningPointIndex index = new SkillRatingService.LearningPointIndex(exercises, states);
+
+        int position = index.nearest(1680, 1);
+
+        assertEquals(1700f, index.getState(position).getRating());
+        assertEquals(7, index.getPrimaryCompetencyId());
+    }
+}
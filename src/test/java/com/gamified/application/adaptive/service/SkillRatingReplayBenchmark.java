@@ -0,0 +1,197 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.adaptive.repository.SkillRatingRepositoryImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reproduce intentos en orden cronológico con el motor Elo y mide, de forma prequential (predicción
+ * antes de cada actualización), el log loss, el Brier score y la exactitud frente a la línea base
+ * anterior (tasa de acierto de los últimos 10 intentos del estudiante), además de actualizaciones/s.
+ *
+ * Con -Dbenchmark.jdbc-url (y benchmark.jdbc-user/benchmark.jdbc-password) lee el historial real de
+ * exercise_attempt; sin ella genera intentos sintéticos con habilidades y dificultades conocidas.
+ *
+ *   mvn test -Pbenchmark -Dbenchmark.jdbc-url=jdbc:sqlserver://...
+ */
+@Tag("benchmark")
+@DisplayName("Benchmark - Reproducción de intentos con ratings Elo")
+class SkillRatingReplayBenchmark {
+
+    private static final int PAGE_SIZE = 5000;
+    private static final int BASELINE_WINDOW = 10;
+
+    @Test
+    @DisplayName("Precisión predictiva y throughput del motor sobre el historial")
+    void replayAttempts() {
+        SkillRatingEngine engine = new SkillRatingEngine(
+                Double.parseDouble(System.getProperty("benchmark.k-base", "40")),
+                Double.parseDouble(System.getProperty("benchmark.k-min", "8")),
+                Double.parseDouble(System.getProperty("benchmark.k-decay", "0.1")));
+        Replay replay = new Replay(engine);
+
+        String jdbcUrl = System.getProperty("benchmark.jdbc-url");
+        if (jdbcUrl != null) {
+            replayFromDatabase(replay, jdbcUrl);
+        } else {
+            replaySynthetic(replay, Integer.getInteger("benchmark.synthetic-attempts", 500_000));
+        }
+
+        System.out.println(replay.format());
+        assertTrue(replay.count > 0, "No hubo intentos que reproducir");
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void replayFromDatabase(Replay replay, String jdbcUrl) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(jdbcUrl,
+                System.getProperty("benchmark.jdbc-user"), System.getProperty("benchmark.jdbc-password"));
+        SkillRatingRepositoryImpl repository = new SkillRatingRepositoryImpl(new NamedParameterJdbcTemplate(dataSource));
+
+        long lastId = 0L;
+        while (true) {
+            List<Map<String, Object>> page = repository.findAttemptsForReplay(lastId, PAGE_SIZE);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (Map<String, Object> row : page) {
+                Number competencyId = (Number) row.get("competency_id");
+                Number difficultyLevelId = (Number) row.get("difficulty_level_id");
+                replay.apply(((Number) row.get("student_profile_id")).intValue(),
+                        competencyId != null ? competencyId.intValue() : 0,
+                        ((Number) row.get("exercise_id")).intValue(),
+                        difficultyLevelId != null ? difficultyLevelId.intValue() : null,
+                        Boolean.TRUE.equals(row.get("is_correct")));
+            }
+            lastId = ((Number) page.get(page.size() - 1).get("attempt_id")).longValue();
+        }
+    }
+
+    /**
+     * Intentos generados con el propio modelo logístico: habilidades ~ N(1500, 200),
+     * dificultades según el nivel (1..4) más ruido, y una mejora lenta de cada estudiante con la práctica
+     */
+    private void replaySynthetic(Replay replay, int attempts) {
+        Random random = new Random(42);
+        int students = 2000;
+        int exercises = 400;
+        double[] ability = new double[students];
+        double[] difficulty = new double[exercises];
+        int[] level = new int[exercises];
+        for (int i = 0; i < students; i++) {
+            ability[i] = 1500 + random.nextGaussian() * 200;
+        }
+        for (int i = 0; i < exercises; i++) {
+            level[i] = 1 + random.nextInt(4);
+            difficulty[i] = SkillRatingEngine.initialExerciseRating(level[i]) + random.nextGaussian() * 120;
+        }
+
+        for (int i = 0; i < attempts; i++) {
+            int student = random.nextInt(students);
+            int exercise = random.nextInt(exercises);
+            double p = 1.0 / (1.0 + Math.pow(10.0, (difficulty[exercise] - ability[student]) / 400.0));
+            boolean correct = random.nextDouble() < p;
+            ability[student] += 0.5;
+            replay.apply(student, 1, exercise, level[exercise], correct);
+        }
+    }
+
+    /**
+     * Estado de la reproducción y métricas acumuladas
+     */
+    private static class Replay {
+        private final SkillRatingEngine engine;
+        private final Map<Long, SkillRatingEngine.RatingState> students = new HashMap<>();
+        private final Map<Integer, SkillRatingEngine.RatingState> exercises = new HashMap<>();
+        private final Map<Integer, boolean[]> recent = new HashMap<>();
+        private final Map<Integer, int[]> recentCounters = new HashMap<>();
+
+        private long count;
+        private long engineNanos;
+        private double logLoss;
+        private double brier;
+        private long correctPredictions;
+        private double baselineLogLoss;
+        private long baselineCorrectPredictions;
+
+        Replay(SkillRatingEngine engine) {
+            this.engine = engine;
+        }
+
+        void apply(int studentId, int competencyId, int exerciseId, Integer difficultyLevelId, boolean correct) {
+            double outcome = correct ? 1.0 : 0.0;
+            double baseline = baselinePrediction(studentId);
+
+            long start = System.nanoTime();
+            SkillRatingEngine.RatingState student = students.computeIfAbsent(((long) studentId << 32) | (competencyId & 0xffffffffL),
+                    key -> new SkillRatingEngine.RatingState(SkillRatingEngine.INITIAL_RATING, 0));
+            SkillRatingEngine.RatingState exercise = exercises.computeIfAbsent(exerciseId,
+                    key -> new SkillRatingEngine.RatingState(SkillRatingEngine.initialExerciseRating(difficultyLevelId), 0));
+            double predicted = engine.update(student, exercise, outcome);
+            engineNanos += System.nanoTime() - start;
+
+            count++;
+            logLoss += logLoss(predicted, outcome);
+            brier += (predicted - outcome) * (predicted - outcome);
+            correctPredictions += (predicted >= 0.5) == correct ? 1 : 0;
+            baselineLogLoss += logLoss(baseline, outcome);
+            baselineCorrectPredictions += (baseline >= 0.5) == correct ? 1 : 0;
+
+            recordBaseline(studentId, correct);
+        }
+
+        /**
+         * Línea base: tasa de acierto de los últimos intentos del estudiante (0.5 sin historial)
+         */
+        private double baselinePrediction(int studentId) {
+            int[] counters = recentCounters.get(studentId);
+            if (counters == null || counters[1] == 0) {
+                return 0.5;
+            }
+            return (double) counters[2] / counters[1];
+        }
+
+        private void recordBaseline(int studentId, boolean correct) {
+            boolean[] window = recent.computeIfAbsent(studentId, key -> new boolean[BASELINE_WINDOW]);
+            int[] counters = recentCounters.computeIfAbsent(studentId, key -> new int[3]); // siguiente, tamaño, aciertos
+            if (counters[1] == BASELINE_WINDOW && window[counters[0]]) {
+                counters[2]--;
+            }
+            window[counters[0]] = correct;
+            if (correct) {
+                counters[2]++;
+            }
+            counters[0] = (counters[0] + 1) % BASELINE_WINDOW;
+            counters[1] = Math.min(counters[1] + 1, BASELINE_WINDOW);
+        }
+
+        private static double logLoss(double predicted, double outcome) {
+            double p = Math.max(1e-6, Math.min(1 - 1e-6, predicted));
+            return -(outcome * Math.log(p) + (1 - outcome) * Math.log(1 - p));
+        }
+
+        String format() {
+            double n = Math.max(1, count);
+            return String.format("%nReproducción de %d intentos (%d estudiante-competencia, %d ejercicios)%n"
+                            + "Elo:        log loss %.4f, Brier %.4f, exactitud %.1f%%%n"
+                            + "Línea base: log loss %.4f, exactitud %.1f%% (últimos %d intentos)%n"
+                            + "Motor: %.0f actualizaciones/s (%.0f ns por intento)%n",
+                    count, students.size(), exercises.size(),
+                    logLoss / n, brier / n, correctPredictions * 100.0 / n,
+                    baselineLogLoss / n, baselineCorrectPredictions * 100.0 / n, BASELINE_WINDOW,
+                    engineNanos > 0 ? count * 1e9 / engineNanos : 0.0, engineNanos / n);
+        }
+    }
+}
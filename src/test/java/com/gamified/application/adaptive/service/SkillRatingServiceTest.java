@@ -0,0 +1,186 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.adaptive.model.entity.ExerciseSkillRating;
+import com.gamified.application.adaptive.model.entity.StudentSkillRating;
+import com.gamified.application.adaptive.repository.SkillRatingRepository;
+import com.gamified.application.shared.model.event.DomainEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la carga, recomendación y guardado de ratings (sin contexto de Spring)
+ */
+@DisplayName("SkillRatingService - Carga y recomendación")
+class SkillRatingServiceTest {
+
+    private StubRepository repository;
+    private SkillRatingService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = new StubRepository();
+        service = new SkillRatingService();
+        ReflectionTestUtils.setField(service, "skillRatingRepository", repository);
+        ReflectionTestUtils.setField(service, "ratingEnabled", true);
+        ReflectionTestUtils.setField(service, "baseK", 40.0);
+        ReflectionTestUtils.setField(service, "minK", 8.0);
+        ReflectionTestUtils.setField(service, "kDecay", 0.1);
+        ReflectionTestUtils.setField(service, "targetSuccess", 0.7);
+        ReflectionTestUtils.setField(service, "candidates", 1);
+        ReflectionTestUtils.setField(service, "maxStudents", 100);
+        ReflectionTestUtils.setField(service, "indexTtlMinutes", 30L);
+        ReflectionTestUtils.setField(service, "recentExclusionDays", 3);
+        service.init();
+    }
+
+    @Test
+    @DisplayName("Si los ratings del estudiante no se pueden cargar no se actualizan ni se guardan")
+    void failedStudentLoadIsNotCached() {
+        repository.studentRatings = null;
+
+        service.onExerciseCompleted(completed(7, 1, true));
+        service.flush();
+
+        assertTrue(repository.savedStudents.isEmpty());
+        assertTrue(repository.savedExercises.isEmpty());
+
+        // La siguiente consulta vuelve a la BD y parte del rating guardado, no del inicial
+        repository.studentRatings = List.of(StudentSkillRating.builder()
+                .studentProfileId(7).competencyId(3).rating(1800f).attempts(40).build());
+        assertEquals(1800f, service.getAbility(7, 3));
+    }
+
+    @Test
+    @DisplayName("Si el índice del learning point no se puede cargar no se crea un rating inicial del ejercicio")
+    void failedIndexLoadIsNotCached() {
+        repository.exercises = null;
+
+        service.onExerciseCompleted(completed(7, 1, true));
+        service.flush();
+
+        assertTrue(repository.savedExercises.isEmpty());
+        assertFalse(service.recommendExercise(7, 42).isPresent());
+
+        repository.exercises = List.of(exercise(1, 1200f, 1));
+        assertTrue(service.recommendExercise(7, 42).isPresent());
+    }
+
+    @Test
+    @DisplayName("No recomienda ejercicios intentados en los últimos días y devuelve la dificultad por nombre")
+    void recommendationSkipsRecentAttempts() {
+        repository.exercises = List.of(exercise(1, 1350f, 1), exercise(2, 1360f, 3));
+        repository.recentlyAttempted = List.of(1);
+
+        Optional<Map<String, Object>> recommendation = service.recommendExercise(7, 42);
+
+        assertTrue(recommendation.isPresent());
+        assertEquals(2, recommendation.get().get("id"));
+        assertEquals("HARD", recommendation.get().get("difficulty_level"));
+        assertEquals(List.of(7, 42, 3), repository.recentQuery);
+
+        repository.recentlyAttempted = List.of(1, 2);
+        assertFalse(service.recommendExercise(7, 42).isPresent());
+    }
+
+    @Test
+    @DisplayName("Con los datos ya cargados por el precálculo de la clase no consulta por estudiante")
+    void recommendationWithPreloadedData() {
+        repository.exercises = List.of(exercise(1, 1350f, 1), exercise(2, 1360f, 3));
+        repository.studentRatings = null;
+        List<StudentSkillRating> saved = List.of(StudentSkillRating.builder()
+                .studentProfileId(7).competencyId(3).rating(1800f).attempts(40).build());
+
+        Optional<Map<String, Object>> recommendation = service.recommendExercise(7, 42, saved, Set.of(2));
+
+        assertTrue(recommendation.isPresent());
+        assertEquals(1, recommendation.get().get("id"));
+        assertEquals(1800, recommendation.get().get("student_ability"));
+        assertNull(repository.recentQuery);
+    }
+
+    private static DomainEvent.ExerciseCompletedEvent completed(Integer studentId, Integer exerciseId, boolean correct) {
+        return DomainEvent.ExerciseCompletedEvent.builder()
+                .studentProfileId(studentId)
+                .exerciseId(exerciseId)
+                .learningPointId(42)
+                .competencyId(3)
+                .isCorrect(correct)
+                .build();
+    }
+
+    private static ExerciseSkillRating exercise(Integer exerciseId, Float rating, Integer difficultyLevelId) {
+        return ExerciseSkillRating.builder()
+                .exerciseId(exerciseId)
+                .learningPointId(42)
+                .competencyId(3)
+                .difficultyLevelId(difficultyLevelId)
+                .rating(rating)
+                .attempts(10)
+                .build();
+    }
+
+    private static class StubRepository implements SkillRatingRepository {
+        private List<StudentSkillRating> studentRatings = List.of();
+        private List<ExerciseSkillRating> exercises = List.of();
+        private List<Integer> recentlyAttempted = List.of();
+        private List<Object> recentQuery;
+        private final List<StudentSkillRating> savedStudents = new ArrayList<>();
+        private final List<ExerciseSkillRating> savedExercises = new ArrayList<>();
+
+        @Override
+        public List<StudentSkillRating> findStudentRatings(Integer studentProfileId) {
+            return studentRatings;
+        }
+
+        @Override
+        public Map<Integer, List<StudentSkillRating>> findStudentRatingsByClassroom(Integer classroomId) {
+            return Map.of();
+        }
+
+        @Override
+        public List<ExerciseSkillRating> findExerciseRatingsByLearningPoint(Integer learningPointId) {
+            return exercises;
+        }
+
+        @Override
+        public Map<Integer, Map<Integer, Set<Integer>>> findRecentlyAttemptedExerciseIdsByClassroom(Integer classroomId, int days) {
+            return Map.of();
+        }
+
+        @Override
+        public List<Integer> findRecentlyAttemptedExerciseIds(Integer studentProfileId, Integer learningPointId, int days) {
+            recentQuery = List.of(studentProfileId, learningPointId, days);
+            return recentlyAttempted;
+        }
+
+        @Override
+        public int saveStudentRatings(List<StudentSkillRating> ratings) {
+            savedStudents.addAll(ratings);
+            return ratings.size();
+        }
+
+        @Override
+        public int saveExerciseRatings(List<ExerciseSkillRating> ratings) {
+            savedExercises.addAll(ratings);
+            return ratings.size();
+        }
+
+        @Override
+        public List<Map<String, Object>> findAttemptsForReplay(long afterAttemptId, int limit) {
+            return List.of();
+        }
+    }
+}
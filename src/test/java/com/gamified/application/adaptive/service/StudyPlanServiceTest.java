@@ -0,0 +1,120 @@
+package com.gamified.application.adaptive.service;
+
+import com.gamified.application.shared.model.event.DomainEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la caché de planes de estudio y de la agrupación de recálculos (sin contexto de Spring)
+ */
+@DisplayName("StudyPlanService - Caché y recálculo")
+class StudyPlanServiceTest {
+
+    private StubJdbcTemplate jdbcTemplate;
+    private StudyPlanService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new StubJdbcTemplate();
+        service = new StudyPlanService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "recomputeDelayMs", 50L);
+        ReflectionTestUtils.setField(service, "maxEntries", 100);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Un plan calculado se guarda y se sirve sin volver a consultar")
+    void cachesSuccessfulPlan() {
+        Map<String, Object> first = service.getStudyPlan(7);
+        Map<String, Object> second = service.getStudyPlan(7);
+
+        assertEquals(7, first.get("student_profile_id"));
+        assertEquals(first, second);
+        // Una consulta de áreas débiles y otra de fuertes
+        assertEquals(2, jdbcTemplate.queries.get());
+        assertTrue(jdbcTemplate.lastSql.contains("ea.exercise_template_id"));
+        assertFalse(jdbcTemplate.lastSql.contains("ea.exercise_id"));
+    }
+
+    @Test
+    @DisplayName("Si la consulta falla no se guarda un plan vacío y la siguiente petición vuelve a calcular")
+    void doesNotCacheFailedPlan() {
+        jdbcTemplate.fail = true;
+
+        Map<String, Object> failed = service.getStudyPlan(7);
+
+        assertTrue(failed.containsKey("error"));
+
+        jdbcTemplate.fail = false;
+        Map<String, Object> plan = service.getStudyPlan(7);
+
+        assertEquals(7, plan.get("student_profile_id"));
+        assertEquals(3, jdbcTemplate.queries.get());
+    }
+
+    @Test
+    @DisplayName("Una ráfaga de intentos produce un único recálculo")
+    void coalescesDirtyEvents() throws Exception {
+        service.getStudyPlan(7);
+        assertEquals(2, jdbcTemplate.queries.get());
+
+        for (int i = 0; i < 5; i++) {
+            service.onExerciseCompleted(DomainEvent.ExerciseCompletedEvent.builder().studentProfileId(7).build());
+        }
+
+        waitForQueries(4);
+        Thread.sleep(200);
+        assertEquals(4, jdbcTemplate.queries.get());
+    }
+
+    @Test
+    @DisplayName("Sin plan en caché un intento no programa recálculo")
+    void ignoresEventsWithoutCachedPlan() throws Exception {
+        service.onExerciseCompleted(DomainEvent.ExerciseCompletedEvent.builder().studentProfileId(7).build());
+
+        Thread.sleep(200);
+        assertEquals(0, jdbcTemplate.queries.get());
+    }
+
+    private void waitForQueries(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (jdbcTemplate.queries.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static class StubJdbcTemplate extends JdbcTemplate {
+        private final AtomicInteger queries = new AtomicInteger();
+        private volatile boolean fail;
+        private volatile String lastSql;
+
+        @Override
+        public List<Map<String, Object>> queryForList(String sql, Object... args) {
+            queries.incrementAndGet();
+            lastSql = sql;
+            if (fail) {
+                throw new DataAccessResourceFailureException("conexión perdida");
+            }
+            return List.of();
+        }
+    }
+}
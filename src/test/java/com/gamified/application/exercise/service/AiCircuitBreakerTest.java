@@ -0,0 +1,119 @@
+package com.gamified.application.exercise.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del circuit breaker por deployment (sin contexto de Spring)
+ */
+@DisplayName("AiCircuitBreaker - Circuito por deployment")
+class AiCircuitBreakerTest {
+
+    private AiCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new AiCircuitBreaker(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(breaker, "breakerEnabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "openSeconds", 30L);
+    }
+
+    @Test
+    @DisplayName("Se abre al alcanzar el umbral de fallos consecutivos y solo para ese deployment")
+    void opensPerDeployment() {
+        breaker.recordFailure("fast", "503");
+        breaker.recordFailure("fast", "503");
+        assertTrue(breaker.allowRequest("fast"));
+
+        breaker.recordFailure("fast", "503");
+
+        assertFalse(breaker.allowRequest("fast"));
+        assertTrue(breaker.isOpen("fast"));
+        assertTrue(breaker.allowRequest("reasoning"));
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState("reasoning"));
+    }
+
+    @Test
+    @DisplayName("Un fallo aislado, como un sondeo fallido, no abre el circuito")
+    void singleFailureDoesNotOpen() {
+        breaker.recordFailure("fast", "sondeo de salud: DOWN");
+
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState("fast"));
+        assertTrue(breaker.allowRequest("fast"));
+    }
+
+    @Test
+    @DisplayName("Un éxito reinicia la cuenta de fallos consecutivos")
+    void successResetsFailures() {
+        breaker.recordFailure("fast", "503");
+        breaker.recordFailure("fast", "503");
+        breaker.recordSuccess("fast");
+        breaker.recordFailure("fast", "503");
+        breaker.recordFailure("fast", "503");
+
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState("fast"));
+    }
+
+    @Test
+    @DisplayName("En HALF_OPEN se admite una sola llamada de prueba y un resultado ignorado la libera")
+    void halfOpenTrialReleasedWhenIgnored() {
+        ReflectionTestUtils.setField(breaker, "openSeconds", 0L);
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure("fast", "503");
+        }
+
+        assertTrue(breaker.allowRequest("fast"));
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getState("fast"));
+        assertFalse(breaker.allowRequest("fast"));
+
+        breaker.recordIgnored("fast");
+        assertTrue(breaker.allowRequest("fast"));
+
+        breaker.recordSuccess("fast");
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState("fast"));
+    }
+
+    @Test
+    @DisplayName("Un fallo de la llamada de prueba vuelve a abrir el circuito")
+    void halfOpenTrialFailureReopens() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure("fast", "503");
+        }
+        ReflectionTestUtils.setField(breaker, "openSeconds", 0L);
+        assertTrue(breaker.allowRequest("fast"));
+
+        ReflectionTestUtils.setField(breaker, "openSeconds", 30L);
+        breaker.recordFailure("fast", "timeout");
+
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getState("fast"));
+        assertFalse(breaker.allowRequest("fast"));
+    }
+
+    @Test
+    @DisplayName("Solo los errores del servicio cuentan como fallo")
+    void classifiesUpstreamFailures() {
+        assertTrue(AiCircuitBreaker.isUpstreamFailure(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+        assertTrue(AiCircuitBreaker.isUpstreamFailure(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+        assertTrue(AiCircuitBreaker.isUpstreamFailure(
+                new RuntimeException("envuelta", new ResourceAccessException("I/O", new SocketTimeoutException()))));
+
+        assertFalse(AiCircuitBreaker.isUpstreamFailure(new HttpClientErrorException(HttpStatus.BAD_REQUEST)));
+        assertFalse(AiCircuitBreaker.isUpstreamFailure(new RuntimeException("Contenido no es JSON válido")));
+        assertFalse(AiCircuitBreaker.isUpstreamFailure(
+                new AiRequestScheduler.QueueRejectedException("tiempo máximo en cola superado")));
+    }
+}
@@ -0,0 +1,65 @@
+package com.gamified.application.exercise.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del presupuesto de tokens por plantilla (sin contexto de Spring)
+ */
+@DisplayName("AiTokenBudgetTracker - Presupuesto por plantilla")
+class AiTokenBudgetTrackerTest {
+
+    @Test
+    @DisplayName("Sin suficientes muestras se usa el máximo de la ruta")
+    void usesCeilingUntilEnoughSamples() {
+        AiTokenBudgetTracker.TemplateBudget budget = new AiTokenBudgetTracker.TemplateBudget(200);
+        for (int i = 0; i < 5; i++) {
+            budget.record(300, 400, 4000, false);
+        }
+
+        assertEquals(4000, budget.maxTokens(20, 0.99, 1.25, 256, 4000));
+    }
+
+    @Test
+    @DisplayName("El presupuesto es el p99 observado más el margen")
+    void budgetFollowsP99() {
+        AiTokenBudgetTracker.TemplateBudget budget = new AiTokenBudgetTracker.TemplateBudget(200);
+        for (int i = 1; i <= 100; i++) {
+            budget.record(300, i * 10, 4000, false);
+        }
+
+        assertEquals(990, budget.percentile(0.99));
+        assertEquals(1238, budget.maxTokens(20, 0.99, 1.25, 256, 4000));
+    }
+
+    @Test
+    @DisplayName("Una respuesta truncada eleva el presupuesto")
+    void truncationRaisesBudget() {
+        AiTokenBudgetTracker.TemplateBudget budget = new AiTokenBudgetTracker.TemplateBudget(200);
+        for (int i = 0; i < 99; i++) {
+            budget.record(300, 400, 600, false);
+        }
+        budget.record(300, 600, 600, true);
+
+        assertEquals(1200, budget.maxTokens(20, 0.99, 1.25, 256, 4000));
+    }
+
+    @Test
+    @DisplayName("Marca el prompt que crece respecto a su línea base")
+    void flagsGrowingPrompt() {
+        AiTokenBudgetTracker.TemplateBudget budget = new AiTokenBudgetTracker.TemplateBudget(200);
+        for (int i = 0; i < 20; i++) {
+            budget.record(300, 400, 4000, false);
+        }
+        assertFalse(budget.isPromptGrowing(1.5));
+
+        for (int i = 0; i < 50; i++) {
+            budget.record(600, 400, 4000, false);
+        }
+        assertTrue(budget.isPromptGrowing(1.5));
+    }
+}
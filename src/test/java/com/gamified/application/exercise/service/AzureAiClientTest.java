@@ -0,0 +1,99 @@
+package com.gamified.application.exercise.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del registro de fallos de la llamada REST en el circuit breaker (sin contexto de Spring)
+ */
+@DisplayName("AzureAiClient - Fallos de la llamada REST")
+class AzureAiClientTest {
+
+    private static final String DEPLOYMENT = "gpt-test";
+
+    private FailingRestTemplate restTemplate;
+    private AiCircuitBreaker circuitBreaker;
+    private AzureAiClient client;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        AiRequestScheduler scheduler = new AiRequestScheduler(meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "rateLimitEnabled", false);
+
+        AiModelRouter router = new AiModelRouter(meterRegistry);
+        ReflectionTestUtils.setField(router, "routingEnabled", false);
+        ReflectionTestUtils.setField(router, "reasoningDeployment", DEPLOYMENT);
+        ReflectionTestUtils.setField(router, "reasoningMaxTokens", 4000);
+        ReflectionTestUtils.setField(router, "reasoningTemperature", 1.0);
+        ReflectionTestUtils.setField(router, "fastDeployment", "fast-test");
+        ReflectionTestUtils.setField(router, "fastMaxTokens", 1200);
+        ReflectionTestUtils.setField(router, "fastTemperature", 0.8);
+        router.init();
+
+        AiTokenBudgetTracker budgetTracker = new AiTokenBudgetTracker(meterRegistry);
+        ReflectionTestUtils.setField(budgetTracker, "budgetEnabled", false);
+        ReflectionTestUtils.setField(budgetTracker, "globalMaxTokens", 4000);
+
+        AiCallMetrics callMetrics = new AiCallMetrics(meterRegistry);
+        ReflectionTestUtils.setField(callMetrics, "sloMillis", List.of(2000L));
+
+        circuitBreaker = new AiCircuitBreaker(meterRegistry);
+        ReflectionTestUtils.setField(circuitBreaker, "breakerEnabled", true);
+        ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(circuitBreaker, "openSeconds", 30L);
+
+        restTemplate = new FailingRestTemplate();
+        client = new AzureAiClient(new ObjectMapper(), restTemplate, scheduler, router, budgetTracker,
+                callMetrics, circuitBreaker, new RestTemplate());
+        ReflectionTestUtils.setField(client, "azureAiEndpoint", "https://example.invalid");
+        ReflectionTestUtils.setField(client, "azureAiApiKey", "clave");
+        ReflectionTestUtils.setField(client, "deploymentName", DEPLOYMENT);
+        ReflectionTestUtils.setField(client, "apiVersion", "2024-05-01-preview");
+    }
+
+    @Test
+    @DisplayName("Los errores 503 de la llamada REST abren el circuito sin pasar por el SDK")
+    void restFailuresOpenCircuit() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RuntimeException.class,
+                    () -> client.generateExercise("Genera un ejercicio", AiRequestScheduler.Lane.INTERACTIVE, 1));
+        }
+
+        assertTrue(circuitBreaker.isOpen(DEPLOYMENT));
+        assertEquals(3, restTemplate.calls);
+
+        // Con el circuito abierto ya no se llama al servicio
+        assertThrows(RuntimeException.class,
+                () -> client.generateExercise("Genera un ejercicio", AiRequestScheduler.Lane.INTERACTIVE, 1));
+        assertEquals(3, restTemplate.calls);
+    }
+
+    private static class FailingRestTemplate extends RestTemplate {
+        private int calls;
+
+        @Override
+        public <T> T execute(String url, HttpMethod method, RequestCallback requestCallback,
+                             ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+            calls++;
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.gamified.application.exercise.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamified.application.exercise.model.dto.response.ExerciseResponseDto;
+import com.gamified.application.exercise.model.entity.Exercise;
+import com.gamified.application.learning.model.entity.LearningPoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del ensamblado del payload pre-renderizado con los datos de la solicitud
+ */
+@DisplayName("ExercisePayloadRenderer - Payload pre-renderizado")
+class ExercisePayloadRendererTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExercisePayloadRenderer renderer = new ExercisePayloadRenderer(null, null, objectMapper);
+
+    private static final String AI_CONTENT = """
+            {"title":"Suma","question":"¿Cuánto es 2 + 2?","options":["3","4","5"],"items":["2","2"],
+             "correct_answer":"4","explanation":"2 + 2 = 4","hints":["Cuenta con los dedos"]}
+            """;
+
+    private static final String EXERCISES_CONTENT = """
+            {"title":"Suma","instructions":null,"options":["3","4","5"],"correctAnswer":null,"explanation":null,
+             "hints":["Cuenta con los dedos"],"imageUrl":null}
+            """;
+
+    private static final String GENERATED_CONTENT = """
+            {"title":"¿Cuánto es 2 + 2?","instructions":"Selecciona la respuesta correcta","options":["3","4","5"],
+             "correctAnswer":null,"explanation":null,"hints":["Cuenta con los dedos"],"imageUrl":null}
+            """;
+
+    @Test
+    @DisplayName("El payload estático no incluye los campos de la solicitud")
+    void staticPayloadOmitsRequestFields() throws Exception {
+        JsonNode node = objectMapper.readTree(objectMapper.writeValueAsBytes(staticDto()));
+
+        assertFalse(node.has("generatedExerciseId"));
+        assertFalse(node.has("hasAttempts"));
+        assertFalse(node.has("previousAttempts"));
+    }
+
+    @Test
+    @DisplayName("La respuesta añade ID e intentos sin alterar el resto del payload")
+    void responseSplicesRequestFields() throws Exception {
+        byte[] payload = objectMapper.writeValueAsBytes(staticDto());
+
+        byte[] response = renderer.toResponse(42L, payload, true, 3);
+        ExerciseResponseDto.NextExerciseDto dto = objectMapper.readValue(response, ExerciseResponseDto.NextExerciseDto.class);
+
+        assertEquals(42L, dto.getGeneratedExerciseId());
+        assertTrue(dto.getHasAttempts());
+        assertEquals(3, dto.getPreviousAttempts());
+        assertEquals(7, dto.getExerciseTemplateId());
+        assertEquals("radio-buttons", dto.getRenderVariant());
+        assertEquals("¿Cuánto es 2 + 2?", dto.getContent().getTitle());
+        assertNull(dto.getContent().getCorrectAnswer());
+    }
+
+    // Payloads de referencia: los valores que devolvía cada endpoint antes de compartir el renderizado,
+    // salvo la respuesta correcta y la explicación, que ya no se envían al estudiante
+
+    @Test
+    @DisplayName("Payload de referencia de multiple_choice")
+    void goldenMultipleChoice() throws Exception {
+        assertGolden(ExercisePayloadRenderer.Format.EXERCISES, "multiple_choice", """
+                {"exerciseTemplateId":7,"exerciseType":"multiple_choice","renderVariant":"radio-buttons","difficultyLevel":"medium",
+                 "config":{"showTimer":true,"maxTime":300,"allowPartialScore":false,"itemCount":null,"shuffleItems":true,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(EXERCISES_CONTENT));
+        assertGolden(ExercisePayloadRenderer.Format.GENERATED_EXERCISES, "multiple_choice", """
+                {"exerciseTemplateId":7,"exerciseType":"multiple_choice","renderVariant":"radio-buttons","difficultyLevel":"level_2",
+                 "config":{"showTimer":true,"maxTime":60,"allowPartialScore":true,"itemCount":null,"shuffleItems":true,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(GENERATED_CONTENT));
+    }
+
+    @Test
+    @DisplayName("Payload de referencia de drag_and_drop")
+    void goldenDragAndDrop() throws Exception {
+        assertGolden(ExercisePayloadRenderer.Format.EXERCISES, "drag_and_drop", """
+                {"exerciseTemplateId":7,"exerciseType":"drag_and_drop","renderVariant":"drag-to-sort","difficultyLevel":"medium",
+                 "config":{"showTimer":true,"maxTime":420,"allowPartialScore":true,"itemCount":2,"shuffleItems":true,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(EXERCISES_CONTENT));
+        assertGolden(ExercisePayloadRenderer.Format.GENERATED_EXERCISES, "drag_and_drop", """
+                {"exerciseTemplateId":7,"exerciseType":"drag_and_drop","renderVariant":"drag-to-sort","difficultyLevel":"level_2",
+                 "config":{"showTimer":true,"maxTime":90,"allowPartialScore":true,"itemCount":3,"shuffleItems":true,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(GENERATED_CONTENT));
+    }
+
+    @Test
+    @DisplayName("Payload de referencia de numeric_input")
+    void goldenNumericInput() throws Exception {
+        assertGolden(ExercisePayloadRenderer.Format.EXERCISES, "numeric_input", """
+                {"exerciseTemplateId":7,"exerciseType":"numeric_input","renderVariant":"number-input","difficultyLevel":"medium",
+                 "config":{"showTimer":true,"maxTime":480,"allowPartialScore":false,"itemCount":null,"shuffleItems":false,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(EXERCISES_CONTENT));
+        assertGolden(ExercisePayloadRenderer.Format.GENERATED_EXERCISES, "numeric_input", """
+                {"exerciseTemplateId":7,"exerciseType":"numeric_input","renderVariant":"number-input","difficultyLevel":"level_2",
+                 "config":{"showTimer":true,"maxTime":120,"allowPartialScore":false,"itemCount":null,"shuffleItems":null,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(GENERATED_CONTENT));
+    }
+
+    @Test
+    @DisplayName("Payload de referencia de ordering")
+    void goldenOrdering() throws Exception {
+        assertGolden(ExercisePayloadRenderer.Format.EXERCISES, "ordering", """
+                {"exerciseTemplateId":7,"exerciseType":"ordering","renderVariant":"sortable-list","difficultyLevel":"medium",
+                 "config":{"showTimer":true,"maxTime":360,"allowPartialScore":true,"itemCount":2,"shuffleItems":true,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(EXERCISES_CONTENT));
+        assertGolden(ExercisePayloadRenderer.Format.GENERATED_EXERCISES, "ordering", """
+                {"exerciseTemplateId":7,"exerciseType":"ordering","renderVariant":"sortable-list","difficultyLevel":"level_2",
+                 "config":{"showTimer":true,"maxTime":240,"allowPartialScore":true,"itemCount":null,"shuffleItems":null,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(GENERATED_CONTENT));
+    }
+
+    @Test
+    @DisplayName("Payload de referencia de un tipo sin configuración propia (true_false)")
+    void goldenDefaultType() throws Exception {
+        assertGolden(ExercisePayloadRenderer.Format.EXERCISES, "true_false", """
+                {"exerciseTemplateId":7,"exerciseType":"true_false","renderVariant":"toggle-buttons","difficultyLevel":"medium",
+                 "config":{"showTimer":true,"maxTime":240,"allowPartialScore":false,"itemCount":null,"shuffleItems":false,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(EXERCISES_CONTENT));
+        assertGolden(ExercisePayloadRenderer.Format.GENERATED_EXERCISES, "true_false", """
+                {"exerciseTemplateId":7,"exerciseType":"true_false","renderVariant":"toggle-buttons","difficultyLevel":"level_2",
+                 "config":{"showTimer":true,"maxTime":240,"allowPartialScore":true,"itemCount":null,"shuffleItems":null,"showHints":true,"allowRetry":false},
+                 "content":%s,"learningPointId":3,"learningPointTitle":"Sumas"}
+                """.formatted(GENERATED_CONTENT));
+    }
+
+    private void assertGolden(ExercisePayloadRenderer.Format format, String exerciseType, String expected) throws Exception {
+        Exercise template = Exercise.builder().id(7).difficultyLevelId(2).estimatedTime(4).learningPointId(3).build();
+        LearningPoint learningPoint = LearningPoint.builder().id(3).title("Sumas").build();
+
+        byte[] payload = renderer.render(AI_CONTENT, exerciseType, template, learningPoint, format);
+
+        assertEquals(objectMapper.readTree(expected), objectMapper.readTree(payload), format + " " + exerciseType);
+    }
+
+    private ExerciseResponseDto.NextExerciseDto staticDto() {
+        return ExerciseResponseDto.NextExerciseDto.builder()
+                .exerciseTemplateId(7)
+                .exerciseType("multiple_choice")
+                .renderVariant("radio-buttons")
+                .difficultyLevel("level_1")
+                .content(ExerciseResponseDto.ExerciseContentDto.builder()
+                        .title("¿Cuánto es 2 + 2?")
+                        .options(List.of("3", "4", "5"))
+                        .build())
+                .learningPointId(3)
+                .learningPointTitle("Sumas")
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.gamified.application.exercise.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests del ajuste de bloque y pausa de la purga (sin contexto de Spring)
+ */
+@DisplayName("GeneratedExercisePurgeService - Bloques adaptativos")
+class GeneratedExercisePurgeServiceTest {
+
+    private static final long TARGET_MS = 200;
+    private static final int MIN_SIZE = 50;
+    private static final int MAX_SIZE = 5000;
+
+    @Test
+    @DisplayName("Por debajo de la latencia objetivo el bloque crece un 25% hasta el máximo")
+    void growsAdditivelyUnderTarget() {
+        assertEquals(625, GeneratedExercisePurgeService.nextChunkSize(500, 100, TARGET_MS, MIN_SIZE, MAX_SIZE));
+        assertEquals(150, GeneratedExercisePurgeService.nextChunkSize(100, 100, TARGET_MS, MIN_SIZE, MAX_SIZE));
+        assertEquals(MAX_SIZE, GeneratedExercisePurgeService.nextChunkSize(4800, 100, TARGET_MS, MIN_SIZE, MAX_SIZE));
+    }
+
+    @Test
+    @DisplayName("Por encima de la latencia objetivo el bloque se reduce a la mitad sin bajar del mínimo")
+    void shrinksMultiplicativelyOverTarget() {
+        assertEquals(250, GeneratedExercisePurgeService.nextChunkSize(500, 300, TARGET_MS, MIN_SIZE, MAX_SIZE));
+        assertEquals(MIN_SIZE, GeneratedExercisePurgeService.nextChunkSize(60, 300, TARGET_MS, MIN_SIZE, MAX_SIZE));
+    }
+
+    @Test
+    @DisplayName("La pausa sigue a la latencia dentro de sus límites")
+    void pauseFollowsLatency() {
+        assertEquals(50, GeneratedExercisePurgeService.pauseFor(100, TARGET_MS, 20, 2000));
+        assertEquals(600, GeneratedExercisePurgeService.pauseFor(300, TARGET_MS, 20, 2000));
+        assertEquals(20, GeneratedExercisePurgeService.pauseFor(10, TARGET_MS, 20, 2000));
+        assertEquals(2000, GeneratedExercisePurgeService.pauseFor(5000, TARGET_MS, 20, 2000));
+    }
+}
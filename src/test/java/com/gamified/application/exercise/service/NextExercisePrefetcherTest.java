@@ -0,0 +1,132 @@
+package com.gamified.application.exercise.service;
+
+import com.gamified.application.exercise.model.entity.Exercise;
+import com.gamified.application.exercise.model.entity.GeneratedExercise;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de los slots de pre-carga por (estudiante, learning point, dificultad) y de la reserva
+ * de los ejercicios del pool (sin contexto de Spring)
+ */
+@DisplayName("NextExercisePrefetcher - Slots por dificultad y reservas")
+class NextExercisePrefetcherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private NextExercisePrefetcher prefetcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        prefetcher = new NextExercisePrefetcher(meterRegistry);
+        ReflectionTestUtils.setField(prefetcher, "prefetchEnabled", true);
+        ReflectionTestUtils.setField(prefetcher, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(prefetcher, "claimWaitMs", 5000L);
+        ReflectionTestUtils.setField(prefetcher, "threads", 1);
+        ReflectionTestUtils.setField(prefetcher, "queueCapacity", 10);
+        prefetcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Sirve el slot pre-cargado con la misma dificultad y lo consume")
+    void claimHit() {
+        prefetcher.prefetch(1, 10, "MEDIUM", () -> exercise(100L));
+
+        Optional<NextExercisePrefetcher.PrefetchedExercise> claimed = prefetcher.claim(1, 10, "medium");
+
+        assertTrue(claimed.isPresent());
+        assertEquals(100L, claimed.get().getGeneratedExercise().getId());
+        assertFalse(prefetcher.claim(1, 10, "MEDIUM").isPresent());
+        assertEquals(1.0, count("hit"));
+    }
+
+    @Test
+    @DisplayName("Sin slot para el learning point no hay ejercicio pre-cargado")
+    void claimMiss() {
+        prefetcher.prefetch(1, 10, "MEDIUM", () -> exercise(100L));
+
+        assertFalse(prefetcher.claim(1, 11, "MEDIUM").isPresent());
+        assertFalse(prefetcher.claim(2, 10, "MEDIUM").isPresent());
+        assertEquals(2.0, count("miss"));
+    }
+
+    @Test
+    @DisplayName("Una dificultad distinta no se sirve ni consume el slot")
+    void claimMismatch() {
+        prefetcher.prefetch(1, 10, "HARD", () -> exercise(100L));
+
+        assertFalse(prefetcher.claim(1, 10, "EASY").isPresent());
+        assertEquals(1.0, count("mismatch"));
+
+        assertTrue(prefetcher.claim(1, 10, "HARD").isPresent());
+    }
+
+    @Test
+    @DisplayName("Una solicitud sin dificultad acepta el slot pre-cargado")
+    void claimWithoutDifficulty() {
+        prefetcher.prefetch(1, 10, "EASY", () -> exercise(100L));
+
+        assertTrue(prefetcher.claim(1, 10, null).isPresent());
+    }
+
+    @Test
+    @DisplayName("El ejercicio del pool queda reservado en el slot hasta que se reclama")
+    void reservationReleasedOnClaim() {
+        prefetcher.prefetch(1, 10, "MEDIUM", () -> {
+            prefetcher.reserve(100L);
+            return exercise(100L);
+        });
+        prefetcher.peek(1, 10, 5000L);
+
+        assertTrue(prefetcher.isReserved(100L));
+        assertFalse(prefetcher.reserve(100L));
+
+        assertTrue(prefetcher.claim(1, 10, "MEDIUM").isPresent());
+        assertFalse(prefetcher.isReserved(100L));
+    }
+
+    @Test
+    @DisplayName("Al reemplazar el slot la reserva del ejercicio anterior se libera")
+    void reservationReleasedOnReplace() {
+        prefetcher.prefetch(1, 10, "MEDIUM", () -> {
+            prefetcher.reserve(100L);
+            return exercise(100L);
+        });
+        prefetcher.peek(1, 10, 5000L);
+
+        prefetcher.prefetch(1, 10, "MEDIUM", () -> {
+            prefetcher.reserve(101L);
+            return exercise(101L);
+        });
+        prefetcher.peek(1, 10, 5000L);
+
+        assertFalse(prefetcher.isReserved(100L));
+        assertTrue(prefetcher.isReserved(101L));
+        assertEquals(1.0, count("unused"));
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("exercise.prefetch").tag("result", result).counter().count();
+    }
+
+    private static NextExercisePrefetcher.PrefetchedExercise exercise(Long generatedExerciseId) {
+        GeneratedExercise generated = new GeneratedExercise();
+        generated.setId(generatedExerciseId);
+        return new NextExercisePrefetcher.PrefetchedExercise(generated, new Exercise(), null, true);
+    }
+}
@@ -0,0 +1,53 @@
+package com.gamified.application.exercise.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del cálculo de demanda con decaimiento exponencial (sin contexto de Spring)
+ */
+@DisplayName("TemplateDemandTracker - Estado de demanda")
+class TemplateDemandTrackerTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final double TAU_HOURS = 24 / Math.log(2); // vida media de 24 horas
+
+    @Test
+    @DisplayName("Con llegadas a tasa constante la estimación converge a esa tasa")
+    void rateConvergesToArrivalRate() {
+        TemplateDemandTracker.DemandState state = new TemplateDemandTracker.DemandState(0L);
+
+        // 6 solicitudes por hora durante 10 días
+        long interval = HOUR / 6;
+        long now = 0L;
+        for (int i = 0; i < 6 * 24 * 10; i++) {
+            now += interval;
+            state.record(now, TAU_HOURS, true);
+        }
+
+        assertEquals(6.0, state.rateAt(now, TAU_HOURS), 0.5);
+    }
+
+    @Test
+    @DisplayName("Sin solicitudes la demanda se reduce a la mitad en una vida media")
+    void rateHalvesAfterHalfLife() {
+        TemplateDemandTracker.DemandState state = new TemplateDemandTracker.DemandState(0L);
+        state.raiseTo(10.0, 0L, TAU_HOURS);
+
+        assertEquals(5.0, state.rateAt(24 * HOUR, TAU_HOURS), 1e-9);
+    }
+
+    @Test
+    @DisplayName("La siembra solo eleva la demanda, nunca la reduce")
+    void seedOnlyRaisesRate() {
+        TemplateDemandTracker.DemandState state = new TemplateDemandTracker.DemandState(0L);
+        state.raiseTo(8.0, 0L, TAU_HOURS);
+        state.raiseTo(2.0, 0L, TAU_HOURS);
+
+        assertEquals(8.0, state.rateAt(0L, TAU_HOURS), 1e-9);
+        assertTrue(state.rateAt(HOUR, TAU_HOURS) < 8.0);
+    }
+}
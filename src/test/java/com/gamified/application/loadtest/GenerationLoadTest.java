@@ -0,0 +1,43 @@
+package com.gamified.application.loadtest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Prueba de carga del pipeline de generación contra una instancia de la aplicación ya levantada.
+ * No se ejecuta en el build normal; se lanza con el perfil loadtest:
+ *
+ *   mvn test -Ploadtest -Dloadtest.base-url=http://localhost:8080/api -Dloadtest.username=... \
+ *       -Dloadtest.password=... -Dloadtest.student-ids=1,2,3 -Dloadtest.learning-point-ids=1,2
+ *
+ * La aplicación debe apuntar al stub (AZURE_AI_FOUNDRY_ENDPOINT=http://localhost:18080) para no
+ * consumir cuota de Azure; con azure.ai.foundry.streaming.enabled=true se ejercita también el streaming.
+ * Con -Dloadtest.stub.external=true no se arranca el stub (p. ej. si se lanza aparte con StubLlmServer.main).
+ */
+@Tag("loadtest")
+@DisplayName("Prueba de carga - Generación de ejercicios con stub LLM")
+class GenerationLoadTest {
+
+    @Test
+    @DisplayName("Flujo siguiente ejercicio + intento con usuarios concurrentes")
+    void generationPipelineUnderLoad() throws Exception {
+        LoadTestDriver.Config config = LoadTestDriver.Config.fromSystemProperties();
+        assumeTrue(config.getBaseUrl() != null, "Definir -Dloadtest.base-url para ejecutar la prueba de carga");
+
+        boolean externalStub = Boolean.getBoolean("loadtest.stub.external");
+        try (StubLlmServer stub = externalStub ? null : StubLlmServer.start(StubLlmServer.Config.fromSystemProperties())) {
+            LoadTestDriver.Report report = new LoadTestDriver(config).run();
+            System.out.println(report.format());
+
+            if (stub != null) {
+                System.out.printf("Stub LLM: %d peticiones (%d en streaming, %d con JSON mal formado)%n",
+                        stub.getRequests(), stub.getStreamedRequests(), stub.getMalformedResponses());
+            }
+            assertTrue(report.getTotalRequests() > 0, "La prueba de carga no realizó ninguna petición");
+        }
+    }
+}
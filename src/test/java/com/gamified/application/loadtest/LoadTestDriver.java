@@ -0,0 +1,416 @@
+package com.gamified.application.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Generador de carga para el flujo de ejercicios: cada usuario virtual pide el siguiente ejercicio
+ * (ExerciseController o GeneratedExerciseController), espera un tiempo de "pensar" y envía un intento.
+ *
+ * Al terminar resume throughput, percentiles de latencia y errores por operación, y la tasa de
+ * aciertos del pool leída de las métricas de actuator (exercise.pool.requests) antes y después.
+ */
+public class LoadTestDriver {
+
+    public static final String OP_NEXT_EXERCISE = "next_exercise";
+    public static final String OP_NEXT_GENERATED = "next_generated_exercise";
+    public static final String OP_SUBMIT = "submit_attempt";
+
+    private final Config config;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    private volatile String bearerToken;
+
+    public LoadTestDriver(Config config) {
+        this.config = config;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "loadtest-http");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+    }
+
+    /**
+     * Ejecuta la prueba durante la duración configurada con el número de usuarios virtuales indicado
+     */
+    public Report run() throws Exception {
+        bearerToken = resolveToken();
+
+        long hitsBefore = poolRequests("hit");
+        long missesBefore = poolRequests("miss");
+
+        ExecutorService users = Executors.newFixedThreadPool(config.getConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-user");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + config.getDuration().toNanos();
+
+        for (int user = 0; user < config.getConcurrency(); user++) {
+            int userIndex = user;
+            users.submit(() -> runUser(userIndex, deadlineNanos));
+        }
+        users.shutdown();
+        if (!users.awaitTermination(config.getDuration().toSeconds() + config.getRequestTimeout().toSeconds() + 30, TimeUnit.SECONDS)) {
+            users.shutdownNow();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        long hits = poolRequests("hit") - hitsBefore;
+        long misses = poolRequests("miss") - missesBefore;
+
+        Map<String, OperationSummary> operations = new LinkedHashMap<>();
+        stats.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> operations.put(entry.getKey(), entry.getValue().summarize(elapsedNanos)));
+
+        return new Report(config.getConcurrency(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), operations,
+                hits >= 0 && misses >= 0 ? hits : -1, hits >= 0 && misses >= 0 ? misses : -1);
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void runUser(int userIndex, long deadlineNanos) {
+        List<Integer> studentIds = config.getStudentIds();
+        List<Integer> learningPointIds = config.getLearningPointIds();
+        int studentId = studentIds.get(userIndex % studentIds.size());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadlineNanos && !Thread.currentThread().isInterrupted()) {
+            int learningPointId = learningPointIds.get(random.nextInt(learningPointIds.size()));
+            try {
+                JsonNode exercise = random.nextDouble() < config.getGeneratedEndpointRatio()
+                        ? nextGeneratedExercise(studentId, learningPointId)
+                        : nextExercise(studentId, learningPointId);
+
+                if (exercise != null && exercise.hasNonNull("generatedExerciseId")) {
+                    sleepThinkTime();
+                    submitAttempt(studentId, exercise);
+                }
+                sleepThinkTime();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // Los errores ya quedaron registrados en la operación correspondiente
+            }
+        }
+    }
+
+    private JsonNode nextExercise(int studentId, int learningPointId) throws Exception {
+        String path = "/exercises/students/" + studentId + "/learning-point/" + learningPointId + "/next-exercise";
+        JsonNode body = timed(OP_NEXT_EXERCISE, request(path).GET().build());
+        return body;
+    }
+
+    private JsonNode nextGeneratedExercise(int studentId, int learningPointId) throws Exception {
+        String path = "/api/v1/generated-exercises/next?studentId=" + studentId + "&learningPointId=" + learningPointId;
+        JsonNode body = timed(OP_NEXT_GENERATED, request(path).GET().build());
+        return body != null ? body.path("data") : null;
+    }
+
+    private void submitAttempt(int studentId, JsonNode exercise) throws Exception {
+        ObjectNode attempt = objectMapper.createObjectNode();
+        attempt.put("generatedExerciseId", exercise.get("generatedExerciseId").asLong());
+        attempt.put("studentProfileId", studentId);
+        attempt.put("submittedAnswer", pickAnswer(exercise));
+        attempt.put("timeSpentSeconds", ThreadLocalRandom.current().nextInt(5, 90));
+        attempt.put("hintsUsed", 0);
+
+        timed(OP_SUBMIT, request("/exercises/attempts")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(attempt.toString()))
+                .build());
+    }
+
+    /**
+     * Elige una de las opciones del ejercicio (o la respuesta correcta si viene en el contenido)
+     */
+    private String pickAnswer(JsonNode exercise) {
+        JsonNode content = exercise.path("content");
+        JsonNode options = content.path("options");
+        if (options.isArray() && !options.isEmpty()) {
+            return options.get(ThreadLocalRandom.current().nextInt(options.size())).asText();
+        }
+        JsonNode correct = content.path("correctAnswer");
+        return correct.isMissingNode() || correct.isNull() ? "0" : correct.asText();
+    }
+
+    private JsonNode timed(String operation, HttpRequest request) throws Exception {
+        OperationStats operationStats = stats.computeIfAbsent(operation, k -> new OperationStats());
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long elapsed = System.nanoTime() - start;
+            boolean success = response.statusCode() >= 200 && response.statusCode() < 300;
+            operationStats.record(elapsed, success ? null : "http_" + response.statusCode());
+            return success && response.body().length > 0 ? objectMapper.readTree(response.body()) : null;
+        } catch (Exception e) {
+            operationStats.record(System.nanoTime() - start, e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(config.getBaseUrl() + path))
+                .timeout(config.getRequestTimeout())
+                .header("Accept", "application/json");
+        if (bearerToken != null) {
+            builder.header("Authorization", "Bearer " + bearerToken);
+        }
+        return builder;
+    }
+
+    private String resolveToken() throws Exception {
+        if (config.getToken() != null && !config.getToken().isBlank()) {
+            return config.getToken();
+        }
+        if (config.getUsername() == null || config.getPassword() == null) {
+            return null;
+        }
+
+        // Con "@" se usa el login por email; si no, el login de estudiante por username
+        boolean byEmail = config.getUsername().contains("@");
+        ObjectNode credentials = objectMapper.createObjectNode();
+        credentials.put(byEmail ? "email" : "username", config.getUsername());
+        credentials.put("password", config.getPassword());
+
+        HttpRequest login = HttpRequest.newBuilder(URI.create(config.getBaseUrl() + (byEmail ? "/auth/login" : "/auth/student-login")))
+                .timeout(config.getRequestTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials.toString()))
+                .build();
+        HttpResponse<String> response = httpClient.send(login, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login fallido para la prueba de carga: HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).path("accessToken").asText(null);
+    }
+
+    /**
+     * Lee el contador exercise.pool.requests{result} de actuator (-1 si no está disponible)
+     */
+    private long poolRequests(String result) {
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    request("/actuator/metrics/exercise.pool.requests?tag=result:" + result).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 404) {
+                return 0L; // Aún no se ha registrado ninguna petición con ese resultado
+            }
+            if (response.statusCode() != 200) {
+                return -1L;
+            }
+            for (JsonNode measurement : objectMapper.readTree(response.body()).path("measurements")) {
+                if ("COUNT".equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asLong();
+                }
+            }
+            return 0L;
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    private void sleepThinkTime() throws InterruptedException {
+        long thinkMillis = config.getThinkTime().toMillis();
+        if (thinkMillis > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(thinkMillis / 2, thinkMillis * 3 / 2 + 1));
+        }
+    }
+
+    private static List<Integer> parseIds(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(Integer::valueOf)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Latencias y errores de una operación
+     */
+    private static class OperationStats {
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+        void record(long elapsedNanos, String error) {
+            latencies.add(elapsedNanos);
+            if (error != null) {
+                errors.computeIfAbsent(error, k -> new AtomicLong()).incrementAndGet();
+            }
+        }
+
+        OperationSummary summarize(long elapsedNanos) {
+            long[] sorted;
+            synchronized (latencies) {
+                sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            }
+            Map<String, Long> errorCounts = new LinkedHashMap<>();
+            errors.forEach((key, count) -> errorCounts.put(key, count.get()));
+            long errorTotal = errorCounts.values().stream().mapToLong(Long::longValue).sum();
+            double seconds = elapsedNanos / 1_000_000_000.0;
+
+            return new OperationSummary(sorted.length, errorTotal, errorCounts,
+                    seconds > 0 ? sorted.length / seconds : 0.0,
+                    percentileMillis(sorted, 0.5), percentileMillis(sorted, 0.95),
+                    percentileMillis(sorted, 0.99), sorted.length > 0 ? TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1]) : 0L);
+        }
+
+        private static long percentileMillis(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0L;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+        }
+    }
+
+    /**
+     * Resumen de una operación
+     */
+    @Getter
+    public static class OperationSummary {
+        private final long requests;
+        private final long errors;
+        private final Map<String, Long> errorsByType;
+        private final double throughputPerSecond;
+        private final long p50Ms;
+        private final long p95Ms;
+        private final long p99Ms;
+        private final long maxMs;
+
+        OperationSummary(long requests, long errors, Map<String, Long> errorsByType, double throughputPerSecond,
+                         long p50Ms, long p95Ms, long p99Ms, long maxMs) {
+            this.requests = requests;
+            this.errors = errors;
+            this.errorsByType = errorsByType;
+            this.throughputPerSecond = throughputPerSecond;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+        }
+    }
+
+    /**
+     * Resultado de la prueba de carga
+     */
+    @Getter
+    public static class Report {
+        private final int concurrency;
+        private final long elapsedMs;
+        private final Map<String, OperationSummary> operations;
+        /** Aciertos y fallos del pool durante la prueba (-1 si actuator no está accesible) */
+        private final long poolHits;
+        private final long poolMisses;
+
+        Report(int concurrency, long elapsedMs, Map<String, OperationSummary> operations, long poolHits, long poolMisses) {
+            this.concurrency = concurrency;
+            this.elapsedMs = elapsedMs;
+            this.operations = operations;
+            this.poolHits = poolHits;
+            this.poolMisses = poolMisses;
+        }
+
+        public long getTotalRequests() {
+            return operations.values().stream().mapToLong(OperationSummary::getRequests).sum();
+        }
+
+        /**
+         * Tasa de aciertos del pool (NaN si no hubo peticiones al pool o no se pudo leer)
+         */
+        public double getPoolHitRate() {
+            long total = poolHits + poolMisses;
+            return poolHits < 0 || total <= 0 ? Double.NaN : (double) poolHits / total;
+        }
+
+        public String format() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%nPrueba de carga: %d usuarios, %.1f s%n", concurrency, elapsedMs / 1000.0));
+            out.append(String.format("%-26s %8s %8s %9s %7s %7s %7s %7s%n",
+                    "operación", "peticiones", "errores", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+            operations.forEach((name, op) -> {
+                out.append(String.format("%-26s %8d %8d %9.2f %7d %7d %7d %7d%n",
+                        name, op.getRequests(), op.getErrors(), op.getThroughputPerSecond(),
+                        op.getP50Ms(), op.getP95Ms(), op.getP99Ms(), op.getMaxMs()));
+                if (!op.getErrorsByType().isEmpty()) {
+                    out.append(String.format("%-26s %s%n", "", op.getErrorsByType()));
+                }
+            });
+            double hitRate = getPoolHitRate();
+            out.append(Double.isNaN(hitRate)
+                    ? String.format("Pool: sin datos (actuator no accesible o sin peticiones)%n")
+                    : String.format("Pool: %d aciertos, %d fallos, tasa de aciertos %.1f%%%n", poolHits, poolMisses, hitRate * 100));
+            return out.toString();
+        }
+    }
+
+    /**
+     * Configuración del generador. Se lee de propiedades del sistema loadtest.*
+     */
+    @Getter
+    @Builder
+    public static class Config {
+        /** URL base de la aplicación, incluyendo el context path (p. ej. http://localhost:8080/api) */
+        private final String baseUrl;
+        /** Token JWT; si no se indica se hace login con username/password */
+        private final String token;
+        private final String username;
+        private final String password;
+        private final int concurrency;
+        private final Duration duration;
+        private final Duration thinkTime;
+        private final Duration requestTimeout;
+        /** IDs de perfil de estudiante; cada usuario virtual usa uno */
+        private final List<Integer> studentIds;
+        private final List<Integer> learningPointIds;
+        /** Fracción de peticiones que usan GeneratedExerciseController en lugar de ExerciseController */
+        private final double generatedEndpointRatio;
+
+        public static Config fromSystemProperties() {
+            return Config.builder()
+                    .baseUrl(System.getProperty("loadtest.base-url"))
+                    .token(System.getProperty("loadtest.token"))
+                    .username(System.getProperty("loadtest.username"))
+                    .password(System.getProperty("loadtest.password"))
+                    .concurrency(Integer.getInteger("loadtest.concurrency", 20))
+                    .duration(Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 120L)))
+                    .thinkTime(Duration.ofMillis(Long.getLong("loadtest.think-time-ms", 2000L)))
+                    .requestTimeout(Duration.ofSeconds(Long.getLong("loadtest.request-timeout-seconds", 90L)))
+                    .studentIds(parseIds(System.getProperty("loadtest.student-ids", "1")))
+                    .learningPointIds(parseIds(System.getProperty("loadtest.learning-point-ids", "1")))
+                    .generatedEndpointRatio(Double.parseDouble(System.getProperty("loadtest.generated-endpoint-ratio", "0.0")))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.gamified.application.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor local que imita el contrato de chat completions de Azure AI usado por
+ * AzureAiClient.callAzureAiDirectly: POST /openai/deployments/{deployment}/chat/completions,
+ * respuesta completa o en streaming (SSE con "data: ..." y "data: [DONE]").
+ *
+ * La latencia sigue una distribución log-normal (mediana y sigma configurables) y una fracción
+ * configurable de respuestas trae JSON mal formado para ejercitar la reparación del cliente.
+ *
+ * Uso independiente: java ... StubLlmServer [puerto], y apuntar AZURE_AI_FOUNDRY_ENDPOINT a
+ * http://localhost:{puerto}.
+ */
+public class StubLlmServer implements AutoCloseable {
+
+    private static final String[] MALFORMED_RESPONSES = {
+            // JSON truncado (sin cierre)
+            "{\"question\": \"¿Cuánto es %d + %d?\", \"correct_answer\": \"%d\", \"options\": [\"%d\", \"%d\"",
+            // Formato de propiedades en lugar de JSON
+            "question: ¿Cuánto es %d + %d?\ncorrect_answer: %d\noptions: %d, %d\nexplanation: Suma directa",
+            // Texto libre sin estructura
+            "Claro, aquí tienes un ejercicio: ¿cuánto es %d + %d? La respuesta es %d (no %d ni %d)."
+    };
+
+    private final Config config;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamedRequests = new AtomicLong();
+    private final AtomicLong malformedResponses = new AtomicLong();
+
+    private StubLlmServer(Config config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress(config.getPort()), 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-llm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/openai/deployments/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Arranca el servidor con la configuración indicada
+     */
+    public static StubLlmServer start(Config config) throws IOException {
+        StubLlmServer stub = new StubLlmServer(config);
+        stub.server.start();
+        return stub;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.fromSystemProperties();
+        if (args.length > 0) {
+            config = config.toBuilder().port(Integer.parseInt(args[0])).build();
+        }
+        StubLlmServer stub = start(config);
+        System.out.printf("Stub LLM escuchando en %s (mediana %d ms, sigma %.2f, mal formado %.0f%%)%n",
+                stub.getBaseUrl(), config.getMedianLatencyMs(), config.getLatencySigma(), config.getMalformedRate() * 100);
+        Thread.currentThread().join();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getStreamedRequests() {
+        return streamedRequests.get();
+    }
+
+    public long getMalformedResponses() {
+        return malformedResponses.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // =====================================================================
+    // MÉTODOS PRIVADOS
+    // =====================================================================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            int maxTokens = request.path("max_tokens").asInt(4000);
+            boolean stream = request.path("stream").asBoolean(false);
+            requests.incrementAndGet();
+
+            // Sondeo de salud (max_tokens=1): respuesta inmediata
+            if (maxTokens <= 1) {
+                writeJson(exchange, completion("ok", "length", 8, 1));
+                return;
+            }
+
+            String content = nextContent();
+            int completionTokens = Math.max(1, content.length() / 4);
+            int promptTokens = estimatePromptTokens(request);
+            long latencyMillis = sampleLatencyMillis();
+
+            if (stream) {
+                streamedRequests.incrementAndGet();
+                writeStream(exchange, content, latencyMillis, promptTokens, completionTokens);
+            } else {
+                sleep(latencyMillis);
+                writeJson(exchange, completion(content, "stop", promptTokens, completionTokens));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String nextContent() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(1, 50);
+        int b = random.nextInt(1, 50);
+        int answer = a + b;
+
+        if (random.nextDouble() < config.getMalformedRate()) {
+            malformedResponses.incrementAndGet();
+            String template = MALFORMED_RESPONSES[random.nextInt(MALFORMED_RESPONSES.length)];
+            return String.format(template, a, b, answer, answer + 1, answer - 1);
+        }
+
+        ObjectNode exercise = objectMapper.createObjectNode();
+        exercise.put("question", "¿Cuánto es " + a + " + " + b + "?");
+        exercise.put("correct_answer", String.valueOf(answer));
+        ArrayNode options = exercise.putArray("options");
+        options.add(String.valueOf(answer));
+        options.add(String.valueOf(answer + 1));
+        options.add(String.valueOf(answer - 1));
+        options.add(String.valueOf(answer + 10));
+        exercise.put("explanation", "Se suman las unidades y luego las decenas: " + a + " + " + b + " = " + answer + ".");
+        return exercise.toString();
+    }
+
+    private void writeJson(HttpExchange exchange, ObjectNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Envía el contenido en fragmentos SSE: el primer fragmento llega tras una parte de la latencia
+     * (tiempo hasta el primer token) y el resto se reparte entre los fragmentos restantes
+     */
+    private void writeStream(HttpExchange exchange, String content, long latencyMillis,
+                             int promptTokens, int completionTokens) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+
+        int chunkSize = Math.max(1, config.getStreamChunkChars());
+        int chunks = (content.length() + chunkSize - 1) / chunkSize;
+        long firstTokenMillis = Math.round(latencyMillis * config.getFirstTokenFraction());
+        long perChunkMillis = chunks > 1 ? (latencyMillis - firstTokenMillis) / (chunks - 1) : 0L;
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            sleep(firstTokenMillis);
+            for (int i = 0; i < chunks; i++) {
+                if (i > 0) {
+                    sleep(perChunkMillis);
+                }
+                String piece = content.substring(i * chunkSize, Math.min(content.length(), (i + 1) * chunkSize));
+                ObjectNode chunk = objectMapper.createObjectNode();
+                ObjectNode choice = chunk.putArray("choices").addObject();
+                choice.putObject("delta").put("content", piece);
+                choice.putNull("finish_reason");
+                writeEvent(out, chunk.toString());
+            }
+
+            ObjectNode last = objectMapper.createObjectNode();
+            ObjectNode choice = last.putArray("choices").addObject();
+            choice.putObject("delta");
+            choice.put("finish_reason", "stop");
+            writeEvent(out, last.toString());
+
+            // Como con stream_options.include_usage: un último evento sin choices con el uso
+            ObjectNode usage = objectMapper.createObjectNode();
+            usage.putArray("choices");
+            usage.set("usage", usage(promptTokens, completionTokens));
+            writeEvent(out, usage.toString());
+
+            writeEvent(out, "[DONE]");
+        }
+    }
+
+    private void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ObjectNode completion(String content, String finishReason, int promptTokens, int completionTokens) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("id", "stub-" + requests.get());
+        body.put("object", "chat.completion");
+        ObjectNode choice = body.putArray("choices").addObject();
+        choice.put("index", 0);
+        ObjectNode message = choice.putObject("message");
+        message.put("role", "assistant");
+        message.put("content", content);
+        choice.put("finish_reason", finishReason);
+        body.set("usage", usage(promptTokens, completionTokens));
+        return body;
+    }
+
+    private ObjectNode usage(int promptTokens, int completionTokens) {
+        ObjectNode usage = objectMapper.createObjectNode();
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return usage;
+    }
+
+    private int estimatePromptTokens(JsonNode request) {
+        int chars = 0;
+        for (JsonNode message : request.path("messages")) {
+            chars += message.path("content").asText("").length();
+        }
+        return Math.max(1, chars / 4);
+    }
+
+    private long sampleLatencyMillis() {
+        if (config.getMedianLatencyMs() <= 0) {
+            return 0L;
+        }
+        double gaussian = ThreadLocalRandom.current().nextGaussian();
+        double latency = config.getMedianLatencyMs() * Math.exp(config.getLatencySigma() * gaussian);
+        return Math.min(config.getMaxLatencyMs(), Math.round(latency));
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    /**
+     * Configuración del stub. Los valores por defecto se leen de propiedades del sistema
+     * loadtest.stub.* para poder ajustarlos desde la línea de comandos de Maven.
+     */
+    @Getter
+    @Builder(toBuilder = true)
+    public static class Config {
+        /** Puerto de escucha (0 = puerto libre aleatorio) */
+        private final int port;
+        /** Mediana de la latencia total de la respuesta */
+        private final long medianLatencyMs;
+        /** Dispersión de la distribución log-normal (0 = latencia constante) */
+        private final double latencySigma;
+        /** Latencia máxima para recortar la cola de la distribución */
+        private final long maxLatencyMs;
+        /** Fracción de respuestas con JSON mal formado (0.0 - 1.0) */
+        private final double malformedRate;
+        /** Fracción de la latencia que transcurre antes del primer fragmento en streaming */
+        private final double firstTokenFraction;
+        /** Caracteres por fragmento en streaming */
+        private final int streamChunkChars;
+
+        public static Config fromSystemProperties() {
+            return Config.builder()
+                    .port(Integer.getInteger("loadtest.stub.port", 18080))
+                    .medianLatencyMs(Long.getLong("loadtest.stub.median-latency-ms", 1500L))
+                    .latencySigma(Double.parseDouble(System.getProperty("loadtest.stub.latency-sigma", "0.5")))
+                    .maxLatencyMs(Long.getLong("loadtest.stub.max-latency-ms", 30000L))
+                    .malformedRate(Double.parseDouble(System.getProperty("loadtest.stub.malformed-rate", "0.05")))
+                    .firstTokenFraction(Double.parseDouble(System.getProperty("loadtest.stub.first-token-fraction", "0.2")))
+                    .streamChunkChars(Integer.getInteger("loadtest.stub.stream-chunk-chars", 16))
+                    .build();
+        }
+    }
+}
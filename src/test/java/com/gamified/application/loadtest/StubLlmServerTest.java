@@ -0,0 +1,95 @@
+package com.gamified.application.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del contrato de chat completions del stub (respuesta completa y streaming)
+ */
+@DisplayName("StubLlmServer - Contrato de chat completions")
+class StubLlmServerTest {
+
+    private static final String PATH = "/openai/deployments/test/chat/completions?api-version=2024-05-01-preview";
+    private static final String REQUEST = "{\"messages\":[{\"role\":\"user\",\"content\":\"Genera un ejercicio\"}],\"max_tokens\":500%s}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private StubLlmServer stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = StubLlmServer.start(StubLlmServer.Config.builder()
+                .port(0)
+                .medianLatencyMs(0)
+                .maxLatencyMs(0)
+                .malformedRate(0.0)
+                .firstTokenFraction(0.0)
+                .streamChunkChars(16)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("La respuesta completa trae choices con JSON del ejercicio y usage")
+    void returnsCompletion() throws Exception {
+        HttpResponse<String> response = post(String.format(REQUEST, ""));
+
+        assertEquals(200, response.statusCode());
+        JsonNode body = objectMapper.readTree(response.body());
+        JsonNode content = objectMapper.readTree(body.path("choices").get(0).path("message").path("content").asText());
+        assertTrue(content.has("question"));
+        assertTrue(content.has("correct_answer"));
+        assertEquals("stop", body.path("choices").get(0).path("finish_reason").asText());
+        assertTrue(body.path("usage").path("completion_tokens").asInt() > 0);
+    }
+
+    @Test
+    @DisplayName("El streaming envía fragmentos SSE que reconstruyen el contenido y termina con [DONE]")
+    void streamsCompletion() throws Exception {
+        HttpResponse<String> response = post(String.format(REQUEST, ",\"stream\":true"));
+
+        assertEquals(200, response.statusCode());
+        List<String> events = response.body().lines()
+                .filter(line -> line.startsWith("data: "))
+                .map(line -> line.substring(6))
+                .collect(Collectors.toList());
+        assertEquals("[DONE]", events.get(events.size() - 1));
+
+        StringBuilder content = new StringBuilder();
+        for (String event : events.subList(0, events.size() - 1)) {
+            JsonNode choices = objectMapper.readTree(event).path("choices");
+            if (choices.size() > 0) {
+                content.append(choices.get(0).path("delta").path("content").asText(""));
+            }
+        }
+        assertTrue(objectMapper.readTree(content.toString()).has("question"));
+        assertEquals(1, stub.getStreamedRequests());
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(stub.getBaseUrl() + PATH))
+                .header("Content-Type", "application/json")
+                .header("api-key", "test")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
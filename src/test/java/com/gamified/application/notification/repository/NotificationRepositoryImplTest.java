@@ -0,0 +1,49 @@
+package com.gamified.application.notification.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests del marcado como leídas en bloques que respetan el límite de parámetros de SQL Server
+ * (sin contexto de Spring)
+ */
+@DisplayName("NotificationRepositoryImpl - Marcado como leídas por bloques")
+class NotificationRepositoryImplTest {
+
+    @Test
+    @DisplayName("Una lista de más de 2100 uids se actualiza en varias sentencias y suma las filas")
+    void markAsReadSplitsInList() {
+        StubNamedJdbcTemplate jdbcTemplate = new StubNamedJdbcTemplate();
+        NotificationRepositoryImpl repository = new NotificationRepositoryImpl(jdbcTemplate);
+        List<String> uids = IntStream.range(0, 2500).mapToObj(i -> "uid-" + i).toList();
+
+        int updated = repository.markAsRead(10, uids);
+
+        assertEquals(List.of(1000, 1000, 500), jdbcTemplate.chunkSizes);
+        assertEquals(2500, updated);
+    }
+
+    private static class StubNamedJdbcTemplate extends NamedParameterJdbcTemplate {
+        private final List<Integer> chunkSizes = new ArrayList<>();
+
+        StubNamedJdbcTemplate() {
+            super(new JdbcTemplate());
+        }
+
+        @Override
+        public int update(String sql, SqlParameterSource paramSource) {
+            int size = ((List<?>) paramSource.getValue("uids")).size();
+            chunkSizes.add(size);
+            return size;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.InactiveStudent;
+import com.gamified.application.notification.repository.ActivityReminderRepository;
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+import com.gamified.application.progress.repository.StudentActivityRepository;
+import com.gamified.application.progress.service.StudentActivityTracker;
+import com.gamified.application.shared.model.entity.JobCheckpoint;
+import com.gamified.application.shared.repository.JobCheckpointRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ObjIntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del recorrido por páginas y del checkpoint de los recordatorios masivos (sin contexto de Spring)
+ */
+@DisplayName("ActivityReminderJob - Páginas y checkpoint")
+class ActivityReminderJobTest {
+
+    private StubReminderRepository reminderRepository;
+    private StubCheckpointRepository checkpointRepository;
+    private RecordingSender sender;
+    private ActivityReminderJob job;
+
+    @BeforeEach
+    void setUp() {
+        // Estudiante n -> usuario 100 + n
+        reminderRepository = new StubReminderRepository(List.of(2, 4, 6, 8, 10, 12, 14));
+        checkpointRepository = new StubCheckpointRepository();
+        sender = new RecordingSender();
+
+        job = new ActivityReminderJob();
+        ReflectionTestUtils.setField(job, "activityReminderRepository", reminderRepository);
+        ReflectionTestUtils.setField(job, "jobCheckpointRepository", checkpointRepository);
+        ReflectionTestUtils.setField(job, "studentActivityTracker",
+                new StudentActivityTracker(new StubActivityRepository(), null));
+        ReflectionTestUtils.setField(job, "minInactiveDays", 3);
+        ReflectionTestUtils.setField(job, "pageSize", 3);
+        ReflectionTestUtils.setField(job, "batchSize", 2);
+        ReflectionTestUtils.setField(job, "parallelism", 2);
+        ReflectionTestUtils.setField(job, "ratePerMinute", 600000L);
+        ReflectionTestUtils.setField(job, "resumeWindowHours", 12L);
+        job.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    @DisplayName("Recorre las páginas por id y deja el checkpoint completado en el último estudiante")
+    void walksAllPages() {
+        Map<String, Object> report = job.run(sender);
+
+        assertEquals(JobCheckpoint.COMPLETED, report.get("status"));
+        assertEquals(List.of(0L, 6L, 12L, 14L), reminderRepository.requestedAfter);
+        assertEquals(Set.of(102, 104, 106, 108, 110, 112, 114), new HashSet<>(sender.delivered));
+        assertEquals(14L, checkpointRepository.checkpoint.getLastKey());
+        assertEquals(7L, checkpointRepository.checkpoint.getProcessed());
+    }
+
+    @Test
+    @DisplayName("Un envío fallido detiene la ejecución sin dejar atrás a ese estudiante y la siguiente lo reintenta")
+    void checkpointStopsBeforeFailedStudent() {
+        sender.failingUsers.add(110);
+
+        Map<String, Object> interrupted = job.run(sender);
+
+        assertEquals("INTERRUPTED", interrupted.get("status"));
+        // Página 8-10-12: 8 entregado, 10 fallido; el checkpoint queda en 8 aunque 12 se entregara
+        assertEquals(8L, checkpointRepository.checkpoint.getLastKey());
+        assertEquals(4L, checkpointRepository.checkpoint.getProcessed());
+        assertEquals(JobCheckpoint.RUNNING, checkpointRepository.checkpoint.getStatus());
+
+        sender.failingUsers.clear();
+        sender.delivered.clear();
+        Map<String, Object> resumed = job.run(sender);
+
+        assertEquals(8L, resumed.get("resumed_from"));
+        assertEquals(JobCheckpoint.COMPLETED, resumed.get("status"));
+        assertEquals(Set.of(110, 112, 114), new HashSet<>(sender.delivered));
+        assertEquals(7L, checkpointRepository.checkpoint.getProcessed());
+    }
+
+    @Test
+    @DisplayName("Un estudiante que vuelve a fallar al reanudar se omite para no bloquear al resto")
+    void skipsStudentFailingTwice() {
+        sender.failingUsers.add(110);
+
+        job.run(sender);
+        sender.delivered.clear();
+        Map<String, Object> resumed = job.run(sender);
+
+        assertEquals(JobCheckpoint.COMPLETED, resumed.get("status"));
+        assertEquals(Set.of(112, 114), new HashSet<>(sender.delivered));
+        assertEquals(14L, checkpointRepository.checkpoint.getLastKey());
+    }
+
+    @Test
+    @DisplayName("Si falla el primer estudiante de la página el checkpoint no se mueve")
+    void firstStudentFailureKeepsCheckpoint() {
+        sender.failingUsers.add(102);
+
+        Map<String, Object> report = job.run(sender);
+
+        assertEquals("INTERRUPTED", report.get("status"));
+        assertEquals(0L, checkpointRepository.checkpoint.getLastKey());
+        assertEquals(0L, checkpointRepository.checkpoint.getProcessed());
+    }
+
+    @Test
+    @DisplayName("Una ejecución vieja a medias no se reanuda: se empieza desde el principio")
+    void staleCheckpointStartsOver() {
+        checkpointRepository.checkpoint = JobCheckpoint.builder()
+                .jobName(ActivityReminderJob.JOB_NAME)
+                .lastKey(8L)
+                .processed(4L)
+                .status(JobCheckpoint.RUNNING)
+                .startedAt(LocalDateTime.now().minusHours(13))
+                .build();
+
+        Map<String, Object> report = job.run(sender);
+
+        assertEquals(0L, report.get("resumed_from"));
+        assertEquals(7, sender.delivered.size());
+    }
+
+    private static class RecordingSender implements ObjIntConsumer<Integer> {
+        private final List<Integer> delivered = new CopyOnWriteArrayList<>();
+        private final Set<Integer> failingUsers = new HashSet<>();
+
+        @Override
+        public void accept(Integer userId, int daysInactive) {
+            if (failingUsers.contains(userId)) {
+                throw new IllegalStateException("envío rechazado");
+            }
+            delivered.add(userId);
+        }
+    }
+
+    private static class StubReminderRepository implements ActivityReminderRepository {
+        private final List<Integer> studentIds;
+        private final List<Long> requestedAfter = new CopyOnWriteArrayList<>();
+
+        StubReminderRepository(List<Integer> studentIds) {
+            this.studentIds = studentIds;
+        }
+
+        @Override
+        public List<InactiveStudent> findInactiveStudentsAfter(long afterStudentProfileId, int minDaysInactive, int limit) {
+            requestedAfter.add(afterStudentProfileId);
+            return studentIds.stream()
+                    .filter(id -> id > afterStudentProfileId)
+                    .limit(limit)
+                    .map(id -> new InactiveStudent(id, 100 + id, minDaysInactive))
+                    .toList();
+        }
+    }
+
+    private static class StubCheckpointRepository implements JobCheckpointRepository {
+        private JobCheckpoint checkpoint;
+
+        @Override
+        public Optional<JobCheckpoint> findByJobName(String jobName) {
+            // Copia, como al leerlo de la BD
+            return Optional.ofNullable(checkpoint).map(ActivityReminderJobTest::copy);
+        }
+
+        @Override
+        public boolean save(JobCheckpoint checkpoint) {
+            this.checkpoint = copy(checkpoint);
+            return true;
+        }
+    }
+
+    private static JobCheckpoint copy(JobCheckpoint checkpoint) {
+        return JobCheckpoint.builder()
+                .jobName(checkpoint.getJobName())
+                .lastKey(checkpoint.getLastKey())
+                .processed(checkpoint.getProcessed())
+                .status(checkpoint.getStatus())
+                .startedAt(checkpoint.getStartedAt())
+                .build();
+    }
+
+    private static class StubActivityRepository implements StudentActivityRepository {
+        @Override
+        public Optional<LocalDateTime> findLastActivity(Integer studentProfileId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<StudentDailyStats> findDailyStats(Integer studentProfileId, LocalDate fromDate, LocalDate toDate) {
+            return List.of();
+        }
+
+        @Override
+        public int saveLastActivities(Map<Integer, LocalDateTime> lastActivities) {
+            return lastActivities.size();
+        }
+
+        @Override
+        public int addDailyStats(List<StudentDailyStats> increments) {
+            return increments.size();
+        }
+
+        @Override
+        public List<Integer> findStudentIdsAfter(int afterId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public int rebuildDailyStats(int afterId, int toId, LocalDate fromDate, LocalDate toDate) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la construcción de resúmenes de notificaciones (sin contexto de Spring)
+ */
+@DisplayName("NotificationCoalescer - Resúmenes")
+class NotificationCoalescerTest {
+
+    @Test
+    @DisplayName("Varios logros se combinan en un resumen con la mayor prioridad y los canales de todos")
+    void achievementsAreMergedIntoDigest() {
+        List<Notification> achievements = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            achievements.add(Notification.createAchievementNotification(10, "Logro " + i, i, 5));
+        }
+        achievements.get(3).setPriority("HIGH");
+        achievements.get(5).setSendEmail(true);
+
+        Notification digest = NotificationCoalescer.buildDigest(achievements);
+
+        assertEquals("¡Desbloqueaste 7 logros nuevos!", digest.getTitle());
+        assertEquals("HIGH", digest.getPriority());
+        assertTrue(digest.getSendEmail());
+        assertTrue(digest.getSendPush());
+        assertEquals("ACHIEVEMENT", digest.getRelatedEntityType());
+        assertEquals("/dashboard", digest.getActionUrl());
+        assertTrue(digest.getMessage().endsWith("…y 2 más"));
+    }
+
+    @Test
+    @DisplayName("De varios recordatorios solo se conserva el más reciente")
+    void remindersKeepLatest() {
+        Notification older = Notification.createActivityReminderNotification(10, 3);
+        Notification latest = Notification.createActivityReminderNotification(10, 4);
+
+        assertSame(latest, NotificationCoalescer.buildDigest(List.of(older, latest)));
+    }
+}
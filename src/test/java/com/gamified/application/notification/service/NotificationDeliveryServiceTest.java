@@ -0,0 +1,163 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la entrega por canal con reintentos y colas acotadas (sin contexto de Spring)
+ */
+@DisplayName("NotificationDeliveryService - Canales, reintentos y colas")
+class NotificationDeliveryServiceTest {
+
+    private final List<String> statuses = new CopyOnWriteArrayList<>();
+    private final AtomicInteger emailFailures = new AtomicInteger();
+    private final AtomicInteger emailCalls = new AtomicInteger();
+    private final CountDownLatch emailRelease = new CountDownLatch(1);
+    private volatile boolean blockEmail;
+
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationDeliveryService service;
+
+    @BeforeEach
+    void setUp() {
+        // El escritor real persistiría el estado; aquí solo se registra
+        NotificationWriter writer = new NotificationWriter() {
+            @Override
+            public void enqueueStatusUpdate(String notificationUid, String channel, String status) {
+                statuses.add(notificationUid + ":" + channel + ":" + status);
+            }
+        };
+
+        service = new NotificationDeliveryService() {
+            @Override
+            void sendEmail(Notification notification) throws Exception {
+                emailCalls.incrementAndGet();
+                if (blockEmail) {
+                    emailRelease.await(5, TimeUnit.SECONDS);
+                }
+                if (emailFailures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("proveedor no disponible");
+                }
+            }
+
+            @Override
+            void sendPush(Notification notification) {
+            }
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(service, "notificationWriter", writer);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "emailThreads", 1);
+        ReflectionTestUtils.setField(service, "emailQueueCapacity", 1);
+        ReflectionTestUtils.setField(service, "pushThreads", 1);
+        ReflectionTestUtils.setField(service, "pushQueueCapacity", 10);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBackoffMs", 1L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailRelease.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Solo se entrega por los canales activos y se registra su estado")
+    void dispatchesEnabledChannels() throws Exception {
+        Notification notification = notification("n1", true, false);
+
+        service.dispatch(notification);
+
+        waitFor(() -> statuses.size() == 1);
+        assertEquals(List.of("n1:EMAIL:SENT"), statuses);
+        assertEquals("SENT", notification.getEmailStatus());
+        assertEquals(1.0, outcome("email", "sent"));
+    }
+
+    @Test
+    @DisplayName("Un fallo se reintenta con backoff y termina entregado")
+    void retriesUntilSent() throws Exception {
+        emailFailures.set(2);
+        Notification notification = notification("n1", true, true);
+
+        service.dispatch(notification);
+
+        waitFor(() -> statuses.size() == 2);
+        assertTrue(statuses.contains("n1:EMAIL:SENT"));
+        assertTrue(statuses.contains("n1:PUSH:SENT"));
+        assertEquals(3, emailCalls.get());
+        assertEquals(2.0, outcome("email", "retried"));
+    }
+
+    @Test
+    @DisplayName("Al agotar los intentos la entrega queda como fallida")
+    void failsAfterMaxAttempts() throws Exception {
+        emailFailures.set(Integer.MAX_VALUE);
+        Notification notification = notification("n1", true, false);
+
+        service.dispatch(notification);
+
+        waitFor(() -> statuses.size() == 1);
+        assertEquals(List.of("n1:EMAIL:FAILED"), statuses);
+        assertEquals("FAILED", notification.getEmailStatus());
+        assertEquals(3, emailCalls.get());
+        assertEquals(1.0, outcome("email", "failed"));
+    }
+
+    @Test
+    @DisplayName("Con la cola del canal llena se marca como fallida sin bloquear ni afectar al otro canal")
+    void rejectsWhenChannelQueueIsFull() throws Exception {
+        blockEmail = true;
+        service.dispatch(notification("n1", true, false));
+        waitFor(() -> emailCalls.get() == 1);
+        service.dispatch(notification("n2", true, false));
+
+        service.dispatch(notification("n3", true, true));
+
+        waitFor(() -> statuses.size() == 2);
+        assertTrue(statuses.contains("n3:EMAIL:FAILED"));
+        assertTrue(statuses.contains("n3:PUSH:SENT"));
+        assertEquals(1.0, outcome("email", "rejected"));
+
+        emailRelease.countDown();
+        waitFor(() -> statuses.size() == 4);
+        assertTrue(statuses.contains("n1:EMAIL:SENT"));
+        assertTrue(statuses.contains("n2:EMAIL:SENT"));
+    }
+
+    private double outcome(String channel, String outcome) {
+        return meterRegistry.get("notification.delivery").tag("channel", channel).tag("outcome", outcome)
+                .counter().count();
+    }
+
+    private static Notification notification(String uid, boolean email, boolean push) {
+        Notification notification = Notification.createActivityReminderNotification(10, 3);
+        notification.setUid(uid);
+        notification.setSendEmail(email);
+        notification.setSendPush(push);
+        return notification;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
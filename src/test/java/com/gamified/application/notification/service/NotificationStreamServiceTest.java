@@ -0,0 +1,218 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del buffer por conexión, del ciclo de vida de las conexiones y del reenvío tras reconectar
+ * del canal de notificaciones (sin contexto de Spring)
+ */
+@DisplayName("NotificationStreamService - Conexiones, buffer y reenvío")
+class NotificationStreamServiceTest {
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    private NotificationStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new NotificationStreamService() {
+            @Override
+            SseEmitter newEmitter(long timeoutMs) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "bufferSize", 32);
+        ReflectionTestUtils.setField(service, "timeoutMs", 60000L);
+        ReflectionTestUtils.setField(service, "heartbeatIntervalMs", 3600000L);
+        ReflectionTestUtils.setField(service, "maxConnectionsPerUser", 2);
+        ReflectionTestUtils.setField(service, "replaySize", 3);
+        ReflectionTestUtils.setField(service, "replayMaxUsers", 100);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Con el buffer lleno se descarta el evento más antiguo")
+    void fullBufferDropsOldest() {
+        NotificationStreamService.EventBuffer<String> buffer = new NotificationStreamService.EventBuffer<>(2);
+
+        assertFalse(buffer.offer("a"));
+        assertFalse(buffer.offer("b"));
+        assertTrue(buffer.offer("c"));
+
+        assertEquals(2, buffer.size());
+        assertEquals("b", buffer.poll());
+        assertEquals("c", buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Una conexión recibe el evento de conexión y las notificaciones de su usuario")
+    void deliversToOpenConnection() throws Exception {
+        service.subscribe(10, null);
+        service.publish(notification(10, "uid-1"));
+        service.publish(notification(11, "uid-2"));
+
+        RecordingEmitter emitter = emitters.get(0);
+        waitFor(() -> emitter.sent.size() == 2);
+
+        assertEquals(1, service.getConnectionCount());
+        assertTrue(emitter.sent.get(0).contains("event:connected"));
+        assertTrue(emitter.sent.get(1).contains("id:uid-1"));
+        assertEquals(2, emitter.sent.size());
+    }
+
+    @Test
+    @DisplayName("El timeout y el cierre posterior de la misma conexión la liberan una sola vez")
+    void timeoutReleasesConnectionOnce() {
+        service.subscribe(10, null);
+        service.subscribe(10, null);
+        RecordingEmitter emitter = emitters.get(0);
+
+        emitter.timeoutCallback.run();
+        emitter.completionCallback.run();
+
+        assertEquals(1, service.getConnectionCount());
+    }
+
+    @Test
+    @DisplayName("Un error al enviar libera la conexión")
+    void sendFailureReleasesConnection() throws Exception {
+        service.subscribe(10, null);
+        RecordingEmitter emitter = emitters.get(0);
+        waitFor(() -> emitter.sent.size() == 1);
+
+        emitter.failSends = true;
+        service.publish(notification(10, "uid-1"));
+
+        waitFor(() -> service.getConnectionCount() == 0);
+        assertEquals(0, service.getConnectionCount());
+    }
+
+    @Test
+    @DisplayName("Al superar el máximo de conexiones del usuario se cierra la más antigua")
+    void closesOldestOverLimit() {
+        service.subscribe(10, null);
+        service.subscribe(10, null);
+        service.subscribe(10, null);
+
+        assertTrue(emitters.get(0).completed);
+        assertFalse(emitters.get(1).completed);
+        assertFalse(emitters.get(2).completed);
+    }
+
+    @Test
+    @DisplayName("Al reconectar con Last-Event-ID se reenvían las notificaciones publicadas después")
+    void replaysAfterLastEventId() throws Exception {
+        service.publish(notification(10, "uid-1"));
+        service.publish(notification(10, "uid-2"));
+        service.publish(notification(10, "uid-3"));
+        service.publish(notification(11, "uid-4"));
+
+        service.subscribe(10, "uid-1");
+        RecordingEmitter emitter = emitters.get(0);
+        waitFor(() -> emitter.sent.size() == 3);
+
+        assertTrue(emitter.sent.get(0).contains("event:connected"));
+        assertTrue(emitter.sent.get(1).contains("id:uid-2"));
+        assertTrue(emitter.sent.get(2).contains("id:uid-3"));
+    }
+
+    @Test
+    @DisplayName("Si el último evento ya no está guardado se reenvían todos los guardados; sin Last-Event-ID ninguno")
+    void replaysRetainedWhenLastEventUnknown() throws Exception {
+        for (int i = 1; i <= 4; i++) {
+            service.publish(notification(10, "uid-" + i));
+        }
+
+        service.subscribe(10, "uid-1");
+        service.subscribe(10, null);
+        RecordingEmitter replayed = emitters.get(0);
+        RecordingEmitter fresh = emitters.get(1);
+        waitFor(() -> replayed.sent.size() == 4 && fresh.sent.size() == 1);
+
+        assertTrue(replayed.sent.get(1).contains("id:uid-2"));
+        assertTrue(replayed.sent.get(3).contains("id:uid-4"));
+        assertEquals(1, fresh.sent.size());
+    }
+
+    private static Notification notification(Integer userId, String uid) {
+        Notification notification = Notification.createActivityReminderNotification(userId, 3);
+        notification.setUid(uid);
+        return notification;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // Margen para envíos de más que no deberían producirse
+        Thread.sleep(50);
+    }
+
+    /**
+     * Emisor sin respuesta HTTP: guarda el texto de cada evento enviado y los callbacks registrados
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile boolean failSends;
+        private volatile boolean completed;
+        private Runnable timeoutCallback;
+        private Runnable completionCallback;
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            if (failSends) {
+                throw new IOException("cliente desconectado");
+            }
+            sent.add(items.stream().map(item -> String.valueOf(item.getData())).collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void onTimeout(Runnable callback) {
+            timeoutCallback = callback;
+        }
+
+        @Override
+        public void onCompletion(Runnable callback) {
+            completionCallback = callback;
+        }
+
+        @Override
+        public void onError(Consumer<Throwable> callback) {
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import com.gamified.application.notification.repository.NotificationRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la escritura por lotes, los reintentos y los estados de entrega de las notificaciones
+ * sobre el repositorio real con un JdbcTemplate simulado (sin contexto de Spring)
+ */
+@DisplayName("NotificationWriter - Lotes, reintentos y estados")
+class NotificationWriterTest {
+
+    private StubNamedJdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new StubNamedJdbcTemplate();
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new NotificationWriter();
+        ReflectionTestUtils.setField(writer, "notificationRepository", new NotificationRepositoryImpl(jdbcTemplate));
+        ReflectionTestUtils.setField(writer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(writer, "queueCapacity", 10);
+        ReflectionTestUtils.setField(writer, "batchSize", 3);
+        ReflectionTestUtils.setField(writer, "pollTimeoutMs", 20L);
+        ReflectionTestUtils.setField(writer, "maxRetries", 2);
+        ReflectionTestUtils.setField(writer, "retryBackoffMs", 1L);
+        ReflectionTestUtils.setField(writer, "shutdownTimeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.release.countDown();
+        writer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Lo encolado mientras se escribe un lote entra en el siguiente, hasta batch-size")
+    void groupsQueuedNotificationsIntoBatches() throws Exception {
+        jdbcTemplate.blockFirstInsert();
+        writer.init();
+        List<Notification> persisted = new CopyOnWriteArrayList<>();
+
+        writer.enqueue(notification(1), persisted::add);
+        assertTrue(jdbcTemplate.insertStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 2; i <= 5; i++) {
+            writer.enqueue(notification(i), persisted::add);
+        }
+        jdbcTemplate.release.countDown();
+
+        waitFor(() -> persisted.size() == 5);
+        assertEquals(List.of(1, 3, 1), jdbcTemplate.insertBatchSizes);
+        assertEquals(5, persisted.size());
+        persisted.forEach(notification -> assertNotNull(notification.getUid()));
+    }
+
+    @Test
+    @DisplayName("Un lote que falla se reintenta y solo entonces se avisa de la persistencia")
+    void retriesFailedBatch() throws Exception {
+        jdbcTemplate.failingInserts.set(2);
+        writer.init();
+        List<Notification> persisted = new CopyOnWriteArrayList<>();
+
+        writer.enqueue(notification(1), persisted::add);
+
+        waitFor(() -> persisted.size() == 1);
+        assertEquals(3, jdbcTemplate.insertCalls.get());
+        assertEquals(1, persisted.size());
+    }
+
+    @Test
+    @DisplayName("Tras agotar los reintentos el lote se descarta sin avisar y se cuenta")
+    void dropsBatchAfterMaxRetries() throws Exception {
+        jdbcTemplate.failingInserts.set(Integer.MAX_VALUE);
+        writer.init();
+        List<Notification> persisted = new CopyOnWriteArrayList<>();
+
+        writer.enqueue(notification(1), persisted::add);
+        writer.enqueue(notification(2), persisted::add);
+
+        waitFor(() -> meterRegistry.get("notification.persist.dropped").counter().count() == 2.0);
+        assertEquals(2.0, meterRegistry.get("notification.persist.dropped").counter().count());
+        assertTrue(persisted.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Con la cola llena enqueue rechaza sin bloquear")
+    void rejectsWhenQueueIsFull() throws Exception {
+        ReflectionTestUtils.setField(writer, "queueCapacity", 1);
+        jdbcTemplate.blockFirstInsert();
+        writer.init();
+
+        assertTrue(writer.enqueue(notification(1), null));
+        assertTrue(jdbcTemplate.insertStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.enqueue(notification(2), null));
+        assertFalse(writer.enqueue(notification(3), null));
+
+        assertEquals(1.0, meterRegistry.get("notification.enqueue.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Los estados de entrega se aplican en una sentencia por canal y estado")
+    void groupsStatusUpdatesByChannelAndStatus() throws Exception {
+        jdbcTemplate.blockFirstInsert();
+        writer.init();
+        writer.enqueue(notification(1), null);
+        assertTrue(jdbcTemplate.insertStarted.await(5, TimeUnit.SECONDS));
+
+        writer.enqueueStatusUpdate("a", "EMAIL", "SENT");
+        writer.enqueueStatusUpdate("b", "EMAIL", "SENT");
+        writer.enqueueStatusUpdate("c", "PUSH", "FAILED");
+        writer.enqueueStatusUpdate("d", "EMAIL", "FAILED");
+        jdbcTemplate.release.countDown();
+
+        waitFor(() -> jdbcTemplate.statusUpdates.size() == 3);
+        assertEquals(List.of(
+                "email_status=SENT" + List.of("a", "b"),
+                "push_status=FAILED" + List.of("c"),
+                "email_status=FAILED" + List.of("d")), jdbcTemplate.statusUpdates);
+    }
+
+    @Test
+    @DisplayName("Al detenerse termina de persistir lo que quedaba en la cola")
+    void shutdownDrainsQueue() throws Exception {
+        jdbcTemplate.blockFirstInsert();
+        writer.init();
+        List<Notification> persisted = new CopyOnWriteArrayList<>();
+        writer.enqueue(notification(1), persisted::add);
+        assertTrue(jdbcTemplate.insertStarted.await(5, TimeUnit.SECONDS));
+        writer.enqueue(notification(2), persisted::add);
+        writer.enqueue(notification(3), persisted::add);
+
+        jdbcTemplate.release.countDown();
+        writer.shutdown();
+
+        assertEquals(3, persisted.size());
+        assertEquals(0, writer.getQueueSize());
+    }
+
+    private static Notification notification(int userId) {
+        return Notification.createActivityReminderNotification(userId, 3);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Registra los lotes insertados y los estados actualizados; puede fallar inserciones o retener la primera
+     */
+    private static class StubNamedJdbcTemplate extends NamedParameterJdbcTemplate {
+        private final List<Integer> insertBatchSizes = new CopyOnWriteArrayList<>();
+        private final List<String> statusUpdates = new CopyOnWriteArrayList<>();
+        private final AtomicInteger insertCalls = new AtomicInteger();
+        private final AtomicInteger failingInserts = new AtomicInteger();
+        private final CountDownLatch insertStarted = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blockFirst;
+
+        StubNamedJdbcTemplate() {
+            super(new JdbcTemplate());
+        }
+
+        void blockFirstInsert() {
+            blockFirst = true;
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
+            insertCalls.incrementAndGet();
+            if (blockFirst) {
+                blockFirst = false;
+                insertStarted.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failingInserts.getAndDecrement() > 0) {
+                throw new DataAccessResourceFailureException("conexión perdida");
+            }
+            insertBatchSizes.add(batchArgs.length);
+            int[] results = new int[batchArgs.length];
+            Arrays.fill(results, 1);
+            return results;
+        }
+
+        @Override
+        public int update(String sql, SqlParameterSource paramSource) {
+            String column = sql.substring(sql.indexOf("SET ") + 4, sql.indexOf(" = :status"));
+            List<?> uids = new ArrayList<>((List<?>) paramSource.getValue("uids"));
+            statusUpdates.add(column + "=" + paramSource.getValue("status") + uids);
+            return uids.size();
+        }
+    }
+}
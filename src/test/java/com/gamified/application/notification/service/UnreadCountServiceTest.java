@@ -0,0 +1,181 @@
+package com.gamified.application.notification.service;
+
+import com.gamified.application.notification.model.entity.Notification;
+import com.gamified.application.notification.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests del contador en memoria de no leídas y de su conciliación con la BD (sin contexto de Spring)
+ */
+@DisplayName("UnreadCountService - Contador y conciliación")
+class UnreadCountServiceTest {
+
+    private StubNotificationRepository repository;
+    private SimpleMeterRegistry meterRegistry;
+    private UnreadCountService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = new StubNotificationRepository();
+        meterRegistry = new SimpleMeterRegistry();
+        service = new UnreadCountService();
+        ReflectionTestUtils.setField(service, "notificationRepository", repository);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "maxUsers", 2);
+        ReflectionTestUtils.setField(service, "reconcileBatchSize", 500);
+        service.init();
+    }
+
+    @Test
+    @DisplayName("Solo la primera consulta cuenta en la BD; después se ajusta con entregas y lecturas")
+    void loadsOnceAndAdjusts() {
+        repository.unread.put(10, 3);
+
+        assertEquals(3, service.getUnreadCount(10));
+        service.onDelivered(Notification.createActivityReminderNotification(10, 4));
+        service.onRemoved(10, 2);
+
+        assertEquals(2, service.getUnreadCount(10));
+        assertEquals(1, repository.countQueries);
+
+        service.onAllRead(10);
+        assertEquals(0, service.getUnreadCount(10));
+    }
+
+    @Test
+    @DisplayName("Una entrega a un usuario sin contador en memoria no carga nada")
+    void deliveryWithoutCounterIsIgnored() {
+        service.onDelivered(Notification.createActivityReminderNotification(10, 4));
+
+        assertEquals(0, repository.countQueries);
+        repository.unread.put(10, 1);
+        assertEquals(1, service.getUnreadCount(10));
+    }
+
+    @Test
+    @DisplayName("Los contadores desalojados por tamaño se vuelven a cargar de la BD")
+    void evictsLeastRecentlyUsed() {
+        service.getUnreadCount(10);
+        service.getUnreadCount(11);
+        service.getUnreadCount(12);
+
+        service.getUnreadCount(10);
+
+        assertEquals(4, repository.countQueries);
+    }
+
+    @Test
+    @DisplayName("La conciliación corrige los contadores desviados")
+    void reconcileCorrectsDrift() {
+        repository.unread.put(10, 3);
+        repository.unread.put(11, 1);
+        service.getUnreadCount(10);
+        service.getUnreadCount(11);
+        repository.unread.put(10, 5);
+
+        service.reconcile();
+
+        assertEquals(5, service.getUnreadCount(10));
+        assertEquals(1, service.getUnreadCount(11));
+        assertEquals(1.0, meterRegistry.get("notification.unread.corrections").counter().count());
+    }
+
+    @Test
+    @DisplayName("Un cambio del contador durante el recuento no se sobrescribe con el recuento anterior")
+    void reconcileKeepsConcurrentChange() {
+        repository.unread.put(10, 3);
+        service.getUnreadCount(10);
+        // La BD ya tiene la nueva notificación, pero el recuento se leyó antes de que llegara
+        repository.onRecount = () -> service.onDelivered(Notification.createActivityReminderNotification(10, 4));
+        repository.unread.put(10, 2);
+
+        service.reconcile();
+
+        assertEquals(4, service.getUnreadCount(10));
+
+        repository.onRecount = null;
+        repository.unread.put(10, 4);
+        service.reconcile();
+        assertEquals(4, service.getUnreadCount(10));
+    }
+
+    private static class StubNotificationRepository implements NotificationRepository {
+        private final Map<Integer, Integer> unread = new HashMap<>();
+        private int countQueries;
+        private Runnable onRecount;
+
+        @Override
+        public int countUnread(Integer userId) {
+            countQueries++;
+            return unread.getOrDefault(userId, 0);
+        }
+
+        @Override
+        public Map<Integer, Integer> countUnreadByUsers(List<Integer> userIds) {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Integer userId : userIds) {
+                counts.put(userId, unread.getOrDefault(userId, 0));
+            }
+            if (onRecount != null) {
+                onRecount.run();
+            }
+            return counts;
+        }
+
+        @Override
+        public int insertBatch(List<Notification> notifications) {
+            return notifications.size();
+        }
+
+        @Override
+        public int updateDeliveryStatus(String channel, String status, List<String> notificationUids) {
+            return notificationUids.size();
+        }
+
+        @Override
+        public List<Notification> claimScheduled(List<String> notificationUids) {
+            return List.of();
+        }
+
+        @Override
+        public Map<Integer, Integer> deactivate(List<String> notificationUids) {
+            return Map.of();
+        }
+
+        @Override
+        public int deactivateExpired() {
+            return 0;
+        }
+
+        @Override
+        public long forEachUnsent(Consumer<Notification> consumer) {
+            return 0;
+        }
+
+        @Override
+        public long forEachExpiring(Consumer<Notification> consumer) {
+            return 0;
+        }
+
+        @Override
+        public int markAsRead(Integer userId, List<String> notificationUids) {
+            return 0;
+        }
+
+        @Override
+        public int markAllAsRead(Integer userId) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.gamified.application.progress.service;
+
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+import com.gamified.application.progress.repository.StudentActivityRepository;
+import com.gamified.application.shared.model.entity.JobCheckpoint;
+import com.gamified.application.shared.repository.JobCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del recorrido por páginas, el checkpoint y la reanudación de la carga inicial (sin contexto de Spring)
+ */
+@DisplayName("DailyStatsBackfillJob - Checkpoint y reanudación")
+class DailyStatsBackfillJobTest {
+
+    private StubActivityRepository activityRepository;
+    private StubCheckpointRepository checkpointRepository;
+    private DailyStatsBackfillJob job;
+
+    @BeforeEach
+    void setUp() {
+        activityRepository = new StubActivityRepository(List.of(3, 5, 8, 13, 21));
+        checkpointRepository = new StubCheckpointRepository();
+        // Sin incrementos pendientes el flush no usa la transacción
+        StudentActivityTracker tracker = new StudentActivityTracker(activityRepository, null);
+        job = new DailyStatsBackfillJob(activityRepository, checkpointRepository, tracker);
+        ReflectionTestUtils.setField(job, "backfillDays", 400);
+        ReflectionTestUtils.setField(job, "pageSize", 2);
+    }
+
+    @Test
+    @DisplayName("Recorre todas las páginas, guarda el avance y queda completada")
+    void completesAllPages() {
+        assertFalse(job.isCompleted());
+
+        Map<String, Object> report = job.run();
+
+        assertEquals(JobCheckpoint.COMPLETED, report.get("status"));
+        assertEquals(List.of("0-5", "5-13", "13-21"), activityRepository.rebuilt);
+        assertEquals(21L, checkpointRepository.checkpoint.getLastKey());
+        assertEquals(5L, checkpointRepository.checkpoint.getProcessed());
+        assertTrue(job.isCompleted());
+    }
+
+    @Test
+    @DisplayName("Si una página falla se detiene sin avanzar el checkpoint y la siguiente ejecución continúa desde ahí")
+    void resumesAfterInterruption() {
+        activityRepository.failOnPageAfter = 5;
+
+        Map<String, Object> interrupted = job.run();
+
+        assertEquals("INTERRUPTED", interrupted.get("status"));
+        assertEquals(5L, checkpointRepository.checkpoint.getLastKey());
+        assertFalse(job.isCompleted());
+
+        activityRepository.failOnPageAfter = null;
+        activityRepository.rebuilt.clear();
+        Map<String, Object> resumed = job.run();
+
+        assertEquals(5L, resumed.get("resumed_from"));
+        assertEquals(List.of("5-13", "13-21"), activityRepository.rebuilt);
+        assertEquals(5L, checkpointRepository.checkpoint.getProcessed());
+        assertTrue(job.isCompleted());
+    }
+
+    @Test
+    @DisplayName("Al iniciar con la carga ya completada no recalcula nada y habilita los contadores")
+    void startupWithCompletedCheckpoint() {
+        checkpointRepository.checkpoint = JobCheckpoint.builder()
+                .jobName(DailyStatsBackfillJob.JOB_NAME)
+                .lastKey(21L)
+                .processed(5L)
+                .status(JobCheckpoint.COMPLETED)
+                .startedAt(LocalDateTime.now())
+                .build();
+
+        job.onApplicationReady();
+
+        assertTrue(activityRepository.rebuilt.isEmpty());
+        assertTrue(job.isCompleted());
+    }
+
+    private static class StubActivityRepository implements StudentActivityRepository {
+        private final List<Integer> studentIds;
+        private final List<String> rebuilt = new ArrayList<>();
+        private Integer failOnPageAfter;
+
+        StubActivityRepository(List<Integer> studentIds) {
+            this.studentIds = studentIds;
+        }
+
+        @Override
+        public Optional<LocalDateTime> findLastActivity(Integer studentProfileId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<StudentDailyStats> findDailyStats(Integer studentProfileId, LocalDate fromDate, LocalDate toDate) {
+            return List.of();
+        }
+
+        @Override
+        public int saveLastActivities(Map<Integer, LocalDateTime> lastActivities) {
+            return lastActivities.size();
+        }
+
+        @Override
+        public int addDailyStats(List<StudentDailyStats> increments) {
+            return increments.size();
+        }
+
+        @Override
+        public List<Integer> findStudentIdsAfter(int afterId, int limit) {
+            return studentIds.stream().filter(id -> id > afterId).limit(limit).toList();
+        }
+
+        @Override
+        public int rebuildDailyStats(int afterId, int toId, LocalDate fromDate, LocalDate toDate) {
+            if (failOnPageAfter != null && failOnPageAfter == afterId) {
+                return -1;
+            }
+            rebuilt.add(afterId + "-" + toId);
+            return 10;
+        }
+    }
+
+    private static class StubCheckpointRepository implements JobCheckpointRepository {
+        private JobCheckpoint checkpoint;
+
+        @Override
+        public Optional<JobCheckpoint> findByJobName(String jobName) {
+            // Copia, como al leerlo de la BD
+            return Optional.ofNullable(checkpoint).map(saved -> JobCheckpoint.builder()
+                    .jobName(saved.getJobName())
+                    .lastKey(saved.getLastKey())
+                    .processed(saved.getProcessed())
+                    .status(saved.getStatus())
+                    .startedAt(saved.getStartedAt())
+                    .build());
+        }
+
+        @Override
+        public boolean save(JobCheckpoint checkpoint) {
+            this.checkpoint = JobCheckpoint.builder()
+                    .jobName(checkpoint.getJobName())
+                    .lastKey(checkpoint.getLastKey())
+                    .processed(checkpoint.getProcessed())
+                    .status(checkpoint.getStatus())
+                    .startedAt(checkpoint.getStartedAt())
+                    .build();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.gamified.application.progress.service;
+
+import com.gamified.application.progress.model.entity.StudentActivity;
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+import com.gamified.application.progress.repository.StudentActivityRepository;
+import com.gamified.application.shared.model.event.DomainEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests de la ventana de 7 días de actividad por estudiante y del guardado de incrementos
+ * (sin contexto de Spring)
+ */
+@DisplayName("StudentActivityTracker - Ventana de actividad y guardado")
+class StudentActivityTrackerTest {
+
+    @Test
+    @DisplayName("Solo cuentan los intentos de los últimos 7 días")
+    void countsOnlyLastSevenDays() {
+        LocalDate today = LocalDate.of(2025, 3, 10);
+        StudentActivityTracker.ActivityWindow window = new StudentActivityTracker.ActivityWindow();
+
+        window.record(today.minusDays(7).atTime(10, 0), true);  // fuera de la ventana
+        window.record(today.minusDays(6).atTime(10, 0), true);
+        window.record(today.atTime(9, 0), false);
+        window.record(today.atTime(11, 30), true);
+
+        StudentActivity activity = window.toActivity(1, today);
+
+        assertEquals(3, activity.getAttemptsLast7Days());
+        assertEquals(2, activity.getCorrectLast7Days());
+        assertEquals(LocalDateTime.of(2025, 3, 10, 11, 30), activity.getLastActivityAt());
+    }
+
+    @Test
+    @DisplayName("Un día nuevo reutiliza la posición del día que salió de la ventana")
+    void newDayReplacesExpiredSlot() {
+        LocalDate today = LocalDate.of(2025, 3, 10);
+        StudentActivityTracker.ActivityWindow window = new StudentActivityTracker.ActivityWindow();
+
+        window.add(today.minusDays(7), 5, 5);
+        window.add(today, 2, 1);
+        window.add(today.minusDays(7), 3, 3); // más antiguo que el día que ocupa la posición: se ignora
+
+        StudentActivity activity = window.toActivity(1, today);
+
+        assertEquals(2, activity.getAttemptsLast7Days());
+        assertEquals(1, activity.getCorrectLast7Days());
+    }
+
+    @Test
+    @DisplayName("Si falla el guardado se deshace la transacción y los incrementos se reintentan una sola vez")
+    void failedFlushRollsBackAndRetries() {
+        StubRepository repository = new StubRepository();
+        StubTransactionManager transactionManager = new StubTransactionManager();
+        StudentActivityTracker tracker = new StudentActivityTracker(repository, new TransactionTemplate(transactionManager));
+
+        tracker.onExerciseCompleted(completed(7, true, 10, 60));
+        repository.failDailyStats = true;
+        tracker.flush();
+
+        assertEquals(0, transactionManager.commits);
+        assertEquals(1, transactionManager.rollbacks);
+
+        tracker.onExerciseCompleted(completed(7, false, 0, 30));
+        repository.failDailyStats = false;
+        tracker.flush();
+
+        assertEquals(1, transactionManager.commits);
+        assertEquals(1, repository.savedIncrements.size());
+        StudentDailyStats saved = repository.savedIncrements.get(0);
+        assertEquals(2, saved.getAttempts());
+        assertEquals(1, saved.getCorrect());
+        assertEquals(10, saved.getPoints());
+        assertEquals(90, saved.getTimeSpentSeconds());
+
+        // Guardado con éxito: no queda nada pendiente
+        tracker.flush();
+        assertEquals(1, transactionManager.commits);
+        assertEquals(1, repository.savedIncrements.size());
+    }
+
+    private static DomainEvent.ExerciseCompletedEvent completed(Integer studentId, boolean correct, int score, int timeSpent) {
+        return DomainEvent.ExerciseCompletedEvent.builder()
+                .studentProfileId(studentId)
+                .isCorrect(correct)
+                .score((double) score)
+                .timeSpentSeconds(timeSpent)
+                .build();
+    }
+
+    private static class StubRepository implements StudentActivityRepository {
+        private boolean failDailyStats;
+        private final List<StudentDailyStats> savedIncrements = new ArrayList<>();
+
+        @Override
+        public Optional<LocalDateTime> findLastActivity(Integer studentProfileId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<StudentDailyStats> findDailyStats(Integer studentProfileId, LocalDate fromDate, LocalDate toDate) {
+            return List.of();
+        }
+
+        @Override
+        public int saveLastActivities(Map<Integer, LocalDateTime> lastActivities) {
+            return lastActivities.size();
+        }
+
+        @Override
+        public int addDailyStats(List<StudentDailyStats> increments) {
+            if (failDailyStats) {
+                throw new DataAccessResourceFailureException("conexión perdida");
+            }
+            savedIncrements.addAll(increments);
+            return increments.size();
+        }
+
+        @Override
+        public List<Integer> findStudentIdsAfter(int afterId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public int rebuildDailyStats(int afterId, int toId, LocalDate fromDate, LocalDate toDate) {
+            return 0;
+        }
+    }
+
+    private static class StubTransactionManager implements PlatformTransactionManager {
+        private int commits;
+        private int rollbacks;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            commits++;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbacks++;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.gamified.application.report.service;
+
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+import com.gamified.application.progress.repository.StudentActivityRepository;
+import com.gamified.application.progress.service.DailyStatsBackfillJob;
+import com.gamified.application.progress.service.StudentActivityTracker;
+import com.gamified.application.report.model.entity.StudentReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del reporte de aula combinado a partir de las consultas agrupadas por estudiante
+ * (sin contexto de Spring)
+ */
+@DisplayName("ClassroomReportEngine - Reporte combinado por estudiante")
+class ClassroomReportEngineTest {
+
+    private static final LocalDateTime PERIOD_START = LocalDateTime.of(2025, 3, 3, 0, 0);
+    private static final LocalDateTime PERIOD_END = LocalDateTime.of(2025, 3, 9, 18, 0);
+
+    private FixtureJdbcTemplate jdbcTemplate;
+    private ClassroomReportEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new FixtureJdbcTemplate();
+        // Ana: activa, con racha y logros; Beto: sin nombre ni racha y poca actividad; Caro: sin actividad
+        jdbcTemplate.students.add(row("student_profile_id", 1, "username", "Ana",
+                "current_streak_days", 4, "longest_streak_days", 9));
+        jdbcTemplate.students.add(row("student_profile_id", 2));
+        jdbcTemplate.students.add(row("student_profile_id", 3, "username", "Caro",
+                "current_streak_days", 0, "longest_streak_days", 2));
+        jdbcTemplate.exerciseTotals.add(row("student_profile_id", 1, "attempts", 10, "correct", 8,
+                "time_spent_seconds", 300L, "points", 80, "active_days", 3));
+        jdbcTemplate.exerciseTotals.add(row("student_profile_id", 2, "attempts", 4, "correct", 1,
+                "time_spent_seconds", 100L, "points", 10, "active_days", 1));
+        // Ya no inscrito: no debe aparecer
+        jdbcTemplate.exerciseTotals.add(row("student_profile_id", 99, "attempts", 5, "correct", 5,
+                "time_spent_seconds", 50L, "points", 50, "active_days", 1));
+        jdbcTemplate.achievements.add(row("student_profile_id", 1, "achievements_count", 2, "achievement_points", 50));
+
+        StudentActivityTracker tracker = new StudentActivityTracker(new StubActivityRepository(), null);
+        engine = new ClassroomReportEngine();
+        ReflectionTestUtils.setField(engine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(engine, "studentActivityTracker", tracker);
+        ReflectionTestUtils.setField(engine, "dailyStatsBackfillJob", new DailyStatsBackfillJob(null, null, tracker));
+    }
+
+    @Test
+    @DisplayName("Combina alumnos, métricas de ejercicios y logros en un reporte por estudiante")
+    void mergesPerStudentReports() {
+        List<StudentReport> reports = engine.generateClassroomReports(12, "WEEKLY", PERIOD_START, PERIOD_END);
+
+        assertEquals(3, reports.size());
+        StudentReport ana = reports.get(0);
+        StudentReport beto = reports.get(1);
+        StudentReport caro = reports.get(2);
+
+        assertEquals(1, ana.getStudentProfileId());
+        assertEquals("Ana", ana.getStudentUsername());
+        assertEquals(4, ana.getCurrentStreak());
+        assertEquals(9, ana.getLongestStreak());
+        assertEquals(10, ana.getTotalExercisesCompleted());
+        assertEquals(8, ana.getCorrectExercises());
+        assertEquals(80.0, ana.getSuccessRate());
+        assertEquals(30.0, ana.getAverageTimePerExercise());
+        assertEquals(80, ana.getTotalPointsEarned());
+        assertEquals(3, ana.getActiveDays());
+        assertEquals(2, ana.getAchievementsUnlocked());
+        assertEquals(50, ana.getTotalAchievementPoints());
+        assertEquals("NONE", ana.getAlertLevel());
+
+        assertEquals("Usuario Desconocido", beto.getStudentUsername());
+        assertEquals(0, beto.getCurrentStreak());
+        assertEquals(25.0, beto.getSuccessRate());
+        assertEquals(25.0, beto.getAverageTimePerExercise());
+        assertEquals(0, beto.getAchievementsUnlocked());
+        assertEquals("LOW", beto.getAlertLevel());
+
+        // Sin filas de actividad conserva los valores por defecto
+        assertEquals(0, caro.getTotalExercisesCompleted());
+        assertEquals(0.0, caro.getSuccessRate());
+        assertEquals(0.0, caro.getAverageTimePerExercise());
+        assertEquals(0, caro.getActiveDays());
+        assertEquals(0.0, caro.getOverallPerformanceScore());
+        assertEquals("HIGH", caro.getAlertLevel());
+    }
+
+    @Test
+    @DisplayName("El promedio cuenta como 0 a quien no tiene actividad y el ranking sigue la tasa de éxito")
+    void computesClassComparatives() {
+        List<StudentReport> reports = engine.generateClassroomReports(12, "WEEKLY", PERIOD_START, PERIOD_END);
+
+        for (StudentReport report : reports) {
+            assertEquals(3, report.getTotalClassmates());
+            assertEquals(35.0, report.getClassAverage());
+        }
+        assertEquals(List.of(1, 2, 3), reports.stream().map(StudentReport::getClassRanking).toList());
+    }
+
+    @Test
+    @DisplayName("Usa tres consultas para toda el aula con el periodo en días completos")
+    void usesThreeGroupedQueries() {
+        engine.generateClassroomReports(12, "WEEKLY", PERIOD_START, PERIOD_END);
+
+        assertEquals(3, jdbcTemplate.executed.size());
+        assertEquals(List.of(12), jdbcTemplate.args.get(0));
+        assertTrue(jdbcTemplate.executed.get(1).contains("FROM exercise_attempt ea"));
+        assertEquals(List.of(12, LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 10)), jdbcTemplate.args.get(1));
+        assertEquals(List.of(12, PERIOD_START, PERIOD_END), jdbcTemplate.args.get(2));
+    }
+
+    @Test
+    @DisplayName("Un aula sin estudiantes no lanza las consultas de métricas")
+    void emptyClassroom() {
+        jdbcTemplate.students.clear();
+
+        assertTrue(engine.generateClassroomReports(12, "WEEKLY", PERIOD_START, PERIOD_END).isEmpty());
+        assertEquals(1, jdbcTemplate.executed.size());
+    }
+
+    private static Map<String, Object> row(Object... keyValues) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            row.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return row;
+    }
+
+    /**
+     * Devuelve las filas del fixture según la consulta: alumnos, totales de ejercicios o logros
+     */
+    private static class FixtureJdbcTemplate extends JdbcTemplate {
+        private final List<Map<String, Object>> students = new ArrayList<>();
+        private final List<Map<String, Object>> exerciseTotals = new ArrayList<>();
+        private final List<Map<String, Object>> achievements = new ArrayList<>();
+        private final List<String> executed = new ArrayList<>();
+        private final List<List<Object>> args = new ArrayList<>();
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... params) {
+            executed.add(sql);
+            args.add(List.of(params));
+            List<Map<String, Object>> rows = sql.contains("LEFT JOIN student_profile") ? students
+                    : sql.contains("student_achievement") ? achievements
+                    : exerciseTotals;
+            for (Map<String, Object> values : rows) {
+                try {
+                    rch.processRow(resultSet(values));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        /**
+         * Fila de solo lectura con la semántica de JDBC para NULL (0 en getInt/getLong)
+         */
+        private static ResultSet resultSet(Map<String, Object> values) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, methodArgs) -> {
+                        Object value = values.get((String) methodArgs[0]);
+                        return switch (method.getName()) {
+                            case "getInt" -> value != null ? ((Number) value).intValue() : 0;
+                            case "getLong" -> value != null ? ((Number) value).longValue() : 0L;
+                            case "getString" -> value;
+                            default -> throw new UnsupportedOperationException(method.getName());
+                        };
+                    });
+        }
+    }
+
+    private static class StubActivityRepository implements StudentActivityRepository {
+        @Override
+        public Optional<LocalDateTime> findLastActivity(Integer studentProfileId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<StudentDailyStats> findDailyStats(Integer studentProfileId, LocalDate fromDate, LocalDate toDate) {
+            return List.of();
+        }
+
+        @Override
+        public int saveLastActivities(Map<Integer, LocalDateTime> lastActivities) {
+            return lastActivities.size();
+        }
+
+        @Override
+        public int addDailyStats(List<StudentDailyStats> increments) {
+            return increments.size();
+        }
+
+        @Override
+        public List<Integer> findStudentIdsAfter(int afterId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public int rebuildDailyStats(int afterId, int toId, LocalDate fromDate, LocalDate toDate) {
+            return 0;
+        }
+    }
+}
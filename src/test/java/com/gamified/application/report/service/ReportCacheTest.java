@@ -0,0 +1,132 @@
+package com.gamified.application.report.service;
+
+import com.gamified.application.report.model.entity.StudentReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la invalidación de reportes durante su cálculo y de las copias entregadas (sin contexto de Spring)
+ */
+@DisplayName("ReportCache - Invalidación y copias")
+class ReportCacheTest {
+
+    private ReportCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReportCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "softTtlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "maxAgeMs", 600_000L);
+        ReflectionTestUtils.setField(cache, "maxStudents", 100);
+        ReflectionTestUtils.setField(cache, "refreshThreads", 1);
+        cache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    @DisplayName("Un intento durante el cálculo descarta el resultado aunque el estudiante no tuviera reportes")
+    void invalidationDuringLoadOfAbsentStudent() {
+        AtomicInteger loads = new AtomicInteger();
+
+        StudentReport first = cache.get(7, "WEEKLY", "7d", () -> {
+            cache.invalidate(7);
+            return report(7, loads.incrementAndGet());
+        });
+        StudentReport second = cache.get(7, "WEEKLY", "7d", () -> report(7, loads.incrementAndGet()));
+
+        assertEquals(1, first.getTotalExercisesCompleted());
+        assertEquals(2, second.getTotalExercisesCompleted());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("La invalidación se respeta aunque los reportes del estudiante se desalojen durante el cálculo")
+    void invalidationDuringLoadOfEvictedStudent() {
+        ReflectionTestUtils.setField(cache, "maxStudents", 1);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(7, "WEEKLY", "7d", () -> report(7, loads.incrementAndGet()));
+
+        cache.get(7, "MONTHLY", "30d", () -> {
+            cache.invalidate(7);
+            // Otro estudiante ocupa la caché y desaloja al 7
+            cache.get(8, "WEEKLY", "7d", () -> report(8, 0));
+            return report(7, loads.incrementAndGet());
+        });
+        StudentReport reloaded = cache.get(7, "MONTHLY", "30d", () -> report(7, loads.incrementAndGet()));
+
+        assertEquals(3, reloaded.getTotalExercisesCompleted());
+    }
+
+    @Test
+    @DisplayName("Quien pide tras la invalidación no espera un cálculo que empezó antes")
+    void requestAfterInvalidationStartsNewLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<StudentReport> slowLoader = () -> {
+            started.countDown();
+            await(release);
+            return report(7, 1);
+        };
+
+        CompletableFuture<StudentReport> before = CompletableFuture.supplyAsync(() -> cache.get(7, "WEEKLY", "7d", slowLoader));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        cache.invalidate(7);
+        StudentReport after = cache.get(7, "WEEKLY", "7d", () -> report(7, 2));
+        release.countDown();
+
+        assertEquals(2, after.getTotalExercisesCompleted());
+        assertEquals(1, before.get(5, TimeUnit.SECONDS).getTotalExercisesCompleted());
+        // El cálculo anterior terminó después pero no reemplaza al más reciente
+        assertEquals(2, cache.get(7, "WEEKLY", "7d", () -> report(7, 3)).getTotalExercisesCompleted());
+    }
+
+    @Test
+    @DisplayName("Modificar el reporte recibido no altera el guardado ni el de otros llamadores")
+    void returnsCopies() {
+        StudentReport first = cache.get(7, "WEEKLY", "7d", () -> report(7, 5));
+        first.setTotalExercisesCompleted(99);
+        first.calculateAlertLevel();
+
+        StudentReport second = cache.get(7, "WEEKLY", "7d", () -> report(7, 6));
+
+        assertNotSame(first, second);
+        assertEquals(5, second.getTotalExercisesCompleted());
+        assertNull(second.getAlertLevel());
+    }
+
+    private static StudentReport report(Integer studentId, int totalExercises) {
+        StudentReport report = new StudentReport();
+        report.setStudentProfileId(studentId);
+        report.setTotalExercisesCompleted(totalExercises);
+        return report;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.gamified.application.report.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests del formato de las filas exportadas (sin contexto de Spring)
+ */
+@DisplayName("ReportExportWriter - Formato de exportación")
+class ReportExportWriterTest {
+
+    @Test
+    @DisplayName("CSV con BOM, comillas cuando hace falta y fórmulas neutralizadas")
+    void writesCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportExportWriter writer = ReportExportWriter.of(ReportExportService.Format.CSV, out, new ObjectMapper());
+
+        writer.writeHeader(new String[]{"username", "is_correct", "points", "completed_at"});
+        writer.writeRow(new Object[]{"Pérez, \"Ana\"", true, 15, Timestamp.valueOf(LocalDateTime.of(2025, 3, 10, 9, 5))});
+        writer.writeRow(new Object[]{"=SUM(A1)", false, null, null});
+        writer.finish();
+
+        assertEquals("\uFEFFusername,is_correct,points,completed_at\r\n"
+                + "\"Pérez, \"\"Ana\"\"\",1,15,2025-03-10T09:05\r\n"
+                + "'=SUM(A1),0,,\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("NDJSON con un objeto por línea y tipos conservados")
+    void writesNdjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportExportWriter writer = ReportExportWriter.of(ReportExportService.Format.NDJSON, out, new ObjectMapper());
+
+        writer.writeHeader(new String[]{"student_profile_id", "username", "is_correct", "avg"});
+        writer.writeRow(new Object[]{7, "ana", true, new BigDecimal("12.50")});
+        writer.writeRow(new Object[]{8, null, false, null});
+        writer.finish();
+
+        assertEquals("{\"student_profile_id\":7,\"username\":\"ana\",\"is_correct\":true,\"avg\":12.50}\n"
+                + "{\"student_profile_id\":8,\"username\":null,\"is_correct\":false,\"avg\":null}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,177 @@
+package com.gamified.application.report.service;
+
+import com.gamified.application.progress.model.entity.StudentDailyStats;
+import com.gamified.application.progress.repository.StudentActivityRepository;
+import com.gamified.application.progress.service.DailyStatsBackfillJob;
+import com.gamified.application.progress.service.StudentActivityTracker;
+import com.gamified.application.report.model.entity.StudentReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests del cambio de exercise_attempt a student_daily_stats al completarse la carga inicial
+ * (sin contexto de Spring)
+ */
+@DisplayName("ReportService - Origen de las métricas según la carga inicial")
+class ReportServiceTest {
+
+    private static final LocalDateTime PERIOD_START = LocalDateTime.of(2025, 3, 3, 0, 0);
+    private static final LocalDateTime PERIOD_END = LocalDateTime.of(2025, 3, 9, 18, 0);
+
+    private StubJdbcTemplate jdbcTemplate;
+    private DailyStatsBackfillJob backfillJob;
+    private ReportService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new StubJdbcTemplate();
+        StudentActivityTracker tracker = new StudentActivityTracker(new StubActivityRepository(), null);
+        backfillJob = new DailyStatsBackfillJob(null, null, tracker);
+
+        service = new ReportService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "studentActivityTracker", tracker);
+        ReflectionTestUtils.setField(service, "dailyStatsBackfillJob", backfillJob);
+    }
+
+    @Test
+    @DisplayName("Antes de completar la carga suma los intentos del periodo")
+    void usesAttemptsBeforeBackfill() {
+        StudentReport report = service.generateStudentReport(7, "WEEKLY", PERIOD_START, PERIOD_END);
+
+        String totalsSql = jdbcTemplate.sqlContaining("COUNT(DISTINCT CAST(ea.completed_at AS DATE))");
+        assertTrue(totalsSql.contains("FROM exercise_attempt ea"));
+        assertEquals(List.of(7, LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 10)), jdbcTemplate.argsOf(totalsSql));
+        assertEquals(4, report.getTotalExercisesCompleted());
+        assertEquals(3, report.getCorrectExercises());
+        assertEquals(30, report.getTotalPointsEarned());
+        assertEquals(30.0, report.getAverageTimePerExercise());
+        assertEquals(2, report.getActiveDays());
+        assertEquals(75.0, report.getSuccessRate());
+    }
+
+    @Test
+    @DisplayName("Con la carga completada suma los contadores diarios y no consulta los intentos")
+    void usesDailyStatsAfterBackfill() {
+        ReflectionTestUtils.setField(backfillJob, "completed", true);
+
+        StudentReport report = service.generateStudentReport(7, "WEEKLY", PERIOD_START, PERIOD_END);
+
+        assertTrue(jdbcTemplate.executed.stream().noneMatch(sql -> sql.contains("FROM exercise_attempt")));
+        assertEquals(5, report.getTotalExercisesCompleted());
+        assertEquals(5, report.getCorrectExercises());
+        assertEquals(50, report.getTotalPointsEarned());
+        assertEquals(1, report.getActiveDays());
+    }
+
+    @Test
+    @DisplayName("El resumen de aula cambia de origen con los mismos parámetros")
+    void classroomSummarySwitchesSource() {
+        service.generateClassroomSummary(12);
+        String before = jdbcTemplate.sqlContaining("total_students");
+
+        ReflectionTestUtils.setField(backfillJob, "completed", true);
+        service.generateClassroomSummary(12);
+        String after = jdbcTemplate.executed.get(jdbcTemplate.executed.size() - 1);
+
+        assertTrue(before.contains("FROM exercise_attempt ea"));
+        assertFalse(before.contains("student_daily_stats"));
+        assertTrue(after.contains("FROM student_daily_stats ds"));
+        assertFalse(after.contains("exercise_attempt"));
+
+        LocalDate today = LocalDate.now();
+        assertEquals(List.of(12, today.minusDays(6), today.plusDays(1), 12), jdbcTemplate.argsOf(after));
+    }
+
+    /**
+     * Responde solo a las consultas de totales y de resumen; el resto falla como sin BD y el
+     * servicio usa sus valores por defecto
+     */
+    private static class StubJdbcTemplate extends JdbcTemplate {
+        private final List<String> executed = new ArrayList<>();
+        private final List<List<Object>> args = new ArrayList<>();
+
+        @Override
+        public Map<String, Object> queryForMap(String sql, Object... params) {
+            executed.add(sql);
+            args.add(List.of(params));
+            if (sql.contains("total_students")) {
+                return Map.of("total_students", 3);
+            }
+            if (sql.contains("COUNT(DISTINCT CAST(ea.completed_at AS DATE)) AS active_days")
+                    && !sql.contains("GROUP BY")) {
+                return Map.of("attempts", 4, "correct", 3, "points", 30, "time_spent_seconds", 120L, "active_days", 2);
+            }
+            throw new EmptyResultDataAccessException(1);
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... params) {
+            executed.add(sql);
+            args.add(List.of(params));
+            throw new EmptyResultDataAccessException(1);
+        }
+
+        String sqlContaining(String fragment) {
+            return executed.stream().filter(sql -> sql.contains(fragment)).findFirst().orElseThrow();
+        }
+
+        List<Object> argsOf(String sql) {
+            return args.get(executed.lastIndexOf(sql));
+        }
+    }
+
+    private static class StubActivityRepository implements StudentActivityRepository {
+        @Override
+        public Optional<LocalDateTime> findLastActivity(Integer studentProfileId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<StudentDailyStats> findDailyStats(Integer studentProfileId, LocalDate fromDate, LocalDate toDate) {
+            return List.of(StudentDailyStats.builder()
+                    .studentProfileId(studentProfileId)
+                    .statDate(LocalDate.of(2025, 3, 5))
+                    .attempts(5)
+                    .correct(5)
+                    .points(50)
+                    .timeSpentSeconds(100)
+                    .build());
+        }
+
+        @Override
+        public int saveLastActivities(Map<Integer, LocalDateTime> lastActivities) {
+            return lastActivities.size();
+        }
+
+        @Override
+        public int addDailyStats(List<StudentDailyStats> increments) {
+            return increments.size();
+        }
+
+        @Override
+        public List<Integer> findStudentIdsAfter(int afterId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public int rebuildDailyStats(int afterId, int toId, LocalDate fromDate, LocalDate toDate) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gamified.application.shared.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la rueda jerárquica con un reloj manual
+ */
+@DisplayName("HierarchicalTimingWheel - Temporizador")
+class HierarchicalTimingWheelTest {
+
+    @Test
+    @DisplayName("Cada elemento se entrega al llegar su instante, también los de ruedas superiores")
+    void firesAtDueTimeAcrossLevels() throws InterruptedException {
+        AtomicLong clock = new AtomicLong(1_000);
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 8, clock::get);
+        wheel.schedule(100, "c");
+        wheel.schedule(3, "a");
+        wheel.schedule(20, "b");
+        assertEquals(3, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        for (long now = 1_000; now <= 1_100; now++) {
+            clock.set(now);
+            while (wheel.advance(0, item -> fired.add(item + "@" + clock.get())) > 0) {
+                // Una casilla superior puede redistribuir elementos que vencen en este mismo instante
+            }
+        }
+
+        assertEquals(List.of("a@1003", "b@1020", "c@1100"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Un elemento cancelado no se entrega")
+    void cancelledEntryIsNotFired() throws InterruptedException {
+        AtomicLong clock = new AtomicLong(0);
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 8, clock::get);
+        HierarchicalTimingWheel.Entry<String> entry = wheel.schedule(5, "x");
+
+        assertTrue(entry.cancel());
+        assertFalse(entry.cancel());
+        assertEquals(0, wheel.size());
+
+        clock.set(10);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(0, fired::add);
+        assertTrue(fired.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Un elemento ya vencido se entrega en el siguiente advance")
+    void overdueEntryFiresImmediately() throws InterruptedException {
+        AtomicLong clock = new AtomicLong(50);
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 8, clock::get);
+        wheel.schedule(-30, "late");
+
+        List<String> fired = new ArrayList<>();
+        assertEquals(1, wheel.advance(0, fired::add));
+        assertEquals(List.of("late"), fired);
+    }
+}
@@ -0,0 +1,62 @@
+package com.gamified.application.shared.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la cubeta de tokens con un reloj controlado
+ */
+@DisplayName("TokenBucket - Presupuesto por minuto")
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("No permite consumir más que la capacidad disponible")
+    void rejectsWhenExhausted() {
+        TokenBucket bucket = new TokenBucket(60, clock::get);
+
+        assertTrue(bucket.tryConsume(60));
+        assertFalse(bucket.tryConsume(1));
+    }
+
+    @Test
+    @DisplayName("Se recarga de forma continua según la tasa por minuto")
+    void refillsContinuously() {
+        TokenBucket bucket = new TokenBucket(60, clock::get);
+        bucket.tryConsume(60);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(10.0, bucket.getAvailable(), 1e-6);
+        assertTrue(bucket.tryConsume(10));
+        assertFalse(bucket.tryConsume(1));
+    }
+
+    @Test
+    @DisplayName("La reserva no se puede consumir y el tiempo de espera la tiene en cuenta")
+    void respectsReserve() {
+        TokenBucket bucket = new TokenBucket(60, clock::get);
+
+        assertFalse(bucket.tryConsume(50, 15));
+        assertTrue(bucket.tryConsume(45, 15));
+        assertEquals(TimeUnit.SECONDS.toNanos(5), bucket.nanosUntilAvailable(5, 15), 1_000.0);
+    }
+
+    @Test
+    @DisplayName("Nunca acumula más que la capacidad")
+    void capsAtCapacity() {
+        TokenBucket bucket = new TokenBucket(60, clock::get);
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+
+        assertEquals(60.0, bucket.getAvailable(), 1e-6);
+    }
+}